@@ -102,6 +102,18 @@ public class Constants {
   // Executors can use cpu load calculated from this period to take/skip polling turns
   public static final int DEFAULT_AZKABAN_POLLING_CRITERIA_CPU_LOAD_PERIOD_SEC = 60;
 
+  // Default max number of executors the web server updates or health checks at the same time
+  public static final int DEFAULT_EXECUTOR_POLL_THREADS = 10;
+
+  // Default max time a call updating or health checking an executor may take
+  public static final long DEFAULT_EXECUTOR_POLL_TIMEOUT_MS = 30000;
+
+  // Default max time a flow trigger dependency status change waits to be written in a batch
+  public static final long DEFAULT_FLOW_TRIGGER_STATUS_BATCH_DELAY_MS = 200;
+
+  // Default max number of flow trigger dependency status changes written per batch
+  public static final int DEFAULT_FLOW_TRIGGER_STATUS_BATCH_SIZE = 500;
+
   public static class ConfigurationKeys {
 
     // Configures Azkaban to use new polling model for dispatching
@@ -121,6 +133,36 @@ public class Constants {
     public static final String AZKABAN_EXECUTOR_MAX_FAILURE_COUNT = "azkaban.executor.max.failurecount";
     public static final String AZKABAN_ADMIN_ALERT_EMAIL = "azkaban.admin.alert.email";
 
+    // max number of executors the web server updates or health checks at the same time
+    public static final String AZKABAN_EXECUTOR_POLL_THREADS = "azkaban.executor.poll.threads";
+
+    // max time in ms a call updating or health checking an executor may take
+    public static final String AZKABAN_EXECUTOR_POLL_TIMEOUT_MS =
+        "azkaban.executor.poll.timeout_ms";
+
+    // When enabled, executors persist only the changed nodes of a running flow and rewrite the
+    // full flow data once the flow finishes.
+    public static final String AZKABAN_EXECUTION_DELTA_UPDATE_ENABLED =
+        "azkaban.execution.delta_update.enabled";
+
+    // Encoding of the flow data of executions: PLAIN, GZIP or SMILE. Rows of any encoding are
+    // readable, so switch to SMILE only once all web and executor servers can read it.
+    public static final String AZKABAN_EXECUTION_FLOW_DATA_ENCODING_TYPE =
+        "azkaban.execution.flow_data.encoding_type";
+
+    // Size in bytes of the chunks execution logs are split into when uploaded to the DB
+    public static final String AZKABAN_EXECUTION_LOGS_CHUNK_SIZE =
+        "azkaban.execution.logs.chunk_size";
+    // Number of log chunks inserted per JDBC batch
+    public static final String AZKABAN_EXECUTION_LOGS_UPLOAD_BATCH_SIZE =
+        "azkaban.execution.logs.upload_batch_size";
+    // Codec used to compress uploaded log chunks: PLAIN, GZIP or LZ4
+    public static final String AZKABAN_EXECUTION_LOGS_ENCODING_TYPE =
+        "azkaban.execution.logs.encoding_type";
+    // Number of threads compressing log chunks while previous chunks are written to the DB
+    public static final String AZKABAN_EXECUTION_LOGS_COMPRESSION_THREADS =
+        "azkaban.execution.logs.compression_threads";
+
     // Configures Azkaban Flow Version in project YAML file
     public static final String AZKABAN_FLOW_VERSION = "azkaban-flow-version";
 
@@ -201,6 +243,10 @@ public class Constants {
     public static final String AZKABAN_KERBEROS_PRINCIPAL = "azkaban.kerberos.principal";
     public static final String AZKABAN_KEYTAB_PATH = "azkaban.keytab.path";
     public static final String PROJECT_TEMP_DIR = "project.temp.dir";
+    // if true, project files are stored as content-addressed blobs listed by a manifest per
+    // version, so files unchanged between versions are uploaded and downloaded only once.
+    public static final String AZKABAN_STORAGE_CONTENT_ADDRESSED =
+        "azkaban.storage.content_addressed.enabled";
 
     // Event reporting properties
     public static final String AZKABAN_EVENT_REPORTING_CLASS_PARAM =
@@ -261,6 +307,51 @@ public class Constants {
         "azkaban.executorselector.comparator.";
     public static final String QUEUEPROCESSING_ENABLED = "azkaban.queueprocessing.enabled";
 
+    // what the queue of flows is shared fairly between: project (default), user or none
+    public static final String QUEUE_FAIR_SHARE_TENANT = "azkaban.queue.fair_share.tenant";
+
+    // weights of the share of tenants in the queue, 1 if not listed. Format:
+    // <tenant 1>,<weight>;<tenant 2>,<weight>
+    public static final String QUEUE_FAIR_SHARE_WEIGHTS = "azkaban.queue.fair_share.weights";
+
+    // max number of running and dispatching flows of a project, over which its queued flows wait.
+    // Format: <project 1>,<number>;<project 2>,<number>
+    public static final String QUEUE_MAX_RUNNING_PER_PROJECT =
+        "azkaban.queue.max_running_per_project";
+
+    // time in ms after which a queued flow goes ahead of flows of higher priority and other
+    // tenants, 0 to disable
+    public static final String QUEUE_AGING_THRESHOLD_MS = "azkaban.queue.aging.threshold_ms";
+
+    // max number of flows being dispatched to executors at the same time
+    public static final String MAX_IN_FLIGHT_DISPATCHES = "azkaban.dispatch.max_in_flight";
+
+    // max number of flows being dispatched to a single executor at the same time
+    public static final String MAX_IN_FLIGHT_DISPATCHES_PER_EXECUTOR =
+        "azkaban.dispatch.max_in_flight_per_executor";
+
+    // if true, executors push status changes of running flows to the web server through a long
+    // polled update stream, and the full update of running flows only reconciles periodically
+    public static final String EXECUTION_UPDATE_STREAM_ENABLED =
+        "azkaban.execution.update_stream.enabled";
+
+    // max time in ms an executor holds an update stream poll open waiting for status changes
+    public static final String EXECUTION_UPDATE_STREAM_POLL_TIMEOUT_MS =
+        "azkaban.execution.update_stream.poll_timeout_ms";
+
+    // interval in ms of the full update of running flows while update streams are enabled
+    public static final String EXECUTION_UPDATE_STREAM_RECONCILE_INTERVAL_MS =
+        "azkaban.execution.update_stream.reconcile_interval_ms";
+
+    // max time in ms a flow trigger dependency status change waits to be written to the DB
+    // together with other changes in one batch, 0 to write each change right away
+    public static final String FLOW_TRIGGER_STATUS_BATCH_DELAY_MS =
+        "azkaban.flow_trigger.status_batch.delay_ms";
+
+    // max number of flow trigger dependency status changes written to the DB in one batch
+    public static final String FLOW_TRIGGER_STATUS_BATCH_SIZE =
+        "azkaban.flow_trigger.status_batch.size";
+
     public static final String SESSION_TIME_TO_LIVE = "session.time.to.live";
 
     // allowed max number of sessions per user per IP
@@ -271,6 +362,20 @@ public class Constants {
     public static final String PROJECT_CACHE_SIZE_PERCENTAGE = "azkaban"
         + ".project_cache_size_percentage_of_disk";
 
+    // max number of projects an executor downloads and unzips at the same time
+    public static final String PROJECT_DOWNLOAD_MAX_CONCURRENCY =
+        "azkaban.project.download.max_concurrency";
+
+    // number of threads an executor uses to unzip the entries of downloaded projects
+    public static final String PROJECT_UNZIP_THREADS = "azkaban.project.unzip.threads";
+
+    // size in bytes of the chunks project files are stored in the DB in
+    public static final String PROJECT_FILE_CHUNK_SIZE = "azkaban.project.file.chunk_size";
+
+    // max number of project file chunks written to or read from the DB at the same time
+    public static final String PROJECT_FILE_CHUNK_IO_THREADS =
+        "azkaban.project.file.chunk_io_threads";
+
     // how many older versions of project files are kept in DB before deleting them
     public static final String PROJECT_VERSION_RETENTION = "project.version.retention";
 
@@ -330,6 +435,10 @@ public class Constants {
      * Format string for Log4j's EnhancedPatternLayout
      */
     public static final String JOB_LOG_LAYOUT = "azkaban.job.log.layout";
+
+    // If true, the output of process jobs is appended to the job log file as is, without the
+    // log layout and without being sent to the Kafka log appender.
+    public static final String JOB_LOG_RAW_OUTPUT = "azkaban.job.log.raw_output";
   }
 
   public static class JobCallbackProperties {
@@ -337,8 +446,29 @@ public class Constants {
     public static final String JOBCALLBACK_CONNECTION_REQUEST_TIMEOUT = "jobcallback.connection.request.timeout";
     public static final String JOBCALLBACK_CONNECTION_TIMEOUT = "jobcallback.connection.timeout";
     public static final String JOBCALLBACK_SOCKET_TIMEOUT = "jobcallback.socket.timeout";
+    // no longer used, as job callbacks are delivered without waiting for their responses
+    @Deprecated
     public static final String JOBCALLBACK_RESPONSE_WAIT_TIMEOUT = "jobcallback.response.wait.timeout";
+    // number of delivery threads, each delivering the job callbacks of a subset of the jobs in
+    // order
     public static final String JOBCALLBACK_THREAD_POOL_SIZE = "jobcallback.thread.pool.size";
+    // max number of job callbacks waiting for a delivery thread, split evenly between the
+    // threads, over which they are spilled to disk
+    public static final String JOBCALLBACK_QUEUE_CAPACITY = "jobcallback.queue.capacity";
+    // max number of open connections to a single callback host
+    public static final String JOBCALLBACK_MAX_CONNECTIONS_PER_HOST =
+        "jobcallback.max.connections.per.host";
+    // max number of open connections to all callback hosts
+    public static final String JOBCALLBACK_MAX_CONNECTIONS = "jobcallback.max.connections";
+    // max number of times a callback is tried when it fails to connect or gets a 5xx or 429, or
+    // for a GET callback, fails with any other error
+    public static final String JOBCALLBACK_MAX_ATTEMPTS = "jobcallback.max.attempts";
+    // time in ms before the first retry of a callback, doubled for each following retry
+    public static final String JOBCALLBACK_RETRY_BACKOFF = "jobcallback.retry.backoff";
+    // directory job callbacks are spilled to when the queue is full, and delivered from later
+    public static final String JOBCALLBACK_SPILL_DIR = "jobcallback.spill.dir";
+    // max number of spilled job callbacks, over which callbacks are dropped
+    public static final String JOBCALLBACK_SPILL_MAX_FILES = "jobcallback.spill.max.files";
   }
 
   public static class FlowTriggerProps {
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable open addressing map of the effective values of a {@link Props} chain, i.e. the value
+ * of each key from the closest level which defines it. A lookup is a single probe sequence in two
+ * flat arrays instead of a walk up the parent chain.
+ *
+ * <p>Null keys aren't supported and are left out.
+ */
+final class FlattenedPropsMap {
+
+  private final String[] keys;
+  private final String[] values;
+  private final int mask;
+  private final int size;
+  private final Set<String> keySet = new KeySet();
+
+  private FlattenedPropsMap(final String[] keys, final String[] values, final int size) {
+    this.keys = keys;
+    this.values = values;
+    this.mask = keys.length - 1;
+    this.size = size;
+  }
+
+  /**
+   * Flattens the props and all its parents.
+   */
+  static FlattenedPropsMap of(final Props props) {
+    int maxSize = 0;
+    for (Props curr = props; curr != null; curr = curr.getParent()) {
+      maxSize += curr.localSize();
+    }
+    // Keep the load factor at most 1/2 so that probe sequences stay short.
+    final int capacity = Math.max(2, Integer.highestOneBit(Math.max(1, maxSize)) << 2);
+    final String[] keys = new String[capacity];
+    final String[] values = new String[capacity];
+    final int mask = capacity - 1;
+
+    int size = 0;
+    // Children are visited first, so a key already in the table is overridden.
+    for (Props curr = props; curr != null; curr = curr.getParent()) {
+      for (final String key : curr.localKeySet()) {
+        if (key == null) {
+          continue;
+        }
+        int index = spread(key.hashCode()) & mask;
+        while (keys[index] != null && !keys[index].equals(key)) {
+          index = (index + 1) & mask;
+        }
+        if (keys[index] == null) {
+          keys[index] = key;
+          values[index] = curr.get(key);
+          size++;
+        }
+      }
+    }
+    return new FlattenedPropsMap(keys, values, size);
+  }
+
+  private static int spread(final int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private int indexOf(final Object key) {
+    if (!(key instanceof String)) {
+      return -1;
+    }
+    int index = spread(key.hashCode()) & this.mask;
+    String candidate;
+    while ((candidate = this.keys[index]) != null) {
+      if (candidate.equals(key)) {
+        return index;
+      }
+      index = (index + 1) & this.mask;
+    }
+    return -1;
+  }
+
+  boolean containsKey(final Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  /**
+   * @return the value of the key, null if the key is missing or its value is null
+   */
+  String get(final Object key) {
+    final int index = indexOf(key);
+    return index < 0 ? null : this.values[index];
+  }
+
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * @return unmodifiable view of the keys
+   */
+  Set<String> keySet() {
+    return this.keySet;
+  }
+
+  private class KeySet extends AbstractSet<String> {
+
+    @Override
+    public Iterator<String> iterator() {
+      return new Iterator<String>() {
+        private int next = advance(0);
+
+        private int advance(int index) {
+          while (index < FlattenedPropsMap.this.keys.length
+              && FlattenedPropsMap.this.keys[index] == null) {
+            index++;
+          }
+          return index;
+        }
+
+        @Override
+        public boolean hasNext() {
+          return this.next < FlattenedPropsMap.this.keys.length;
+        }
+
+        @Override
+        public String next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          final String key = FlattenedPropsMap.this.keys[this.next];
+          this.next = advance(this.next + 1);
+          return key;
+        }
+      };
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+      return containsKey(o);
+    }
+
+    @Override
+    public int size() {
+      return FlattenedPropsMap.this.size;
+    }
+  }
+}
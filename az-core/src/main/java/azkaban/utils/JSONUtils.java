@@ -32,9 +32,18 @@ import org.codehaus.jackson.JsonNode;
 import org.codehaus.jackson.JsonParser;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.map.ObjectWriter;
+import org.codehaus.jackson.smile.SmileFactory;
+import org.codehaus.jackson.smile.SmileGenerator;
 
 public class JSONUtils {
 
+  // Thread safe once configured. Creating one per call is expensive, as each mapper builds its
+  // own serializer caches.
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  // Same as MAPPER, but reads and writes Smile, the binary encoding of JSON
+  private static final ObjectMapper SMILE_MAPPER = new ObjectMapper(
+      new SmileFactory().configure(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES, true));
+
   /**
    * The constructor. Cannot construct this class.
    */
@@ -46,14 +55,12 @@ public class JSONUtils {
   }
 
   public static String toJSON(final Object obj, final boolean prettyPrint) {
-    final ObjectMapper mapper = new ObjectMapper();
-
     try {
       if (prettyPrint) {
-        final ObjectWriter writer = mapper.writerWithDefaultPrettyPrinter();
+        final ObjectWriter writer = MAPPER.writerWithDefaultPrettyPrinter();
         return writer.writeValueAsString(obj);
       }
-      return mapper.writeValueAsString(obj);
+      return MAPPER.writeValueAsString(obj);
     } catch (final Exception e) {
       throw new RuntimeException(e);
     }
@@ -65,14 +72,13 @@ public class JSONUtils {
 
   public static void toJSON(final Object obj, final OutputStream stream,
       final boolean prettyPrint) {
-    final ObjectMapper mapper = new ObjectMapper();
     try {
       if (prettyPrint) {
-        final ObjectWriter writer = mapper.writerWithDefaultPrettyPrinter();
+        final ObjectWriter writer = MAPPER.writerWithDefaultPrettyPrinter();
         writer.writeValue(stream, obj);
         return;
       }
-      mapper.writeValue(stream, obj);
+      MAPPER.writeValue(stream, obj);
     } catch (final Exception e) {
       throw new RuntimeException(e);
     }
@@ -103,32 +109,67 @@ public class JSONUtils {
   }
 
   public static Object parseJSONFromString(final String json) throws IOException {
-    final ObjectMapper mapper = new ObjectMapper();
-    final JsonFactory factory = new JsonFactory();
-    final JsonParser parser = factory.createJsonParser(json);
-    final JsonNode node = mapper.readTree(parser);
+    final JsonParser parser = MAPPER.getJsonFactory().createJsonParser(json);
+    final JsonNode node = MAPPER.readTree(parser);
 
     return toObjectFromJSONNode(node);
   }
 
   public static Object parseJSONFromFile(final File file) throws IOException {
-    final ObjectMapper mapper = new ObjectMapper();
-    final JsonFactory factory = new JsonFactory();
-    final JsonParser parser = factory.createJsonParser(file);
-    final JsonNode node = mapper.readTree(parser);
+    final JsonParser parser = MAPPER.getJsonFactory().createJsonParser(file);
+    final JsonNode node = MAPPER.readTree(parser);
 
     return toObjectFromJSONNode(node);
   }
 
   public static Object parseJSONFromReader(final Reader reader) throws IOException {
-    final ObjectMapper mapper = new ObjectMapper();
-    final JsonFactory factory = new JsonFactory();
-    final JsonParser parser = factory.createJsonParser(reader);
-    final JsonNode node = mapper.readTree(parser);
+    final JsonParser parser = MAPPER.getJsonFactory().createJsonParser(reader);
+    final JsonNode node = MAPPER.readTree(parser);
 
     return toObjectFromJSONNode(node);
   }
 
+  /**
+   * @return the factory of the shared mapper, for streaming reads and writes. The parsers and
+   * generators it creates can read and write whole values, e.g. with {@link #readValue}.
+   */
+  public static JsonFactory getJsonFactory() {
+    return MAPPER.getJsonFactory();
+  }
+
+  /**
+   * @return the factory of the shared Smile mapper. Smile is a binary encoding of JSON, which is
+   * smaller and faster to parse, and keeps the same data model.
+   */
+  public static JsonFactory getSmileFactory() {
+    return SMILE_MAPPER.getJsonFactory();
+  }
+
+  public static byte[] toSmile(final Object obj) throws IOException {
+    return SMILE_MAPPER.writeValueAsBytes(obj);
+  }
+
+  /**
+   * Parses Smile data, in the same form as {@link #parseJSONFromString(String)}.
+   */
+  public static Object parseSmile(final byte[] data) throws IOException {
+    final JsonParser parser = SMILE_MAPPER.getJsonFactory().createJsonParser(data);
+    final JsonNode node = SMILE_MAPPER.readTree(parser);
+
+    return toObjectFromJSONNode(node);
+  }
+
+  /**
+   * Reads the value at the current token of the parser, in the same form as
+   * {@link #parseJSONFromString(String)}: maps, lists, strings, numbers and booleans.
+   *
+   * @param parser a parser of {@link #getJsonFactory()} or {@link #getSmileFactory()}
+   */
+  public static Object readValue(final JsonParser parser) throws IOException {
+    final JsonNode node = MAPPER.readTree(parser);
+    return node == null ? null : toObjectFromJSONNode(node);
+  }
+
   private static Object toObjectFromJSONNode(final JsonNode node) {
     if (node.isObject()) {
       final HashMap<String, Object> obj = new HashMap<>();
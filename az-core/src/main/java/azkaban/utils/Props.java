@@ -40,13 +40,18 @@ import org.apache.log4j.Logger;
 
 /**
  * Hashmap implementation of a hierarchical properties with helpful converter functions and
- * Exception throwing. This class is not threadsafe.
+ * Exception throwing. This class is not threadsafe, except for the immutable snapshots returned
+ * by {@link #snapshot()}.
  */
 public class Props {
 
   private final Map<String, String> _current;
   private Props _parent;
   private String source = null;
+  // True for the levels of a snapshot, which can't be modified.
+  private final boolean immutable;
+  // Effective values of the whole chain. Only set on the top level of a snapshot.
+  private final FlattenedPropsMap flattened;
 
   /**
    * Constructor for empty props with empty parent.
@@ -61,6 +66,20 @@ public class Props {
   public Props(final Props parent) {
     this._current = new HashMap<>();
     this._parent = parent;
+    this.immutable = false;
+    this.flattened = null;
+  }
+
+  /**
+   * Constructor for a level of a snapshot.
+   */
+  private Props(final Props parent, final Map<String, String> current, final String source,
+      final FlattenedPropsMap flattened) {
+    this._current = Collections.unmodifiableMap(current);
+    this._parent = parent;
+    this.source = source;
+    this.immutable = true;
+    this.flattened = flattened;
   }
 
   /**
@@ -176,6 +195,53 @@ public class Props {
     return dest;
   }
 
+  /**
+   * Returns an immutable copy of this Props and all of its parents, for chains which are read
+   * much more often than they change. Lookups of the snapshot through {@link #get(Object)},
+   * {@link #containsKey(Object)} and {@link #getKeySet()} don't walk the parents but use a
+   * flattened map of the whole chain. The levels of the chain and their sources are kept, for
+   * code which needs them, e.g. through {@link #getParent()} and {@link #localKeySet()}.
+   *
+   * <p>The snapshot isn't affected by later changes to this Props. Modifying it throws
+   * {@link UnsupportedOperationException}, but a new Props can use it as its parent. It is safe to
+   * share between threads.
+   *
+   * @return the snapshot, or this Props if it is a snapshot already
+   */
+  public Props snapshot() {
+    if (this.flattened != null) {
+      return this;
+    }
+    final Props parent = this._parent == null ? null : this._parent.snapshotLevel();
+    return new Props(parent, new HashMap<>(this._current), this.source,
+        FlattenedPropsMap.of(this));
+  }
+
+  /**
+   * Copies this level and its parents as immutable levels, without flattening them.
+   */
+  private Props snapshotLevel() {
+    if (this.immutable) {
+      return this;
+    }
+    final Props parent = this._parent == null ? null : this._parent.snapshotLevel();
+    return new Props(parent, new HashMap<>(this._current), this.source, null);
+  }
+
+  /**
+   * @return the effective values of the chain, flattened
+   */
+  FlattenedPropsMap flatten() {
+    return this.flattened != null ? this.flattened : FlattenedPropsMap.of(this);
+  }
+
+  /**
+   * @return true if this Props is an immutable snapshot, or a level of one
+   */
+  public boolean isSnapshot() {
+    return this.immutable;
+  }
+
   /**
    * load this Prop Object from a @Properties formatted InputStream
    *
@@ -222,6 +288,9 @@ public class Props {
    * Check key in current Props then search in parent
    */
   public boolean containsKey(final Object k) {
+    if (this.flattened != null) {
+      return this.flattened.containsKey(k);
+    }
     return this._current.containsKey(k)
         || (this._parent != null && this._parent.containsKey(k));
   }
@@ -238,6 +307,9 @@ public class Props {
    * Return value if available in current Props otherwise return from parent
    */
   public String get(final Object key) {
+    if (this.flattened != null) {
+      return this.flattened.get(key);
+    }
     if (this._current.containsKey(key)) {
       return this._current.get(key);
     } else if (this._parent != null) {
@@ -262,6 +334,9 @@ public class Props {
   }
 
   public void setParent(final Props prop) {
+    if (this.immutable) {
+      throw new UnsupportedOperationException("A Props snapshot can't be modified.");
+    }
     this._parent = prop;
   }
 
@@ -360,6 +435,9 @@ public class Props {
    * The number of unique keys defined by this Props and all parent Props
    */
   public int size() {
+    if (this.flattened != null) {
+      return this.flattened.size();
+    }
     return getKeySet().size();
   }
 
@@ -791,9 +869,12 @@ public class Props {
   }
 
   /**
-   * Returns a set of all keys, including the parents
+   * Returns a set of all keys, including the parents. The set of a snapshot is unmodifiable.
    */
   public Set<String> getKeySet() {
+    if (this.flattened != null) {
+      return this.flattened.keySet();
+    }
     final HashSet<String> keySet = new HashSet<>();
 
     keySet.addAll(localKeySet());
@@ -876,6 +957,9 @@ public class Props {
    * Set Source information
    */
   public void setSource(final String source) {
+    if (this.immutable) {
+      throw new UnsupportedOperationException("A Props snapshot can't be modified.");
+    }
     this.source = source;
   }
 }
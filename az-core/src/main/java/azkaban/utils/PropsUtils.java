@@ -16,6 +16,8 @@
 package azkaban.utils;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.MapDifference;
 import com.google.common.collect.Maps;
 import java.io.File;
@@ -44,6 +46,17 @@ public class PropsUtils {
   private static final Logger logger = Logger.getLogger(PropsUtils.class);
   private static final Pattern VARIABLE_REPLACEMENT_PATTERN = Pattern
       .compile("\\$\\{([a-zA-Z_.0-9]+)\\}");
+  // Max number of compiled expressions kept
+  private static final int EXPRESSION_CACHE_SIZE = 1000;
+  // The engine and the expressions it creates are thread safe. Job properties of a project tend
+  // to use the same few expressions, so they are compiled once instead of for every job.
+  private static final JexlEngine JEXL = new JexlEngine();
+  private static final Cache<String, Expression> EXPRESSION_CACHE = CacheBuilder.newBuilder()
+      .maximumSize(EXPRESSION_CACHE_SIZE).build();
+
+  static {
+    JEXL.setCache(EXPRESSION_CACHE_SIZE);
+  }
 
   /**
    * Private constructor.
@@ -219,10 +232,15 @@ public class PropsUtils {
     }
 
     final Props resolvedProps = new Props();
+    // Each variable is looked up in the flattened chain rather than walking the levels.
+    final FlattenedPropsMap values = props.flatten();
 
+    // Resolved values by variable, so that a variable referenced by several properties is only
+    // resolved once.
+    final Map<String, String> resolvedVariables = new HashMap<>();
     final LinkedHashSet<String> visitedVariables = new LinkedHashSet<>();
-    for (final String key : props.getKeySet()) {
-      String value = props.get(key);
+    for (final String key : values.keySet()) {
+      String value = values.get(key);
       if (value == null) {
         logger.warn("Null value in props for key '" + key + "'. Replacing with empty string.");
         value = "";
@@ -230,120 +248,122 @@ public class PropsUtils {
 
       visitedVariables.add(key);
       final String replacedValue =
-          resolveVariableReplacement(value, props, visitedVariables);
+          resolveVariableReplacement(value, values, visitedVariables, resolvedVariables);
       visitedVariables.clear();
 
-      resolvedProps.put(key, replacedValue);
-    }
-
-    for (final String key : resolvedProps.getKeySet()) {
-      final String value = resolvedProps.get(key);
-      final String expressedValue = resolveVariableExpression(value);
-      resolvedProps.put(key, expressedValue);
+      resolvedProps.put(key, resolveVariableExpression(replacedValue));
     }
 
     return resolvedProps;
   }
 
-  private static String resolveVariableReplacement(final String value, final Props props,
-      final LinkedHashSet<String> visitedVariables) {
-    final StringBuffer buffer = new StringBuffer();
-    int startIndex = 0;
-
+  private static String resolveVariableReplacement(final String value,
+      final FlattenedPropsMap props, final LinkedHashSet<String> visitedVariables,
+      final Map<String, String> resolvedVariables) {
     final Matcher matcher = VARIABLE_REPLACEMENT_PATTERN.matcher(value);
-    while (matcher.find(startIndex)) {
-      if (startIndex < matcher.start()) {
-        // Copy everything up front to the buffer
-        buffer.append(value.substring(startIndex, matcher.start()));
-      }
+    if (!matcher.find()) {
+      return value;
+    }
+
+    final StringBuilder buffer = new StringBuilder(value.length() + 16);
+    int startIndex = 0;
+    do {
+      // Copy everything up front to the buffer
+      buffer.append(value, startIndex, matcher.start());
 
       final String subVariable = matcher.group(1);
-      // Detected a cycle
-      if (visitedVariables.contains(subVariable)) {
-        throw new IllegalArgumentException(String.format(
-            "Circular variable substitution found: [%s] -> [%s]",
-            StringUtils.join(visitedVariables, "->"), subVariable));
-      } else {
+      String replacement = resolvedVariables.get(subVariable);
+      if (replacement == null) {
+        // Detected a cycle
+        if (visitedVariables.contains(subVariable)) {
+          throw new IllegalArgumentException(String.format(
+              "Circular variable substitution found: [%s] -> [%s]",
+              StringUtils.join(visitedVariables, "->"), subVariable));
+        }
+
         // Add substitute variable and recurse.
-        final String replacement = props.get(subVariable);
+        final String subValue = props.get(subVariable);
         visitedVariables.add(subVariable);
 
-        if (replacement == null) {
+        if (subValue == null) {
           throw new UndefinedPropertyException(String.format(
               "Could not find variable substitution for variable(s) [%s]",
               StringUtils.join(visitedVariables, "->")));
         }
 
-        buffer.append(resolveVariableReplacement(replacement, props,
-            visitedVariables));
+        replacement = resolveVariableReplacement(subValue, props, visitedVariables,
+            resolvedVariables);
         visitedVariables.remove(subVariable);
+        resolvedVariables.put(subVariable, replacement);
       }
+      buffer.append(replacement);
 
       startIndex = matcher.end();
-    }
-
-    if (startIndex < value.length()) {
-      buffer.append(value.substring(startIndex));
-    }
+    } while (matcher.find());
 
+    buffer.append(value, startIndex, value.length());
     return buffer.toString();
   }
 
-  private static String resolveVariableExpression(final String value) {
-    final JexlEngine jexl = new JexlEngine();
-    return resolveVariableExpression(value, value.length(), jexl);
-  }
-
   /**
    * Function that looks for expressions to parse. It parses backwards to capture embedded
    * expressions
    */
-  private static String resolveVariableExpression(final String value, final int last,
-      final JexlEngine jexl) {
-    final int lastIndex = value.lastIndexOf("$(", last);
+  private static String resolveVariableExpression(final String value) {
+    int lastIndex = value.lastIndexOf("$(");
     if (lastIndex == -1) {
       return value;
     }
 
-    // Want to check that everything is well formed, and that
-    // we properly capture $( ...(...)...).
-    int bracketCount = 0;
-    int nextClosed = lastIndex + 2;
-    for (; nextClosed < value.length(); ++nextClosed) {
-      if (value.charAt(nextClosed) == '(') {
-        bracketCount++;
-      } else if (value.charAt(nextClosed) == ')') {
-        bracketCount--;
-        if (bracketCount == -1) {
-          break;
+    final StringBuilder buffer = new StringBuilder(value);
+    while (lastIndex != -1) {
+      // Want to check that everything is well formed, and that
+      // we properly capture $( ...(...)...).
+      int bracketCount = 0;
+      int nextClosed = lastIndex + 2;
+      for (; nextClosed < buffer.length(); ++nextClosed) {
+        if (buffer.charAt(nextClosed) == '(') {
+          bracketCount++;
+        } else if (buffer.charAt(nextClosed) == ')') {
+          bracketCount--;
+          if (bracketCount == -1) {
+            break;
+          }
         }
       }
-    }
 
-    if (nextClosed == value.length()) {
-      throw new IllegalArgumentException("Expression " + value
-          + " not well formed.");
-    }
+      if (nextClosed == buffer.length()) {
+        throw new IllegalArgumentException("Expression " + buffer
+            + " not well formed.");
+      }
 
-    final String innerExpression = value.substring(lastIndex + 2, nextClosed);
-    Object result = null;
-    try {
-      final Expression e = jexl.createExpression(innerExpression);
-      result = e.evaluate(new MapContext());
-    } catch (final JexlException e) {
-      throw new IllegalArgumentException("Expression " + value
-          + " not well formed. " + e.getMessage(), e);
-    }
+      final String innerExpression = buffer.substring(lastIndex + 2, nextClosed);
+      Object result = null;
+      try {
+        result = getExpression(innerExpression).evaluate(new MapContext());
+      } catch (final JexlException e) {
+        throw new IllegalArgumentException("Expression " + buffer
+            + " not well formed. " + e.getMessage(), e);
+      }
 
-    if (result == null) {
-      // for backward compatibility it is best to return value
-      return value;
+      if (result == null) {
+        // for backward compatibility it is best to return value
+        return buffer.toString();
+      }
+
+      buffer.replace(lastIndex, nextClosed + 1, result.toString());
+      lastIndex = buffer.lastIndexOf("$(", lastIndex);
     }
+    return buffer.toString();
+  }
 
-    final String newValue =
-        value.substring(0, lastIndex) + result.toString()
-            + value.substring(nextClosed + 1);
-    return resolveVariableExpression(newValue, lastIndex, jexl);
+  private static Expression getExpression(final String expression) {
+    Expression compiled = EXPRESSION_CACHE.getIfPresent(expression);
+    if (compiled == null) {
+      compiled = JEXL.createExpression(expression);
+      EXPRESSION_CACHE.put(expression, compiled);
+    }
+    return compiled;
   }
 
   /**
@@ -46,4 +46,63 @@ public class PropsTest {
     List<String> s6 = Arrays.asList("thrift://hcat1:port,thrift://hcat2:port");
     Assert.assertTrue(p.getStringListFromCluster(EXTRA_HCAT_CLUSTERS).equals(s6));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testSnapshotLookups() {
+    final Props grandParent = Props.of("a", "grandParent", "b", "grandParent");
+    grandParent.setSource("grandParent.properties");
+    final Props parent = Props.of(grandParent, "b", "parent", "c", "parent");
+    final Props props = Props.of(parent, "c", "child");
+    props.put("nullValue", (String) null);
+
+    final Props snapshot = props.snapshot();
+    Assert.assertTrue(snapshot.isSnapshot());
+    Assert.assertEquals("grandParent", snapshot.get("a"));
+    Assert.assertEquals("parent", snapshot.get("b"));
+    Assert.assertEquals("child", snapshot.get("c"));
+    Assert.assertNull(snapshot.get("missing"));
+    Assert.assertFalse(snapshot.containsKey("missing"));
+    Assert.assertTrue(snapshot.containsKey("nullValue"));
+    Assert.assertNull(snapshot.get("nullValue"));
+    Assert.assertEquals(props.getKeySet(), snapshot.getKeySet());
+    Assert.assertEquals(4, snapshot.size());
+    Assert.assertEquals(props, snapshot);
+    Assert.assertSame(snapshot, snapshot.snapshot());
+
+    // The levels are kept
+    Assert.assertEquals(props.localKeySet(), snapshot.localKeySet());
+    Assert.assertEquals("parent", snapshot.getParent().get("b"));
+    Assert.assertEquals("grandParent.properties", snapshot.getParent().getParent().getSource());
+
+    // Later changes to the original don't show
+    grandParent.put("d", "added");
+    props.put("c", "changed");
+    Assert.assertNull(snapshot.get("d"));
+    Assert.assertEquals("child", snapshot.get("c"));
+  }
+
+  @Test
+  public void testSnapshotIsImmutable() {
+    final Props snapshot = Props.of(Props.of("a", "1"), "b", "2").snapshot();
+    assertUnsupported(() -> snapshot.put("c", "3"));
+    assertUnsupported(() -> snapshot.getParent().put("c", "3"));
+    assertUnsupported(() -> snapshot.removeLocal("b"));
+    assertUnsupported(() -> snapshot.setParent(null));
+    assertUnsupported(() -> snapshot.getKeySet().remove("a"));
+
+    // A snapshot can be the parent of new props
+    final Props child = new Props(snapshot);
+    child.put("a", "overridden");
+    Assert.assertEquals("overridden", child.get("a"));
+    Assert.assertEquals("2", child.get("b"));
+  }
+
+  private static void assertUnsupported(final Runnable modification) {
+    try {
+      modification.run();
+      Assert.fail("Expected UnsupportedOperationException");
+    } catch (final UnsupportedOperationException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package trigger.kafka;
+
+import azkaban.flowtrigger.DependencyInstanceCallback;
+import azkaban.flowtrigger.DependencyInstanceContext;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import trigger.kafka.Constants.DependencyInstanceConfigKey;
+
+/**
+ * Measures the records per second the monitor matches against the dependencies waiting on their
+ * topic, as the number of dependencies grows. The records come from a {@link MockConsumer} and
+ * match none of the dependencies, like most records of a busy topic, so that the dependencies
+ * stay in place between invocations.
+ *
+ * <p>Run with {@code ./gradlew :az-flow-trigger-dependency-type:kafka-event-trigger:jmh}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KafkaEventMonitorBenchmark {
+
+  private static final String TOPIC = "AzBenchmark_Topic";
+  private static final int RECORDS = 1000;
+
+  @Param({"10", "100", "1000"})
+  public int dependencies;
+
+  private KafkaEventMonitor monitor;
+  private ConsumerRecords<String, String> records;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    final MockConsumer<String, String> consumer =
+        new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    this.monitor = new KafkaEventMonitor(consumer, 4);
+    final DependencyInstanceCallback callback = new DependencyInstanceCallback() {
+      @Override
+      public void onSuccess(final DependencyInstanceContext depContext) {
+      }
+
+      @Override
+      public void onCancel(final DependencyInstanceContext depContext) {
+      }
+    };
+    for (int i = 0; i < this.dependencies; i++) {
+      final Map<String, String> config = new HashMap<>();
+      config.put(DependencyInstanceConfigKey.TOPIC, TOPIC);
+      config.put(DependencyInstanceConfigKey.MATCH,
+          "\"job\":\"job_" + i + "\",\"status\":\"done\"");
+      config.put(DependencyInstanceConfigKey.NAME, "dep" + i);
+      this.monitor.add(new KafkaDependencyInstanceContext(config::get, null, callback));
+    }
+    this.monitor.consumerSubscriptionRebalance();
+
+    final TopicPartition partition = new TopicPartition(TOPIC, 0);
+    consumer.rebalance(Collections.singletonList(partition));
+    consumer.updateBeginningOffsets(Collections.singletonMap(partition, 0L));
+    final Random random = new Random(42);
+    for (int offset = 0; offset < RECORDS; offset++) {
+      consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, offset, null,
+          "{\"job\":\"job_" + random.nextInt(this.dependencies) + "\",\"status\":\"running\","
+              + "\"cluster\":\"cluster" + random.nextInt(10) + "\"}"));
+    }
+    this.records = consumer.poll(0);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public void processRecords() throws InterruptedException {
+    this.monitor.processRecords(this.records);
+  }
+}
@@ -20,6 +20,8 @@ public class Constants {
   public static class DependencyPluginConfigKey {
     //Define where the Kafka brocker is located.
     public static final String KAKFA_BROKER_URL = "kafka.broker.url";
+    //Number of threads matching the consumed records against the dependencies.
+    public static final String MONITOR_THREADS = "kafka.monitor.threads";
   }
   
   /**
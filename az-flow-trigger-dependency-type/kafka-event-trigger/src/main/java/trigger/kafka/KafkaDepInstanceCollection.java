@@ -20,7 +20,6 @@ import com.google.common.base.Joiner;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -47,17 +46,38 @@ import java.util.regex.Pattern;
  *  }
  * }
  *
+ * Writes are synchronized and publish an immutable snapshot of the changed topic, with the rules
+ * compiled once into a {@link MultiRegexKafkaDependencyMatcher}. Lookups by the consumer read the
+ * snapshots without locking.
  */
 public class KafkaDepInstanceCollection {
 
   private final Map<String, Map<String, List<KafkaDependencyInstanceContext>>> topicEventMap;
+  // rule patterns compiled when first added, by topic and rule
+  private final Map<String, Map<String, Pattern>> topicPatternMap;
+  private volatile Map<String, TopicSnapshot> snapshots = Collections.emptyMap();
 
   public KafkaDepInstanceCollection() {
     this.topicEventMap = new HashMap<>();
+    this.topicPatternMap = new HashMap<>();
   }
 
+  /**
+   * @throws java.util.regex.PatternSyntaxException if the rule of the dependency isn't a valid
+   * regex
+   */
   public synchronized void add(final KafkaDependencyInstanceContext dep) {
     final String topic = dep.getTopicName();
+    Map<String, Pattern> patternMap = this.topicPatternMap.get(topic);
+    if (patternMap == null || !patternMap.containsKey(dep.getRegexMatch())) {
+      final Pattern pattern = Pattern.compile(dep.getRegexMatch());
+      if (patternMap == null) {
+        patternMap = new HashMap<>();
+        this.topicPatternMap.put(topic, patternMap);
+      }
+      patternMap.put(dep.getRegexMatch(), pattern);
+    }
+
     Map<String, List<KafkaDependencyInstanceContext>> eventMap = this.topicEventMap.get(topic);
     List<KafkaDependencyInstanceContext> depList;
     if (eventMap == null) {
@@ -72,18 +92,19 @@ public class KafkaDepInstanceCollection {
     depList.add(dep);
     eventMap.put(dep.getRegexMatch(), depList);
     this.topicEventMap.put(topic, eventMap);
+    publish(topic);
   }
 
   public boolean hasTopic(final String topic) {
-    return !(this.topicEventMap.get(topic) == null);
+    return this.snapshots.containsKey(topic);
   }
 
   /**
    * Get a list of topics.
    * @return List of String of topics
    */
-  public synchronized List<String> getTopicList() {
-    final List<String> res = new ArrayList<>(this.topicEventMap.keySet());
+  public List<String> getTopicList() {
+    final List<String> res = new ArrayList<>(this.snapshots.keySet());
     return res;
   }
 
@@ -92,30 +113,22 @@ public class KafkaDepInstanceCollection {
    * @param payload and topic
    * @return regexs that meet the customized requirement
    */
-  public synchronized Set<String> regexInTopic(final String topic, final String payload) {
-    final Set<String> res = new HashSet<>();
-    final Map<String, List<KafkaDependencyInstanceContext>> eventMap = this.topicEventMap.get(topic);
-    if (eventMap == null) {
+  public Set<String> regexInTopic(final String topic, final String payload) {
+    final TopicSnapshot snapshot = this.snapshots.get(topic);
+    if (snapshot == null) {
       return Collections.emptySet();
     }
-
-    for (final Map.Entry<String, List<KafkaDependencyInstanceContext>> entry : eventMap.entrySet()) {
-      final RegexKafkaDependencyMatcher matcher = new RegexKafkaDependencyMatcher(Pattern.compile(entry.getKey()));
-      if (matcher.isMatch(payload)) {
-        res.add(entry.getKey());
-      }
-    }
-    return res;
+    return snapshot.matcher.matchingRegexes(payload);
   }
 
   /**
    * Returns dependencies with topic and dependency's event regular expression match
    */
-  public synchronized List<KafkaDependencyInstanceContext> getDepsByTopicAndEvent(final String topic,
+  public List<KafkaDependencyInstanceContext> getDepsByTopicAndEvent(final String topic,
       final String regex) {
-    final Map<String, List<KafkaDependencyInstanceContext>> regexMap = this.topicEventMap.get(topic);
-    if (regexMap != null) {
-      return regexMap.get(regex);
+    final TopicSnapshot snapshot = this.snapshots.get(topic);
+    if (snapshot != null) {
+      return snapshot.regexMap.get(regex);
     }
     return Collections.emptyList();
   }
@@ -139,28 +152,76 @@ public class KafkaDepInstanceCollection {
         if (regexMap.isEmpty()) {
           this.topicEventMap.remove(dep.getTopicName());
         }
+        publish(dep.getTopicName());
       }
     }
   }
 
+  /**
+   * @return true if the list of topics hasn't changed
+   */
   public synchronized boolean removeList(final String topic, final String event,
       final List<KafkaDependencyInstanceContext> list) {
-    final List<String> ori = new ArrayList<>(this.topicEventMap.keySet());
-    final Map<String, List<KafkaDependencyInstanceContext>> eventMap = this.topicEventMap.get(topic);
-    if (eventMap != null) {
-      final List<KafkaDependencyInstanceContext> deps = eventMap.get(event);
-      if (deps != null) {
-        deps.removeAll(list);
-      }
+    final Map<String, List<KafkaDependencyInstanceContext>> eventMap =
+        this.topicEventMap.get(topic);
+    if (eventMap == null) {
+      return true;
+    }
+    final List<KafkaDependencyInstanceContext> deps = eventMap.get(event);
+    if (deps != null) {
+      deps.removeAll(list);
       if (deps.isEmpty()) {
         eventMap.remove(event);
       }
-      if (eventMap.isEmpty()) {
-        this.topicEventMap.remove(topic);
-      }
     }
-    final List<String> res = new ArrayList<>(this.topicEventMap.keySet());
-    return res == ori;
+    final boolean topicRemoved = eventMap.isEmpty();
+    if (topicRemoved) {
+      this.topicEventMap.remove(topic);
+    }
+    publish(topic);
+    return !topicRemoved;
+  }
+
+  /**
+   * Removes the dependencies with topic and dependency's event regular expression match.
+   * @return the removed dependencies, none if another thread removed them first
+   */
+  public synchronized List<KafkaDependencyInstanceContext> removeByTopicAndEvent(
+      final String topic, final String regex) {
+    final Map<String, List<KafkaDependencyInstanceContext>> eventMap =
+        this.topicEventMap.get(topic);
+    if (eventMap == null || !eventMap.containsKey(regex)) {
+      return Collections.emptyList();
+    }
+    final List<KafkaDependencyInstanceContext> deps = eventMap.remove(regex);
+    if (eventMap.isEmpty()) {
+      this.topicEventMap.remove(topic);
+    }
+    publish(topic);
+    return deps;
+  }
+
+  /**
+   * Replaces the snapshot of the topic by one of its current rules and dependencies.
+   */
+  private void publish(final String topic) {
+    final Map<String, TopicSnapshot> newSnapshots = new HashMap<>(this.snapshots);
+    final Map<String, List<KafkaDependencyInstanceContext>> eventMap =
+        this.topicEventMap.get(topic);
+    if (eventMap == null) {
+      newSnapshots.remove(topic);
+      this.topicPatternMap.remove(topic);
+    } else {
+      final Map<String, Pattern> patternMap = this.topicPatternMap.get(topic);
+      patternMap.keySet().retainAll(eventMap.keySet());
+      final TopicSnapshot previous = this.snapshots.get(topic);
+      // the rules of the topic are only recombined when they change
+      final MultiRegexKafkaDependencyMatcher matcher =
+          previous != null && previous.regexMap.keySet().equals(eventMap.keySet())
+              ? previous.matcher : new MultiRegexKafkaDependencyMatcher(patternMap);
+      newSnapshots.put(topic, new TopicSnapshot(eventMap, matcher));
+    }
+    this.snapshots = Collections.unmodifiableMap(newSnapshots);
   }
 
   @Override
@@ -168,4 +229,22 @@ public class KafkaDepInstanceCollection {
     final Joiner.MapJoiner mapJoiner = Joiner.on("\n").withKeyValueSeparator("=");
     return mapJoiner.join(this.topicEventMap);
   }
+
+  private static class TopicSnapshot {
+
+    private final Map<String, List<KafkaDependencyInstanceContext>> regexMap;
+    private final MultiRegexKafkaDependencyMatcher matcher;
+
+    private TopicSnapshot(final Map<String, List<KafkaDependencyInstanceContext>> eventMap,
+        final MultiRegexKafkaDependencyMatcher matcher) {
+      final Map<String, List<KafkaDependencyInstanceContext>> regexMap = new HashMap<>();
+      for (final Map.Entry<String, List<KafkaDependencyInstanceContext>> entry
+          : eventMap.entrySet()) {
+        regexMap.put(entry.getKey(),
+            Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+      }
+      this.regexMap = regexMap;
+      this.matcher = matcher;
+    }
+  }
 }
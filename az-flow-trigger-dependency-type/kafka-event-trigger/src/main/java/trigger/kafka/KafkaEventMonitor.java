@@ -17,21 +17,25 @@
 package trigger.kafka;
 
 import azkaban.flowtrigger.DependencyPluginConfig;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import org.apache.avro.generic.GenericData.Record;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.StringDeserializer;
-import com.google.common.annotations.VisibleForTesting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import trigger.kafka.Constants.DependencyPluginConfigKey;
@@ -39,27 +43,52 @@ import trigger.kafka.Constants.DependencyPluginConfigKey;
 
 /**
  * KafkaEventMonitor implements logic for kafka consumer and maintains the KafkaDepInstanceCollection for dependencies.
+ *
+ * The consumer thread polls the records and matches the records of each partition on a pool of
+ * workers, one task per partition so that the records of a partition are matched in order. It
+ * waits for the batch to be matched before polling again, so the auto-committed offsets never
+ * get ahead of the matching. The callbacks of the dependencies triggered by a batch are run
+ * together on a separate thread, so a slow callback doesn't hold up the consumption.
  */
 @SuppressWarnings("FutureReturnValueIgnored")
 public class KafkaEventMonitor implements Runnable {
   private final static Logger log = LoggerFactory.getLogger(KafkaEventMonitor.class);
   private static final String GROUP_ID =
       "group_" + KafkaEventMonitor.class.getSimpleName() + System.currentTimeMillis();
+  // subscribed to when no dependency waits on any topic, as the consumer can't poll without any
+  private static final String INIT_TOPIC = "AzEvent_Init_Topic";
+  private static final int DEFAULT_MONITOR_THREADS = 4;
   private final KafkaDepInstanceCollection depInstances;
-  private final ConcurrentLinkedQueue<String> subscribedTopics = new ConcurrentLinkedQueue<>();
-  private Consumer<String, String> consumer;
+  private final AtomicBoolean subscriptionChanged = new AtomicBoolean(false);
+  private final Consumer<String, String> consumer;
+  private final ExecutorService matchingPool;
+  private final ExecutorService callbackExecutor;
+  private final KafkaEventMonitorMetrics metrics = new KafkaEventMonitorMetrics();
 
   public KafkaEventMonitor(final DependencyPluginConfig pluginConfig) {
-    this.initKafkaClient(pluginConfig);
-    this.consumer.subscribe(Arrays.asList("AzEvent_Init_Topic"));
-    if (!this.subscribedTopics.isEmpty()) {
-      this.consumerSubscriptionRebalance();
-    }
+    this(createKafkaClient(pluginConfig), getMonitorThreads(pluginConfig));
+  }
 
+  @VisibleForTesting
+  KafkaEventMonitor(final Consumer<String, String> consumer, final int monitorThreads) {
+    this.consumer = consumer;
+    this.consumer.subscribe(Collections.singletonList(INIT_TOPIC));
     this.depInstances = new KafkaDepInstanceCollection();
+    this.matchingPool = Executors.newFixedThreadPool(monitorThreads,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azk-kafka-monitor-worker-%d")
+            .build());
+    this.callbackExecutor = Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azk-kafka-monitor-callback-%d")
+            .build());
   }
 
-  private void initKafkaClient(final DependencyPluginConfig pluginConfig) {
+  private static int getMonitorThreads(final DependencyPluginConfig pluginConfig) {
+    final String threads = pluginConfig.get(DependencyPluginConfigKey.MONITOR_THREADS);
+    return threads == null ? DEFAULT_MONITOR_THREADS : Integer.parseInt(threads);
+  }
+
+  private static Consumer<String, String> createKafkaClient(
+      final DependencyPluginConfig pluginConfig) {
     final Properties props = new Properties();
     props.put("bootstrap.servers", pluginConfig.get(DependencyPluginConfigKey.KAKFA_BROKER_URL));
     props.put("auto.commit.interval.ms", "1000");
@@ -69,22 +98,21 @@ public class KafkaEventMonitor implements Runnable {
     props.put("key.deserializer", StringDeserializer.class.getName());
     props.put("value.deserializer", StringDeserializer.class.getName());
 
-    this.consumer = new KafkaConsumer<String, String>(props);
+    return new KafkaConsumer<String, String>(props);
   }
 
   public void add(final KafkaDependencyInstanceContext context) {
-    if (!this.depInstances.hasTopic(context.getTopicName())) {
-      this.depInstances.add(context);
-      this.subscribedTopics.addAll(this.depInstances.getTopicList());
-    } else {
-      this.depInstances.add(context);
+    final boolean newTopic = !this.depInstances.hasTopic(context.getTopicName());
+    this.depInstances.add(context);
+    if (newTopic) {
+      this.subscriptionChanged.set(true);
     }
   }
 
   public void remove(final KafkaDependencyInstanceContext context) {
     this.depInstances.remove(context);
     if (!this.depInstances.hasTopic(context.getTopicName())) {
-      this.subscribedTopics.addAll(this.depInstances.getTopicList());
+      this.subscriptionChanged.set(true);
     }
   }
 
@@ -92,33 +120,27 @@ public class KafkaEventMonitor implements Runnable {
     return this.consumer.subscription();
   }
 
+  public KafkaEventMonitorMetrics getMetrics() {
+    return this.metrics;
+  }
+
   @Override
   public void run() {
     try {
       while (true && !Thread.interrupted()) {
-        if (!this.subscribedTopics.isEmpty()) {
+        if (this.subscriptionChanged.getAndSet(false)) {
           this.consumerSubscriptionRebalance();
         }
         final ConsumerRecords<String, String> records = this.consumer.poll(10000);
-        final Record recordToProcess = null;
-        for (final ConsumerRecord<String, String> record : records) {
-          try {
-            final String payload = record.value();
-            final Set<String> matchedList = this.depInstances.regexInTopic(record.topic(), payload);
-            if (!matchedList.isEmpty()) {
-              this.triggerDependencies(matchedList, record);
-            }
-          } catch (final Exception ex) {
-            log.error("failure when parsing record " + recordToProcess, ex);
-          }
-        }
-        if (!this.subscribedTopics.isEmpty()) {
-          this.consumerSubscriptionRebalance();
-        }
+        this.processRecords(records);
       }
+    } catch (final InterruptedException ex) {
+      log.info("kafka event monitor interrupted");
     } catch (final Exception ex) {
       log.error("failure when consuming kafka events", ex);
     } finally {
+      this.matchingPool.shutdownNow();
+      this.callbackExecutor.shutdown();
       // Failed to send SSL Close message.
       this.consumer.close();
       log.info("kafka consumer closed...");
@@ -126,39 +148,107 @@ public class KafkaEventMonitor implements Runnable {
   }
 
   /**
-   * Dynamically tune subscription only for the topic that dependencies need.
+   * Matches the records against the dependencies, one task per partition, and hands the
+   * callbacks of the triggered dependencies off to the callback thread.
    */
   @VisibleForTesting
-  synchronized void consumerSubscriptionRebalance() {
-    log.debug("Subscribed Topics " + this.consumer.subscription());
-    if (!this.subscribedTopics.isEmpty()) {
-      final Iterator<String> iter = this.subscribedTopics.iterator();
-      final List<String> topics = new ArrayList<>();
-      while (iter.hasNext()) {
-        topics.add(iter.next());
+  void processRecords(final ConsumerRecords<String, String> records)
+      throws InterruptedException {
+    if (records.isEmpty()) {
+      return;
+    }
+    final List<Future<List<KafkaDependencyInstanceContext>>> futures = new ArrayList<>();
+    for (final TopicPartition partition : records.partitions()) {
+      final List<ConsumerRecord<String, String>> partitionRecords = records.records(partition);
+      futures.add(this.matchingPool.submit(() -> matchRecords(partitionRecords)));
+    }
+
+    final List<KafkaDependencyInstanceContext> triggered = new ArrayList<>();
+    for (final Future<List<KafkaDependencyInstanceContext>> future : futures) {
+      try {
+        triggered.addAll(future.get());
+      } catch (final ExecutionException ex) {
+        log.error("failure when matching records", ex.getCause());
       }
-      this.subscribedTopics.clear();
-      //re-subscribe topics that are needed
-      this.consumer.subscribe(topics);
+    }
+    this.metrics.onBatch(records, triggered.size());
+    if (!triggered.isEmpty()) {
+      this.callbackExecutor.submit(() -> runCallbacks(triggered));
     }
   }
 
   /**
-   * If the matcher returns true, remove the dependency from collection.
+   * @return the dependencies triggered by the records, which are removed from the collection
    */
-  private void triggerDependencies(final Set<String> matchedList, final ConsumerRecord<String, String> record) {
-    final List<KafkaDependencyInstanceContext> deleteList = new LinkedList<>();
-    for (final String it : matchedList) {
-      final List<KafkaDependencyInstanceContext> possibleAvailableDeps =
-          this.depInstances.getDepsByTopicAndEvent(record.topic(), it);
-      for (final KafkaDependencyInstanceContext dep : possibleAvailableDeps) {
-        dep.getCallback().onSuccess(dep);
-        deleteList.add(dep);
+  private List<KafkaDependencyInstanceContext> matchRecords(
+      final List<ConsumerRecord<String, String>> partitionRecords) {
+    List<KafkaDependencyInstanceContext> triggered = Collections.emptyList();
+    for (final ConsumerRecord<String, String> record : partitionRecords) {
+      try {
+        final String payload = record.value();
+        final Set<String> matchedList = this.depInstances.regexInTopic(record.topic(), payload);
+        if (!matchedList.isEmpty()) {
+          this.metrics.onMatch();
+          if (triggered.isEmpty()) {
+            triggered = new ArrayList<>();
+          }
+          this.triggerDependencies(matchedList, record, triggered);
+        }
+      } catch (final Exception ex) {
+        log.error("failure when parsing record " + record, ex);
       }
-      //If dependencies that need to be removed could lead to unsubscribing topics, do the topics rebalance
-      if (!this.depInstances.removeList(record.topic(), it, deleteList)) {
-        this.subscribedTopics.addAll(this.depInstances.getTopicList());
+    }
+    return triggered;
+  }
+
+  private void runCallbacks(final List<KafkaDependencyInstanceContext> triggered) {
+    for (final KafkaDependencyInstanceContext dep : triggered) {
+      try {
+        dep.getCallback().onSuccess(dep);
+      } catch (final Exception ex) {
+        log.error("failure when calling back dependency " + dep, ex);
       }
     }
+    this.metrics.onCallbacks(triggered.size());
+  }
+
+  /**
+   * Dynamically tune subscription only for the topic that dependencies need.
+   *
+   * The consumer is only subscribed again when the topics differ from its subscription.
+   */
+  @VisibleForTesting
+  synchronized void consumerSubscriptionRebalance() {
+    final Set<String> current = this.consumer.subscription();
+    final Set<String> topics = new HashSet<>(this.depInstances.getTopicList());
+    if (topics.isEmpty()) {
+      topics.add(INIT_TOPIC);
+    }
+    if (topics.equals(current)) {
+      return;
+    }
+    final Set<String> added = new HashSet<>(topics);
+    added.removeAll(current);
+    final Set<String> removed = new HashSet<>(current);
+    removed.removeAll(topics);
+    log.info("Subscribing to topics " + added + ", unsubscribing from topics " + removed);
+    this.consumer.subscribe(topics);
+  }
+
+  /**
+   * Removes the dependencies of the matched rules from the collection and adds them to the
+   * triggered ones. A dependency matched by several records at the same time is only removed, and
+   * so triggered, once.
+   */
+  private void triggerDependencies(final Set<String> matchedList,
+      final ConsumerRecord<String, String> record,
+      final List<KafkaDependencyInstanceContext> triggered) {
+    for (final String it : matchedList) {
+      triggered.addAll(this.depInstances.removeByTopicAndEvent(record.topic(), it));
+    }
+    //If dependencies that need to be removed could lead to unsubscribing topics, do the topics rebalance
+    if (!this.depInstances.hasTopic(record.topic())) {
+      this.subscriptionChanged.set(true);
+    }
   }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package trigger.kafka;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Throughput and lag of the {@link KafkaEventMonitor}, logged once a minute.
+ *
+ * The lag is the time between the oldest record of the last batch being produced and it being
+ * matched.
+ */
+public class KafkaEventMonitorMetrics {
+  private final static Logger log = LoggerFactory.getLogger(KafkaEventMonitorMetrics.class);
+  private static final long REPORT_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+
+  private final AtomicLong recordsConsumed = new AtomicLong();
+  private final AtomicLong recordsMatched = new AtomicLong();
+  private final AtomicLong dependenciesTriggered = new AtomicLong();
+  private final AtomicLong callbacksRun = new AtomicLong();
+  private volatile long lagMs;
+  private volatile double recordsPerSecond;
+  // only used by the consumer thread
+  private long intervalStart = System.currentTimeMillis();
+  private long intervalRecords;
+
+  void onBatch(final ConsumerRecords<String, String> records, final int triggered) {
+    final long now = System.currentTimeMillis();
+    long oldest = Long.MAX_VALUE;
+    for (final ConsumerRecord<String, String> record : records) {
+      if (record.timestamp() >= 0) {
+        oldest = Math.min(oldest, record.timestamp());
+      }
+    }
+    if (oldest != Long.MAX_VALUE) {
+      this.lagMs = Math.max(0, now - oldest);
+    }
+    this.recordsConsumed.addAndGet(records.count());
+    this.dependenciesTriggered.addAndGet(triggered);
+
+    this.intervalRecords += records.count();
+    if (now - this.intervalStart >= REPORT_INTERVAL_MS) {
+      this.recordsPerSecond = this.intervalRecords * 1000.0 / (now - this.intervalStart);
+      this.intervalStart = now;
+      this.intervalRecords = 0;
+      log.info(String.format("Consumed %.1f records/s with a lag of %d ms, %d records and "
+              + "%d dependencies matched so far", this.recordsPerSecond, this.lagMs,
+          this.recordsMatched.get(), this.dependenciesTriggered.get()));
+    }
+  }
+
+  void onMatch() {
+    this.recordsMatched.incrementAndGet();
+  }
+
+  void onCallbacks(final int callbacks) {
+    this.callbacksRun.addAndGet(callbacks);
+  }
+
+  public long getRecordsConsumed() {
+    return this.recordsConsumed.get();
+  }
+
+  public long getRecordsMatched() {
+    return this.recordsMatched.get();
+  }
+
+  public long getDependenciesTriggered() {
+    return this.dependenciesTriggered.get();
+  }
+
+  public long getCallbacksRun() {
+    return this.callbacksRun.get();
+  }
+
+  public long getLagMs() {
+    return this.lagMs;
+  }
+
+  /**
+   * @return records consumed per second over the last minute
+   */
+  public double getRecordsPerSecond() {
+    return this.recordsPerSecond;
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package trigger.kafka;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import trigger.kafka.matcher.DependencyMatcher;
+
+
+/**
+ * Matches a kafka payload against all the regexes of a topic at once.
+ *
+ * <p>The regexes are combined into a single alternation, so a payload which matches none of them,
+ * the common case on a busy topic, is rejected with one scan. Only when the alternation finds a
+ * match are the regexes tried one by one to tell which of them match. Regexes with back
+ * references, named groups or quoting don't keep their meaning inside a larger pattern, so they
+ * are always tried on their own.
+ *
+ * <p>Instances are immutable and safe to share between threads.
+ */
+public class MultiRegexKafkaDependencyMatcher implements DependencyMatcher<String> {
+
+  // back references, named groups and quoting
+  private static final Pattern UNCOMBINABLE =
+      Pattern.compile("\\\\[1-9]|\\\\k<|\\(\\?<[a-zA-Z]|\\\\Q");
+
+  private final List<String> combinedRegexes = new ArrayList<>();
+  private final List<Pattern> combinedPatterns = new ArrayList<>();
+  private final List<String> separateRegexes = new ArrayList<>();
+  private final List<Pattern> separatePatterns = new ArrayList<>();
+  private final Pattern combined;
+
+  /**
+   * @param patterns compiled patterns by regex
+   */
+  MultiRegexKafkaDependencyMatcher(final Map<String, Pattern> patterns) {
+    for (final Map.Entry<String, Pattern> entry : patterns.entrySet()) {
+      if (UNCOMBINABLE.matcher(entry.getKey()).find()) {
+        this.separateRegexes.add(entry.getKey());
+        this.separatePatterns.add(entry.getValue());
+      } else {
+        this.combinedRegexes.add(entry.getKey());
+        this.combinedPatterns.add(entry.getValue());
+      }
+    }
+    this.combined = combine(this.combinedPatterns);
+  }
+
+  private static Pattern combine(final List<Pattern> patterns) {
+    if (patterns.size() < 2) {
+      return patterns.isEmpty() ? null : patterns.get(0);
+    }
+    final StringBuilder alternation = new StringBuilder();
+    for (final Pattern pattern : patterns) {
+      if (alternation.length() > 0) {
+        alternation.append('|');
+      }
+      alternation.append("(?:").append(pattern.pattern()).append(')');
+    }
+    try {
+      return Pattern.compile(alternation.toString());
+    } catch (final PatternSyntaxException ex) {
+      // no pre-check, each regex is tried on its own
+      return null;
+    }
+  }
+
+  /**
+   * @return the regexes which match the payload
+   */
+  public Set<String> matchingRegexes(final String payload) {
+    Set<String> res = Collections.emptySet();
+    final boolean tryEach;
+    if (this.combined == null) {
+      tryEach = !this.combinedPatterns.isEmpty();
+    } else if (this.combined.matcher(payload).find()) {
+      if (this.combinedPatterns.size() == 1) {
+        res = new HashSet<>(this.combinedRegexes);
+      }
+      tryEach = this.combinedPatterns.size() > 1;
+    } else {
+      tryEach = false;
+    }
+    if (tryEach) {
+      res = addMatching(res, this.combinedRegexes, this.combinedPatterns, payload);
+    }
+    return addMatching(res, this.separateRegexes, this.separatePatterns, payload);
+  }
+
+  private static Set<String> addMatching(Set<String> res, final List<String> regexes,
+      final List<Pattern> patterns, final String payload) {
+    for (int i = 0; i < patterns.size(); i++) {
+      if (patterns.get(i).matcher(payload).find()) {
+        if (res.isEmpty()) {
+          res = new HashSet<>();
+        }
+        res.add(regexes.get(i));
+      }
+    }
+    return res;
+  }
+
+  @Override
+  public boolean isMatch(final String payload) {
+    if (this.combined != null && this.combined.matcher(payload).find()) {
+      return true;
+    }
+    if (this.combined == null) {
+      for (final Pattern pattern : this.combinedPatterns) {
+        if (pattern.matcher(payload).find()) {
+          return true;
+        }
+      }
+    }
+    for (final Pattern pattern : this.separatePatterns) {
+      if (pattern.matcher(payload).find()) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
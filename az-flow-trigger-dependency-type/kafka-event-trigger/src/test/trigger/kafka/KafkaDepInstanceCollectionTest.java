@@ -26,6 +26,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.regex.PatternSyntaxException;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.*;
@@ -128,4 +129,38 @@ public class KafkaDepInstanceCollectionTest {
     assertThat(testMap.getDepsByTopicAndEvent("AzTest_Topic3", ".*")).isEmpty();
     assertThat(testMap.hasTopic("AzTest_Topic3")).isFalse();
   }
+
+  @Test
+  public void testRegexInTopic() {
+    final KafkaDepInstanceCollection testMap = new KafkaDepInstanceCollection();
+    assertThat(testMap.regexInTopic("AzTest_Topic1", "hive")).isEmpty();
+
+    testMap.add(createContext("AzTest_Topic1", "hive.*", 0, "dep1"));
+    assertThat(testMap.regexInTopic("AzTest_Topic1", "hive")).containsOnly("hive.*");
+    assertThat(testMap.regexInTopic("AzTest_Topic1", "spark")).isEmpty();
+
+    testMap.add(createContext("AzTest_Topic1", "^(?i)spark$", 0, "dep2"));
+    testMap.add(createContext("AzTest_Topic1", "(\\w)\\1", 0, "dep3"));
+    testMap.add(createContext("AzTest_Topic1", "^hive\\b", 0, "dep4"));
+    testMap.add(createContext("AzTest_Topic2", "spark", 0, "dep5"));
+    assertThat(testMap.regexInTopic("AzTest_Topic1", "hive")).containsOnly("hive.*", "^hive\\b");
+    assertThat(testMap.regexInTopic("AzTest_Topic1", "SPARK")).containsOnly("^(?i)spark$");
+    assertThat(testMap.regexInTopic("AzTest_Topic1", "hive jobb"))
+        .containsOnly("hive.*", "^hive\\b", "(\\w)\\1");
+    assertThat(testMap.regexInTopic("AzTest_Topic1", "pig")).isEmpty();
+
+    final KafkaDependencyInstanceContext dep = testMap.getDepsByTopicAndEvent("AzTest_Topic1", "hive.*").get(0);
+    testMap.remove(dep);
+    assertThat(testMap.regexInTopic("AzTest_Topic1", "hive")).containsOnly("^hive\\b");
+  }
+
+  @Test(expected = PatternSyntaxException.class)
+  public void testAddInvalidRegex() {
+    final KafkaDepInstanceCollection testMap = new KafkaDepInstanceCollection();
+    try {
+      testMap.add(createContext("AzTest_Topic1", "hadoop(", 0, "dep1"));
+    } finally {
+      assertThat(testMap.hasTopic("AzTest_Topic1")).isFalse();
+    }
+  }
 }
@@ -16,12 +16,26 @@
 
 package trigger.kafka;
 
+import avro.shaded.com.google.common.collect.ImmutableMap;
+import azkaban.flowtrigger.DependencyInstanceCallback;
+import azkaban.flowtrigger.DependencyInstanceConfigImpl;
+import azkaban.flowtrigger.DependencyInstanceContext;
 import azkaban.flowtrigger.DependencyPluginConfig;
 import azkaban.flowtrigger.DependencyPluginConfigImpl;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.*;
@@ -56,4 +70,68 @@ public class KafkaEventMonitorTest {
     testMonitor.consumerSubscriptionRebalance();
     assertThat(testMonitor.getMonitorSubscription()).doesNotContain("AzTest_Topic3");
   }
+
+  private static KafkaDependencyInstanceContext createContext(final String topic, final String match,
+      final String depName, final DependencyInstanceCallback callback) {
+    final Map<String, String> props =
+        ImmutableMap.of(Constants.DependencyInstanceConfigKey.TOPIC, topic,
+            Constants.DependencyInstanceConfigKey.MATCH, match, Constants.DependencyInstanceConfigKey.NAME,
+            depName);
+    return new KafkaDependencyInstanceContext(new DependencyInstanceConfigImpl(props), null, callback);
+  }
+
+  @Test
+  public void testProcessRecords() throws Exception {
+    final MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    final KafkaEventMonitor testMonitor = new KafkaEventMonitor(consumer, 2);
+    final List<DependencyInstanceContext> succeeded = Collections.synchronizedList(new ArrayList<>());
+    final CountDownLatch latch = new CountDownLatch(2);
+    final DependencyInstanceCallback callback = new DependencyInstanceCallback() {
+      @Override
+      public void onSuccess(final DependencyInstanceContext depContext) {
+        succeeded.add(depContext);
+        latch.countDown();
+      }
+
+      @Override
+      public void onCancel(final DependencyInstanceContext depContext) {
+      }
+    };
+    final KafkaDependencyInstanceContext dep1 = createContext("AzTest_Topic1", "hadoop.*", "dep1", callback);
+    final KafkaDependencyInstanceContext dep2 = createContext("AzTest_Topic2", "spark", "dep2", callback);
+    final KafkaDependencyInstanceContext dep3 = createContext("AzTest_Topic1", "hive", "dep3", callback);
+    testMonitor.add(dep1);
+    testMonitor.add(dep2);
+    testMonitor.add(dep3);
+    testMonitor.consumerSubscriptionRebalance();
+    assertThat(testMonitor.getMonitorSubscription()).containsOnly("AzTest_Topic1", "AzTest_Topic2");
+
+    final TopicPartition topic1Partition0 = new TopicPartition("AzTest_Topic1", 0);
+    final TopicPartition topic1Partition1 = new TopicPartition("AzTest_Topic1", 1);
+    final TopicPartition topic2Partition0 = new TopicPartition("AzTest_Topic2", 0);
+    consumer.rebalance(Arrays.asList(topic1Partition0, topic1Partition1, topic2Partition0));
+    final Map<TopicPartition, Long> beginningOffsets = new HashMap<>();
+    beginningOffsets.put(topic1Partition0, 0L);
+    beginningOffsets.put(topic1Partition1, 0L);
+    beginningOffsets.put(topic2Partition0, 0L);
+    consumer.updateBeginningOffsets(beginningOffsets);
+    // dep1 is matched by records of two partitions
+    consumer.addRecord(new ConsumerRecord<>("AzTest_Topic1", 0, 0, null, "hadoop job done"));
+    consumer.addRecord(new ConsumerRecord<>("AzTest_Topic1", 1, 0, null, "hadoop job done"));
+    consumer.addRecord(new ConsumerRecord<>("AzTest_Topic1", 0, 1, null, "pig job done"));
+    consumer.addRecord(new ConsumerRecord<>("AzTest_Topic2", 0, 0, null, "spark job done"));
+    testMonitor.processRecords(consumer.poll(0));
+
+    assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(succeeded).containsExactlyInAnyOrder(dep1, dep2);
+    assertThat(testMonitor.getMetrics().getRecordsConsumed()).isEqualTo(4);
+    assertThat(testMonitor.getMetrics().getDependenciesTriggered()).isEqualTo(2);
+
+    // no dependency waits on AzTest_Topic2 anymore
+    testMonitor.consumerSubscriptionRebalance();
+    assertThat(testMonitor.getMonitorSubscription()).containsOnly("AzTest_Topic1");
+    testMonitor.remove(dep3);
+    testMonitor.consumerSubscriptionRebalance();
+    assertThat(testMonitor.getMonitorSubscription()).containsOnly("AzEvent_Init_Topic");
+  }
 }
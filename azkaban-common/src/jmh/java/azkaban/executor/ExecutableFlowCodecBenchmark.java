@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import azkaban.db.EncodingType;
+import azkaban.flow.Edge;
+import azkaban.flow.Flow;
+import azkaban.flow.Node;
+import azkaban.project.Project;
+import azkaban.utils.GZIPUtils;
+import azkaban.utils.JSONUtils;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares encoding and decoding the flow_data of a large execution through the intermediate
+ * tree of maps ({@link ExecutableFlow#toObject()}) and through {@link ExecutableFlowJsonCodec}.
+ *
+ * <p>Run with {@code ./gradlew :azkaban-common:jmh}. The {@code storedBytes} counter gives the
+ * size of the flow_data of each encoding.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutableFlowCodecBenchmark {
+
+  @Param({"PLAIN", "GZIP", "SMILE"})
+  public String encoding;
+
+  @Param({"100", "2000"})
+  public int jobs;
+
+  private EncodingType encType;
+  private ExecutableFlow flow;
+  private byte[] data;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    this.encType = EncodingType.valueOf(this.encoding);
+
+    final Flow flowDef = new Flow("large_flow");
+    for (int i = 0; i < this.jobs; i++) {
+      final Node node = new Node("job_" + i);
+      node.setType("command");
+      node.setJobSource("jobs/job_" + i + ".job");
+      flowDef.addNode(node);
+      // A few fan-ins per job, like the DAGs of real ETL flows
+      for (int parent = Math.max(0, i - 3); parent < i; parent++) {
+        flowDef.addEdge(new Edge("job_" + parent, "job_" + i));
+      }
+    }
+    flowDef.initialize();
+
+    final Project project = new Project(1, "benchmark");
+    project.setVersion(1);
+    this.flow = new ExecutableFlow(project, flowDef);
+    this.flow.setExecutionId(1000);
+    this.flow.setSubmitUser("azkaban");
+    for (final ExecutableNode node : this.flow.getExecutableNodes()) {
+      node.setStatus(Status.SUCCEEDED);
+      node.setStartTime(System.currentTimeMillis());
+      node.setEndTime(System.currentTimeMillis());
+    }
+    this.data = ExecutableFlowJsonCodec.encode(this.flow, this.encType);
+  }
+
+  @Benchmark
+  public byte[] encodeMaps() throws IOException {
+    if (this.encType == EncodingType.SMILE) {
+      return JSONUtils.toSmile(this.flow.toObject());
+    }
+    final String json = JSONUtils.toJSON(this.flow.toObject());
+    final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    return this.encType == EncodingType.GZIP ? GZIPUtils.gzipBytes(bytes) : bytes;
+  }
+
+  @Benchmark
+  public byte[] encodeStreaming(final StoredBytes counters) throws IOException {
+    final byte[] stored = ExecutableFlowJsonCodec.encode(this.flow, this.encType);
+    counters.storedBytes += stored.length;
+    return stored;
+  }
+
+  @Benchmark
+  public ExecutableFlow decodeMaps() throws IOException {
+    return ExecutableFlow.createExecutableFlowFromObject(
+        GZIPUtils.transformBytesToObject(this.data, this.encType));
+  }
+
+  @Benchmark
+  public ExecutableFlow decodeStreaming() throws IOException {
+    return ExecutableFlowJsonCodec.decode(this.data, this.encType);
+  }
+
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class StoredBytes {
+
+    public long storedBytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      this.storedBytes = 0;
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import azkaban.db.EncodingType;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the throughput and the stored size of the log chunk codecs on job-log-like text.
+ *
+ * <p>Run with {@code ./gradlew :azkaban-common:jmh}. The {@code inputBytes} and
+ * {@code storedBytes} counters give the compression ratio of each codec.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LogCompressionBenchmark {
+
+  private static final String[] LEVELS = {"INFO", "INFO", "INFO", "WARN", "ERROR"};
+
+  @Param({"PLAIN", "GZIP", "LZ4"})
+  public String encoding;
+
+  @Param({"51200"})
+  public int chunkSize;
+
+  private EncodingType encType;
+  private byte[] chunk;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    this.encType = EncodingType.valueOf(this.encoding);
+
+    final Random random = new Random(42);
+    final StringBuilder log = new StringBuilder(this.chunkSize + 256);
+    long time = 1500000000000L;
+    while (log.length() < this.chunkSize) {
+      time += random.nextInt(1000);
+      log.append(time).append(' ').append(LEVELS[random.nextInt(LEVELS.length)])
+          .append(" [job-").append(random.nextInt(10)).append("] Processed ")
+          .append(random.nextInt(100000)).append(" records in ")
+          .append(random.nextInt(5000)).append(" ms\n");
+    }
+    this.chunk = log.substring(0, this.chunkSize).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public byte[] encode(final StoredBytes counters) throws IOException {
+    final byte[] stored = ExecutionLogsDao.encodeLogPart(this.chunk, this.chunk.length,
+        this.encType);
+    counters.inputBytes += this.chunk.length;
+    counters.storedBytes += stored.length;
+    return stored;
+  }
+
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class StoredBytes {
+
+    public long inputBytes;
+    public long storedBytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      this.inputBytes = 0;
+      this.storedBytes = 0;
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor.selector;
+
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.Executor;
+import azkaban.executor.ExecutorInfo;
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares placing flows with the pairwise {@link ExecutorSelector} and with the
+ * {@link ExecutorScoreIndex}, with the executor statistics refreshed after every
+ * {@code executors} placements.
+ *
+ * <p>Run with {@code ./gradlew :azkaban-common:jmh}. The {@code overcommitted} counter gives the
+ * placements which left an executor under the minimum free memory, as the selector only sees the
+ * statistics of the last refresh.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutorSelectionBenchmark {
+
+  private static final List<String> FILTERS =
+      Arrays.asList("StaticRemainingFlowSize", "MinimumFreeMemory", "CpuStatus");
+  private static final Map<String, Integer> WEIGHTS =
+      ImmutableMap.of("Memory", 1, "CpuUsage", 1, "LastDispatched", 1);
+  private static final int MINIMUM_FREE_MEMORY = 6 * 1024;
+
+  @Param({"200", "1000"})
+  public int executors;
+
+  private final ExecutableFlow flow = new ExecutableFlow();
+  private final FlowFootprint footprint = new FlowFootprint(2 * 1024, 5);
+  private List<Executor> executorList;
+  private Set<Executor> candidates;
+  private ExecutorSelector selector;
+  private ExecutorScoreIndex index;
+  // simulated free memory of each executor by id, which the selectors only see on refresh
+  private long[] freeMemoryInMB;
+  private int placements;
+  private int executionId;
+  private int finishedExecutionId;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    final Random random = new Random(42);
+    this.executorList = new ArrayList<>(this.executors);
+    this.freeMemoryInMB = new long[this.executors + 1];
+    for (int id = 1; id <= this.executors; id++) {
+      final Executor executor = new Executor(id, "host" + id, 12321, true);
+      final long freeMemory = 8 * 1024 + random.nextInt(24 * 1024);
+      executor.setExecutorInfo(new ExecutorInfo(freeMemory * 100.0 / (32 * 1024), freeMemory,
+          30, System.currentTimeMillis(), random.nextInt(60), 0));
+      this.executorList.add(executor);
+      this.freeMemoryInMB[id] = freeMemory;
+    }
+    this.candidates = new HashSet<>(this.executorList);
+    this.selector = new ExecutorSelector(FILTERS, WEIGHTS);
+    this.index = new ExecutorScoreIndex(FILTERS, WEIGHTS);
+    this.executionId = 0;
+    this.finishedExecutionId = 0;
+    refresh();
+  }
+
+  private void refresh() {
+    // the flows placed since the last refresh finish
+    for (; this.finishedExecutionId < this.executionId; this.finishedExecutionId++) {
+      this.index.onFinish(this.finishedExecutionId + 1);
+    }
+    for (final Executor executor : this.executorList) {
+      this.index.update(executor);
+    }
+    this.placements = 0;
+  }
+
+  private void place(final Executor executor, final Overcommitted counters) {
+    if (executor != null) {
+      this.freeMemoryInMB[executor.getId()] -= this.footprint.getMemoryInMB();
+      if (this.freeMemoryInMB[executor.getId()] < MINIMUM_FREE_MEMORY) {
+        counters.overcommitted++;
+      }
+    }
+    if (++this.placements == this.executors) {
+      refresh();
+      for (final Executor each : this.executorList) {
+        this.freeMemoryInMB[each.getId()] = each.getExecutorInfo().getRemainingMemoryInMB();
+      }
+    }
+  }
+
+  @Benchmark
+  public Executor pairwiseSelector(final Overcommitted counters) {
+    final Executor executor = this.selector.getBest(this.candidates, this.flow);
+    place(executor, counters);
+    return executor;
+  }
+
+  @Benchmark
+  public Executor scoreIndex(final Overcommitted counters) {
+    final Executor executor = this.index.select(this.candidates, this.footprint);
+    if (executor != null) {
+      this.index.onDispatch(++this.executionId, executor, this.footprint);
+    }
+    place(executor, counters);
+    return executor;
+  }
+
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Overcommitted {
+
+    public long overcommitted;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      this.overcommitted = 0;
+    }
+  }
+}
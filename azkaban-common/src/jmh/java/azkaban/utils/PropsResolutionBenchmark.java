@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link PropsUtils#resolveProps(Props)} on the props chain of a job: server wide
+ * properties, project properties shared by all jobs, flow properties and the job's own
+ * properties, with the variable references and expressions typical of job files.
+ *
+ * <p>Run with {@code ./gradlew :azkaban-common:jmh}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PropsResolutionBenchmark {
+
+  // Number of properties at each level of the chain
+  @Param({"20", "200"})
+  public int propsPerLevel;
+
+  private Props jobProps;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    final Props serverProps = new Props();
+    serverProps.put("hadoop.home", "/export/apps/hadoop/latest");
+    serverProps.put("hive.home", "/export/apps/hive/latest");
+    serverProps.put("azkaban.job.log.dir", "/export/content/azkaban/logs");
+    for (int i = 0; i < this.propsPerLevel; i++) {
+      serverProps.put("server.setting." + i, "value-" + i);
+      serverProps.put("server.path." + i, "${hadoop.home}/lib/module-" + i + ".jar");
+    }
+
+    final Props projectProps = new Props(serverProps);
+    projectProps.put("user.to.proxy", "etl");
+    projectProps.put("output.root", "/data/derived/${user.to.proxy}");
+    projectProps.put("retention.days", "$(7 * 4)");
+    for (int i = 0; i < this.propsPerLevel; i++) {
+      projectProps.put("project.input." + i, "/data/tracking/table_" + i);
+      projectProps.put("project.output." + i, "${output.root}/table_" + i);
+    }
+
+    final Props flowProps = new Props(projectProps);
+    flowProps.put("flow.name", "daily_aggregation");
+    flowProps.put("flow.output", "${output.root}/${flow.name}");
+    for (int i = 0; i < this.propsPerLevel; i++) {
+      flowProps.put("flow.param." + i, "${project.input." + i + "} ${project.output." + i + "}");
+    }
+
+    this.jobProps = new Props(flowProps);
+    this.jobProps.put("type", "command");
+    this.jobProps.put("command", "${hive.home}/bin/hive -f aggregate.q -d out=${flow.output}");
+    this.jobProps.put("retries", "$(1 + 2)");
+    this.jobProps.put("retry.backoff", "$($(1 + 2) * 60000)");
+    for (int i = 0; i < this.propsPerLevel; i++) {
+      this.jobProps.put("job.arg." + i, "--input ${flow.param." + (i % this.propsPerLevel)
+          + "} --days ${retention.days}");
+    }
+  }
+
+  @Benchmark
+  public Props resolveProps() {
+    return PropsUtils.resolveProps(this.jobProps);
+  }
+}
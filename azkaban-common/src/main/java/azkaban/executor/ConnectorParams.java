@@ -25,6 +25,7 @@ public interface ConnectorParams {
   public static final String USER_PARAM = "user";
 
   public static final String UPDATE_ACTION = "update";
+  public static final String UPDATE_STREAM_ACTION = "updateStream";
   public static final String STATUS_ACTION = "status";
   public static final String EXECUTE_ACTION = "execute";
   public static final String CANCEL_ACTION = "cancel";
@@ -66,6 +67,11 @@ public interface ConnectorParams {
   public static final String UPDATE_TIME_LIST_PARAM = "updatetime";
   public static final String EXEC_ID_LIST_PARAM = "executionId";
 
+  public static final String UPDATE_STREAM_EPOCH_PARAM = "streamEpoch";
+  public static final String UPDATE_STREAM_SEQUENCE_PARAM = "streamSequence";
+  public static final String UPDATE_STREAM_TIMEOUT_PARAM = "streamTimeout";
+  public static final String RESPONSE_UPDATE_STREAM_GAP = "streamGap";
+
   public static final String FORCED_FAILED_MARKER = ".failed";
 
   public static final String UPDATE_MAP_EXEC_ID = "executionId";
@@ -106,4 +112,8 @@ public interface ConnectorParams {
   public static final String STATS_MAP_REPORTINGINTERVAL = "interval";
   public static final String STATS_MAP_CLEANINGINTERVAL = "interval";
   public static final String STATS_MAP_EMITTERNUMINSTANCES = "numInstances";
+
+  // Content type of responses in Smile, the binary encoding of JSON. Callers ask for it in the
+  // Accept header, and get JSON from executors which don't support it.
+  public static final String SMILE_MIME_TYPE = "application/x-jackson-smile";
 }
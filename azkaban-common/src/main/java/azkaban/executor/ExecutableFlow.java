@@ -18,7 +18,9 @@ package azkaban.executor;
 import azkaban.flow.Flow;
 import azkaban.project.Project;
 import azkaban.sla.SlaOption;
+import azkaban.utils.JSONUtils;
 import azkaban.utils.TypedMapWrapper;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -27,6 +29,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
 
 
 public class ExecutableFlow extends ExecutableFlowBase {
@@ -58,6 +62,8 @@ public class ExecutableFlow extends ExecutableFlowBase {
   private String submitUser;
   private String executionPath;
   private ExecutionOptions executionOptions;
+  // SLA options read before the execution options they belong to
+  private List<SlaOption> readSlaOptions;
   private double azkabanFlowVersion;
   private boolean isLocked;
 
@@ -256,6 +262,118 @@ public class ExecutableFlow extends ExecutableFlowBase {
     return flowObj;
   }
 
+  @Override
+  protected void writeJsonFields(final JsonGenerator gen) throws IOException {
+    super.writeJsonFields(gen);
+
+    gen.writeNumberField(EXECUTIONID_PARAM, this.executionId);
+    gen.writeStringField(EXECUTIONPATH_PARAM, this.executionPath);
+    gen.writeNumberField(PROJECTID_PARAM, this.projectId);
+    gen.writeStringField(PROJECTNAME_PARAM, this.projectName);
+
+    if (this.scheduleId >= 0) {
+      gen.writeNumberField(SCHEDULEID_PARAM, this.scheduleId);
+    }
+
+    gen.writeStringField(SUBMITUSER_PARAM, this.submitUser);
+    gen.writeNumberField(VERSION_PARAM, this.version);
+    gen.writeNumberField(LASTMODIFIEDTIME_PARAM, this.lastModifiedTimestamp);
+    gen.writeStringField(LASTMODIFIEDUSER_PARAM, this.lastModifiedUser);
+    gen.writeNumberField(AZKABANFLOWVERSION_PARAM, this.azkabanFlowVersion);
+
+    // The options are small, so they are still written through their map.
+    gen.writeFieldName(EXECUTIONOPTIONS_PARAM);
+    gen.writeObject(this.executionOptions.toObject());
+
+    ExecutableFlowJsonCodec.writeStringArray(gen, PROXYUSERS_PARAM, this.proxyUsers);
+
+    gen.writeNumberField(SUBMITTIME_PARAM, this.submitTime);
+
+    gen.writeArrayFieldStart(SLAOPTIONS_PARAM);
+    for (final SlaOption slaOption : this.executionOptions.getSlaOptions()) {
+      gen.writeObject(slaOption.toObject());
+    }
+    gen.writeEndArray();
+
+    gen.writeBooleanField(IS_LOCKED_PARAM, this.isLocked);
+  }
+
+  @Override
+  void readJsonFields(final JsonParser parser) throws IOException {
+    // Defaults of the map based reader for the fields which may be missing
+    this.scheduleId = -1;
+    this.isLocked = false;
+    this.readSlaOptions = null;
+    super.readJsonFields(parser);
+
+    if (this.executionOptions != null && this.readSlaOptions != null) {
+      this.executionOptions.setSlaOptions(this.readSlaOptions);
+    }
+    this.readSlaOptions = null;
+  }
+
+  @Override
+  protected boolean readJsonField(final String field, final JsonParser parser)
+      throws IOException {
+    switch (field) {
+      case EXECUTIONID_PARAM:
+        this.executionId = ExecutableFlowJsonCodec.readInt(parser, -1);
+        return true;
+      case EXECUTIONPATH_PARAM:
+        this.executionPath = ExecutableFlowJsonCodec.readString(parser);
+        return true;
+      case PROJECTID_PARAM:
+        this.projectId = ExecutableFlowJsonCodec.readInt(parser, -1);
+        return true;
+      case PROJECTNAME_PARAM:
+        this.projectName = ExecutableFlowJsonCodec.readString(parser);
+        return true;
+      case SCHEDULEID_PARAM:
+        this.scheduleId = ExecutableFlowJsonCodec.readInt(parser, -1);
+        return true;
+      case SUBMITUSER_PARAM:
+        this.submitUser = ExecutableFlowJsonCodec.readString(parser);
+        return true;
+      case VERSION_PARAM:
+        this.version = ExecutableFlowJsonCodec.readInt(parser, -1);
+        return true;
+      case LASTMODIFIEDTIME_PARAM:
+        this.lastModifiedTimestamp = ExecutableFlowJsonCodec.readLong(parser, -1L);
+        return true;
+      case LASTMODIFIEDUSER_PARAM:
+        this.lastModifiedUser = ExecutableFlowJsonCodec.readString(parser);
+        return true;
+      case SUBMITTIME_PARAM:
+        this.submitTime = ExecutableFlowJsonCodec.readLong(parser, -1L);
+        return true;
+      case AZKABANFLOWVERSION_PARAM:
+        this.azkabanFlowVersion = ExecutableFlowJsonCodec.readDouble(parser, -1.0d);
+        return true;
+      case EXECUTIONOPTIONS_PARAM:
+        this.executionOptions = ExecutionOptions.createFromObject(JSONUtils.readValue(parser));
+        return true;
+      case PROXYUSERS_PARAM:
+        final List<String> proxyUserList = ExecutableFlowJsonCodec.readStringList(parser);
+        if (proxyUserList != null) {
+          this.addAllProxyUsers(proxyUserList);
+        }
+        return true;
+      case SLAOPTIONS_PARAM:
+        final Object slaOptions = JSONUtils.readValue(parser);
+        if (slaOptions instanceof List) {
+          // Applied once the execution options have been read
+          this.readSlaOptions = ((List<Object>) slaOptions).stream().map(SlaOption::fromObject)
+              .collect(Collectors.toList());
+        }
+        return true;
+      case IS_LOCKED_PARAM:
+        this.isLocked = ExecutableFlowJsonCodec.readBoolean(parser, false);
+        return true;
+      default:
+        return super.readJsonField(field, parser);
+    }
+  }
+
   @Override
   public void fillExecutableFromMapObject(
       final TypedMapWrapper<String, Object> flowObj) {
@@ -22,11 +22,16 @@ import azkaban.flow.Node;
 import azkaban.flow.SpecialJobTypes;
 import azkaban.project.Project;
 import azkaban.utils.TypedMapWrapper;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.util.TokenBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -242,6 +247,131 @@ public class ExecutableFlowBase extends ExecutableNode {
     flowObjMap.put(PROPERTIES_PARAM, props);
   }
 
+  @Override
+  protected void writeJsonFields(final JsonGenerator gen) throws IOException {
+    super.writeJsonFields(gen);
+
+    gen.writeStringField(FLOW_ID_PARAM, this.flowId);
+
+    gen.writeArrayFieldStart(NODES_PARAM);
+    for (final ExecutableNode node : this.executableNodes.values()) {
+      node.writeJson(gen);
+    }
+    gen.writeEndArray();
+
+    // Flow properties
+    gen.writeArrayFieldStart(PROPERTIES_PARAM);
+    for (final FlowProps fprop : this.flowProps.values()) {
+      gen.writeStartObject();
+      gen.writeStringField(SOURCE_PARAM, fprop.getSource());
+      if (fprop.getInheritedSource() != null) {
+        gen.writeStringField(INHERITED_PARAM, fprop.getInheritedSource());
+      }
+      gen.writeEndObject();
+    }
+    gen.writeEndArray();
+  }
+
+  @Override
+  protected boolean readJsonField(final String field, final JsonParser parser)
+      throws IOException {
+    switch (field) {
+      case FLOW_ID_PARAM:
+        this.flowId = ExecutableFlowJsonCodec.readString(parser);
+        return true;
+      case NODES_PARAM:
+        readNodes(parser);
+        return true;
+      case PROPERTIES_PARAM:
+        readFlowProps(parser);
+        return true;
+      default:
+        return super.readJsonField(field, parser);
+    }
+  }
+
+  private void readNodes(final JsonParser parser) throws IOException {
+    if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return;
+    }
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      final ExecutableNode node = readNode(parser);
+      node.setParentFlow(this);
+      this.executableNodes.put(node.getId(), node);
+    }
+  }
+
+  /**
+   * Reads a node, which is an embedded flow or a job depending on its type. The type comes first
+   * in the objects this class writes. Otherwise the object is buffered until the type is known.
+   */
+  private static ExecutableNode readNode(final JsonParser parser) throws IOException {
+    ExecutableFlowJsonCodec.expect(parser, JsonToken.START_OBJECT);
+    if (parser.nextToken() == JsonToken.FIELD_NAME && TYPE_PARAM
+        .equals(parser.getCurrentName())) {
+      parser.nextToken();
+      final String type = ExecutableFlowJsonCodec.readString(parser);
+      final ExecutableNode node = createNode(type);
+      node.setType(type);
+      parser.nextToken();
+      node.readJsonFields(parser);
+      return node;
+    }
+
+    final TokenBuffer buffer = new TokenBuffer(parser.getCodec());
+    buffer.writeStartObject();
+    String type = null;
+    for (; parser.getCurrentToken() == JsonToken.FIELD_NAME; parser.nextToken()) {
+      final String field = parser.getCurrentName();
+      buffer.writeFieldName(field);
+      parser.nextToken();
+      if (TYPE_PARAM.equals(field) && parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+        type = parser.getText();
+      }
+      buffer.copyCurrentStructure(parser);
+    }
+    ExecutableFlowJsonCodec.expect(parser, JsonToken.END_OBJECT);
+    buffer.writeEndObject();
+
+    final ExecutableNode node = createNode(type);
+    final JsonParser bufferParser = buffer.asParser(parser.getCodec());
+    bufferParser.nextToken();
+    node.readJson(bufferParser);
+    return node;
+  }
+
+  private static ExecutableNode createNode(final String type) {
+    if (SpecialJobTypes.EMBEDDED_FLOW_TYPE.equals(type)) {
+      return new ExecutableFlowBase();
+    }
+    return new ExecutableNode();
+  }
+
+  private void readFlowProps(final JsonParser parser) throws IOException {
+    if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return;
+    }
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      ExecutableFlowJsonCodec.expect(parser, JsonToken.START_OBJECT);
+      String source = null;
+      String inheritedSource = null;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String field = parser.getCurrentName();
+        parser.nextToken();
+        if (SOURCE_PARAM.equals(field)) {
+          source = ExecutableFlowJsonCodec.readString(parser);
+        } else if (INHERITED_PARAM.equals(field)) {
+          inheritedSource = ExecutableFlowJsonCodec.readString(parser);
+        } else {
+          parser.skipChildren();
+        }
+      }
+      this.flowProps.put(source, new FlowProps(inheritedSource, source));
+    }
+  }
+
   @Override
   public void fillExecutableFromMapObject(
       final TypedMapWrapper<String, Object> flowObjMap) {
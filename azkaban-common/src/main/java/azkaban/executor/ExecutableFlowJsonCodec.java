@@ -0,0 +1,229 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import azkaban.db.EncodingType;
+import azkaban.utils.GZIPUtils;
+import azkaban.utils.JSONUtils;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+/**
+ * Streaming JSON codec of {@link ExecutableFlow}. It writes and reads the same JSON as {@link
+ * ExecutableFlow#toObject()} and {@link ExecutableFlow#createExecutableFlowFromObject(Object)},
+ * but directly between the flow and the stream, without the intermediate tree of maps and lists.
+ *
+ * <p>With {@link EncodingType#SMILE} the same JSON is written in the binary Smile format, which
+ * is smaller than plain JSON, and cheaper to produce and parse than gzipped JSON.
+ */
+public class ExecutableFlowJsonCodec {
+
+  private ExecutableFlowJsonCodec() {
+  }
+
+  /**
+   * Writes the flow as JSON to the stream. The stream is left open.
+   */
+  public static void write(final ExecutableFlow flow, final OutputStream out) throws IOException {
+    write(JSONUtils.getJsonFactory(), flow, out);
+  }
+
+  private static void write(final JsonFactory factory, final ExecutableFlow flow,
+      final OutputStream out) throws IOException {
+    final JsonGenerator gen = factory.createJsonGenerator(out, JsonEncoding.UTF8)
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    try {
+      flow.writeJson(gen);
+    } finally {
+      gen.close();
+    }
+  }
+
+  /**
+   * Reads a flow written as JSON by {@link #write} or by {@link ExecutableFlow#toObject()}.
+   */
+  public static ExecutableFlow read(final InputStream in) throws IOException {
+    return read(JSONUtils.getJsonFactory(), in);
+  }
+
+  private static ExecutableFlow read(final JsonFactory factory, final InputStream in)
+      throws IOException {
+    final JsonParser parser = factory.createJsonParser(in)
+        .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+    try {
+      parser.nextToken();
+      final ExecutableFlow flow = new ExecutableFlow();
+      flow.readJson(parser);
+      return flow;
+    } finally {
+      parser.close();
+    }
+  }
+
+  /**
+   * @return the flow encoded as flow_data of the given encoding type: JSON, gzipped JSON or Smile
+   */
+  public static byte[] encode(final ExecutableFlow flow, final EncodingType encType)
+      throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(8192);
+    if (encType == EncodingType.GZIP) {
+      try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+        write(flow, gzip);
+      }
+    } else if (encType == EncodingType.SMILE) {
+      write(JSONUtils.getSmileFactory(), flow, bytes);
+    } else {
+      write(flow, bytes);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decodes flow_data of the given encoding type.
+   */
+  public static ExecutableFlow decode(final byte[] data, final EncodingType encType)
+      throws IOException {
+    final ExecutableFlow flow;
+    if (encType == EncodingType.GZIP) {
+      try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+        flow = read(in);
+      }
+    } else if (encType == EncodingType.SMILE) {
+      flow = read(JSONUtils.getSmileFactory(), new ByteArrayInputStream(data));
+    } else {
+      flow = read(new ByteArrayInputStream(data));
+    }
+
+    if (flow.getExecutionOptions() == null) {
+      // Flows stored before the execution options were nested keep them in the top level object,
+      // which only the map based reader understands.
+      return ExecutableFlow.createExecutableFlowFromObject(
+          GZIPUtils.transformBytesToObject(data, encType));
+    }
+    return flow;
+  }
+
+  static void expect(final JsonParser parser, final JsonToken token) throws IOException {
+    if (parser.getCurrentToken() != token) {
+      throw new IOException("Expected " + token + " but found " + parser.getCurrentToken()
+          + " at " + parser.getCurrentLocation());
+    }
+  }
+
+  /**
+   * Reads a string value. Other scalars are converted to their text, like {@link
+   * azkaban.utils.TypedMapWrapper#getString}.
+   */
+  static String readString(final JsonParser parser) throws IOException {
+    final JsonToken token = parser.getCurrentToken();
+    if (token == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+      return String.valueOf(JSONUtils.readValue(parser));
+    }
+    return parser.getText();
+  }
+
+  static int readInt(final JsonParser parser, final int defaultValue) throws IOException {
+    switch (parser.getCurrentToken()) {
+      case VALUE_NUMBER_INT:
+        return parser.getIntValue();
+      case VALUE_STRING:
+        return Integer.parseInt(parser.getText());
+      default:
+        parser.skipChildren();
+        return defaultValue;
+    }
+  }
+
+  static long readLong(final JsonParser parser, final long defaultValue) throws IOException {
+    switch (parser.getCurrentToken()) {
+      case VALUE_NUMBER_INT:
+        return parser.getLongValue();
+      case VALUE_STRING:
+        return Long.parseLong(parser.getText());
+      default:
+        parser.skipChildren();
+        return defaultValue;
+    }
+  }
+
+  static double readDouble(final JsonParser parser, final double defaultValue)
+      throws IOException {
+    switch (parser.getCurrentToken()) {
+      case VALUE_NUMBER_FLOAT:
+        return parser.getDoubleValue();
+      case VALUE_STRING:
+        return Double.parseDouble(parser.getText());
+      default:
+        parser.skipChildren();
+        return defaultValue;
+    }
+  }
+
+  static boolean readBoolean(final JsonParser parser, final boolean defaultValue)
+      throws IOException {
+    switch (parser.getCurrentToken()) {
+      case VALUE_TRUE:
+        return true;
+      case VALUE_FALSE:
+        return false;
+      default:
+        parser.skipChildren();
+        return defaultValue;
+    }
+  }
+
+  /**
+   * Reads an array of strings.
+   *
+   * @return the strings, or null if the value isn't an array
+   */
+  static List<String> readStringList(final JsonParser parser) throws IOException {
+    if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return null;
+    }
+    final List<String> values = new ArrayList<>();
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      values.add(readString(parser));
+    }
+    return values;
+  }
+
+  static void writeStringArray(final JsonGenerator gen, final String fieldName,
+      final Iterable<String> values) throws IOException {
+    gen.writeArrayFieldStart(fieldName);
+    for (final String value : values) {
+      gen.writeString(value);
+    }
+    gen.writeEndArray();
+  }
+}
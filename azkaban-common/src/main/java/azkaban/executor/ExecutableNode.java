@@ -21,6 +21,7 @@ import azkaban.flow.Node;
 import azkaban.utils.Props;
 import azkaban.utils.PropsUtils;
 import azkaban.utils.TypedMapWrapper;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -30,6 +31,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
 
 /**
  * Base Executable that nodes and flows are based.
@@ -370,6 +374,182 @@ public class ExecutableNode {
     }
   }
 
+  /**
+   * Writes the object of {@link #toObject()} as JSON, without building it.
+   */
+  public void writeJson(final JsonGenerator gen) throws IOException {
+    gen.writeStartObject();
+    writeJsonFields(gen);
+    gen.writeEndObject();
+  }
+
+  /**
+   * Writes the fields of {@link #fillMapFromExecutable(Map)}. The type goes first, so that a
+   * reader can tell jobs from embedded flows before reading the rest.
+   */
+  protected void writeJsonFields(final JsonGenerator gen) throws IOException {
+    gen.writeStringField(TYPE_PARAM, this.type);
+    gen.writeStringField(ID_PARAM, this.id);
+    gen.writeStringField(STATUS_PARAM, this.status.toString());
+    gen.writeNumberField(STARTTIME_PARAM, this.startTime);
+    gen.writeNumberField(ENDTIME_PARAM, this.endTime);
+    gen.writeNumberField(UPDATETIME_PARAM, this.updateTime);
+    gen.writeStringField(CONDITION_PARAM, this.condition);
+    if (this.conditionOnJobStatus != null) {
+      gen.writeStringField(CONDITION_ON_JOB_STATUS_PARAM, this.conditionOnJobStatus.toString());
+    }
+    gen.writeNumberField(ATTEMPT_PARAM, this.attempt.get());
+
+    if (this.inNodes != null && !this.inNodes.isEmpty()) {
+      ExecutableFlowJsonCodec.writeStringArray(gen, INNODES_PARAM, this.inNodes);
+    }
+    if (this.outNodes != null && !this.outNodes.isEmpty()) {
+      ExecutableFlowJsonCodec.writeStringArray(gen, OUTNODES_PARAM, this.outNodes);
+    }
+
+    if (hasPropsSource()) {
+      gen.writeStringField(PROPS_SOURCE_PARAM, this.propsSource);
+    }
+    if (hasJobSource()) {
+      gen.writeStringField(JOB_SOURCE_PARAM, this.jobSource);
+    }
+
+    if (this.outputProps != null && this.outputProps.size() > 0) {
+      gen.writeObjectFieldStart(OUTPUT_PROPS_PARAM);
+      for (final String key : this.outputProps.localKeySet()) {
+        gen.writeStringField(key, this.outputProps.get(key));
+      }
+      gen.writeEndObject();
+    }
+
+    if (this.pastAttempts != null) {
+      gen.writeArrayFieldStart(PASTATTEMPTS_PARAM);
+      for (final ExecutionAttempt attempt : this.pastAttempts) {
+        attempt.writeJson(gen);
+      }
+      gen.writeEndArray();
+    }
+  }
+
+  /**
+   * Reads the object at the current token of the parser, as written by {@link #writeJson} or
+   * {@link #toObject()}. The counterpart of {@link #fillExecutableFromMapObject(Map)}.
+   */
+  public void readJson(final JsonParser parser) throws IOException {
+    ExecutableFlowJsonCodec.expect(parser, JsonToken.START_OBJECT);
+    parser.nextToken();
+    readJsonFields(parser);
+  }
+
+  /**
+   * Reads the fields from the current token of the parser to the end of the object.
+   */
+  void readJsonFields(final JsonParser parser) throws IOException {
+    // Like the map based reader, a missing condition isn't defaulted.
+    this.conditionOnJobStatus = null;
+    for (; parser.getCurrentToken() == JsonToken.FIELD_NAME; parser.nextToken()) {
+      final String field = parser.getCurrentName();
+      parser.nextToken();
+      if (!readJsonField(field, parser)) {
+        parser.skipChildren();
+      }
+    }
+    ExecutableFlowJsonCodec.expect(parser, JsonToken.END_OBJECT);
+  }
+
+  /**
+   * Reads the value of a field. Subclasses read their own fields and delegate the others.
+   *
+   * @return false if the field is unknown, and the value hasn't been read
+   */
+  protected boolean readJsonField(final String field, final JsonParser parser)
+      throws IOException {
+    switch (field) {
+      case ID_PARAM:
+        this.id = ExecutableFlowJsonCodec.readString(parser);
+        return true;
+      case TYPE_PARAM:
+        this.type = ExecutableFlowJsonCodec.readString(parser);
+        return true;
+      case CONDITION_PARAM:
+        this.condition = ExecutableFlowJsonCodec.readString(parser);
+        return true;
+      case CONDITION_ON_JOB_STATUS_PARAM:
+        this.conditionOnJobStatus = ConditionOnJobStatus
+            .fromString(ExecutableFlowJsonCodec.readString(parser));
+        return true;
+      case STATUS_PARAM:
+        this.status = Status.valueOf(ExecutableFlowJsonCodec.readString(parser));
+        return true;
+      case STARTTIME_PARAM:
+        this.startTime = ExecutableFlowJsonCodec.readLong(parser, -1L);
+        return true;
+      case ENDTIME_PARAM:
+        this.endTime = ExecutableFlowJsonCodec.readLong(parser, -1L);
+        return true;
+      case UPDATETIME_PARAM:
+        this.updateTime = ExecutableFlowJsonCodec.readLong(parser, -1L);
+        return true;
+      case ATTEMPT_PARAM:
+        this.attempt.set(ExecutableFlowJsonCodec.readInt(parser, 0));
+        return true;
+      case INNODES_PARAM:
+        readNodeIds(parser, this.inNodes);
+        return true;
+      case OUTNODES_PARAM:
+        readNodeIds(parser, this.outNodes);
+        return true;
+      case PROPS_SOURCE_PARAM:
+        this.propsSource = ExecutableFlowJsonCodec.readString(parser);
+        return true;
+      case JOB_SOURCE_PARAM:
+        this.jobSource = ExecutableFlowJsonCodec.readString(parser);
+        return true;
+      case OUTPUT_PROPS_PARAM:
+        readOutputProps(parser);
+        return true;
+      case PASTATTEMPTS_PARAM:
+        readPastAttempts(parser);
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static void readNodeIds(final JsonParser parser, final Set<String> nodeIds)
+      throws IOException {
+    final List<String> ids = ExecutableFlowJsonCodec.readStringList(parser);
+    if (ids != null) {
+      nodeIds.addAll(ids);
+    }
+  }
+
+  private void readOutputProps(final JsonParser parser) throws IOException {
+    if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return;
+    }
+    final Props props = new Props();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String key = parser.getCurrentName();
+      parser.nextToken();
+      props.put(key, ExecutableFlowJsonCodec.readString(parser));
+    }
+    this.outputProps = props;
+  }
+
+  private void readPastAttempts(final JsonParser parser) throws IOException {
+    if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return;
+    }
+    final ArrayList<ExecutionAttempt> attempts = new ArrayList<>();
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      attempts.add(ExecutionAttempt.readJson(parser));
+    }
+    this.pastAttempts = attempts;
+  }
+
   public void fillExecutableFromMapObject(final Map<String, Object> objMap) {
     final TypedMapWrapper<String, Object> wrapper =
         new TypedMapWrapper<>(objMap);
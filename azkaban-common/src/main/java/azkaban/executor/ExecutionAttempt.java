@@ -17,8 +17,12 @@
 package azkaban.executor;
 
 import azkaban.utils.TypedMapWrapper;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
 
 public class ExecutionAttempt {
 
@@ -58,6 +62,38 @@ public class ExecutionAttempt {
     return new ExecutionAttempt(attempt, startTime, endTime, status);
   }
 
+  /**
+   * Reads the attempt object at the current token of the parser, like {@link #fromObject}.
+   */
+  static ExecutionAttempt readJson(final JsonParser parser) throws IOException {
+    ExecutableFlowJsonCodec.expect(parser, JsonToken.START_OBJECT);
+    int attempt = -1;
+    long startTime = -1;
+    long endTime = -1;
+    String status = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+        case ATTEMPT_PARAM:
+          attempt = ExecutableFlowJsonCodec.readInt(parser, -1);
+          break;
+        case STARTTIME_PARAM:
+          startTime = ExecutableFlowJsonCodec.readLong(parser, -1L);
+          break;
+        case ENDTIME_PARAM:
+          endTime = ExecutableFlowJsonCodec.readLong(parser, -1L);
+          break;
+        case STATUS_PARAM:
+          status = ExecutableFlowJsonCodec.readString(parser);
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+    return new ExecutionAttempt(attempt, startTime, endTime, Status.valueOf(status));
+  }
+
   public long getStartTime() {
     return this.startTime;
   }
@@ -82,4 +118,16 @@ public class ExecutionAttempt {
     attempts.put(STATUS_PARAM, this.status.toString());
     return attempts;
   }
+
+  /**
+   * Writes the object of {@link #toObject()} as JSON.
+   */
+  void writeJson(final JsonGenerator gen) throws IOException {
+    gen.writeStartObject();
+    gen.writeNumberField(ATTEMPT_PARAM, this.attempt);
+    gen.writeNumberField(STARTTIME_PARAM, this.startTime);
+    gen.writeNumberField(ENDTIME_PARAM, this.endTime);
+    gen.writeStringField(STATUS_PARAM, this.status.toString());
+    gen.writeEndObject();
+  }
 }
@@ -427,6 +427,12 @@ public class ExecutionController extends EventHandler implements ExecutorManager
     }
   }
 
+  @Override
+  public LogData getExecutionJobLogTail(final ExecutableFlow exFlow, final String jobId,
+      final int length, final int attempt) throws ExecutorManagerException {
+    return this.executorLoader.fetchLogsTail(exFlow.getExecutionId(), jobId, attempt, length);
+  }
+
   @Override
   public List<Object> getExecutionJobStats(final ExecutableFlow exFlow, final String jobId,
       final int attempt) throws ExecutorManagerException {
@@ -783,4 +789,40 @@ public class ExecutionController extends EventHandler implements ExecutorManager
         status);
   }
 
+  @Override
+  public List<ExecutionSummary> getExecutionSummaries(final int skip, final int size)
+      throws ExecutorManagerException {
+    return this.executorLoader.fetchExecutionSummaries(skip, size);
+  }
+
+  @Override
+  public List<ExecutionSummary> getExecutionSummaries(final String flowIdContains,
+      final int skip, final int size) throws ExecutorManagerException {
+    return this.executorLoader.fetchExecutionSummaries(null, '%' + flowIdContains + '%', null,
+        0, -1, -1, skip, size);
+  }
+
+  @Override
+  public List<ExecutionSummary> getExecutionSummaries(final String projContain,
+      final String flowContain, final String userContain, final int status, final long begin,
+      final long end, final int skip, final int size) throws ExecutorManagerException {
+    return this.executorLoader.fetchExecutionSummaries(projContain, flowContain, userContain,
+        status, begin, end, skip, size);
+  }
+
+  @Override
+  public int getExecutionSummaries(final int projectId, final String flowId, final int from,
+      final int length, final List<ExecutionSummary> outputList)
+      throws ExecutorManagerException {
+    outputList.addAll(
+        this.executorLoader.fetchExecutionSummaries(projectId, flowId, from, length));
+    return this.executorLoader.fetchNumExecutableFlows(projectId, flowId);
+  }
+
+  @Override
+  public List<ExecutionSummary> getExecutionSummaries(final int projectId, final String flowId,
+      final int from, final int length, final Status status) throws ExecutorManagerException {
+    return this.executorLoader.fetchExecutionSummaries(projectId, flowId, from, length, status);
+  }
+
 }
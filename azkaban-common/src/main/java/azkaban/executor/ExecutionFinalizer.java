@@ -16,6 +16,9 @@
 
 package azkaban.executor;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import org.apache.log4j.Logger;
@@ -31,6 +34,7 @@ public class ExecutionFinalizer {
   private final ExecutorManagerUpdaterStage updaterStage;
   private final AlerterHolder alerterHolder;
   private final RunningExecutions runningExecutions;
+  private final List<Consumer<ExecutableFlow>> finishListeners = new CopyOnWriteArrayList<>();
 
   @Inject
   public ExecutionFinalizer(final ExecutorLoader executorLoader,
@@ -42,6 +46,13 @@ public class ExecutionFinalizer {
     this.runningExecutions = runningExecutions;
   }
 
+  /**
+   * Adds a listener called with each flow once it is removed from the running executions.
+   */
+  public void addFinishListener(final Consumer<ExecutableFlow> listener) {
+    this.finishListeners.add(listener);
+  }
+
   /**
    * If the current status of the execution is not one of the finished statuses, marks the execution
    * as failed in the DB. Removes the execution from the running executions cache.
@@ -85,6 +96,9 @@ public class ExecutionFinalizer {
 
       this.updaterStage.set("finalizing flow " + execId + " cleaning from memory");
       this.runningExecutions.get().remove(execId);
+      for (final Consumer<ExecutableFlow> listener : this.finishListeners) {
+        listener.accept(flow);
+      }
     } catch (final ExecutorManagerException e) {
       alertUser = false; // failed due to azkaban internal error, not to alert user
       logger.error(e);
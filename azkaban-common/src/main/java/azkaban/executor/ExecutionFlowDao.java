@@ -16,19 +16,25 @@
 
 package azkaban.executor;
 
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.db.DatabaseOperator;
 import azkaban.db.EncodingType;
 import azkaban.db.SQLTransaction;
 import azkaban.utils.GZIPUtils;
 import azkaban.utils.JSONUtils;
 import azkaban.utils.Pair;
+import azkaban.utils.Props;
 import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.apache.commons.dbutils.ResultSetHandler;
@@ -40,10 +46,14 @@ public class ExecutionFlowDao {
 
   private static final Logger logger = Logger.getLogger(ExecutionFlowDao.class);
   private final DatabaseOperator dbOperator;
+  private final EncodingType flowDataEncodingType;
 
   @Inject
-  public ExecutionFlowDao(final DatabaseOperator dbOperator) {
+  public ExecutionFlowDao(final DatabaseOperator dbOperator, final Props props) {
     this.dbOperator = dbOperator;
+    this.flowDataEncodingType = EncodingType.valueOf(props.getString(
+        ConfigurationKeys.AZKABAN_EXECUTION_FLOW_DATA_ENCODING_TYPE, EncodingType.GZIP.name())
+        .toUpperCase());
   }
 
   public void uploadExecutableFlow(final ExecutableFlow flow)
@@ -90,8 +100,9 @@ public class ExecutionFlowDao {
   List<ExecutableFlow> fetchFlowHistory(final int skip, final int num)
       throws ExecutorManagerException {
     try {
-      return this.dbOperator.query(FetchExecutableFlows.FETCH_ALL_EXECUTABLE_FLOW_HISTORY,
-          new FetchExecutableFlows(), skip, num);
+      return applyFlowUpdates(this.dbOperator.query(
+          FetchExecutableFlows.FETCH_ALL_EXECUTABLE_FLOW_HISTORY, new FetchExecutableFlows(),
+          skip, num));
     } catch (final SQLException e) {
       throw new ExecutorManagerException("Error fetching flow History", e);
     }
@@ -101,8 +112,9 @@ public class ExecutionFlowDao {
       final int skip, final int num)
       throws ExecutorManagerException {
     try {
-      return this.dbOperator.query(FetchExecutableFlows.FETCH_EXECUTABLE_FLOW_HISTORY,
-          new FetchExecutableFlows(), projectId, flowId, skip, num);
+      return applyFlowUpdates(this.dbOperator.query(
+          FetchExecutableFlows.FETCH_EXECUTABLE_FLOW_HISTORY, new FetchExecutableFlows(),
+          projectId, flowId, skip, num));
     } catch (final SQLException e) {
       throw new ExecutorManagerException("Error fetching flow history", e);
     }
@@ -127,8 +139,9 @@ public class ExecutionFlowDao {
   public List<ExecutableFlow> fetchFlowHistory(final int projectId, final String flowId, final
   long startTime) throws ExecutorManagerException {
     try {
-      return this.dbOperator.query(FetchExecutableFlows.FETCH_EXECUTABLE_FLOW_BY_START_TIME,
-          new FetchExecutableFlows(), projectId, flowId, startTime);
+      return applyFlowUpdates(this.dbOperator.query(
+          FetchExecutableFlows.FETCH_EXECUTABLE_FLOW_BY_START_TIME, new FetchExecutableFlows(),
+          projectId, flowId, startTime));
     } catch (final SQLException e) {
       throw new ExecutorManagerException("Error fetching historic flows", e);
     }
@@ -138,8 +151,9 @@ public class ExecutionFlowDao {
       final int skip, final int num, final Status status)
       throws ExecutorManagerException {
     try {
-      return this.dbOperator.query(FetchExecutableFlows.FETCH_EXECUTABLE_FLOW_BY_STATUS,
-          new FetchExecutableFlows(), projectId, flowId, status.getNumVal(), skip, num);
+      return applyFlowUpdates(this.dbOperator.query(
+          FetchExecutableFlows.FETCH_EXECUTABLE_FLOW_BY_STATUS, new FetchExecutableFlows(),
+          projectId, flowId, status.getNumVal(), skip, num));
     } catch (final SQLException e) {
       throw new ExecutorManagerException("Error fetching active flows", e);
     }
@@ -162,8 +176,76 @@ public class ExecutionFlowDao {
       final long startTime, final long endTime,
       final int skip, final int num)
       throws ExecutorManagerException {
-    String query = FetchExecutableFlows.FETCH_BASE_EXECUTABLE_FLOW_QUERY;
     final List<Object> params = new ArrayList<>();
+    final String query = FetchExecutableFlows.FETCH_BASE_EXECUTABLE_FLOW_QUERY
+        + buildHistoryFilter(projContain, flowContains, userNameContains, status, startTime,
+        endTime, skip, num, params);
+
+    try {
+      return applyFlowUpdates(
+          this.dbOperator.query(query, new FetchExecutableFlows(), params.toArray()));
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching active flows", e);
+    }
+  }
+
+  /**
+   * Like {@link #fetchFlowHistory(String, String, String, int, long, long, int, int)}, but only
+   * reads the scalar columns of the executions.
+   */
+  List<ExecutionSummary> fetchExecutionSummaries(final String projContain,
+      final String flowContains, final String userNameContains, final int status,
+      final long startTime, final long endTime, final int skip, final int num)
+      throws ExecutorManagerException {
+    final List<Object> params = new ArrayList<>();
+    final String query = FetchExecutionSummaries.FETCH_BASE_EXECUTION_SUMMARY_QUERY
+        + buildHistoryFilter(projContain, flowContains, userNameContains, status, startTime,
+        endTime, skip, num, params);
+
+    try {
+      return this.dbOperator.query(query, new FetchExecutionSummaries(), params.toArray());
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching execution summaries", e);
+    }
+  }
+
+  List<ExecutionSummary> fetchExecutionSummaries(final int skip, final int num)
+      throws ExecutorManagerException {
+    try {
+      return this.dbOperator.query(FetchExecutionSummaries.FETCH_ALL_EXECUTION_SUMMARIES,
+          new FetchExecutionSummaries(), skip, num);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching execution summaries", e);
+    }
+  }
+
+  List<ExecutionSummary> fetchExecutionSummaries(final int projectId, final String flowId,
+      final int skip, final int num) throws ExecutorManagerException {
+    try {
+      return this.dbOperator.query(FetchExecutionSummaries.FETCH_EXECUTION_SUMMARIES,
+          new FetchExecutionSummaries(), projectId, flowId, skip, num);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching execution summaries", e);
+    }
+  }
+
+  List<ExecutionSummary> fetchExecutionSummaries(final int projectId, final String flowId,
+      final int skip, final int num, final Status status) throws ExecutorManagerException {
+    try {
+      return this.dbOperator.query(FetchExecutionSummaries.FETCH_EXECUTION_SUMMARIES_BY_STATUS,
+          new FetchExecutionSummaries(), projectId, flowId, status.getNumVal(), skip, num);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching execution summaries", e);
+    }
+  }
+
+  /**
+   * Builds the filter of the flow history queries, which follows their select clause.
+   */
+  private static String buildHistoryFilter(final String projContain, final String flowContains,
+      final String userNameContains, final int status, final long startTime, final long endTime,
+      final int skip, final int num, final List<Object> params) {
+    String query = "";
 
     boolean first = true;
     if (projContain != null && !projContain.isEmpty()) {
@@ -233,16 +315,11 @@ public class ExecutionFlowDao {
       params.add(skip);
       params.add(num);
     }
-
-    try {
-      return this.dbOperator.query(query, new FetchExecutableFlows(), params.toArray());
-    } catch (final SQLException e) {
-      throw new ExecutorManagerException("Error fetching active flows", e);
-    }
+    return query;
   }
 
   void updateExecutableFlow(final ExecutableFlow flow) throws ExecutorManagerException {
-    updateExecutableFlow(flow, EncodingType.GZIP);
+    updateExecutableFlow(flow, this.flowDataEncodingType);
   }
 
   private void updateExecutableFlow(final ExecutableFlow flow, final EncodingType encType)
@@ -252,33 +329,130 @@ public class ExecutionFlowDao {
             + "SET status=?,update_time=?,start_time=?,end_time=?,enc_type=?,flow_data=? "
             + "WHERE exec_id=?";
 
-    final String json = JSONUtils.toJSON(flow.toObject());
-    byte[] data = null;
+    final byte[] data;
     try {
-      final byte[] stringData = json.getBytes("UTF-8");
-      data = stringData;
-      // Todo kunkun-tang: use a common method to transform stringData to data.
-      if (encType == EncodingType.GZIP) {
-        data = GZIPUtils.gzipBytes(stringData);
-      }
+      data = ExecutableFlowJsonCodec.encode(flow, encType);
     } catch (final IOException e) {
       throw new ExecutorManagerException("Error encoding the execution flow.");
     }
 
+    /**
+     * The full flow data supersedes every delta appended by {@link #updateExecutableFlowDelta},
+     * so the delta log is compacted away in the same transaction.
+     */
+    final SQLTransaction<Integer> updateAndCompact = transOperator -> {
+      final int rows = transOperator.update(UPDATE_EXECUTABLE_FLOW_DATA,
+          flow.getStatus().getNumVal(), flow.getUpdateTime(), flow.getStartTime(),
+          flow.getEndTime(), encType.getNumVal(), data, flow.getExecutionId());
+      transOperator.update(FetchFlowUpdates.DELETE_FLOW_UPDATES, flow.getExecutionId());
+      transOperator.getConnection().commit();
+      return rows;
+    };
+
     try {
-      this.dbOperator.update(UPDATE_EXECUTABLE_FLOW_DATA, flow.getStatus()
-          .getNumVal(), flow.getUpdateTime(), flow.getStartTime(), flow
-          .getEndTime(), encType.getNumVal(), data, flow.getExecutionId());
+      this.dbOperator.transaction(updateAndCompact);
     } catch (final SQLException e) {
       throw new ExecutorManagerException("Error updating flow.", e);
     }
   }
 
+  /**
+   * Persists only the nodes of the flow that changed after {@code lastUpdateTime}, instead of
+   * rewriting the whole flow_data blob. The scalar columns of execution_flows are kept current,
+   * and the changed node states are appended to execution_flow_updates. Readers of flow_data
+   * merge these deltas back in, and the next {@link #updateExecutableFlow(ExecutableFlow)}
+   * compacts them.
+   */
+  void updateExecutableFlowDelta(final ExecutableFlow flow, final long lastUpdateTime)
+      throws ExecutorManagerException {
+    final String UPDATE_EXECUTABLE_FLOW_STATUS =
+        "UPDATE execution_flows SET status=?,update_time=?,start_time=?,end_time=? "
+            + "WHERE exec_id=?";
+    final String INSERT_FLOW_UPDATE = "INSERT INTO execution_flow_updates "
+        + "(exec_id, update_time, enc_type, update_data) values (?,?,?,?)";
+
+    final EncodingType encType = this.flowDataEncodingType;
+    final byte[] data;
+    try {
+      data = encodeObject(flow.toUpdateObject(lastUpdateTime), encType);
+    } catch (final IOException e) {
+      throw new ExecutorManagerException("Error encoding the execution flow update.");
+    }
+
+    final SQLTransaction<Integer> updateAndAppend = transOperator -> {
+      final int rows = transOperator.update(UPDATE_EXECUTABLE_FLOW_STATUS,
+          flow.getStatus().getNumVal(), flow.getUpdateTime(), flow.getStartTime(),
+          flow.getEndTime(), flow.getExecutionId());
+      transOperator.update(INSERT_FLOW_UPDATE, flow.getExecutionId(), flow.getUpdateTime(),
+          encType.getNumVal(), data);
+      transOperator.getConnection().commit();
+      return rows;
+    };
+
+    try {
+      this.dbOperator.transaction(updateAndAppend);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error updating flow delta.", e);
+    }
+  }
+
+  private static byte[] encodeObject(final Object obj, final EncodingType encType)
+      throws IOException {
+    if (encType == EncodingType.SMILE) {
+      return JSONUtils.toSmile(obj);
+    }
+    final byte[] stringData = JSONUtils.toJSON(obj).getBytes("UTF-8");
+    // Todo kunkun-tang: use a common method to transform stringData to data.
+    if (encType == EncodingType.GZIP) {
+      return GZIPUtils.gzipBytes(stringData);
+    }
+    return stringData;
+  }
+
+  private List<ExecutableFlow> applyFlowUpdates(final List<ExecutableFlow> flows)
+      throws SQLException {
+    applyFlowUpdates(this.dbOperator, flows);
+    return flows;
+  }
+
+  /**
+   * Merges the deltas appended by {@link #updateExecutableFlowDelta} into the flows decoded from
+   * flow_data. Finished flows have already been compacted, so they are left as they are. The
+   * deltas of the unfinished flows are fetched with one query per {@link
+   * FetchFlowUpdates#MAX_EXEC_IDS_PER_QUERY} flows.
+   */
+  static void applyFlowUpdates(final DatabaseOperator dbOperator,
+      final Collection<ExecutableFlow> flows) throws SQLException {
+    final Map<Integer, ExecutableFlow> unfinished = new LinkedHashMap<>();
+    for (final ExecutableFlow flow : flows) {
+      if (!Status.isStatusFinished(flow.getStatus())) {
+        unfinished.put(flow.getExecutionId(), flow);
+      }
+    }
+
+    final List<Integer> execIds = new ArrayList<>(unfinished.keySet());
+    for (int from = 0; from < execIds.size(); from += FetchFlowUpdates.MAX_EXEC_IDS_PER_QUERY) {
+      final List<Integer> batch = execIds.subList(from,
+          Math.min(execIds.size(), from + FetchFlowUpdates.MAX_EXEC_IDS_PER_QUERY));
+      final String query = String.format(FetchFlowUpdates.FETCH_FLOW_UPDATES,
+          StringUtils.repeat("?", ",", batch.size()));
+      final Map<Integer, List<Map<String, Object>>> updatesByExecId = dbOperator.query(query,
+          new FetchFlowUpdates(), batch.toArray());
+      for (final Map.Entry<Integer, List<Map<String, Object>>> entry : updatesByExecId
+          .entrySet()) {
+        final ExecutableFlow flow = unfinished.get(entry.getKey());
+        for (final Map<String, Object> update : entry.getValue()) {
+          flow.applyUpdateObject(update);
+        }
+      }
+    }
+  }
+
   public ExecutableFlow fetchExecutableFlow(final int execId) throws ExecutorManagerException {
     final FetchExecutableFlows flowHandler = new FetchExecutableFlows();
     try {
-      final List<ExecutableFlow> properties = this.dbOperator
-          .query(FetchExecutableFlows.FETCH_EXECUTABLE_FLOW, flowHandler, execId);
+      final List<ExecutableFlow> properties = applyFlowUpdates(this.dbOperator
+          .query(FetchExecutableFlows.FETCH_EXECUTABLE_FLOW, flowHandler, execId));
       if (properties.isEmpty()) {
         return null;
       } else {
@@ -404,9 +578,7 @@ public class ExecutionFlowDao {
         if (data != null) {
           final EncodingType encType = EncodingType.fromInteger(encodingType);
           try {
-            final ExecutableFlow exFlow =
-                ExecutableFlow.createExecutableFlowFromObject(
-                    GZIPUtils.transformBytesToObject(data, encType));
+            final ExecutableFlow exFlow = ExecutableFlowJsonCodec.decode(data, encType);
             execFlows.add(exFlow);
           } catch (final IOException e) {
             throw new SQLException("Error retrieving flow data " + id, e);
@@ -418,6 +590,84 @@ public class ExecutionFlowDao {
     }
   }
 
+  /**
+   * JDBC ResultSetHandler to fetch execution summaries, without the flow data.
+   */
+  private static class FetchExecutionSummaries implements
+      ResultSetHandler<List<ExecutionSummary>> {
+
+    // Columns are qualified as the advanced filter may join the projects table.
+    private static final String FETCH_BASE_EXECUTION_SUMMARY_QUERY =
+        "SELECT ef.exec_id, ef.project_id, ef.version, ef.flow_id, ef.status, ef.submit_user, "
+            + "ef.submit_time, ef.start_time, ef.end_time, ef.update_time "
+            + "FROM execution_flows ef";
+    private static final String FETCH_ALL_EXECUTION_SUMMARIES =
+        FETCH_BASE_EXECUTION_SUMMARY_QUERY + " ORDER BY exec_id DESC LIMIT ?, ?";
+    private static final String FETCH_EXECUTION_SUMMARIES =
+        FETCH_BASE_EXECUTION_SUMMARY_QUERY + " WHERE project_id=? AND flow_id=? "
+            + "ORDER BY exec_id DESC LIMIT ?, ?";
+    private static final String FETCH_EXECUTION_SUMMARIES_BY_STATUS =
+        FETCH_BASE_EXECUTION_SUMMARY_QUERY + " WHERE project_id=? AND flow_id=? AND status=? "
+            + "ORDER BY exec_id DESC LIMIT ?, ?";
+
+    @Override
+    public List<ExecutionSummary> handle(final ResultSet rs) throws SQLException {
+      final List<ExecutionSummary> summaries = new ArrayList<>();
+      while (rs.next()) {
+        summaries.add(new ExecutionSummary(rs.getInt(1), rs.getInt(2), rs.getInt(3),
+            rs.getString(4), Status.fromInteger(rs.getInt(5)), rs.getString(6), rs.getLong(7),
+            rs.getLong(8), rs.getLong(9), rs.getLong(10)));
+      }
+      return summaries;
+    }
+  }
+
+  /**
+   * JDBC ResultSetHandler to fetch the node state deltas of executions by execution id, oldest
+   * first.
+   */
+  private static class FetchFlowUpdates implements
+      ResultSetHandler<Map<Integer, List<Map<String, Object>>>> {
+
+    // Keeps the IN list well below the bind variable limits of the databases
+    private static final int MAX_EXEC_IDS_PER_QUERY = 500;
+
+    private static final String FETCH_FLOW_UPDATES =
+        "SELECT exec_id, update_id, enc_type, update_data FROM execution_flow_updates "
+            + "WHERE exec_id IN (%s) ORDER BY exec_id ASC, update_id ASC";
+
+    private static final String DELETE_FLOW_UPDATES =
+        "DELETE FROM execution_flow_updates WHERE exec_id=?";
+
+    @Override
+    public Map<Integer, List<Map<String, Object>>> handle(final ResultSet rs)
+        throws SQLException {
+      if (!rs.next()) {
+        return Collections.emptyMap();
+      }
+
+      final Map<Integer, List<Map<String, Object>>> updates = new HashMap<>();
+      do {
+        final int execId = rs.getInt(1);
+        final long id = rs.getLong(2);
+        final int encodingType = rs.getInt(3);
+        final byte[] data = rs.getBytes(4);
+
+        if (data != null) {
+          final EncodingType encType = EncodingType.fromInteger(encodingType);
+          try {
+            updates.computeIfAbsent(execId, k -> new ArrayList<>())
+                .add((Map<String, Object>) GZIPUtils.transformBytesToObject(data, encType));
+          } catch (final IOException e) {
+            throw new SQLException("Error retrieving flow update " + id, e);
+          }
+        }
+      } while (rs.next());
+
+      return updates;
+    }
+  }
+
   /**
    * JDBC ResultSetHandler to fetch queued executions
    */
@@ -449,9 +699,7 @@ public class ExecutionFlowDao {
         } else {
           final EncodingType encType = EncodingType.fromInteger(encodingType);
           try {
-            final ExecutableFlow exFlow =
-                ExecutableFlow.createExecutableFlowFromObject(
-                    GZIPUtils.transformBytesToObject(data, encType));
+            final ExecutableFlow exFlow = ExecutableFlowJsonCodec.decode(data, encType);
             final ExecutionReference ref = new ExecutionReference(id);
             execFlows.add(new Pair<>(ref, exFlow));
           } catch (final IOException e) {
@@ -488,9 +736,7 @@ public class ExecutionFlowDao {
         if (data != null) {
           final EncodingType encType = EncodingType.fromInteger(encodingType);
           try {
-            final ExecutableFlow exFlow =
-                ExecutableFlow.createExecutableFlowFromObject(
-                    GZIPUtils.transformBytesToObject(data, encType));
+            final ExecutableFlow exFlow = ExecutableFlowJsonCodec.decode(data, encType);
             execFlows.add(exFlow);
           } catch (final IOException e) {
             throw new SQLException("Error retrieving flow data " + id, e);
@@ -16,25 +16,40 @@
 
 package azkaban.executor;
 
-import azkaban.db.EncodingType;
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.db.DatabaseOperator;
 import azkaban.db.DatabaseTransOperator;
+import azkaban.db.EncodingType;
 import azkaban.db.SQLTransaction;
 import azkaban.utils.FileIOUtils;
 import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.GZIPUtils;
 import azkaban.utils.Pair;
+import azkaban.utils.Props;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
 import org.apache.commons.dbutils.ResultSetHandler;
 import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
@@ -45,19 +60,122 @@ import org.joda.time.DateTime;
 public class ExecutionLogsDao {
 
   private static final Logger logger = Logger.getLogger(ExecutionLogsDao.class);
+  private static final int DEFAULT_LOG_CHUNK_SIZE = 50 * 1024;
+  private static final int DEFAULT_LOG_UPLOAD_BATCH_SIZE = 20;
+  private static final int DEFAULT_LOG_COMPRESSION_THREADS = 2;
+  private static final String INSERT_EXECUTION_LOGS = "INSERT INTO execution_logs "
+      + "(exec_id, name, attempt, enc_type, start_byte, end_byte, "
+      + "log, upload_time) VALUES (?,?,?,?,?,?,?,?)";
+
   private final DatabaseOperator dbOperator;
-  private final EncodingType defaultEncodingType = EncodingType.GZIP;
+  private final EncodingType defaultEncodingType;
+  private final int chunkSize;
+  private final int uploadBatchSize;
+  // Number of chunks that may be read ahead of the DB writes
+  private final int maxPendingParts;
+  private final ExecutorService compressionExecutor;
 
   @Inject
-  ExecutionLogsDao(final DatabaseOperator dbOperator) {
+  ExecutionLogsDao(final DatabaseOperator dbOperator, final Props props) {
     this.dbOperator = dbOperator;
+    this.chunkSize = props.getInt(ConfigurationKeys.AZKABAN_EXECUTION_LOGS_CHUNK_SIZE,
+        DEFAULT_LOG_CHUNK_SIZE);
+    this.uploadBatchSize = Math.max(1, props.getInt(
+        ConfigurationKeys.AZKABAN_EXECUTION_LOGS_UPLOAD_BATCH_SIZE,
+        DEFAULT_LOG_UPLOAD_BATCH_SIZE));
+    this.defaultEncodingType = EncodingType.valueOf(props.getString(
+        ConfigurationKeys.AZKABAN_EXECUTION_LOGS_ENCODING_TYPE, EncodingType.GZIP.name())
+        .toUpperCase());
+    final int compressionThreads = Math.max(1, props.getInt(
+        ConfigurationKeys.AZKABAN_EXECUTION_LOGS_COMPRESSION_THREADS,
+        DEFAULT_LOG_COMPRESSION_THREADS));
+    this.maxPendingParts = 2 * compressionThreads;
+    this.compressionExecutor = Executors.newFixedThreadPool(compressionThreads,
+        new ThreadFactoryBuilder().setDaemon(true)
+            .setNameFormat("azk-log-compression-%d").build());
   }
 
   // TODO kunkun-tang: the interface's parameter is called endByte, but actually is length.
+  /**
+   * The length comes from the client, so the buffer is sized by the bytes of the log actually
+   * in the requested range rather than by the length.
+   *
+   * @return the log data, or null if the length isn't positive or the range is past the log
+   */
   LogData fetchLogs(final int execId, final String name, final int attempt,
       final int startByte,
       final int length) throws ExecutorManagerException {
-    final FetchLogsHandler handler = new FetchLogsHandler(startByte, length + startByte);
+    if (length <= 0) {
+      return null;
+    }
+    final int available = fetchLogSize(execId, name, attempt) - startByte;
+    if (available <= 0) {
+      return null;
+    }
+    return fetchLogRange(execId, name, attempt, startByte, Math.min(length, available));
+  }
+
+  /**
+   * Fetches the last {@code length} bytes of a log, without reading any of the chunks before
+   * them.
+   *
+   * @return the tail of the log, or null if the length isn't positive or the log doesn't exist
+   */
+  LogData fetchLogsTail(final int execId, final String name, final int attempt,
+      final int length) throws ExecutorManagerException {
+    if (length <= 0) {
+      return null;
+    }
+    final int logSize = fetchLogSize(execId, name, attempt);
+    if (logSize <= 0) {
+      return null;
+    }
+
+    final int startByte = Math.max(0, logSize - length);
+    return fetchLogRange(execId, name, attempt, startByte, logSize - startByte);
+  }
+
+  private LogData fetchLogRange(final int execId, final String name, final int attempt,
+      final int startByte, final int length) throws ExecutorManagerException {
+    final byte[] buffer = new byte[length];
+    final int read = readLogs(execId, name, attempt, startByte, buffer, 0, length);
+    if (read < 0) {
+      return null;
+    }
+
+    final Pair<Integer, Integer> result = FileIOUtils.getUtf8Range(buffer, 0, read);
+    return new LogData(startByte + result.getFirst(), result.getSecond(),
+        new String(buffer, result.getFirst(), result.getSecond(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @return the size of the log in bytes, 0 if the log doesn't exist
+   */
+  private int fetchLogSize(final int execId, final String name, final int attempt)
+      throws ExecutorManagerException {
+    final String FETCH_LOG_SIZE = "SELECT MAX(end_byte) FROM execution_logs "
+        + "WHERE exec_id=? AND name=? AND attempt=?";
+    try {
+      return this.dbOperator.query(FETCH_LOG_SIZE,
+          rs -> rs.next() ? rs.getInt(1) : 0, execId, name, attempt);
+    } catch (final SQLException e) {
+      throw new ExecutorManagerException("Error fetching log size " + execId
+          + " : " + name, e);
+    }
+  }
+
+  /**
+   * Reads the bytes [startByte, startByte + length) of a log into the given buffer. Only the
+   * chunks overlapping the range are fetched, and each of them is decompressed as a stream
+   * straight into the buffer, so memory use is bounded by the buffer.
+   *
+   * @return the number of bytes read, or -1 if no chunk of the log overlaps the range
+   */
+  int readLogs(final int execId, final String name, final int attempt, final int startByte,
+      final byte[] buffer, final int bufferOffset, final int length)
+      throws ExecutorManagerException {
+    final FetchLogsHandler handler =
+        new FetchLogsHandler(startByte, length + startByte, buffer, bufferOffset);
     try {
       return this.dbOperator.query(FetchLogsHandler.FETCH_LOGS, handler,
           execId, name, attempt, startByte, startByte + length);
@@ -82,56 +200,100 @@ public class ExecutionLogsDao {
     }
   }
 
+  /**
+   * Uploads the files as consecutive chunks of a single log. Chunks are compressed on the
+   * compression pool while the calling thread keeps reading the files and inserts the
+   * compressed chunks in JDBC batches, in order.
+   */
   private void uploadLogFile(final DatabaseTransOperator transOperator, final int execId,
       final String name,
       final int attempt, final File[] files, final EncodingType encType)
       throws SQLException {
-    // 50K buffer... if logs are greater than this, we chunk.
+    // If logs are greater than the chunk size, we chunk.
     // However, we better prevent large log files from being uploaded somehow
-    final byte[] buffer = new byte[50 * 1024];
+    final Deque<Future<LogPart>> pendingParts = new ArrayDeque<>();
+    final List<Object[]> batch = new ArrayList<>(this.uploadBatchSize);
+    byte[] buffer = new byte[this.chunkSize];
     int pos = 0;
-    int length = buffer.length;
     int startByte = 0;
     try {
-      for (int i = 0; i < files.length; ++i) {
-        final File file = files[i];
-
+      for (final File file : files) {
         final BufferedInputStream bufferedStream =
             new BufferedInputStream(new FileInputStream(file));
         try {
-          int size = bufferedStream.read(buffer, pos, length);
+          int size = bufferedStream.read(buffer, pos, buffer.length - pos);
           while (size >= 0) {
-            if (pos + size == buffer.length) {
-              // Flush here.
-              uploadLogPart(transOperator, execId, name, attempt, startByte,
-                  startByte + buffer.length, encType, buffer, buffer.length);
-
+            pos += size;
+            if (pos == buffer.length) {
+              // The full buffer is handed over to the compression pool, so start a new one.
+              pendingParts.add(submitLogPart(startByte, buffer, pos, encType));
+              startByte += pos;
+              buffer = new byte[this.chunkSize];
               pos = 0;
-              length = buffer.length;
-              startByte += buffer.length;
-            } else {
-              // Usually end of file.
-              pos += size;
-              length = buffer.length - pos;
+              while (pendingParts.size() > this.maxPendingParts) {
+                addLogPart(transOperator, execId, name, attempt, encType,
+                    pendingParts.poll(), batch);
+              }
             }
-            size = bufferedStream.read(buffer, pos, length);
+            size = bufferedStream.read(buffer, pos, buffer.length - pos);
           }
         } finally {
           IOUtils.closeQuietly(bufferedStream);
         }
       }
 
-      // Final commit of buffer.
+      // Final chunk of buffer.
       if (pos > 0) {
-        uploadLogPart(transOperator, execId, name, attempt, startByte, startByte
-            + pos, encType, buffer, pos);
+        pendingParts.add(submitLogPart(startByte, buffer, pos, encType));
+      }
+      while (!pendingParts.isEmpty()) {
+        addLogPart(transOperator, execId, name, attempt, encType, pendingParts.poll(), batch);
       }
+      flushLogParts(transOperator, batch);
     } catch (final SQLException e) {
       logger.error("Error writing log part.", e);
       throw new SQLException("Error writing log part", e);
     } catch (final IOException e) {
       logger.error("Error chunking.", e);
       throw new SQLException("Error chunking", e);
+    } finally {
+      for (final Future<LogPart> pendingPart : pendingParts) {
+        pendingPart.cancel(true);
+      }
+    }
+  }
+
+  private Future<LogPart> submitLogPart(final int startByte, final byte[] buffer,
+      final int length, final EncodingType encType) {
+    return this.compressionExecutor.submit(() ->
+        new LogPart(startByte, startByte + length, encodeLogPart(buffer, length, encType)));
+  }
+
+  private void addLogPart(final DatabaseTransOperator transOperator, final int execId,
+      final String name, final int attempt, final EncodingType encType,
+      final Future<LogPart> pendingPart, final List<Object[]> batch) throws SQLException {
+    final LogPart logPart;
+    try {
+      logPart = pendingPart.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while compressing log part", e);
+    } catch (final ExecutionException e) {
+      throw new SQLException("Error compressing log part", e.getCause());
+    }
+
+    batch.add(new Object[]{execId, name, attempt, encType.getNumVal(), logPart.startByte,
+        logPart.endByte, logPart.data, DateTime.now().getMillis()});
+    if (batch.size() >= this.uploadBatchSize) {
+      flushLogParts(transOperator, batch);
+    }
+  }
+
+  private void flushLogParts(final DatabaseTransOperator transOperator,
+      final List<Object[]> batch) throws SQLException {
+    if (!batch.isEmpty()) {
+      transOperator.batch(INSERT_EXECUTION_LOGS, batch.toArray(new Object[batch.size()][]));
+      batch.clear();
     }
   }
 
@@ -148,85 +310,111 @@ public class ExecutionLogsDao {
     }
   }
 
-  private void uploadLogPart(final DatabaseTransOperator transOperator, final int execId,
-      final String name,
-      final int attempt, final int startByte, final int endByte,
-      final EncodingType encType,
-      final byte[] buffer, final int length)
-      throws SQLException, IOException {
-    final String INSERT_EXECUTION_LOGS = "INSERT INTO execution_logs "
-        + "(exec_id, name, attempt, enc_type, start_byte, end_byte, "
-        + "log, upload_time) VALUES (?,?,?,?,?,?,?,?)";
-
-    byte[] buf = buffer;
+  /**
+   * Encodes the first {@code length} bytes of the buffer as a stored log chunk.
+   */
+  static byte[] encodeLogPart(final byte[] buffer, final int length,
+      final EncodingType encType) throws IOException {
+    if (encType == EncodingType.GZIP) {
+      return GZIPUtils.gzipBytes(buffer, 0, length);
+    } else if (encType == EncodingType.LZ4) {
+      final ByteArrayOutputStream byteStream = new ByteArrayOutputStream(length);
+      try (LZ4FrameOutputStream lz4Stream = new LZ4FrameOutputStream(byteStream)) {
+        lz4Stream.write(buffer, 0, length);
+      }
+      return byteStream.toByteArray();
+    } else if (length < buffer.length) {
+      return Arrays.copyOf(buffer, length);
+    }
+    return buffer;
+  }
+
+  /**
+   * Wraps the stream of a stored log chunk so that it reads the original bytes.
+   */
+  static InputStream decodeLogPart(final InputStream logStream, final EncodingType encType)
+      throws IOException {
     if (encType == EncodingType.GZIP) {
-      buf = GZIPUtils.gzipBytes(buf, 0, length);
-    } else if (length < buf.length) {
-      buf = Arrays.copyOf(buffer, length);
+      return new GZIPInputStream(logStream);
+    } else if (encType == EncodingType.LZ4) {
+      return new LZ4FrameInputStream(logStream);
     }
+    return logStream;
+  }
+
+  private static class LogPart {
+
+    private final int startByte;
+    private final int endByte;
+    private final byte[] data;
 
-    transOperator.update(INSERT_EXECUTION_LOGS, execId, name, attempt,
-        encType.getNumVal(), startByte, startByte + length, buf, DateTime.now()
-            .getMillis());
+    LogPart(final int startByte, final int endByte, final byte[] data) {
+      this.startByte = startByte;
+      this.endByte = endByte;
+      this.data = data;
+    }
   }
 
-  private static class FetchLogsHandler implements ResultSetHandler<LogData> {
+  private static class FetchLogsHandler implements ResultSetHandler<Integer> {
 
     private static final String FETCH_LOGS =
         "SELECT exec_id, name, attempt, enc_type, start_byte, end_byte, log "
             + "FROM execution_logs "
             + "WHERE exec_id=? AND name=? AND attempt=? AND end_byte > ? "
-            + "AND start_byte <= ? ORDER BY start_byte";
+            + "AND start_byte < ? ORDER BY start_byte";
 
     private final int startByte;
     private final int endByte;
+    private final byte[] buffer;
+    private final int bufferOffset;
 
-    FetchLogsHandler(final int startByte, final int endByte) {
+    FetchLogsHandler(final int startByte, final int endByte, final byte[] buffer,
+        final int bufferOffset) {
       this.startByte = startByte;
       this.endByte = endByte;
+      this.buffer = buffer;
+      this.bufferOffset = bufferOffset;
     }
 
     @Override
-    public LogData handle(final ResultSet rs) throws SQLException {
+    public Integer handle(final ResultSet rs) throws SQLException {
       if (!rs.next()) {
-        return null;
+        return -1;
       }
 
-      final ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-
+      int read = 0;
       do {
         // int execId = rs.getInt(1);
         // String name = rs.getString(2);
-        final int attempt = rs.getInt(3);
+        // int attempt = rs.getInt(3);
         final EncodingType encType = EncodingType.fromInteger(rs.getInt(4));
         final int startByte = rs.getInt(5);
         final int endByte = rs.getInt(6);
 
-        final byte[] data = rs.getBytes(7);
-
         final int offset =
             this.startByte > startByte ? this.startByte - startByte : 0;
         final int length =
             this.endByte < endByte ? this.endByte - startByte - offset
                 : endByte - startByte - offset;
-        try {
-          byte[] buffer = data;
-          if (encType == EncodingType.GZIP) {
-            buffer = GZIPUtils.unGzipBytes(data);
-          }
+        final int position = startByte + offset - this.startByte;
 
-          byteStream.write(buffer, offset, length);
+        InputStream logStream = rs.getBinaryStream(7);
+        try {
+          // Each chunk carries its own encoding, so logs written with different codecs
+          // remain readable.
+          logStream = decodeLogPart(logStream, encType);
+          // Decompressed bytes before the requested range are skipped, never buffered.
+          IOUtils.skipFully(logStream, offset);
+          IOUtils.readFully(logStream, this.buffer, this.bufferOffset + position, length);
         } catch (final IOException e) {
           throw new SQLException(e);
+        } finally {
+          IOUtils.closeQuietly(logStream);
         }
+        read = Math.max(read, position + length);
       } while (rs.next());
 
-      final byte[] buffer = byteStream.toByteArray();
-      final Pair<Integer, Integer> result =
-          FileIOUtils.getUtf8Range(buffer, 0, buffer.length);
-
-      return new LogData(this.startByte + result.getFirst(), result.getSecond(),
-          new String(buffer, result.getFirst(), result.getSecond(), StandardCharsets.UTF_8));
+      return read;
     }
   }
 }
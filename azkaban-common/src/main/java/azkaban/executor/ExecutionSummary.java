@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+/**
+ * Summary of an execution for history and listing pages, read from the scalar columns of
+ * execution_flows without decoding the flow data. The getters are named like those of {@link
+ * ExecutableFlow}.
+ */
+public class ExecutionSummary {
+
+  private final int executionId;
+  private final int projectId;
+  private final int version;
+  private final String flowId;
+  private final Status status;
+  private final String submitUser;
+  private final long submitTime;
+  private final long startTime;
+  private final long endTime;
+  private final long updateTime;
+
+  public ExecutionSummary(final int executionId, final int projectId, final int version,
+      final String flowId, final Status status, final String submitUser, final long submitTime,
+      final long startTime, final long endTime, final long updateTime) {
+    this.executionId = executionId;
+    this.projectId = projectId;
+    this.version = version;
+    this.flowId = flowId;
+    this.status = status;
+    this.submitUser = submitUser;
+    this.submitTime = submitTime;
+    this.startTime = startTime;
+    this.endTime = endTime;
+    this.updateTime = updateTime;
+  }
+
+  public int getExecutionId() {
+    return this.executionId;
+  }
+
+  public int getProjectId() {
+    return this.projectId;
+  }
+
+  public int getVersion() {
+    return this.version;
+  }
+
+  public String getFlowId() {
+    return this.flowId;
+  }
+
+  public Status getStatus() {
+    return this.status;
+  }
+
+  public String getSubmitUser() {
+    return this.submitUser;
+  }
+
+  public long getSubmitTime() {
+    return this.submitTime;
+  }
+
+  public long getStartTime() {
+    return this.startTime;
+  }
+
+  public long getEndTime() {
+    return this.endTime;
+  }
+
+  public long getUpdateTime() {
+    return this.updateTime;
+  }
+}
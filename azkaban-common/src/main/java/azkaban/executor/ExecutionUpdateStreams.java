@@ -0,0 +1,205 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.utils.JSONUtils;
+import azkaban.utils.Pair;
+import azkaban.utils.Props;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import org.apache.log4j.Logger;
+import org.joda.time.DateTimeUtils;
+
+/**
+ * Streams the status changes of running executions from the executors, so they reach the web
+ * server as they happen instead of at the next update round.
+ *
+ * <p>Each executor with running executions is long polled by a thread of its own, for the events
+ * after the last sequence number received. The received updates are queued for the
+ * {@link RunningExecutionsUpdaterThread}, which applies them. The full update of all running
+ * executions is only needed to reconcile: periodically, and whenever a stream reports a gap or
+ * fails.
+ */
+@Singleton
+public class ExecutionUpdateStreams {
+
+  private static final Logger logger = Logger.getLogger(ExecutionUpdateStreams.class);
+
+  private static final long DEFAULT_POLL_TIMEOUT_MS = 10000;
+  private static final long DEFAULT_RECONCILE_INTERVAL_MS = 30000;
+  // Time to wait before reopening the stream of an executor which failed
+  private static final long RETRY_INTERVAL_MS = 10000;
+
+  private final boolean enabled;
+  private final long pollTimeoutMs;
+  private final long reconcileIntervalMs;
+  private final ExecutorApiGateway apiGateway;
+  private final RunningExecutions runningExecutions;
+  private final ExecutorService streamService;
+  // Executor ids with an open stream
+  private final Map<Integer, Boolean> openStreams = new ConcurrentHashMap<>();
+  // Time before which the stream of an executor isn't reopened, by executor id
+  private final Map<Integer, Long> retryTimes = new ConcurrentHashMap<>();
+  private final Queue<Map<String, Object>> updates = new ConcurrentLinkedQueue<>();
+  private volatile boolean reconciliationRequested = true;
+  private volatile long lastReconciliationTime = 0;
+  private volatile boolean shutdown = false;
+
+  @Inject
+  public ExecutionUpdateStreams(final Props props, final ExecutorApiGateway apiGateway,
+      final RunningExecutions runningExecutions) {
+    this.enabled = props.getBoolean(ConfigurationKeys.EXECUTION_UPDATE_STREAM_ENABLED, false);
+    this.pollTimeoutMs = props.getLong(ConfigurationKeys.EXECUTION_UPDATE_STREAM_POLL_TIMEOUT_MS,
+        DEFAULT_POLL_TIMEOUT_MS);
+    this.reconcileIntervalMs = props.getLong(
+        ConfigurationKeys.EXECUTION_UPDATE_STREAM_RECONCILE_INTERVAL_MS,
+        DEFAULT_RECONCILE_INTERVAL_MS);
+    this.apiGateway = apiGateway;
+    this.runningExecutions = runningExecutions;
+    this.streamService = Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setDaemon(true)
+            .setNameFormat("azk-execution-update-stream-%d").build());
+  }
+
+  public boolean isEnabled() {
+    return this.enabled;
+  }
+
+  /**
+   * Opens a stream to each executor with running executions which doesn't have one.
+   */
+  public void openStreams() {
+    final long now = DateTimeUtils.currentTimeMillis();
+    for (final Pair<ExecutionReference, ExecutableFlow> running : this.runningExecutions.get()
+        .values()) {
+      final Optional<Executor> executor = running.getFirst().getExecutor();
+      if (!executor.isPresent() || this.shutdown) {
+        continue;
+      }
+      final int executorId = executor.get().getId();
+      if (this.retryTimes.getOrDefault(executorId, 0L) > now
+          || this.openStreams.putIfAbsent(executorId, Boolean.TRUE) != null) {
+        continue;
+      }
+      try {
+        this.streamService.execute(() -> stream(executor.get()));
+      } catch (final RejectedExecutionException e) {
+        this.openStreams.remove(executorId);
+      }
+    }
+  }
+
+  /**
+   * @return the updates received since the last call
+   */
+  public List<Map<String, Object>> drainUpdates() {
+    final List<Map<String, Object>> drained = new ArrayList<>();
+    Map<String, Object> update;
+    while ((update = this.updates.poll()) != null) {
+      drained.add(update);
+    }
+    return drained;
+  }
+
+  /**
+   * @return true if the running executions have to be fully updated, because the interval since
+   * the last full update has passed or a stream may have missed updates. Resets the state as the
+   * caller is expected to do the full update.
+   */
+  public boolean isReconciliationDue() {
+    final long now = DateTimeUtils.currentTimeMillis();
+    if (this.reconciliationRequested
+        || now - this.lastReconciliationTime >= this.reconcileIntervalMs) {
+      this.reconciliationRequested = false;
+      this.lastReconciliationTime = now;
+      return true;
+    }
+    return false;
+  }
+
+  public void shutdown() {
+    this.shutdown = true;
+    this.streamService.shutdownNow();
+  }
+
+  /**
+   * Polls the executor until it has no running executions left or the stream fails.
+   */
+  @SuppressWarnings("unchecked")
+  private void stream(final Executor executor) {
+    String epoch = null;
+    long sequence = 0;
+    try {
+      while (!this.shutdown && hasRunningExecutions(executor)) {
+        final Map<String, Object> response = this.apiGateway
+            .pollUpdateStream(executor, epoch, sequence, this.pollTimeoutMs);
+        if (Boolean.TRUE.equals(response.get(ConnectorParams.RESPONSE_UPDATE_STREAM_GAP))) {
+          // The executor restarted or dropped events this stream didn't receive.
+          logger.info("Update stream of executor " + executor.getId() + " has a gap. "
+              + "Reconciling running executions.");
+          this.reconciliationRequested = true;
+        }
+        epoch = (String) response.get(ConnectorParams.UPDATE_STREAM_EPOCH_PARAM);
+        sequence = JSONUtils
+            .getLongFromObject(response.get(ConnectorParams.UPDATE_STREAM_SEQUENCE_PARAM));
+
+        final List<Map<String, Object>> executionUpdates = (List<Map<String, Object>>) response
+            .get(ConnectorParams.RESPONSE_UPDATED_FLOWS);
+        if (!executionUpdates.isEmpty() || this.reconciliationRequested) {
+          this.updates.addAll(executionUpdates);
+          wakeUpUpdater();
+        }
+      }
+    } catch (final Exception e) {
+      logger.warn("Update stream of executor " + executor.getId() + " failed. Falling back to "
+          + "the full update.", e);
+      this.retryTimes.put(executor.getId(), DateTimeUtils.currentTimeMillis() + RETRY_INTERVAL_MS);
+      this.reconciliationRequested = true;
+    } finally {
+      this.openStreams.remove(executor.getId());
+    }
+  }
+
+  private boolean hasRunningExecutions(final Executor executor) {
+    for (final Pair<ExecutionReference, ExecutableFlow> running : this.runningExecutions.get()
+        .values()) {
+      final Optional<Executor> runningExecutor = running.getFirst().getExecutor();
+      if (runningExecutor.isPresent() && runningExecutor.get().getId() == executor.getId()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void wakeUpUpdater() {
+    synchronized (this.runningExecutions) {
+      this.runningExecutions.notifyAll();
+    }
+  }
+}
@@ -16,21 +16,63 @@
 
 package azkaban.executor;
 
+import azkaban.Constants;
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.server.AbstractServiceServlet;
+import azkaban.utils.JSONUtils;
+import azkaban.utils.Pair;
+import azkaban.utils.Props;
 import azkaban.utils.RestfulApiClient;
 import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import javax.inject.Inject;
 import javax.inject.Singleton;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
 import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
 import org.apache.http.util.EntityUtils;
 
 /**
  * Client class that will be used to handle all Restful API calls between Executor and the host
  * application.
+ *
+ * <p>Requests made {@link #httpPostForObjectWithTimeout with a timeout} time out after the executor
+ * poll timeout, both when connecting and when waiting for the response, so a hung executor can't
+ * hold on to the threads polling all executors. The other requests, e.g. dispatching a flow which
+ * downloads the project on the executor, wait as long as they take.
  */
 @Singleton
 public class ExecutorApiClient extends RestfulApiClient<String> {
 
+  private final RequestConfig timeoutRequestConfig;
+
+  public ExecutorApiClient() {
+    this(Constants.DEFAULT_EXECUTOR_POLL_TIMEOUT_MS);
+  }
+
+  @Inject
+  public ExecutorApiClient(final Props props) {
+    this(props.getLong(ConfigurationKeys.AZKABAN_EXECUTOR_POLL_TIMEOUT_MS,
+        Constants.DEFAULT_EXECUTOR_POLL_TIMEOUT_MS));
+  }
+
+  ExecutorApiClient(final long timeoutMs) {
+    final int timeout = (int) Math.min(timeoutMs, Integer.MAX_VALUE);
+    this.timeoutRequestConfig = RequestConfig.custom()
+        .setConnectTimeout(timeout)
+        .setConnectionRequestTimeout(timeout)
+        .setSocketTimeout(timeout)
+        .build();
+  }
+
   /**
    * Implementing the parseResponse function to return de-serialized Json object.
    *
@@ -54,4 +96,49 @@ public class ExecutorApiClient extends RestfulApiClient<String> {
 
     return responseBody;
   }
+
+  /**
+   * Performs a Post http request, asking for the response in Smile. Executors which don't support
+   * Smile ignore the Accept header and respond in JSON.
+   *
+   * @return the response decoded like {@link JSONUtils#parseJSONFromString(String)}
+   */
+  public Object httpPostForObject(final URI uri, final List<Pair<String, String>> params)
+      throws IOException {
+    return httpPostForObject(uri, params, null);
+  }
+
+  /**
+   * Like {@link #httpPostForObject(URI, List)}, but fails if the executor doesn't accept the
+   * connection or respond within the executor poll timeout.
+   */
+  public Object httpPostForObjectWithTimeout(final URI uri,
+      final List<Pair<String, String>> params) throws IOException {
+    return httpPostForObject(uri, params, this.timeoutRequestConfig);
+  }
+
+  private Object httpPostForObject(final URI uri, final List<Pair<String, String>> params,
+      final RequestConfig config) throws IOException {
+    final HttpPost post = new HttpPost(uri);
+    post.setHeader(HttpHeaders.ACCEPT,
+        ConnectorParams.SMILE_MIME_TYPE + ", " + AbstractServiceServlet.JSON_MIME_TYPE);
+    if (config != null) {
+      post.setConfig(config);
+    }
+    try (CloseableHttpClient client = HttpClients.createDefault()) {
+      return parseObjectResponse(client.execute(completeRequest(post, params)));
+    }
+  }
+
+  Object parseObjectResponse(final HttpResponse response) throws IOException {
+    final HttpEntity entity = response.getEntity();
+    if (entity != null && response.getStatusLine().getStatusCode() < 300) {
+      final Header contentType = entity.getContentType();
+      if (contentType != null && contentType.getValue()
+          .startsWith(ConnectorParams.SMILE_MIME_TYPE)) {
+        return JSONUtils.parseSmile(EntityUtils.toByteArray(entity));
+      }
+    }
+    return JSONUtils.parseJSONFromString(parseResponse(response));
+  }
 }
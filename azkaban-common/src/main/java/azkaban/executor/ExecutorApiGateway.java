@@ -62,6 +62,21 @@ public class ExecutorApiGateway {
   Map<String, Object> callWithExecutionId(final String host, final int port,
       final String action, final Integer executionId, final String user,
       final Pair<String, String>... params) throws ExecutorManagerException {
+    return call(host, port, action, executionId, user, false, params);
+  }
+
+  /**
+   * Calls the executor like {@link #callWithExecutionId}, but fails once the executor poll timeout
+   * is over. Meant for the periodic calls made to all executors, which must not hang.
+   */
+  Map<String, Object> callWithTimeout(final String host, final int port, final String action,
+      final Pair<String, String>... params) throws ExecutorManagerException {
+    return call(host, port, action, null, null, true, params);
+  }
+
+  private Map<String, Object> call(final String host, final int port, final String action,
+      final Integer executionId, final String user, final boolean withTimeout,
+      final Pair<String, String>... params) throws ExecutorManagerException {
     try {
       final List<Pair<String, String>> paramList = new ArrayList<>();
 
@@ -75,7 +90,7 @@ public class ExecutorApiGateway {
           .valueOf(executionId)));
       paramList.add(new Pair<>(ConnectorParams.USER_PARAM, user));
 
-      return callForJsonObjectMap(host, port, "/executor", paramList);
+      return callForJsonObjectMap(host, port, "/executor", paramList, withTimeout);
     } catch (final IOException e) {
       throw new ExecutorManagerException(e);
     }
@@ -94,15 +109,23 @@ public class ExecutorApiGateway {
   }
 
   /*
-   * Call executor and return json object map.
+   * Call executor and return json object map. The response is in Smile if the executor supports
+   * it, which saves encoding and parsing it as text.
    */
   Map<String, Object> callForJsonObjectMap(final String host, final int port,
       final String path, final List<Pair<String, String>> paramList) throws IOException {
-    final String responseString =
-        callForJsonString(host, port, path, paramList);
+    return callForJsonObjectMap(host, port, path, paramList, false);
+  }
+
+  private Map<String, Object> callForJsonObjectMap(final String host, final int port,
+      final String path, final List<Pair<String, String>> paramList, final boolean withTimeout)
+      throws IOException {
+    final URI uri = ExecutorApiClient.buildUri(host, port, path, true);
+    final List<Pair<String, String>> params = paramList == null ? new ArrayList<>() : paramList;
 
     @SuppressWarnings("unchecked") final Map<String, Object> jsonResponse =
-        (Map<String, Object>) JSONUtils.parseJSONFromString(responseString);
+        (Map<String, Object>) (withTimeout ? this.apiClient.httpPostForObjectWithTimeout(uri,
+            params) : this.apiClient.httpPostForObject(uri, params));
     final String error = (String) jsonResponse.get(ConnectorParams.RESPONSE_ERROR);
     if (error != null) {
       throw new IOException(error);
@@ -141,8 +164,25 @@ public class ExecutorApiGateway {
         ConnectorParams.EXEC_ID_LIST_PARAM,
         JSONUtils.toJSON(executionIdsList));
 
+    return callWithTimeout(executor.getHost(), executor.getPort(),
+        ConnectorParams.UPDATE_ACTION, executionIds, updateTimes);
+  }
+
+  /**
+   * Long polls the update stream of the executor for the status changes after the given sequence
+   * number. Blocks up to the timeout if there are none.
+   */
+  public Map<String, Object> pollUpdateStream(final Executor executor, final String epoch,
+      final long sequence, final long timeoutMs) throws ExecutorManagerException {
+    final List<Pair<String, String>> params = new ArrayList<>();
+    if (epoch != null) {
+      params.add(new Pair<>(ConnectorParams.UPDATE_STREAM_EPOCH_PARAM, epoch));
+    }
+    params.add(new Pair<>(ConnectorParams.UPDATE_STREAM_SEQUENCE_PARAM, String.valueOf(sequence)));
+    params.add(new Pair<>(ConnectorParams.UPDATE_STREAM_TIMEOUT_PARAM, String.valueOf(timeoutMs)));
     return callWithExecutionId(executor.getHost(), executor.getPort(),
-        ConnectorParams.UPDATE_ACTION, null, null, executionIds, updateTimes);
+        ConnectorParams.UPDATE_STREAM_ACTION, null, null,
+        params.toArray(new Pair[params.size()]));
   }
 
 }
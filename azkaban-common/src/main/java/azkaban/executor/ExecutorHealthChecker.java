@@ -15,6 +15,7 @@
 */
 package azkaban.executor;
 
+import azkaban.Constants;
 import azkaban.Constants.ConfigurationKeys;
 import azkaban.utils.Pair;
 import azkaban.utils.Props;
@@ -23,7 +24,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -52,6 +52,7 @@ public class ExecutorHealthChecker {
   private final ExecutorLoader executorLoader;
   private final ExecutorApiGateway apiGateway;
   private final AlerterHolder alerterHolder;
+  private final ParallelExecutorCaller executorCaller;
   private final Map<Integer, Integer> executorFailureCount = new HashMap<>();
 
   @Inject
@@ -67,6 +68,11 @@ public class ExecutorHealthChecker {
     this.executorLoader = executorLoader;
     this.apiGateway = apiGateway;
     this.alerterHolder = alerterHolder;
+    this.executorCaller = new ParallelExecutorCaller("azk-executor-health-check-%d",
+        azkProps.getInt(ConfigurationKeys.AZKABAN_EXECUTOR_POLL_THREADS,
+            Constants.DEFAULT_EXECUTOR_POLL_THREADS),
+        azkProps.getLong(ConfigurationKeys.AZKABAN_EXECUTOR_POLL_TIMEOUT_MS,
+            Constants.DEFAULT_EXECUTOR_POLL_TIMEOUT_MS));
   }
 
   public void start() {
@@ -85,14 +91,17 @@ public class ExecutorHealthChecker {
       this.scheduler.shutdownNow();
       Thread.currentThread().interrupt();
     }
+    this.executorCaller.shutdown();
   }
 
   /**
    * Checks executor health. Finalizes the flow if its executor is already removed from DB or
-   * sends alert emails if the executor isn't alive any more.
+   * sends alert emails if the executor isn't alive any more. The executors are pinged in
+   * parallel.
    */
   public void checkExecutorHealth() {
     final Map<Optional<Executor>, List<ExecutableFlow>> exFlowMap = getFlowToExecutorMap();
+    final Map<Executor, List<ExecutableFlow>> executorFlows = new HashMap<>();
     for (final Map.Entry<Optional<Executor>, List<ExecutableFlow>> entry : exFlowMap.entrySet()) {
       final Optional<Executor> executorOption = entry.getKey();
       if (!executorOption.isPresent()) {
@@ -105,28 +114,42 @@ public class ExecutorHealthChecker {
         }
         continue;
       }
+      executorFlows.put(executorOption.get(), entry.getValue());
+    }
 
-      final Executor executor = executorOption.get();
-      try {
-        // Todo jamiesjc: add metrics to monitor the http call return time
-        final Map<String, Object> results = this.apiGateway
-            .callWithExecutionId(executor.getHost(), executor.getPort(),
-                ConnectorParams.PING_ACTION, null, null);
-        if (results == null || results.containsKey(ConnectorParams.RESPONSE_ERROR) || !results
-            .containsKey(ConnectorParams.STATUS_PARAM) || !results.get(ConnectorParams.STATUS_PARAM)
-            .equals(ConnectorParams.RESPONSE_ALIVE)) {
-          throw new ExecutorManagerException("Status of executor " + executor.getId() + " is "
-              + "not alive.");
-        } else {
-          // Executor is alive. Clear the failure count.
-          if (this.executorFailureCount.containsKey(executor.getId())) {
-            this.executorFailureCount.put(executor.getId(), 0);
+    this.executorCaller.callAll(executorFlows.keySet(), this::ping,
+        new ParallelExecutorCaller.ResultHandler<Map<String, Object>>() {
+          @Override
+          public void onSuccess(final Executor executor, final Map<String, Object> results) {
+            // Executor is alive. Clear the failure count.
+            if (ExecutorHealthChecker.this.executorFailureCount.containsKey(executor.getId())) {
+              ExecutorHealthChecker.this.executorFailureCount.put(executor.getId(), 0);
+            }
           }
-        }
-      } catch (final ExecutorManagerException e) {
-        handleExecutorNotAliveCase(entry, executor, e);
-      }
+
+          @Override
+          public void onFailure(final Executor executor, final ExecutorManagerException e) {
+            handleExecutorNotAliveCase(executorFlows.get(executor), executor, e);
+          }
+        });
+  }
+
+  /**
+   * Pings the executor.
+   *
+   * @throws ExecutorManagerException if the executor isn't alive
+   */
+  private Map<String, Object> ping(final Executor executor) throws ExecutorManagerException {
+    // Todo jamiesjc: add metrics to monitor the http call return time
+    final Map<String, Object> results = this.apiGateway
+        .callWithTimeout(executor.getHost(), executor.getPort(), ConnectorParams.PING_ACTION);
+    if (results == null || results.containsKey(ConnectorParams.RESPONSE_ERROR) || !results
+        .containsKey(ConnectorParams.STATUS_PARAM) || !results.get(ConnectorParams.STATUS_PARAM)
+        .equals(ConnectorParams.RESPONSE_ALIVE)) {
+      throw new ExecutorManagerException("Status of executor " + executor.getId() + " is "
+          + "not alive.");
     }
+    return results;
   }
 
   /**
@@ -157,23 +180,22 @@ public class ExecutorHealthChecker {
    * Increments executor failure count. If it reaches max failure count, sends alert emails to AZ
    * admin.
    *
-   * @param entry executor to list of flows map entry
+   * @param flows the flows running on the executor
    * @param executor the executor
    * @param e Exception thrown when the executor is not alive
    */
-  private void handleExecutorNotAliveCase(
-      final Entry<Optional<Executor>, List<ExecutableFlow>> entry, final Executor executor,
-      final ExecutorManagerException e) {
+  private void handleExecutorNotAliveCase(final List<ExecutableFlow> flows,
+      final Executor executor, final ExecutorManagerException e) {
     logger.error("Failed to get update from executor " + executor.getId(), e);
     this.executorFailureCount.put(executor.getId(), this.executorFailureCount.getOrDefault
         (executor.getId(), 0) + 1);
     if (this.executorFailureCount.get(executor.getId()) % this.executorMaxFailureCount == 0
         && !this.alertEmails.isEmpty()) {
-      entry.getValue().stream().forEach(flow -> flow
+      flows.stream().forEach(flow -> flow
           .getExecutionOptions().setFailureEmails(this.alertEmails));
       logger.info(String.format("Executor failure count is %d. Sending alert emails to %s.",
           this.executorFailureCount.get(executor.getId()), this.alertEmails));
-      this.alerterHolder.get("email").alertOnFailedUpdate(executor, entry.getValue(), e);
+      this.alerterHolder.get("email").alertOnFailedUpdate(executor, flows, e);
     }
   }
 }
@@ -64,6 +64,23 @@ public interface ExecutorLoader {
   List<ExecutableFlow> fetchFlowHistory(final int projectId, final String flowId,
       final long startTime) throws ExecutorManagerException;
 
+  /**
+   * The fetchExecutionSummaries methods return the same executions as the fetchFlowHistory methods
+   * of the same parameters, but only read their scalar columns, not the flow data.
+   */
+  List<ExecutionSummary> fetchExecutionSummaries(int skip, int num)
+      throws ExecutorManagerException;
+
+  List<ExecutionSummary> fetchExecutionSummaries(int projectId, String flowId,
+      int skip, int num) throws ExecutorManagerException;
+
+  List<ExecutionSummary> fetchExecutionSummaries(int projectId, String flowId,
+      int skip, int num, Status status) throws ExecutorManagerException;
+
+  List<ExecutionSummary> fetchExecutionSummaries(String projContain,
+      String flowContains, String userNameContains, int status, long startData,
+      long endData, int skip, int num) throws ExecutorManagerException;
+
   /**
    * <pre>
    * Fetch all executors from executors table
@@ -234,6 +251,17 @@ public interface ExecutorLoader {
   LogData fetchLogs(int execId, String name, int attempt, int startByte,
       int endByte) throws ExecutorManagerException;
 
+  /**
+   * <pre>
+   * Fetch the last length bytes of an uploaded log
+   * Note:-
+   * 1. throws an Exception in case of a SQL issue
+   * 2. return null when the log doesn't exist
+   * </pre>
+   */
+  LogData fetchLogsTail(int execId, String name, int attempt, int length)
+      throws ExecutorManagerException;
+
   List<Object> fetchAttachments(int execId, String name, int attempt)
       throws ExecutorManagerException;
 
@@ -246,6 +274,18 @@ public interface ExecutorLoader {
   void updateExecutableFlow(ExecutableFlow flow)
       throws ExecutorManagerException;
 
+  /**
+   * <pre>
+   * Persist only the nodes of a running flow which were updated after lastUpdateTime, instead of
+   * the whole flow. The deltas are merged back in when the flow is fetched, and are compacted by
+   * the next call to updateExecutableFlow.
+   * Note:-
+   * throws an Exception in case of a SQL issue
+   * </pre>
+   */
+  void updateExecutableFlowDelta(ExecutableFlow flow, long lastUpdateTime)
+      throws ExecutorManagerException;
+
   void uploadExecutableNode(ExecutableNode node, Props inputParams)
       throws ExecutorManagerException;
 
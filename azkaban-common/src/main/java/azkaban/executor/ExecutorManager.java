@@ -21,7 +21,8 @@ import azkaban.Constants.ConfigurationKeys;
 import azkaban.event.EventHandler;
 import azkaban.executor.selector.ExecutorComparator;
 import azkaban.executor.selector.ExecutorFilter;
-import azkaban.executor.selector.ExecutorSelector;
+import azkaban.executor.selector.ExecutorScoreIndex;
+import azkaban.executor.selector.FlowFootprintEstimator;
 import azkaban.flow.FlowUtils;
 import azkaban.metrics.CommonMetrics;
 import azkaban.project.Project;
@@ -30,7 +31,9 @@ import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.Pair;
 import azkaban.utils.Props;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.Lists;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
 import java.io.IOException;
 import java.lang.Thread.State;
@@ -39,6 +42,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -47,9 +51,11 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import javax.inject.Inject;
@@ -89,9 +95,13 @@ public class ExecutorManager extends EventHandler implements
   QueuedExecutions queuedFlows;
   File cacheDir;
   private QueueProcessorThread queueProcessor;
-  private volatile Pair<ExecutionReference, ExecutableFlow> runningCandidate = null;
+  // executions taken from the queue that are not yet running on an executor, by execution id
+  private final Map<Integer, Pair<ExecutionReference, ExecutableFlow>> dispatchingExecutions =
+      new ConcurrentHashMap<>();
   private List<String> filterList;
   private Map<String, Integer> comparatorWeightsMap;
+  private final FlowFootprintEstimator footprintEstimator = new FlowFootprintEstimator();
+  private ExecutorScoreIndex executorScoreIndex;
   private long lastSuccessfulExecutorInfoRefresh;
   private Duration sleepAfterDispatchFailure = Duration.ofSeconds(1L);
   private boolean initialized = false;
@@ -134,12 +144,16 @@ public class ExecutorManager extends EventHandler implements
     this.setupExecutors();
     this.loadRunningExecutions();
     this.queuedFlows = new QueuedExecutions(
-        this.azkProps.getLong(ConfigurationKeys.WEBSERVER_QUEUE_SIZE, 100000));
+        this.azkProps.getLong(ConfigurationKeys.WEBSERVER_QUEUE_SIZE, 100000), this.azkProps,
+        this::countActiveFlows, this.commonMetrics);
     this.loadQueuedFlows();
     this.cacheDir = new File(this.azkProps.getString("cache.directory", "cache"));
     // TODO extract QueueProcessor as a separate class, move all of this into it
     setupExecutotrComparatorWeightsMap();
     setupExecutorFilterList();
+    this.executorScoreIndex = new ExecutorScoreIndex(this.filterList, this.comparatorWeightsMap);
+    this.executionFinalizer.addFinishListener(
+        flow -> this.executorScoreIndex.onFinish(flow.getExecutionId()));
     this.queueProcessor = setupQueueProcessor();
   }
 
@@ -151,6 +165,20 @@ public class ExecutorManager extends EventHandler implements
     this.queueProcessor.start();
   }
 
+  /**
+   * @return number of running and dispatching flows of the project
+   */
+  private int countActiveFlows(final String projectName) {
+    int count = 0;
+    for (final Pair<ExecutionReference, ExecutableFlow> pair : Iterables
+        .concat(this.runningExecutions.get().values(), this.dispatchingExecutions.values())) {
+      if (projectName.equals(pair.getSecond().getProjectName())) {
+        count++;
+      }
+    }
+    return count;
+  }
+
   private QueueProcessorThread setupQueueProcessor() {
     return new QueueProcessorThread(
         this.azkProps.getBoolean(Constants.ConfigurationKeys.QUEUEPROCESSING_ENABLED, true),
@@ -160,7 +188,10 @@ public class ExecutorManager extends EventHandler implements
         this.azkProps.getInt(
             Constants.ConfigurationKeys.MAX_DISPATCHING_ERRORS_PERMITTED,
             this.activeExecutors.getAll().size()),
-        this.sleepAfterDispatchFailure);
+        this.sleepAfterDispatchFailure,
+        this.azkProps.getInt(Constants.ConfigurationKeys.MAX_IN_FLIGHT_DISPATCHES, 8),
+        this.azkProps.getInt(
+            Constants.ConfigurationKeys.MAX_IN_FLIGHT_DISPATCHES_PER_EXECUTOR, 2));
   }
 
   private void setupExecutotrComparatorWeightsMap() {
@@ -218,6 +249,13 @@ public class ExecutorManager extends EventHandler implements
    */
   private void refreshExecutors() {
 
+    final Map<Integer, List<ExecutableFlow>> runningFlowsByExecutor = new HashMap<>();
+    for (final Pair<ExecutionReference, ExecutableFlow> running : this.runningExecutions.get()
+        .values()) {
+      running.getFirst().getExecutor().ifPresent(executor -> runningFlowsByExecutor
+          .computeIfAbsent(executor.getId(), id -> new ArrayList<>()).add(running.getSecond()));
+    }
+
     final List<Pair<Executor, Future<ExecutorInfo>>> futures =
         new ArrayList<>();
     for (final Executor executor : this.activeExecutors.getAll()) {
@@ -239,6 +277,8 @@ public class ExecutorManager extends EventHandler implements
         final ExecutorInfo executorInfo = refreshPair.getSecond().get(5, TimeUnit.SECONDS);
         // executorInfo is null if the response was empty
         executor.setExecutorInfo(executorInfo);
+        this.footprintEstimator.observe(executor.getId(), executorInfo,
+            runningFlowsByExecutor.getOrDefault(executor.getId(), Collections.emptyList()));
         logger.info(String.format(
             "Successfully refreshed executor: %s with executor info : %s",
             executor, executorInfo));
@@ -251,12 +291,14 @@ public class ExecutorManager extends EventHandler implements
         logger.error("Failed to update ExecutorInfo for executor : "
             + executor, e);
       }
+      this.executorScoreIndex.update(executor);
 
       // update is successful for all executors
       if (wasSuccess) {
         this.lastSuccessfulExecutorInfoRefresh = System.currentTimeMillis();
       }
     }
+    this.executorScoreIndex.retainAll(this.activeExecutors.getAll());
   }
 
   /**
@@ -411,13 +453,10 @@ public class ExecutorManager extends EventHandler implements
     final List<Integer> executionIds = new ArrayList<>();
     executionIds.addAll(getRunningFlowsHelper(projectId, flowId,
         this.queuedFlows.getAllEntries()));
-    // it's possible an execution is runningCandidate, meaning it's in dispatching state neither in queuedFlows nor runningFlows,
-    // so checks the runningCandidate as well.
-    if (this.runningCandidate != null) {
-      executionIds
-          .addAll(
-              getRunningFlowsHelper(projectId, flowId, Lists.newArrayList(this.runningCandidate)));
-    }
+    // it's possible an execution is in dispatching state, meaning it's neither in queuedFlows nor
+    // runningFlows, so checks the dispatching executions as well.
+    executionIds.addAll(getRunningFlowsHelper(projectId, flowId,
+        this.dispatchingExecutions.values()));
     executionIds.addAll(getRunningFlowsHelper(projectId, flowId,
         this.runningExecutions.get().values()));
     Collections.sort(executionIds);
@@ -671,6 +710,12 @@ public class ExecutorManager extends EventHandler implements
     }
   }
 
+  @Override
+  public LogData getExecutionJobLogTail(final ExecutableFlow exFlow, final String jobId,
+      final int length, final int attempt) throws ExecutorManagerException {
+    return this.executorLoader.fetchLogsTail(exFlow.getExecutionId(), jobId, attempt, length);
+  }
+
   @Override
   public List<Object> getExecutionJobStats(final ExecutableFlow exFlow, final String jobId,
       final int attempt) throws ExecutorManagerException {
@@ -1059,6 +1104,42 @@ public class ExecutorManager extends EventHandler implements
         status);
   }
 
+  @Override
+  public List<ExecutionSummary> getExecutionSummaries(final int skip, final int size)
+      throws ExecutorManagerException {
+    return this.executorLoader.fetchExecutionSummaries(skip, size);
+  }
+
+  @Override
+  public List<ExecutionSummary> getExecutionSummaries(final String flowIdContains,
+      final int skip, final int size) throws ExecutorManagerException {
+    return this.executorLoader.fetchExecutionSummaries(null, '%' + flowIdContains + '%', null,
+        0, -1, -1, skip, size);
+  }
+
+  @Override
+  public List<ExecutionSummary> getExecutionSummaries(final String projContain,
+      final String flowContain, final String userContain, final int status, final long begin,
+      final long end, final int skip, final int size) throws ExecutorManagerException {
+    return this.executorLoader.fetchExecutionSummaries(projContain, flowContain, userContain,
+        status, begin, end, skip, size);
+  }
+
+  @Override
+  public int getExecutionSummaries(final int projectId, final String flowId, final int from,
+      final int length, final List<ExecutionSummary> outputList)
+      throws ExecutorManagerException {
+    outputList.addAll(
+        this.executorLoader.fetchExecutionSummaries(projectId, flowId, from, length));
+    return this.executorLoader.fetchNumExecutableFlows(projectId, flowId);
+  }
+
+  @Override
+  public List<ExecutionSummary> getExecutionSummaries(final int projectId, final String flowId,
+      final int from, final int length, final Status status) throws ExecutorManagerException {
+    return this.executorLoader.fetchExecutionSummaries(projectId, flowId, from, length, status);
+  }
+
   /**
    * Calls executor to dispatch the flow, update db to assign the executor and in-memory state of
    * executableFlow.
@@ -1079,9 +1160,12 @@ public class ExecutorManager extends EventHandler implements
       throw new ExecutorManagerException(ex);
     }
     reference.setExecutor(choosenExecutor);
+    this.executorScoreIndex.onDispatch(exflow.getExecutionId(), choosenExecutor,
+        this.footprintEstimator.estimate(exflow));
 
     // move from flow to running flows
     this.runningExecutions.get().put(exflow.getExecutionId(), new Pair<>(reference, exflow));
+    this.dispatchingExecutions.remove(exflow.getExecutionId());
     synchronized (this.runningExecutions.get()) {
       // Wake up RunningExecutionsUpdaterThread from wait() so that it will immediately check status
       // from executor(s). Normally flows will run at least some time and can't be cleaned up
@@ -1161,7 +1245,9 @@ public class ExecutorManager extends EventHandler implements
 
   /*
    * This thread is responsible for processing queued flows using dispatcher and
-   * making rest api calls to executor server
+   * making rest api calls to executor server. Executors are selected for queued flows one at a
+   * time in priority order, while the rest api calls are made concurrently by a pool of dispatcher
+   * threads, bounded per executor and in total by dispatch slots.
    */
   private class QueueProcessorThread extends Thread {
 
@@ -1170,6 +1256,8 @@ public class ExecutorManager extends EventHandler implements
     private final long activeExecutorRefreshWindowInMillisec;
     private final int activeExecutorRefreshWindowInFlows;
     private final Duration sleepAfterDispatchFailure;
+    private final DispatchSlots dispatchSlots;
+    private final ExecutorService dispatcherService;
 
     private volatile boolean shutdown = false;
     private volatile boolean isActive = true;
@@ -1178,7 +1266,9 @@ public class ExecutorManager extends EventHandler implements
         final long activeExecutorRefreshWindowInTime,
         final int activeExecutorRefreshWindowInFlows,
         final int maxDispatchingErrors,
-        final Duration sleepAfterDispatchFailure) {
+        final Duration sleepAfterDispatchFailure,
+        final int maxInFlightDispatches,
+        final int maxInFlightDispatchesPerExecutor) {
       setActive(isActive);
       this.maxDispatchingErrors = maxDispatchingErrors;
       this.activeExecutorRefreshWindowInFlows =
@@ -1186,6 +1276,11 @@ public class ExecutorManager extends EventHandler implements
       this.activeExecutorRefreshWindowInMillisec =
           activeExecutorRefreshWindowInTime;
       this.sleepAfterDispatchFailure = sleepAfterDispatchFailure;
+      this.dispatchSlots = new DispatchSlots(maxInFlightDispatches,
+          maxInFlightDispatchesPerExecutor);
+      this.dispatcherService = Executors.newFixedThreadPool(maxInFlightDispatches,
+          new ThreadFactoryBuilder().setDaemon(true)
+              .setNameFormat("azk-flow-dispatcher-%d").build());
       this.setName("AzkabanWebServer-QueueProcessor-Thread");
     }
 
@@ -1201,6 +1296,7 @@ public class ExecutorManager extends EventHandler implements
     public void shutdown() {
       this.shutdown = true;
       this.interrupt();
+      this.dispatcherService.shutdownNow();
     }
 
     @Override
@@ -1230,10 +1326,15 @@ public class ExecutorManager extends EventHandler implements
       long lastExecutorRefreshTime = 0;
       int currentContinuousFlowProcessed = 0;
 
-      while (isActive() && (ExecutorManager.this.runningCandidate = ExecutorManager.this.queuedFlows
-          .fetchHead()) != null) {
-        final ExecutionReference reference = ExecutorManager.this.runningCandidate.getFirst();
-        final ExecutableFlow exflow = ExecutorManager.this.runningCandidate.getSecond();
+      while (isActive()) {
+        // Only take the head of the queue once a dispatch slot is free, so that flows of higher
+        // priority queued in the meantime are not overtaken
+        this.dispatchSlots.awaitCapacity();
+        final Pair<ExecutionReference, ExecutableFlow> candidate =
+            ExecutorManager.this.queuedFlows.fetchHead();
+        final ExecutionReference reference = candidate.getFirst();
+        final ExecutableFlow exflow = candidate.getSecond();
+        ExecutorManager.this.dispatchingExecutions.put(exflow.getExecutionId(), candidate);
         final long currentTime = System.currentTimeMillis();
 
         // if we have dispatched more than maxContinuousFlowProcessed or
@@ -1257,24 +1358,31 @@ public class ExecutorManager extends EventHandler implements
          *   2. Implement GlobalSystemState in selector or in a third place to manage system filters. Basically
          *      taking out all the filters which do not depend on the flow but are still being part of Selector.
          * Assumptions:-
-         *   1. no one else except QueueProcessor is updating ExecutableFlow update time
+         *   1. no one else except QueueProcessor and its dispatchers is updating ExecutableFlow update time
          *   2. re-attempting a flow (which has been tried before) is considered as all executors are busy
          * </pre>
          */
         if (exflow.getUpdateTime() > lastExecutorRefreshTime) {
           // put back in the queue
-          ExecutorManager.this.queuedFlows.enqueue(exflow, reference);
-          ExecutorManager.this.runningCandidate = null;
+          requeue(reference, exflow);
           final long sleepInterval =
               activeExecutorsRefreshWindow
                   - (currentTime - lastExecutorRefreshTime);
           // wait till next executor refresh
           Thread.sleep(sleepInterval);
         } else {
+          final long lastUpdateTime = exflow.getUpdateTime();
+          final long releaseCount = this.dispatchSlots.getReleaseCount();
           exflow.setUpdateTime(currentTime);
           // process flow with current snapshot of activeExecutors
-          selectExecutorAndDispatchFlow(reference, exflow);
-          ExecutorManager.this.runningCandidate = null;
+          if (!selectExecutorAndDispatchFlow(reference, exflow)) {
+            // The executors able to run the flow are all busy accepting other flows. This is not
+            // a dispatch attempt, so put the flow back as it was and wait for a free slot.
+            exflow.setUpdateTime(lastUpdateTime);
+            requeue(reference, exflow);
+            this.dispatchSlots.awaitRelease(releaseCount, QUEUE_PROCESSOR_WAIT_IN_MS);
+            continue;
+          }
         }
 
         // do not count failed flow processsing (flows still in queue)
@@ -1284,24 +1392,63 @@ public class ExecutorManager extends EventHandler implements
       }
     }
 
-    /* process flow with a snapshot of available Executors */
-    private void selectExecutorAndDispatchFlow(final ExecutionReference reference,
+    /**
+     * Selects an executor for the flow with a snapshot of available Executors, and hands the flow
+     * over to a dispatcher thread.
+     *
+     * @return false if the flow was not processed because the executors able to run it have no
+     * free dispatch slot
+     */
+    private boolean selectExecutorAndDispatchFlow(final ExecutionReference reference,
         final ExecutableFlow exflow)
         throws ExecutorManagerException {
       final Set<Executor> remainingExecutors = new HashSet<>(
           ExecutorManager.this.activeExecutors.getAll());
-      Throwable lastError;
+      final Set<Executor> availableExecutors =
+          this.dispatchSlots.filterAvailable(remainingExecutors, null);
+      final Executor selectedExecutor;
       synchronized (exflow) {
-        do {
-          final Executor selectedExecutor = selectExecutor(exflow, remainingExecutors);
-          if (selectedExecutor == null) {
-            ExecutorManager.this.commonMetrics.markDispatchFail();
-            handleNoExecutorSelectedCase(reference, exflow);
-            // RE-QUEUED - exit
-            return;
-          } else {
+        selectedExecutor = selectExecutor(exflow, availableExecutors);
+      }
+      if (selectedExecutor == null) {
+        if (availableExecutors.size() < remainingExecutors.size()) {
+          return false;
+        }
+        ExecutorManager.this.commonMetrics.markDispatchFail();
+        handleNoExecutorSelectedCase(reference, exflow);
+        // RE-QUEUED - exit
+        return true;
+      }
+      // a user specified executor may be busy
+      if (!this.dispatchSlots.tryReserve(selectedExecutor)) {
+        return false;
+      }
+
+      try {
+        this.dispatcherService.execute(
+            () -> dispatchFlow(reference, exflow, selectedExecutor, remainingExecutors));
+      } catch (final RejectedExecutionException e) {
+        ExecutorManager.logger.warn("Dispatcher is shut down, re-queueing exec "
+            + exflow.getExecutionId(), e);
+        this.dispatchSlots.release(selectedExecutor);
+        requeue(reference, exflow);
+      }
+      return true;
+    }
+
+    /**
+     * Dispatches the flow to the selected executor, trying other executors if it fails. Runs in a
+     * dispatcher thread which holds a dispatch slot of the executor being tried.
+     */
+    private void dispatchFlow(final ExecutionReference reference, final ExecutableFlow exflow,
+        final Executor firstExecutor, final Set<Executor> remainingExecutors) {
+      Executor selectedExecutor = firstExecutor;
+      Throwable lastError = null;
+      try {
+        synchronized (exflow) {
+          while (true) {
             try {
-              dispatch(reference, exflow, selectedExecutor);
+              timedDispatch(reference, exflow, selectedExecutor);
               ExecutorManager.this.commonMetrics.markDispatchSuccess();
               // SUCCESS - exit
               return;
@@ -1313,17 +1460,57 @@ public class ExecutorManager extends EventHandler implements
               // FAILED ATTEMPT - try other executors except selectedExecutor
               updateRemainingExecutorsAndSleep(remainingExecutors, selectedExecutor);
             }
+            if (reference.getNumErrors() >= this.maxDispatchingErrors) {
+              break;
+            }
+
+            final Executor nextExecutor = selectExecutor(exflow,
+                this.dispatchSlots.filterAvailable(remainingExecutors, selectedExecutor));
+            if (nextExecutor == null
+                || !this.dispatchSlots.transfer(selectedExecutor, nextExecutor)) {
+              ExecutorManager.this.commonMetrics.markDispatchFail();
+              handleNoExecutorSelectedCase(reference, exflow);
+              // RE-QUEUED - exit
+              return;
+            }
+            selectedExecutor = nextExecutor;
           }
-        } while (reference.getNumErrors() < this.maxDispatchingErrors);
-        // GAVE UP DISPATCHING
-        final String message = "Failed to dispatch queued execution " + exflow.getId() + " because "
-            + "reached " + ConfigurationKeys.MAX_DISPATCHING_ERRORS_PERMITTED
-            + " (tried " + reference.getNumErrors() + " executors)";
-        ExecutorManager.logger.error(message);
-        ExecutorManager.this.executionFinalizer.finalizeFlow(exflow, message, lastError);
+          // GAVE UP DISPATCHING
+          final String message =
+              "Failed to dispatch queued execution " + exflow.getId() + " because "
+                  + "reached " + ConfigurationKeys.MAX_DISPATCHING_ERRORS_PERMITTED
+                  + " (tried " + reference.getNumErrors() + " executors)";
+          ExecutorManager.logger.error(message);
+          ExecutorManager.this.dispatchingExecutions.remove(exflow.getExecutionId());
+          ExecutorManager.this.executionFinalizer.finalizeFlow(exflow, message, lastError);
+        }
+      } catch (final Exception e) {
+        ExecutorManager.logger.error("Failed to dispatch exec " + exflow.getExecutionId(), e);
+        ExecutorManager.this.dispatchingExecutions.remove(exflow.getExecutionId());
+      } finally {
+        this.dispatchSlots.release(selectedExecutor);
+      }
+    }
+
+    private void timedDispatch(final ExecutionReference reference, final ExecutableFlow exflow,
+        final Executor selectedExecutor) throws ExecutorManagerException {
+      final long startTime = System.currentTimeMillis();
+      ExecutorManager.this.commonMetrics.incrementInFlightDispatchCount();
+      try {
+        dispatch(reference, exflow, selectedExecutor);
+      } finally {
+        ExecutorManager.this.commonMetrics.decrementInFlightDispatchCount();
+        ExecutorManager.this.commonMetrics.addDispatchLatency(
+            System.currentTimeMillis() - startTime);
       }
     }
 
+    private void requeue(final ExecutionReference reference, final ExecutableFlow exflow)
+        throws ExecutorManagerException {
+      ExecutorManager.this.queuedFlows.requeue(exflow, reference);
+      ExecutorManager.this.dispatchingExecutions.remove(exflow.getExecutionId());
+    }
+
     private void updateRemainingExecutorsAndSleep(final Set<Executor> remainingExecutors,
         final Executor selectedExecutor) {
       remainingExecutors.remove(selectedExecutor);
@@ -1400,9 +1587,8 @@ public class ExecutorManager extends EventHandler implements
       if (choosenExecutor == null) {
         ExecutorManager.logger.info("Using dispatcher for execution id :"
             + exflow.getExecutionId());
-        final ExecutorSelector selector = new ExecutorSelector(ExecutorManager.this.filterList,
-            ExecutorManager.this.comparatorWeightsMap);
-        choosenExecutor = selector.getBest(availableExecutors, exflow);
+        choosenExecutor = ExecutorManager.this.executorScoreIndex.select(availableExecutors,
+            ExecutorManager.this.footprintEstimator.estimate(exflow));
       }
       return choosenExecutor;
     }
@@ -1416,7 +1602,106 @@ public class ExecutorManager extends EventHandler implements
                   exflow.getExecutionId(), reference.getNumErrors()));
       // TODO: handle scenario where a high priority flow failing to get
       // schedule can starve all others
-      ExecutorManager.this.queuedFlows.enqueue(exflow, reference);
+      requeue(reference, exflow);
+    }
+  }
+
+  /**
+   * Bounds the number of flows being dispatched to each executor and in total.
+   */
+  private static class DispatchSlots {
+
+    private final int maxInFlight;
+    private final int maxInFlightPerExecutor;
+    private final Map<Integer, Integer> inFlightByExecutor = new HashMap<>();
+    private int inFlight = 0;
+    private long releaseCount = 0;
+
+    DispatchSlots(final int maxInFlight, final int maxInFlightPerExecutor) {
+      Preconditions.checkArgument(maxInFlight > 0);
+      Preconditions.checkArgument(maxInFlightPerExecutor > 0);
+      this.maxInFlight = maxInFlight;
+      this.maxInFlightPerExecutor = maxInFlightPerExecutor;
+    }
+
+    synchronized void awaitCapacity() throws InterruptedException {
+      while (this.inFlight >= this.maxInFlight) {
+        wait();
+      }
+    }
+
+    synchronized long getReleaseCount() {
+      return this.releaseCount;
+    }
+
+    /**
+     * Waits until a slot is released after the given release count was read, or until timeout.
+     */
+    synchronized void awaitRelease(final long releaseCount, final long timeoutMs)
+        throws InterruptedException {
+      final long deadline = System.currentTimeMillis() + timeoutMs;
+      long remaining = timeoutMs;
+      while (this.releaseCount == releaseCount && remaining > 0) {
+        wait(remaining);
+        remaining = deadline - System.currentTimeMillis();
+      }
+    }
+
+    /**
+     * @param releasing executor whose slot the caller is about to give up, or null
+     * @return the executors which have a free slot
+     */
+    synchronized Set<Executor> filterAvailable(final Collection<Executor> executors,
+        final Executor releasing) {
+      final Set<Executor> available = new HashSet<>();
+      for (final Executor executor : executors) {
+        if (hasCapacity(executor, releasing)) {
+          available.add(executor);
+        }
+      }
+      return available;
+    }
+
+    synchronized boolean tryReserve(final Executor executor) {
+      if (this.inFlight >= this.maxInFlight || !hasCapacity(executor, null)) {
+        return false;
+      }
+      this.inFlight++;
+      this.inFlightByExecutor.merge(executor.getId(), 1, Integer::sum);
+      return true;
+    }
+
+    /**
+     * Moves a reserved slot from one executor to another, if the other has capacity.
+     */
+    synchronized boolean transfer(final Executor from, final Executor to) {
+      if (!hasCapacity(to, from)) {
+        return false;
+      }
+      decrement(from);
+      this.inFlightByExecutor.merge(to.getId(), 1, Integer::sum);
+      this.releaseCount++;
+      notifyAll();
+      return true;
+    }
+
+    synchronized void release(final Executor executor) {
+      decrement(executor);
+      this.inFlight--;
+      this.releaseCount++;
+      notifyAll();
+    }
+
+    private boolean hasCapacity(final Executor executor, final Executor releasing) {
+      int count = this.inFlightByExecutor.getOrDefault(executor.getId(), 0);
+      if (executor.equals(releasing)) {
+        count--;
+      }
+      return count < this.maxInFlightPerExecutor;
+    }
+
+    private void decrement(final Executor executor) {
+      this.inFlightByExecutor.computeIfPresent(executor.getId(), (id, n) -> n > 1 ? n - 1 : null);
     }
   }
 }
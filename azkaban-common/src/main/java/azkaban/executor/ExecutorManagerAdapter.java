@@ -68,6 +68,27 @@ public interface ExecutorManagerAdapter {
   public List<ExecutableFlow> getExecutableFlows(int projectId, String flowId,
       int from, int length, Status status) throws ExecutorManagerException;
 
+  /**
+   * The getExecutionSummaries methods list the same executions as the getExecutableFlows methods
+   * of the same parameters, without reading their flow data. For history and listing pages.
+   */
+  public List<ExecutionSummary> getExecutionSummaries(int skip, int size)
+      throws ExecutorManagerException;
+
+  public List<ExecutionSummary> getExecutionSummaries(String flowIdContains,
+      int skip, int size) throws ExecutorManagerException;
+
+  public List<ExecutionSummary> getExecutionSummaries(String projContain,
+      String flowContain, String userContain, int status, long begin, long end,
+      int skip, int size) throws ExecutorManagerException;
+
+  public int getExecutionSummaries(int projectId, String flowId, int from,
+      int length, List<ExecutionSummary> outputList)
+      throws ExecutorManagerException;
+
+  public List<ExecutionSummary> getExecutionSummaries(int projectId, String flowId,
+      int from, int length, Status status) throws ExecutorManagerException;
+
   public List<ExecutableJobInfo> getExecutableJobs(Project project,
       String jobId, int skip, int size) throws ExecutorManagerException;
 
@@ -80,6 +101,12 @@ public interface ExecutorManagerAdapter {
   public LogData getExecutionJobLog(ExecutableFlow exFlow, String jobId,
       int offset, int length, int attempt) throws ExecutorManagerException;
 
+  /**
+   * Returns the last length bytes of the job log of a finished execution, read from the DB.
+   */
+  public LogData getExecutionJobLogTail(ExecutableFlow exFlow, String jobId,
+      int length, int attempt) throws ExecutorManagerException;
+
   public List<Object> getExecutionJobStats(ExecutableFlow exflow, String jobId,
       int attempt) throws ExecutorManagerException;
 
@@ -20,7 +20,6 @@ import azkaban.db.DatabaseOperator;
 import azkaban.db.EncodingType;
 import azkaban.flow.Flow;
 import azkaban.project.Project;
-import azkaban.utils.GZIPUtils;
 import azkaban.utils.Pair;
 import com.google.common.annotations.VisibleForTesting;
 import java.io.IOException;
@@ -29,6 +28,7 @@ import java.sql.SQLException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.apache.commons.dbutils.ResultSetHandler;
@@ -60,8 +60,7 @@ public class FetchActiveFlowDao {
       final EncodingType encType = EncodingType.fromInteger(encodingType);
       final ExecutableFlow exFlow;
       try {
-        exFlow = ExecutableFlow.createExecutableFlowFromObject(
-            GZIPUtils.transformBytesToObject(data, encType));
+        exFlow = ExecutableFlowJsonCodec.decode(data, encType);
       } catch (final IOException e) {
         throw new SQLException("Error retrieving flow data " + id, e);
       }
@@ -103,6 +102,17 @@ public class FetchActiveFlowDao {
     return getPairWithExecutorInfo(rs, exFlow);
   }
 
+  /**
+   * Merges the node state deltas which haven't been compacted into flow_data yet into the
+   * fetched flows.
+   */
+  private Map<Integer, Pair<ExecutionReference, ExecutableFlow>> applyFlowUpdates(
+      final Map<Integer, Pair<ExecutionReference, ExecutableFlow>> flows) throws SQLException {
+    ExecutionFlowDao.applyFlowUpdates(this.dbOperator,
+        flows.values().stream().map(Pair::getSecond).collect(Collectors.toList()));
+    return flows;
+  }
+
   /**
    * Fetch flows that are not in finished status, including both dispatched and non-dispatched
    * flows.
@@ -113,8 +123,9 @@ public class FetchActiveFlowDao {
   Map<Integer, Pair<ExecutionReference, ExecutableFlow>> fetchUnfinishedFlows()
       throws ExecutorManagerException {
     try {
-      return this.dbOperator.query(FetchActiveExecutableFlows.FETCH_UNFINISHED_EXECUTABLE_FLOWS,
-          new FetchActiveExecutableFlows());
+      return applyFlowUpdates(this.dbOperator.query(
+          FetchActiveExecutableFlows.FETCH_UNFINISHED_EXECUTABLE_FLOWS,
+          new FetchActiveExecutableFlows()));
     } catch (final SQLException e) {
       throw new ExecutorManagerException("Error fetching unfinished flows", e);
     }
@@ -145,8 +156,9 @@ public class FetchActiveFlowDao {
   Map<Integer, Pair<ExecutionReference, ExecutableFlow>> fetchActiveFlows()
       throws ExecutorManagerException {
     try {
-      return this.dbOperator.query(FetchActiveExecutableFlows.FETCH_ACTIVE_EXECUTABLE_FLOWS,
-          new FetchActiveExecutableFlows());
+      return applyFlowUpdates(this.dbOperator.query(
+          FetchActiveExecutableFlows.FETCH_ACTIVE_EXECUTABLE_FLOWS,
+          new FetchActiveExecutableFlows()));
     } catch (final SQLException e) {
       throw new ExecutorManagerException("Error fetching active flows", e);
     }
@@ -161,9 +173,14 @@ public class FetchActiveFlowDao {
   Pair<ExecutionReference, ExecutableFlow> fetchActiveFlowByExecId(final int execId)
       throws ExecutorManagerException {
     try {
-      return this.dbOperator.query(FetchActiveExecutableFlow
-              .FETCH_ACTIVE_EXECUTABLE_FLOW_BY_EXEC_ID,
+      final Pair<ExecutionReference, ExecutableFlow> flow = this.dbOperator.query(
+          FetchActiveExecutableFlow.FETCH_ACTIVE_EXECUTABLE_FLOW_BY_EXEC_ID,
           new FetchActiveExecutableFlow(), execId);
+      if (flow != null) {
+        ExecutionFlowDao.applyFlowUpdates(this.dbOperator,
+            Collections.singletonList(flow.getSecond()));
+      }
+      return flow;
     } catch (final SQLException e) {
       throw new ExecutorManagerException("Error fetching active flow by exec id" + execId, e);
     }
@@ -73,6 +73,12 @@ public class JdbcExecutorLoader implements ExecutorLoader {
     this.executionFlowDao.updateExecutableFlow(flow);
   }
 
+  @Override
+  public void updateExecutableFlowDelta(final ExecutableFlow flow, final long lastUpdateTime)
+      throws ExecutorManagerException {
+    this.executionFlowDao.updateExecutableFlowDelta(flow, lastUpdateTime);
+  }
+
   @Override
   public ExecutableFlow fetchExecutableFlow(final int id)
       throws ExecutorManagerException {
@@ -169,6 +175,33 @@ public class JdbcExecutorLoader implements ExecutorLoader {
         userNameContains, status, startTime, endTime, skip, num);
   }
 
+  @Override
+  public List<ExecutionSummary> fetchExecutionSummaries(final int skip, final int num)
+      throws ExecutorManagerException {
+    return this.executionFlowDao.fetchExecutionSummaries(skip, num);
+  }
+
+  @Override
+  public List<ExecutionSummary> fetchExecutionSummaries(final int projectId, final String flowId,
+      final int skip, final int num) throws ExecutorManagerException {
+    return this.executionFlowDao.fetchExecutionSummaries(projectId, flowId, skip, num);
+  }
+
+  @Override
+  public List<ExecutionSummary> fetchExecutionSummaries(final int projectId, final String flowId,
+      final int skip, final int num, final Status status) throws ExecutorManagerException {
+    return this.executionFlowDao.fetchExecutionSummaries(projectId, flowId, skip, num, status);
+  }
+
+  @Override
+  public List<ExecutionSummary> fetchExecutionSummaries(final String projContain,
+      final String flowContains, final String userNameContains, final int status,
+      final long startTime, final long endTime, final int skip, final int num)
+      throws ExecutorManagerException {
+    return this.executionFlowDao.fetchExecutionSummaries(projContain, flowContains,
+        userNameContains, status, startTime, endTime, skip, num);
+  }
+
   @Override
   public void addActiveExecutableReference(final ExecutionReference reference)
       throws ExecutorManagerException {
@@ -253,6 +286,12 @@ public class JdbcExecutorLoader implements ExecutorLoader {
     return this.executionLogsDao.fetchLogs(execId, name, attempt, startByte, length);
   }
 
+  @Override
+  public LogData fetchLogsTail(final int execId, final String name, final int attempt,
+      final int length) throws ExecutorManagerException {
+    return this.executionLogsDao.fetchLogsTail(execId, name, attempt, length);
+  }
+
   @Override
   public List<Object> fetchAttachments(final int execId, final String jobId, final int attempt)
       throws ExecutorManagerException {
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls a set of executors in parallel on a bounded pool. All calls share a deadline counted from
+ * when they are submitted, so calls still queued behind hung executors time out too. Cancelling a
+ * call can't interrupt a blocking socket read, so the calls themselves must time out by the same
+ * deadline for the pool threads to be released, see {@link ExecutorApiClient}.
+ *
+ * <p>Results are handed to the caller's thread as they complete, so the handlers need no
+ * synchronization.
+ */
+class ParallelExecutorCaller {
+
+  private final ExecutorService callService;
+  private final long timeoutMs;
+
+  ParallelExecutorCaller(final String nameFormat, final int threads, final long timeoutMs) {
+    this.callService = Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat(nameFormat).build());
+    this.timeoutMs = timeoutMs;
+  }
+
+  /**
+   * Calls all executors and waits for the results. The calls which don't complete within the
+   * timeout of their submission, whether running or still queued, are cancelled and handled as
+   * failures.
+   */
+  <T> void callAll(final Collection<Executor> executors, final Call<T> call,
+      final ResultHandler<T> handler) {
+    final CompletionService<T> completionService = new ExecutorCompletionService<>(
+        this.callService);
+    final Map<Future<T>, Executor> pending = new HashMap<>();
+    final long deadline = System.currentTimeMillis() + this.timeoutMs;
+    for (final Executor executor : executors) {
+      pending.put(completionService.submit(() -> call.call(executor)), executor);
+    }
+
+    try {
+      while (!pending.isEmpty()) {
+        final long waitTime = deadline - System.currentTimeMillis();
+        final Future<T> done = waitTime > 0
+            ? completionService.poll(waitTime, TimeUnit.MILLISECONDS) : null;
+        if (done == null) {
+          cancelOverdueCalls(pending, handler);
+          break;
+        }
+        final Executor executor = pending.remove(done);
+        try {
+          handler.onSuccess(executor, done.get());
+        } catch (final ExecutionException e) {
+          handler.onFailure(executor, e.getCause() instanceof ExecutorManagerException
+              ? (ExecutorManagerException) e.getCause()
+              : new ExecutorManagerException("Error calling executor " + executor.getId(),
+                  e.getCause()));
+        }
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      for (final Future<T> future : pending.keySet()) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private <T> void cancelOverdueCalls(final Map<Future<T>, Executor> pending,
+      final ResultHandler<T> handler) {
+    final Iterator<Map.Entry<Future<T>, Executor>> it = pending.entrySet().iterator();
+    while (it.hasNext()) {
+      final Map.Entry<Future<T>, Executor> entry = it.next();
+      it.remove();
+      entry.getKey().cancel(true);
+      handler.onFailure(entry.getValue(), new ExecutorManagerException(
+          "Call to executor " + entry.getValue().getId() + " timed out after " + this.timeoutMs
+              + " ms"));
+    }
+  }
+
+  void shutdown() {
+    this.callService.shutdownNow();
+  }
+
+  /**
+   * A call to an executor.
+   */
+  interface Call<T> {
+
+    T call(Executor executor) throws ExecutorManagerException;
+  }
+
+  /**
+   * Handles the result of a call, on the thread which made the calls.
+   */
+  interface ResultHandler<T> {
+
+    void onSuccess(Executor executor, T result);
+
+    void onFailure(Executor executor, ExecutorManagerException e);
+  }
+}
@@ -1,36 +1,142 @@
 package azkaban.executor;
 
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.metrics.CommonMetrics;
 import azkaban.utils.Pair;
+import azkaban.utils.Props;
+import com.google.common.base.Preconditions;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.concurrent.BlockingQueue;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.PriorityBlockingQueue;
-import org.apache.log4j.Logger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
 
 /**
  * <pre>
  * Composite data structure to represent non-dispatched flows in webserver.
- * This data structure wraps a blocking queue and a concurrent hashmap.
+ * This data structure wraps a priority queue per tenant and a concurrent hashmap.
+ *
+ * Flows are queued per tenant, i.e. per project, per submitting user or all in one queue. The head
+ * of the queue is:
+ * 1. the oldest flow, if it has waited longer than the aging threshold
+ * 2. else the head of the tenant whose head has the highest priority. Tenants whose heads have the
+ *    same priority share the queue by weight: the tenant with the least flows taken from the queue
+ *    relative to its weight goes first.
+ * Flows of projects which already have their max number of running flows are skipped.
+ *
+ * Enqueue and dequeue are O(log n).
  * </pre>
  */
 public class QueuedExecutions {
 
-  private static final Logger logger = Logger.getLogger(QueuedExecutions.class);
+  public static final String TENANT_PROJECT = "project";
+  public static final String TENANT_USER = "user";
+  public static final String TENANT_NONE = "none";
+
+  // how often the head is looked for again while all queued flows are of capped projects
+  private static final long CAPPED_RECHECK_MS = 1000;
+  // sorting order of the flows of a tenant, see ExecutableFlowPriorityComparator
+  private static final Comparator<Entry> PRIORITY_ORDER =
+      Comparator.<Entry>comparingInt(e -> -e.priority)
+          .thenComparingLong(e -> e.updateTime)
+          .thenComparingInt(e -> e.executionId);
+  private static final Comparator<Entry> AGE_ORDER =
+      Comparator.<Entry>comparingLong(e -> e.submitTime)
+          .thenComparingInt(e -> e.executionId);
+  private static final Comparator<Tenant> TENANT_ORDER =
+      Comparator.<Tenant>comparingInt(t -> -t.queue.first().priority)
+          .thenComparingDouble(t -> t.virtualTime)
+          .thenComparing(t -> t.name);
+
   final long capacity;
 
   /* map to easily access queued flows */
   final private ConcurrentHashMap<Integer, Pair<ExecutionReference, ExecutableFlow>> queuedFlowMap;
-  /* actual queue */
-  final private BlockingQueue<Pair<ExecutionReference, ExecutableFlow>> queuedFlowList;
+
+  private final String tenantType;
+  private final Map<String, Double> tenantWeights;
+  private final Map<String, Integer> maxRunningPerProject;
+  private final long agingThresholdMs;
+  private final ToIntFunction<String> activeFlowsOfProject;
+  private final CommonMetrics commonMetrics;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = this.lock.newCondition();
+  // guarded by lock
+  private final Map<Integer, Entry> entries = new HashMap<>();
+  private final Map<String, Tenant> tenants = new HashMap<>();
+  // non-empty tenants
+  private final TreeSet<Tenant> activeTenants = new TreeSet<>(TENANT_ORDER);
+  // all flows, oldest first, only kept if aging is enabled
+  private final TreeSet<Entry> byAge = new TreeSet<>(AGE_ORDER);
+  // virtual time of the last tenant the head was taken from
+  private double virtualClock = 0;
 
   public QueuedExecutions(final long capacity) {
+    this(capacity, new Props(), project -> 0, null);
+  }
+
+  /**
+   * @param activeFlowsOfProject number of running and dispatching flows of a project, used if the
+   * project has a max number of running flows
+   * @param commonMetrics metrics of the queue wait of each tenant, or null
+   */
+  public QueuedExecutions(final long capacity, final Props props,
+      final ToIntFunction<String> activeFlowsOfProject, final CommonMetrics commonMetrics) {
     this.capacity = capacity;
     this.queuedFlowMap =
         new ConcurrentHashMap<>();
-    this.queuedFlowList =
-        new PriorityBlockingQueue<>(10,
-            new ExecutableFlowPriorityComparator());
+    this.tenantType = props.getString(ConfigurationKeys.QUEUE_FAIR_SHARE_TENANT, TENANT_PROJECT);
+    Preconditions.checkArgument(TENANT_PROJECT.equals(this.tenantType)
+            || TENANT_USER.equals(this.tenantType) || TENANT_NONE.equals(this.tenantType),
+        "Unknown queue tenant type " + this.tenantType);
+    this.tenantWeights = new HashMap<>();
+    for (final Map.Entry<String, Integer> weight : parseSettings(props,
+        ConfigurationKeys.QUEUE_FAIR_SHARE_WEIGHTS).entrySet()) {
+      Preconditions.checkArgument(weight.getValue() > 0,
+          "Queue weight of " + weight.getKey() + " must be positive");
+      this.tenantWeights.put(weight.getKey(), weight.getValue().doubleValue());
+    }
+    this.maxRunningPerProject = parseSettings(props,
+        ConfigurationKeys.QUEUE_MAX_RUNNING_PER_PROJECT);
+    this.agingThresholdMs = props.getLong(ConfigurationKeys.QUEUE_AGING_THRESHOLD_MS, 0);
+    this.activeFlowsOfProject = activeFlowsOfProject;
+    this.commonMetrics = commonMetrics;
+  }
+
+  /**
+   * Parses settings of the format <name 1>,<number>;<name 2>,<number>
+   */
+  private static Map<String, Integer> parseSettings(final Props props, final String key) {
+    final Map<String, Integer> settings = new HashMap<>();
+    final String value = props.get(key);
+    if (value != null && !value.trim().isEmpty()) {
+      for (final String setting : value.split(";")) {
+        final String[] fields = setting.split(",");
+        Preconditions.checkState(fields.length == 2,
+            key + " must be specified as <name>,<number>;<name>,<number>");
+        settings.put(fields[0].trim(), Integer.parseInt(fields[1].trim()));
+      }
+    }
+    return settings;
+  }
+
+  private String tenantOf(final ExecutableFlow exflow) {
+    final String name;
+    if (TENANT_PROJECT.equals(this.tenantType)) {
+      name = exflow.getProjectName();
+    } else if (TENANT_USER.equals(this.tenantType)) {
+      name = exflow.getSubmitUser();
+    } else {
+      name = null;
+    }
+    return name == null ? "" : name;
   }
 
   /**
@@ -38,20 +144,90 @@ public class QueuedExecutions {
    */
   public Pair<ExecutionReference, ExecutableFlow> fetchHead()
       throws InterruptedException {
-    final Pair<ExecutionReference, ExecutableFlow> pair = this.queuedFlowList.take();
-    if (pair != null && pair.getFirst() != null) {
-      this.queuedFlowMap.remove(pair.getFirst().getExecId());
+    this.lock.lockInterruptibly();
+    try {
+      Entry head;
+      while ((head = findHead()) == null) {
+        if (this.entries.isEmpty()) {
+          this.notEmpty.await();
+        } else {
+          // the flows are all of projects with their max number of running flows
+          this.notEmpty.await(CAPPED_RECHECK_MS, TimeUnit.MILLISECONDS);
+        }
+      }
+      remove(head);
+
+      final Tenant tenant = head.tenant;
+      updateTenant(tenant, () -> {
+        this.virtualClock = Math.max(this.virtualClock, tenant.virtualTime);
+        tenant.virtualTime += 1 / tenant.weight;
+      });
+      if (this.commonMetrics != null) {
+        this.commonMetrics.addTenantQueueWait(tenant.name,
+            System.currentTimeMillis() - head.submitTime);
+      }
+      return head.pair;
+    } finally {
+      this.lock.unlock();
     }
-    return pair;
+  }
+
+  private Entry findHead() {
+    if (this.agingThresholdMs > 0 && !this.byAge.isEmpty()) {
+      final Entry oldest = this.byAge.first();
+      if (System.currentTimeMillis() - oldest.submitTime >= this.agingThresholdMs
+          && !isCapped(oldest)) {
+        return oldest;
+      }
+    }
+    for (final Tenant tenant : this.activeTenants) {
+      final Entry head = tenant.queue.first();
+      if (!isCapped(head)) {
+        return head;
+      }
+    }
+    return null;
+  }
+
+  private boolean isCapped(final Entry entry) {
+    final Integer maxRunning = this.maxRunningPerProject.get(entry.projectName);
+    return maxRunning != null
+        && this.activeFlowsOfProject.applyAsInt(entry.projectName) >= maxRunning;
+  }
+
+  /**
+   * Runs an update of the tenant's queue or virtual time, which are part of its sorting order.
+   */
+  private void updateTenant(final Tenant tenant, final Runnable update) {
+    // only non-empty tenants are in the set
+    if (!tenant.queue.isEmpty()) {
+      this.activeTenants.remove(tenant);
+    }
+    update.run();
+    if (!tenant.queue.isEmpty()) {
+      this.activeTenants.add(tenant);
+    }
+  }
+
+  private void remove(final Entry entry) {
+    updateTenant(entry.tenant, () -> entry.tenant.queue.remove(entry));
+    this.byAge.remove(entry);
+    this.entries.remove(entry.executionId);
+    this.queuedFlowMap.remove(entry.executionId);
   }
 
   /**
    * Helper method to have a single point of deletion in the queued flows
    */
   public void dequeue(final int executionId) {
-    if (this.queuedFlowMap.containsKey(executionId)) {
-      this.queuedFlowList.remove(this.queuedFlowMap.get(executionId));
-      this.queuedFlowMap.remove(executionId);
+    this.lock.lock();
+    try {
+      final Entry entry = this.entries.get(executionId);
+      if (entry != null) {
+        remove(entry);
+      }
+    } finally {
+      this.lock.unlock();
     }
   }
 
@@ -64,28 +240,56 @@ public class QueuedExecutions {
    * @param ref
    *          reference to be enqueued
    * @throws ExecutorManagerException
-   *           case 1: if blocking queue put method fails due to
-   *           InterruptedException
-   *           case 2: if there already an element with
+   *           if there already an element with
    *           same execution Id
    * </pre>
    */
   public void enqueue(final ExecutableFlow exflow, final ExecutionReference ref)
       throws ExecutorManagerException {
-    if (hasExecution(exflow.getExecutionId())) {
-      final String errMsg = "Flow already in queue " + exflow.getExecutionId();
-      throw new ExecutorManagerException(errMsg);
-    }
+    enqueue(exflow, ref, false);
+  }
 
+  /**
+   * Puts back a flow taken with {@link #fetchHead()} which could not be dispatched. Its tenant is
+   * not counted as served for it.
+   */
+  public void requeue(final ExecutableFlow exflow, final ExecutionReference ref)
+      throws ExecutorManagerException {
+    enqueue(exflow, ref, true);
+  }
+
+  private void enqueue(final ExecutableFlow exflow, final ExecutionReference ref,
+      final boolean requeue) throws ExecutorManagerException {
     final Pair<ExecutionReference, ExecutableFlow> pair =
         new Pair<>(ref, exflow);
+    this.lock.lock();
     try {
-      this.queuedFlowMap.put(exflow.getExecutionId(), pair);
-      this.queuedFlowList.put(pair);
-    } catch (final InterruptedException e) {
-      final String errMsg = "Failed to insert flow " + exflow.getExecutionId();
-      logger.error(errMsg, e);
-      throw new ExecutorManagerException(errMsg);
+      if (hasExecution(exflow.getExecutionId())) {
+        final String errMsg = "Flow already in queue " + exflow.getExecutionId();
+        throw new ExecutorManagerException(errMsg);
+      }
+
+      final String tenantName = tenantOf(exflow);
+      final Tenant tenant = this.tenants.computeIfAbsent(tenantName,
+          name -> new Tenant(name, this.tenantWeights.getOrDefault(name, 1.0)));
+      final Entry entry = new Entry(pair, tenant);
+      updateTenant(tenant, () -> {
+        if (requeue) {
+          tenant.virtualTime -= 1 / tenant.weight;
+        } else if (tenant.queue.isEmpty()) {
+          // a tenant coming back doesn't get the share it didn't use while it had nothing queued
+          tenant.virtualTime = Math.max(tenant.virtualTime, this.virtualClock);
+        }
+        tenant.queue.add(entry);
+      });
+      if (this.agingThresholdMs > 0) {
+        this.byAge.add(entry);
+      }
+      this.entries.put(entry.executionId, entry);
+      this.queuedFlowMap.put(entry.executionId, pair);
+      this.notEmpty.signal();
+    } finally {
+      this.lock.unlock();
     }
   }
 
@@ -96,9 +300,7 @@ public class QueuedExecutions {
    * @param collection
    *
    * @throws ExecutorManagerException
-   *           case 1: if blocking queue put method fails due to
-   *           InterruptedException
-   *           case 2: if there already an element with
+   *           if there already an element with
    *           same execution Id
    * </pre>
    */
@@ -128,27 +330,23 @@ public class QueuedExecutions {
    * Fetch flow for an execution. Returns null, if execution not in queue
    */
   public ExecutableFlow getFlow(final int executionId) {
-    if (hasExecution(executionId)) {
-      return this.queuedFlowMap.get(executionId).getSecond();
-    }
-    return null;
+    final Pair<ExecutionReference, ExecutableFlow> pair = this.queuedFlowMap.get(executionId);
+    return pair == null ? null : pair.getSecond();
   }
 
   /**
    * Fetch Activereference for an execution. Returns null, if execution not in queue
    */
   public ExecutionReference getReference(final int executionId) {
-    if (hasExecution(executionId)) {
-      return this.queuedFlowMap.get(executionId).getFirst();
-    }
-    return null;
+    final Pair<ExecutionReference, ExecutableFlow> pair = this.queuedFlowMap.get(executionId);
+    return pair == null ? null : pair.getFirst();
   }
 
   /**
    * Size of the queue
    */
   public long size() {
-    return this.queuedFlowList.size();
+    return this.queuedFlowMap.size();
   }
 
   /**
@@ -162,7 +360,7 @@ public class QueuedExecutions {
    * Verify, if queue is empty or not
    */
   public boolean isEmpty() {
-    return this.queuedFlowList.isEmpty() && this.queuedFlowMap.isEmpty();
+    return this.queuedFlowMap.isEmpty();
   }
 
   /**
@@ -173,4 +371,45 @@ public class QueuedExecutions {
       dequeue(pair.getFirst().getExecId());
     }
   }
+
+  private static class Tenant {
+
+    private final String name;
+    private final double weight;
+    private final TreeSet<Entry> queue = new TreeSet<>(PRIORITY_ORDER);
+    // number of flows taken from the queue divided by the weight
+    private double virtualTime = 0;
+
+    private Tenant(final String name, final double weight) {
+      this.name = name;
+      this.weight = weight;
+    }
+  }
+
+  /**
+   * A queued flow, with a snapshot of the fields it is sorted by.
+   */
+  private static class Entry {
+
+    private final Pair<ExecutionReference, ExecutableFlow> pair;
+    private final Tenant tenant;
+    private final int executionId;
+    private final int priority;
+    private final long updateTime;
+    private final long submitTime;
+    private final String projectName;
+
+    private Entry(final Pair<ExecutionReference, ExecutableFlow> pair, final Tenant tenant) {
+      final ExecutableFlow exflow = pair.getSecond();
+      this.pair = pair;
+      this.tenant = tenant;
+      this.executionId = exflow.getExecutionId();
+      this.priority = ExecutableFlowPriorityComparator.getPriority(exflow);
+      this.updateTime = exflow.getUpdateTime();
+      // flows submitted before the submit time was kept age from when they are queued
+      this.submitTime =
+          exflow.getSubmitTime() > 0 ? exflow.getSubmitTime() : System.currentTimeMillis();
+      this.projectName = exflow.getProjectName();
+    }
+  }
 }
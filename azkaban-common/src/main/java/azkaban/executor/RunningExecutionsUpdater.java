@@ -16,14 +16,16 @@
 
 package azkaban.executor;
 
+import azkaban.Constants;
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.alert.Alerter;
 import azkaban.metrics.CommonMetrics;
 import azkaban.utils.Pair;
+import azkaban.utils.Props;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
 import javax.inject.Inject;
 import org.apache.log4j.Logger;
@@ -48,10 +50,12 @@ public class RunningExecutionsUpdater {
   private final RunningExecutions runningExecutions;
   private final ExecutionFinalizer executionFinalizer;
   private final ExecutorLoader executorLoader;
+  private final ParallelExecutorCaller executorCaller;
 
   @Inject
-  public RunningExecutionsUpdater(final ExecutorManagerUpdaterStage updaterStage,
-      final AlerterHolder alerterHolder, final CommonMetrics commonMetrics,
+  public RunningExecutionsUpdater(final Props props,
+      final ExecutorManagerUpdaterStage updaterStage, final AlerterHolder alerterHolder,
+      final CommonMetrics commonMetrics,
       final ExecutorApiGateway apiGateway, final RunningExecutions runningExecutions,
       final ExecutionFinalizer executionFinalizer, final ExecutorLoader executorLoader) {
     this.updaterStage = updaterStage;
@@ -61,18 +65,25 @@ public class RunningExecutionsUpdater {
     this.runningExecutions = runningExecutions;
     this.executionFinalizer = executionFinalizer;
     this.executorLoader = executorLoader;
+    this.executorCaller = new ParallelExecutorCaller("azk-execution-updater-%d",
+        props.getInt(ConfigurationKeys.AZKABAN_EXECUTOR_POLL_THREADS,
+            Constants.DEFAULT_EXECUTOR_POLL_THREADS),
+        props.getLong(ConfigurationKeys.AZKABAN_EXECUTOR_POLL_TIMEOUT_MS,
+            Constants.DEFAULT_EXECUTOR_POLL_TIMEOUT_MS));
   }
 
   /**
-   * Updates running executions.
+   * Updates running executions. The executors are called in parallel, and their updates are
+   * applied as they arrive.
    */
-  @SuppressWarnings("unchecked")
   public void updateExecutions() {
+    final long start = System.currentTimeMillis();
     this.updaterStage.set("Starting update all flows.");
     final Map<Optional<Executor>, List<ExecutableFlow>> exFlowMap = getFlowToExecutorMap();
     final ArrayList<ExecutableFlow> finalizeFlows =
         new ArrayList<>();
 
+    final Map<Executor, List<ExecutableFlow>> executorFlows = new HashMap<>();
     for (final Map.Entry<Optional<Executor>, List<ExecutableFlow>> entry : exFlowMap
         .entrySet()) {
 
@@ -85,61 +96,100 @@ public class RunningExecutionsUpdater {
         }
         continue;
       }
-      final Executor executor = executorOption.get();
+      executorFlows.put(executorOption.get(), entry.getValue());
+    }
 
-      this.updaterStage.set("Starting update flows on " + executor.getHost() + ":"
-          + executor.getPort());
+    this.updaterStage.set("Starting update flows on " + executorFlows.size() + " executors");
+    this.executorCaller.callAll(executorFlows.keySet(),
+        executor -> this.apiGateway.updateExecutions(executor, executorFlows.get(executor)),
+        new ParallelExecutorCaller.ResultHandler<Map<String, Object>>() {
+          @Override
+          @SuppressWarnings("unchecked")
+          public void onSuccess(final Executor executor, final Map<String, Object> results) {
+            if (results != null) {
+              applyUpdates((List<Map<String, Object>>) results
+                  .get(ConnectorParams.RESPONSE_UPDATED_FLOWS), finalizeFlows);
+            }
+          }
 
-      Map<String, Object> results = null;
-      try {
-        results = this.apiGateway.updateExecutions(executor, entry.getValue());
-      } catch (final ExecutorManagerException e) {
-        handleException(entry, executor, e, finalizeFlows);
+          @Override
+          public void onFailure(final Executor executor, final ExecutorManagerException e) {
+            handleException(executorFlows.get(executor), executor, e, finalizeFlows);
+          }
+        });
+
+    finalizeFlows(finalizeFlows);
+
+    this.commonMetrics.addExecutionUpdateCycleTime(System.currentTimeMillis() - start);
+    this.updaterStage.set("Updated all active flows. Waiting for next round.");
+  }
+
+  /**
+   * Stops the threads which call the executors.
+   */
+  public void shutdown() {
+    this.executorCaller.shutdown();
+  }
+
+  /**
+   * Applies the updates which executors pushed through their update streams. Updates of
+   * executions which aren't running any more are ignored.
+   */
+  public void applyStreamedUpdates(final List<Map<String, Object>> executionUpdates) {
+    if (executionUpdates.isEmpty()) {
+      return;
+    }
+    final List<Map<String, Object>> runningUpdates = new ArrayList<>();
+    for (final Map<String, Object> updateMap : executionUpdates) {
+      final Object execId = updateMap.get(ConnectorParams.UPDATE_MAP_EXEC_ID);
+      if (execId != null && this.runningExecutions.get().containsKey(execId)) {
+        runningUpdates.add(updateMap);
       }
+    }
+    final ArrayList<ExecutableFlow> finalizeFlows = new ArrayList<>();
+    applyUpdates(runningUpdates, finalizeFlows);
+    finalizeFlows(finalizeFlows);
+  }
 
-      if (results != null) {
-        final List<Map<String, Object>> executionUpdates =
-            (List<Map<String, Object>>) results
-                .get(ConnectorParams.RESPONSE_UPDATED_FLOWS);
-        for (final Map<String, Object> updateMap : executionUpdates) {
-          try {
-            final ExecutableFlow flow = updateExecution(updateMap);
+  private void applyUpdates(final List<Map<String, Object>> executionUpdates,
+      final List<ExecutableFlow> finalizeFlows) {
+    for (final Map<String, Object> updateMap : executionUpdates) {
+      try {
+        final ExecutableFlow flow = updateExecution(updateMap);
 
-            this.updaterStage.set("Updated flow " + flow.getExecutionId());
+        this.updaterStage.set("Updated flow " + flow.getExecutionId());
 
-            if (ExecutionControllerUtils.isFinished(flow)) {
-              finalizeFlows.add(flow);
-            }
-          } catch (final ExecutorManagerException e) {
-            final ExecutableFlow flow = e.getExecutableFlow();
-            logger.error(e);
+        if (ExecutionControllerUtils.isFinished(flow)) {
+          finalizeFlows.add(flow);
+        }
+      } catch (final ExecutorManagerException e) {
+        final ExecutableFlow flow = e.getExecutableFlow();
+        logger.error(e);
 
-            if (flow != null) {
-              logger.warn("Finalizing execution " + flow.getExecutionId());
-              finalizeFlows.add(flow);
-            }
-          }
+        if (flow != null) {
+          logger.warn("Finalizing execution " + flow.getExecutionId());
+          finalizeFlows.add(flow);
         }
       }
     }
+  }
 
+  private void finalizeFlows(final List<ExecutableFlow> finalizeFlows) {
     this.updaterStage.set("Finalizing " + finalizeFlows.size() + " error flows.");
 
     for (final ExecutableFlow flow : finalizeFlows) {
       this.executionFinalizer
           .finalizeFlow(flow, "Not running on the assigned executor (any more)", null);
     }
-
-    this.updaterStage.set("Updated all active flows. Waiting for next round.");
   }
 
-  private void handleException(final Entry<Optional<Executor>, List<ExecutableFlow>> entry,
+  private void handleException(final List<ExecutableFlow> flows,
       final Executor executor, final ExecutorManagerException e,
       final ArrayList<ExecutableFlow> finalizeFlows) {
     logger.error("Failed to get update from executor " + executor.getHost(), e);
     boolean sendUnresponsiveEmail = false;
     final boolean executorRemoved = isExecutorRemoved(executor.getId());
-    for (final ExecutableFlow flow : entry.getValue()) {
+    for (final ExecutableFlow flow : flows) {
       final Pair<ExecutionReference, ExecutableFlow> pair =
           this.runningExecutions.get().get(flow.getExecutionId());
 
@@ -163,7 +213,7 @@ public class RunningExecutionsUpdater {
     }
     if (sendUnresponsiveEmail) {
       final Alerter mailAlerter = this.alerterHolder.get("email");
-      mailAlerter.alertOnFailedUpdate(executor, entry.getValue(), e);
+      mailAlerter.alertOnFailedUpdate(executor, flows, e);
     }
   }
 
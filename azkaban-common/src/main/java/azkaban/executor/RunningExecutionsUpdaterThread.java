@@ -21,6 +21,9 @@ import org.apache.log4j.Logger;
 
 /**
  * Updates running executions periodically.
+ *
+ * <p>If update streams are enabled, the updates streamed by the executors are applied as they
+ * arrive, and the full update only runs when the streams need to be reconciled.
  */
 public class RunningExecutionsUpdaterThread extends Thread {
 
@@ -31,14 +34,16 @@ public class RunningExecutionsUpdaterThread extends Thread {
 
   private final RunningExecutionsUpdater updater;
   private final RunningExecutions runningExecutions;
+  private final ExecutionUpdateStreams updateStreams;
   private long lastThreadCheckTime = -1;
   private boolean shutdown = false;
 
   @Inject
   public RunningExecutionsUpdaterThread(final RunningExecutionsUpdater updater,
-      final RunningExecutions runningExecutions) {
+      final RunningExecutions runningExecutions, final ExecutionUpdateStreams updateStreams) {
     this.updater = updater;
     this.runningExecutions = runningExecutions;
+    this.updateStreams = updateStreams;
     this.setName("ExecutorManagerUpdaterThread");
   }
 
@@ -51,7 +56,15 @@ public class RunningExecutionsUpdaterThread extends Thread {
     while (!this.shutdown) {
       try {
         this.lastThreadCheckTime = System.currentTimeMillis();
-        this.updater.updateExecutions();
+        if (this.updateStreams.isEnabled()) {
+          this.updateStreams.openStreams();
+          this.updater.applyStreamedUpdates(this.updateStreams.drainUpdates());
+          if (this.updateStreams.isReconciliationDue()) {
+            this.updater.updateExecutions();
+          }
+        } else {
+          this.updater.updateExecutions();
+        }
         // TODO not sure why it would be important to check the status immediately in case of _new_
         // executions. This can only optimize finalizing executions that finish super-quickly after
         // being started.
@@ -77,6 +90,8 @@ public class RunningExecutionsUpdaterThread extends Thread {
 
   void shutdown() {
     this.shutdown = true;
+    this.updateStreams.shutdown();
+    this.updater.shutdown();
   }
 
   public long getLastThreadCheckTime() {
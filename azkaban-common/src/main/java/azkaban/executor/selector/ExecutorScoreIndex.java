@@ -0,0 +1,340 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor.selector;
+
+import azkaban.executor.Executor;
+import azkaban.executor.ExecutorInfo;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.log4j.Logger;
+
+/**
+ * <pre>
+ * Executors ordered by score, for selecting the executor of a flow without comparing all the
+ * executors with each other for each flow like {@link ExecutorSelector}.
+ *
+ * The filters and comparator weights have the names of {@link ExecutorFilter} and
+ * {@link ExecutorComparator}. The score of an executor is the weighted sum of:
+ * - Memory: the remaining memory percent
+ * - CpuUsage: the remaining CPU percent
+ * - NumberOfAssignedFlowComparator: the remaining flow capacity percent
+ * - LastDispatched: 1 / (1 + number of flows dispatched to it since its statistics were refreshed)
+ *
+ * The statistics of an executor are only refreshed periodically. In between, the footprint of each
+ * flow dispatched to the executor is reserved and the footprint of each flow finishing on it is
+ * released, and its score is updated, in O(log n). The filters are checked with the footprint of
+ * the flow being placed, so a flow only goes to an executor with room for it.
+ * </pre>
+ */
+public class ExecutorScoreIndex {
+
+  private static final Logger logger = Logger.getLogger(ExecutorScoreIndex.class);
+
+  // same names and thresholds as ExecutorFilter and ExecutorComparator
+  private static final String STATICREMAININGFLOWSIZE_FILTER_NAME = "StaticRemainingFlowSize";
+  private static final String MINIMUMFREEMEMORY_FILTER_NAME = "MinimumFreeMemory";
+  private static final String CPUSTATUS_FILTER_NAME = "CpuStatus";
+  private static final String NUMOFASSIGNEDFLOW_COMPARATOR_NAME = "NumberOfAssignedFlowComparator";
+  private static final String MEMORY_COMPARATOR_NAME = "Memory";
+  private static final String LSTDISPATCHED_COMPARATOR_NAME = "LastDispatched";
+  private static final String CPUUSAGE_COMPARATOR_NAME = "CpuUsage";
+  private static final int MINIMUM_FREE_MEMORY = 6 * 1024;
+  private static final int MAX_CPU_CURRENT_USAGE = 95;
+
+  private static final Comparator<ExecutorState> SCORE_ORDER =
+      Comparator.<ExecutorState>comparingDouble(s -> -s.score)
+          .thenComparingInt(s -> s.executor.getId());
+
+  private final boolean remainingFlowSizeFilter;
+  private final boolean minimumFreeMemoryFilter;
+  private final boolean cpuStatusFilter;
+  private final int remainingFlowWeight;
+  private final int memoryWeight;
+  private final int lastDispatchedWeight;
+  private final int cpuUsageWeight;
+
+  // by executor id
+  private final Map<Integer, ExecutorState> states = new HashMap<>();
+  private final TreeSet<ExecutorState> byScore = new TreeSet<>(SCORE_ORDER);
+  // footprints reserved for dispatched flows, by execution id
+  private final Map<Integer, Placement> placements = new HashMap<>();
+
+  /**
+   * @param filterList names of the filters, none if null
+   * @param comparatorWeights weights of the score factors by comparator name, none if null
+   */
+  public ExecutorScoreIndex(final Collection<String> filterList,
+      final Map<String, Integer> comparatorWeights) {
+    final Set<String> filters = filterList == null ? new HashSet<>() : new HashSet<>(filterList);
+    filters.remove("");
+    for (final String filter : filters) {
+      if (!ExecutorFilter.getAvailableFilterNames().contains(filter)) {
+        throw new IllegalArgumentException(String.format(
+            "failed to initialize executor score index as the filter '%s' doesn't exist.",
+            filter));
+      }
+    }
+    final Map<String, Integer> weights =
+        comparatorWeights == null ? new HashMap<>() : comparatorWeights;
+    for (final Map.Entry<String, Integer> weight : weights.entrySet()) {
+      if (!ExecutorComparator.getAvailableComparatorNames().contains(weight.getKey())
+          || weight.getValue() < 0) {
+        throw new IllegalArgumentException(String.format(
+            "failed to initialize executor score index as the comparator '%s' doesn't exist "
+                + "or has an invalid weight.", weight.getKey()));
+      }
+    }
+
+    this.remainingFlowSizeFilter = filters.contains(STATICREMAININGFLOWSIZE_FILTER_NAME);
+    this.minimumFreeMemoryFilter = filters.contains(MINIMUMFREEMEMORY_FILTER_NAME);
+    this.cpuStatusFilter = filters.contains(CPUSTATUS_FILTER_NAME);
+    this.remainingFlowWeight = weights.getOrDefault(NUMOFASSIGNEDFLOW_COMPARATOR_NAME, 0);
+    this.memoryWeight = weights.getOrDefault(MEMORY_COMPARATOR_NAME, 0);
+    this.lastDispatchedWeight = weights.getOrDefault(LSTDISPATCHED_COMPARATOR_NAME, 0);
+    this.cpuUsageWeight = weights.getOrDefault(CPUUSAGE_COMPARATOR_NAME, 0);
+  }
+
+  /**
+   * Takes the refreshed statistics of the executor, which already account for the flows
+   * dispatched to it so far. The reservations of those flows are dropped, and they aren't
+   * released again when the flows finish, as the next refresh accounts for that.
+   */
+  public synchronized void update(final Executor executor) {
+    ExecutorState state = this.states.get(executor.getId());
+    if (state == null) {
+      state = new ExecutorState(executor);
+      this.states.put(executor.getId(), state);
+    } else {
+      this.byScore.remove(state);
+    }
+    state.executor = executor;
+    state.info = executor.getExecutorInfo();
+    state.reservedMemoryInMB = 0;
+    state.reservedCpuUsage = 0;
+    state.reservedFlows = 0;
+    state.dispatchedSinceRefresh = 0;
+    state.epoch++;
+    state.score = score(state);
+    this.byScore.add(state);
+  }
+
+  /**
+   * Removes the executors which are not in the collection.
+   */
+  public synchronized void retainAll(final Collection<Executor> executors) {
+    final Set<Integer> ids = new HashSet<>();
+    for (final Executor executor : executors) {
+      ids.add(executor.getId());
+    }
+    final Iterator<ExecutorState> iterator = this.states.values().iterator();
+    while (iterator.hasNext()) {
+      final ExecutorState state = iterator.next();
+      if (!ids.contains(state.executor.getId())) {
+        this.byScore.remove(state);
+        iterator.remove();
+      }
+    }
+    this.placements.values().removeIf(placement -> !ids.contains(placement.executorId));
+  }
+
+  /**
+   * @param candidates executors the flow may go to
+   * @return the candidate with the best score which passes the filters with the footprint of the
+   * flow, null if none does. The footprint is capped at the room the roomiest candidate had on its
+   * last refresh, so that a flow estimated too heavy for any executor still goes to one once they
+   * are no longer busy.
+   */
+  public synchronized Executor select(final Collection<Executor> candidates,
+      final FlowFootprint flowFootprint) {
+    final FlowFootprint footprint = capToRoomiest(candidates, flowFootprint);
+    for (final ExecutorState state : this.byScore) {
+      if (candidates.contains(state.executor) && passesFilters(state, footprint)) {
+        return state.executor;
+      }
+    }
+    logger.debug("No executor passes the filters for a flow with " + footprint);
+    return null;
+  }
+
+  private FlowFootprint capToRoomiest(final Collection<Executor> candidates,
+      final FlowFootprint footprint) {
+    long memoryRoom = 0;
+    double cpuRoom = 0;
+    for (final Executor executor : candidates) {
+      final ExecutorState state = this.states.get(executor.getId());
+      if (state != null && state.info != null) {
+        memoryRoom = Math.max(memoryRoom,
+            state.info.getRemainingMemoryInMB() - MINIMUM_FREE_MEMORY - 1);
+        cpuRoom = Math.max(cpuRoom, MAX_CPU_CURRENT_USAGE - state.info.getCpuUsage() - 1);
+      }
+    }
+    if (footprint.getMemoryInMB() <= memoryRoom && footprint.getCpuUsage() <= cpuRoom) {
+      return footprint;
+    }
+    return new FlowFootprint(Math.min(footprint.getMemoryInMB(), memoryRoom),
+        Math.min(footprint.getCpuUsage(), cpuRoom));
+  }
+
+  /**
+   * Reserves the footprint of a flow dispatched to the executor.
+   */
+  public synchronized void onDispatch(final int executionId, final Executor executor,
+      final FlowFootprint footprint) {
+    final ExecutorState state = this.states.get(executor.getId());
+    if (state == null) {
+      return;
+    }
+    this.placements.put(executionId, new Placement(executor.getId(), state.epoch, footprint));
+    updateState(state, footprint, 1);
+  }
+
+  /**
+   * Releases the footprint of a finished flow.
+   */
+  public synchronized void onFinish(final int executionId) {
+    final Placement placement = this.placements.remove(executionId);
+    if (placement == null) {
+      return;
+    }
+    final ExecutorState state = this.states.get(placement.executorId);
+    // flows dispatched before the last refresh are in the statistics, not in the reservations
+    if (state != null && state.epoch == placement.epoch) {
+      updateState(state, placement.footprint, -1);
+    }
+  }
+
+  /**
+   * @return the current score of the executor, or NaN if it isn't indexed
+   */
+  public synchronized double getScore(final Executor executor) {
+    final ExecutorState state = this.states.get(executor.getId());
+    return state == null ? Double.NaN : state.score;
+  }
+
+  private void updateState(final ExecutorState state, final FlowFootprint footprint,
+      final int flows) {
+    this.byScore.remove(state);
+    state.reservedMemoryInMB += flows * footprint.getMemoryInMB();
+    state.reservedCpuUsage += flows * footprint.getCpuUsage();
+    state.reservedFlows += flows;
+    if (flows > 0) {
+      state.dispatchedSinceRefresh += flows;
+    }
+    state.score = score(state);
+    this.byScore.add(state);
+  }
+
+  private boolean passesFilters(final ExecutorState state, final FlowFootprint footprint) {
+    final boolean anyFilter =
+        this.remainingFlowSizeFilter || this.minimumFreeMemoryFilter || this.cpuStatusFilter;
+    if (!anyFilter) {
+      return true;
+    }
+    if (state.info == null) {
+      // the filters filter out executors without statistics
+      return false;
+    }
+    if (this.remainingFlowSizeFilter && remainingFlowCapacity(state) <= 0) {
+      return false;
+    }
+    if (this.minimumFreeMemoryFilter
+        && remainingMemoryInMB(state) - footprint.getMemoryInMB() <= MINIMUM_FREE_MEMORY) {
+      return false;
+    }
+    return !this.cpuStatusFilter
+        || cpuUsage(state) + footprint.getCpuUsage() < MAX_CPU_CURRENT_USAGE;
+  }
+
+  private double score(final ExecutorState state) {
+    final ExecutorInfo info = state.info;
+    if (info == null) {
+      return 0;
+    }
+    double score = 0;
+    if (this.memoryWeight > 0 && info.getRemainingMemoryPercent() > 0) {
+      final double totalMemoryInMB =
+          info.getRemainingMemoryInMB() * 100 / info.getRemainingMemoryPercent();
+      score += this.memoryWeight * clamp(remainingMemoryInMB(state) / totalMemoryInMB);
+    }
+    if (this.cpuUsageWeight > 0) {
+      score += this.cpuUsageWeight * clamp(1 - cpuUsage(state) / 100);
+    }
+    final int flowSlots = info.getRemainingFlowCapacity() + info.getNumberOfAssignedFlows();
+    if (this.remainingFlowWeight > 0 && flowSlots > 0) {
+      score += this.remainingFlowWeight
+          * clamp((double) remainingFlowCapacity(state) / flowSlots);
+    }
+    if (this.lastDispatchedWeight > 0) {
+      score += this.lastDispatchedWeight / (1.0 + state.dispatchedSinceRefresh);
+    }
+    return score;
+  }
+
+  private static double clamp(final double fraction) {
+    return Math.max(0, Math.min(1, fraction));
+  }
+
+  private static double remainingMemoryInMB(final ExecutorState state) {
+    return state.info.getRemainingMemoryInMB() - state.reservedMemoryInMB;
+  }
+
+  private static double cpuUsage(final ExecutorState state) {
+    return state.info.getCpuUsage() + state.reservedCpuUsage;
+  }
+
+  private static int remainingFlowCapacity(final ExecutorState state) {
+    return state.info.getRemainingFlowCapacity() - state.reservedFlows;
+  }
+
+  private static class ExecutorState {
+
+    private Executor executor;
+    private ExecutorInfo info;
+    // usage of the flows dispatched since the last refresh, less that of the flows finished since
+    private long reservedMemoryInMB;
+    private double reservedCpuUsage;
+    private int reservedFlows;
+    private int dispatchedSinceRefresh;
+    // number of refreshes of the statistics
+    private long epoch;
+    private double score;
+
+    private ExecutorState(final Executor executor) {
+      this.executor = executor;
+    }
+  }
+
+  private static class Placement {
+
+    private final int executorId;
+    // epoch of the executor when the flow was dispatched
+    private final long epoch;
+    private final FlowFootprint footprint;
+
+    private Placement(final int executorId, final long epoch, final FlowFootprint footprint) {
+      this.executorId = executorId;
+      this.epoch = epoch;
+      this.footprint = footprint;
+    }
+  }
+}
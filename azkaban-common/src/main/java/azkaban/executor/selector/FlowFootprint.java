@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor.selector;
+
+/**
+ * Expected resource usage of a flow on an executor: memory in MB and CPU usage in percent of the
+ * executor, like {@link azkaban.executor.ExecutorInfo}.
+ */
+public class FlowFootprint {
+
+  public static final FlowFootprint NONE = new FlowFootprint(0, 0);
+
+  private final long memoryInMB;
+  private final double cpuUsage;
+
+  public FlowFootprint(final long memoryInMB, final double cpuUsage) {
+    this.memoryInMB = memoryInMB;
+    this.cpuUsage = cpuUsage;
+  }
+
+  public long getMemoryInMB() {
+    return this.memoryInMB;
+  }
+
+  public double getCpuUsage() {
+    return this.cpuUsage;
+  }
+
+  @Override
+  public String toString() {
+    return "FlowFootprint(memoryInMB = " + this.memoryInMB + ", cpuUsage = " + this.cpuUsage
+        + ")";
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor.selector;
+
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.ExecutorInfo;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimates the footprint of flows from the executor statistics seen while their past executions
+ * ran.
+ *
+ * <p>Executors only report their total usage, so each refresh splits the used memory and CPU of
+ * an executor, less the usage of the executor when it was last seen idle, evenly between the flows
+ * running on it. Until an executor is seen idle, a default base usage for the OS and the JVM is
+ * assumed. The estimate of a flow is the peak of these shares, decayed a little on each
+ * observation so that a flow which got lighter is estimated lighter over time, and never more than
+ * half of the executor it was seen on. Flows never seen running have no footprint.
+ */
+public class FlowFootprintEstimator {
+
+  // weight kept by the previous peak on each new observation
+  private static final double DECAY = 0.95;
+  // usage of an executor running no flow, until one is observed
+  private static final FlowFootprint DEFAULT_BASELINE = new FlowFootprint(2 * 1024, 5);
+  // max fraction of the memory and CPU of an executor estimated for a single flow
+  private static final double MAX_SHARE = 0.5;
+
+  private final Map<String, FlowFootprint> footprints = new ConcurrentHashMap<>();
+  // usage of the executors when last seen running no flow, by executor id
+  private final Map<Integer, FlowFootprint> baselines = new ConcurrentHashMap<>();
+
+  private static String key(final ExecutableFlow flow) {
+    return flow.getProjectId() + "." + flow.getFlowId();
+  }
+
+  /**
+   * @return the estimated footprint of the flow, {@link FlowFootprint#NONE} if unknown
+   */
+  public FlowFootprint estimate(final ExecutableFlow flow) {
+    return this.footprints.getOrDefault(key(flow), FlowFootprint.NONE);
+  }
+
+  /**
+   * Records the statistics of an executor as usage of the flows running on it.
+   */
+  public void observe(final int executorId, final ExecutorInfo info,
+      final Collection<ExecutableFlow> runningFlows) {
+    if (info == null || info.getRemainingMemoryPercent() <= 0) {
+      return;
+    }
+    final double totalMemoryInMB =
+        info.getRemainingMemoryInMB() * 100 / info.getRemainingMemoryPercent();
+    final double usedMemoryInMB = totalMemoryInMB - info.getRemainingMemoryInMB();
+    if (runningFlows.isEmpty()) {
+      this.baselines.put(executorId, new FlowFootprint((long) usedMemoryInMB, info.getCpuUsage()));
+      return;
+    }
+    final FlowFootprint baseline = this.baselines.getOrDefault(executorId, DEFAULT_BASELINE);
+    final long memoryShare = (long) Math.min(
+        Math.max(0, usedMemoryInMB - baseline.getMemoryInMB()) / runningFlows.size(),
+        totalMemoryInMB * MAX_SHARE);
+    final double cpuShare = Math.min(
+        Math.max(0, info.getCpuUsage() - baseline.getCpuUsage()) / runningFlows.size(),
+        100 * MAX_SHARE);
+
+    for (final ExecutableFlow flow : runningFlows) {
+      this.footprints.merge(key(flow), new FlowFootprint(memoryShare, cpuShare),
+          (previous, observed) -> new FlowFootprint(
+              Math.max(observed.getMemoryInMB(), (long) (previous.getMemoryInMB() * DECAY)),
+              Math.max(observed.getCpuUsage(), previous.getCpuUsage() * DECAY)));
+    }
+  }
+}
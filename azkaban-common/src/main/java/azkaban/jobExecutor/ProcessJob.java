@@ -274,6 +274,11 @@ public class ProcessJob extends AbstractProcessJob {
                 .setEnv(envVars).setWorkingDir(getCwd()).setLogger(getLog());
       }
 
+      if (this.getJobProps().getBoolean(JobProperties.JOB_LOG_RAW_OUTPUT, false)
+          && this.getJobProps().containsKey(CommonJobProperties.JOB_LOG_FILE)) {
+        builder.setLogFile(new File(this.getJobProps().get(CommonJobProperties.JOB_LOG_FILE)));
+      }
+
       if (builder.getEnv().size() > 0) {
         info("Environment variables: " + builder.getEnv());
       }
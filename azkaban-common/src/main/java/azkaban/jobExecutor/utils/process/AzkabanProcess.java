@@ -20,9 +20,8 @@ import azkaban.utils.LogGobbler;
 import com.google.common.base.Joiner;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.lang.reflect.Field;
-import java.nio.charset.StandardCharsets;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
@@ -34,7 +33,8 @@ import org.apache.log4j.Logger;
 /**
  * An improved version of java.lang.Process.
  *
- * Output is read by separate threads to avoid deadlock and logged to log4j loggers.
+ * Output is read by separate threads to avoid deadlock and logged to log4j loggers, or appended
+ * as is to a log file if one is set.
  */
 public class AzkabanProcess {
 
@@ -53,6 +53,7 @@ public class AzkabanProcess {
   private boolean isExecuteAsUser = false;
   private String executeAsUserBinary = null;
   private String effectiveUser = null;
+  private File logFile = null;
 
   public AzkabanProcess(final List<String> cmd, final Map<String, String> env,
       final String workingDir, final Logger logger) {
@@ -97,30 +98,27 @@ public class AzkabanProcess {
 
       this.startupLatch.countDown();
 
-      final LogGobbler outputGobbler =
-          new LogGobbler(
-              new InputStreamReader(this.process.getInputStream(), StandardCharsets.UTF_8),
-              this.logger, Level.INFO, 30);
-      final LogGobbler errorGobbler =
-          new LogGobbler(
-              new InputStreamReader(this.process.getErrorStream(), StandardCharsets.UTF_8),
-              this.logger, Level.ERROR, 30);
-
-      outputGobbler.start();
-      errorGobbler.start();
-      int exitCode = -1;
+      final WritableByteChannel logChannel = openLogChannel();
+      final int exitCode;
       try {
-        exitCode = this.process.waitFor();
-      } catch (final InterruptedException e) {
-        this.logger.info("Process interrupted. Exit code is " + exitCode, e);
+        final LogGobbler outputGobbler = new LogGobbler(this.process.getInputStream(),
+            logChannel, this.logger, Level.INFO, 30);
+        final LogGobbler errorGobbler = new LogGobbler(this.process.getErrorStream(),
+            logChannel, this.logger, Level.ERROR, 30);
+
+        outputGobbler.start();
+        errorGobbler.start();
+        exitCode = waitForExit();
+
+        this.completeLatch.countDown();
+
+        // try to wait for everything to get logged out before exiting
+        outputGobbler.awaitCompletion(5000);
+        errorGobbler.awaitCompletion(5000);
+      } finally {
+        IOUtils.closeQuietly(logChannel);
       }
 
-      this.completeLatch.countDown();
-
-      // try to wait for everything to get logged out before exiting
-      outputGobbler.awaitCompletion(5000);
-      errorGobbler.awaitCompletion(5000);
-
       if (exitCode != 0) {
         throw new ProcessFailureException(exitCode);
       }
@@ -132,6 +130,39 @@ public class AzkabanProcess {
     }
   }
 
+  private int waitForExit() {
+    int exitCode = -1;
+    try {
+      exitCode = this.process.waitFor();
+    } catch (final InterruptedException e) {
+      this.logger.info("Process interrupted. Exit code is " + exitCode, e);
+    }
+    return exitCode;
+  }
+
+  /**
+   * @return channel appending to the log file, or null to log the output to the logger
+   */
+  private WritableByteChannel openLogChannel() {
+    if (this.logFile == null) {
+      return null;
+    }
+    try {
+      return new LogFileChannel(this.logFile);
+    } catch (final IOException e) {
+      this.logger.warn("Could not open " + this.logFile + ", logging the output instead.", e);
+      return null;
+    }
+  }
+
+  /**
+   * Append the output of the process as is to the file, instead of logging each line to the
+   * logger. The file is reopened when it is rolled over.
+   */
+  void setLogFile(final File logFile) {
+    this.logFile = logFile;
+  }
+
   /**
    * Await the completion of this process
    *
@@ -36,6 +36,7 @@ public class AzkabanProcessBuilder {
   private boolean isExecuteAsUser = false;
   private String executeAsUserBinaryPath = null;
   private String effectiveUser = null;
+  private File logFile = null;
 
   private int stdErrSnippetSize = 30;
   private int stdOutSnippetSize = 30;
@@ -101,13 +102,24 @@ public class AzkabanProcessBuilder {
     return this;
   }
 
+  /**
+   * Append the output of the process as is to the file, instead of logging each line.
+   */
+  public AzkabanProcessBuilder setLogFile(final File logFile) {
+    this.logFile = logFile;
+    return this;
+  }
+
   public AzkabanProcess build() {
+    final AzkabanProcess process;
     if (this.isExecuteAsUser) {
-      return new AzkabanProcess(this.cmd, this.env, this.workingDir, this.logger,
+      process = new AzkabanProcess(this.cmd, this.env, this.workingDir, this.logger,
           this.executeAsUserBinaryPath, this.effectiveUser);
     } else {
-      return new AzkabanProcess(this.cmd, this.env, this.workingDir, this.logger);
+      process = new AzkabanProcess(this.cmd, this.env, this.workingDir, this.logger);
     }
+    process.setLogFile(this.logFile);
+    return process;
   }
 
   public List<String> getCommand() {
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.jobExecutor.utils.process;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Appends to a log file which the log4j rolling appender of the job log rolls over meanwhile.
+ * Before each write, the file is reopened if its path no longer leads to the file being written,
+ * so that the output goes to the current log file rather than to a backup.
+ *
+ * <p>Where the file system has no file keys, a roll over can't be detected and the file isn't
+ * reopened.
+ */
+class LogFileChannel implements WritableByteChannel {
+
+  private final Path path;
+  private FileChannel channel;
+  private Object fileKey;
+
+  LogFileChannel(final File file) throws IOException {
+    this.path = file.toPath();
+    open();
+  }
+
+  private void open() throws IOException {
+    this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    this.fileKey = Files.readAttributes(this.path, BasicFileAttributes.class).fileKey();
+  }
+
+  private boolean isRolledOver() throws IOException {
+    try {
+      final Object currentKey = Files.readAttributes(this.path, BasicFileAttributes.class)
+          .fileKey();
+      return currentKey != null && !currentKey.equals(this.fileKey);
+    } catch (final NoSuchFileException e) {
+      // Renamed to a backup, and the new file not created yet
+      return true;
+    }
+  }
+
+  @Override
+  public synchronized int write(final ByteBuffer src) throws IOException {
+    if (isRolledOver()) {
+      this.channel.close();
+      open();
+    }
+    return this.channel.write(src);
+  }
+
+  @Override
+  public synchronized boolean isOpen() {
+    return this.channel.isOpen();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    this.channel.close();
+  }
+}
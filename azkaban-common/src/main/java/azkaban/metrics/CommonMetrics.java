@@ -39,6 +39,12 @@ public class CommonMetrics {
   public static final String SUBMIT_FLOW_SKIP_METER_NAME = "submit-flow-skip-meter";
   public static final String OOM_WAITING_JOB_COUNT_NAME = "OOM-waiting-job-count";
   public static final String QUEUE_WAIT_HISTOGRAM_NAME = "queue-wait-histogram";
+  public static final String TENANT_QUEUE_WAIT_HISTOGRAM_PREFIX = "tenant-queue-wait-histogram.";
+  public static final String DISPATCH_LATENCY_HISTOGRAM_NAME = "dispatch-latency-histogram";
+  public static final String DISPATCH_IN_FLIGHT_COUNT_NAME = "dispatch-in-flight-count";
+  public static final String TRIGGER_FIRING_LAG_HISTOGRAM_NAME = "trigger-firing-lag-histogram";
+  public static final String EXECUTION_UPDATE_CYCLE_HISTOGRAM_NAME =
+      "execution-update-cycle-histogram";
 
   private Counter OOMWaitingJobCount;
   private final MetricsManager metricsManager;
@@ -51,6 +57,10 @@ public class CommonMetrics {
   private Meter submitFlowFailMeter;
   private Meter submitFlowSkipMeter;
   private Histogram queueWaitMeter;
+  private Histogram dispatchLatencyMeter;
+  private Counter dispatchInFlightCount;
+  private Histogram triggerFiringLagMeter;
+  private Histogram executionUpdateCycleMeter;
 
   @Inject
   public CommonMetrics(final MetricsManager metricsManager) {
@@ -69,6 +79,12 @@ public class CommonMetrics {
     this.submitFlowSkipMeter = this.metricsManager.addMeter(SUBMIT_FLOW_SKIP_METER_NAME);
     this.OOMWaitingJobCount = this.metricsManager.addCounter(OOM_WAITING_JOB_COUNT_NAME);
     this.queueWaitMeter = this.metricsManager.addHistogram(QUEUE_WAIT_HISTOGRAM_NAME);
+    this.dispatchLatencyMeter = this.metricsManager.addHistogram(DISPATCH_LATENCY_HISTOGRAM_NAME);
+    this.dispatchInFlightCount = this.metricsManager.addCounter(DISPATCH_IN_FLIGHT_COUNT_NAME);
+    this.triggerFiringLagMeter = this.metricsManager
+        .addHistogram(TRIGGER_FIRING_LAG_HISTOGRAM_NAME);
+    this.executionUpdateCycleMeter = this.metricsManager
+        .addHistogram(EXECUTION_UPDATE_CYCLE_HISTOGRAM_NAME);
   }
 
   /**
@@ -150,4 +166,55 @@ public class CommonMetrics {
   public void addQueueWait(final long time) {
     this.queueWaitMeter.update(time);
   }
+
+  /**
+   * Add the time a flow of a tenant of the web server's queue waited to be taken from the queue.
+   *
+   * @param tenant project or user the queue is shared between
+   * @param time queue wait time in milliseconds.
+   */
+  public void addTenantQueueWait(final String tenant, final long time) {
+    this.metricsManager.addHistogram(TENANT_QUEUE_WAIT_HISTOGRAM_PREFIX + tenant).update(time);
+  }
+
+  /**
+   * Add the time an executor took to accept a dispatched flow to the metrics.
+   *
+   * @param time dispatch call latency in milliseconds.
+   */
+  public void addDispatchLatency(final long time) {
+    this.dispatchLatencyMeter.update(time);
+  }
+
+  /**
+   * Mark the start of a dispatch call to an executor
+   */
+  public void incrementInFlightDispatchCount() {
+    this.dispatchInFlightCount.inc();
+  }
+
+  /**
+   * Mark the end of a dispatch call to an executor
+   */
+  public void decrementInFlightDispatchCount() {
+    this.dispatchInFlightCount.dec();
+  }
+
+  /**
+   * Add the time between when a trigger was due and when its actions started to the metrics.
+   *
+   * @param time trigger firing lag in milliseconds.
+   */
+  public void addTriggerFiringLag(final long time) {
+    this.triggerFiringLagMeter.update(time);
+  }
+
+  /**
+   * Add the time a round of updating all running executions took to the metrics.
+   *
+   * @param time update cycle time in milliseconds.
+   */
+  public void addExecutionUpdateCycleTime(final long time) {
+    this.executionUpdateCycleMeter.update(time);
+  }
 }
@@ -29,7 +29,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.apache.commons.dbutils.ResultSetHandler;
 
 
@@ -280,6 +282,22 @@ class JdbcProjectHandlerSet {
     }
   }
 
+  public static class ProjectFileChunkSizeResultHandler implements
+      ResultSetHandler<Map<Integer, Integer>> {
+
+    public static String SELECT_PROJECT_CHUNK_SIZES =
+        "SELECT chunk, size FROM project_files WHERE project_id=? AND version=?";
+
+    @Override
+    public Map<Integer, Integer> handle(final ResultSet rs) throws SQLException {
+      final Map<Integer, Integer> chunkSizes = new HashMap<>();
+      while (rs.next()) {
+        chunkSizes.put(rs.getInt(1), rs.getInt(2));
+      }
+      return chunkSizes;
+    }
+  }
+
   public static class ProjectVersionResultHandler implements
       ResultSetHandler<List<ProjectFileHandler>> {
 
@@ -17,6 +17,7 @@ package azkaban.project;
 
 import static azkaban.project.JdbcProjectHandlerSet.IntHandler;
 import static azkaban.project.JdbcProjectHandlerSet.ProjectFileChunkResultHandler;
+import static azkaban.project.JdbcProjectHandlerSet.ProjectFileChunkSizeResultHandler;
 import static azkaban.project.JdbcProjectHandlerSet.ProjectFlowsResultHandler;
 import static azkaban.project.JdbcProjectHandlerSet.ProjectLogsResultHandler;
 import static azkaban.project.JdbcProjectHandlerSet.ProjectPermissionsResultHandler;
@@ -42,18 +43,33 @@ import azkaban.utils.Props;
 import azkaban.utils.PropsUtils;
 import azkaban.utils.Triple;
 import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.sql.SQLException;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -77,12 +93,20 @@ public class JdbcProjectImpl implements ProjectLoader {
   private final DatabaseOperator dbOperator;
   private final File tempDir;
   private final EncodingType defaultEncodingType = EncodingType.GZIP;
+  private final int chunkSize;
+  private final int maxChunksInFlight;
+  private final ExecutorService chunkIoExecutor;
 
   @Inject
   public JdbcProjectImpl(final Props props, final DatabaseOperator databaseOperator) {
 
     this.dbOperator = databaseOperator;
     this.tempDir = new File(props.getString("project.temp.dir", "temp"));
+    this.chunkSize = props.getInt(ConfigurationKeys.PROJECT_FILE_CHUNK_SIZE, CHUCK_SIZE);
+    this.maxChunksInFlight = props.getInt(ConfigurationKeys.PROJECT_FILE_CHUNK_IO_THREADS, 4);
+    this.chunkIoExecutor = Executors.newFixedThreadPool(this.maxChunksInFlight,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azk-project-chunk-io-%d")
+            .build());
     if (!this.tempDir.exists()) {
       if (this.tempDir.mkdirs()) {
         logger.info("project temporary folder is being constructed.");
@@ -242,6 +266,13 @@ public class JdbcProjectImpl implements ProjectLoader {
     return fetchProjectByName(name);
   }
 
+  /**
+   * Uploads the file in chunks which are written to the DB in parallel. Each chunk is committed on
+   * its own, so an interrupted upload of a version can be resumed by uploading the same file to
+   * that version again: only the missing chunks are written then. The MD5 hash of the file is
+   * stored before any chunk is written, and the chunks of an interrupted upload are only kept if
+   * it matches the file uploaded again.
+   */
   @Override
   public void uploadProjectFile(final int projectId, final int version, final File localFile,
       final String uploader)
@@ -251,53 +282,103 @@ public class JdbcProjectImpl implements ProjectLoader {
         .format("Uploading Project ID: %d file: %s [%d bytes]", projectId, localFile.getName(),
             localFile.length()));
 
-    /*
-     * The below transaction uses one connection to do all operations. Ideally, we should commit
-     * after the transaction completes. However, uploadFile needs to commit every time when we
-     * upload any single chunk.
-     *
-     * Todo kunkun-tang: fix the transaction issue.
-     */
-    final SQLTransaction<Integer> uploadProjectFileTransaction = transOperator -> {
-
-      /* Step 1: Update DB with new project info */
-      addProjectToProjectVersions(transOperator, projectId, version, localFile, uploader,
-          computeHash(localFile), null);
-      transOperator.getConnection().commit();
-
-      /* Step 2: Upload File in chunks to DB */
-      final int chunks = uploadFileInChunks(transOperator, projectId, version, localFile);
-
-      /* Step 3: Update number of chunks in DB */
-      updateChunksInProjectVersions(transOperator, projectId, version, chunks);
-      return 1;
-    };
-
+    final byte[] md5;
     try {
-      this.dbOperator.transaction(uploadProjectFileTransaction);
-    } catch (final SQLException e) {
-      logger.error("upload project files failed.", e);
-      throw new ProjectManagerException("upload project files failed.", e);
+      md5 = Md5Hasher.md5Hash(localFile);
+    } catch (final IOException e) {
+      throw new ProjectManagerException("Error getting md5 hash.", e);
     }
 
+    /* Step 1: Update DB with new project info, or find the chunks of an interrupted upload */
+    final Set<Integer> committedChunks;
+    final ProjectFileHandler existingVersion = fetchProjectMetaData(projectId, version);
+    if (existingVersion == null) {
+      addProjectVersion(projectId, version, localFile, uploader, md5, null);
+      committedChunks = Collections.emptySet();
+    } else if (isInterruptedUpload(existingVersion, localFile)) {
+      if (Arrays.equals(md5, existingVersion.getMd5Hash())) {
+        committedChunks = fetchCommittedChunks(projectId, version, localFile.length());
+        logger.info(String.format("Resuming upload of Project ID: %d version: %d with %d chunks "
+            + "already uploaded", projectId, version, committedChunks.size()));
+      } else {
+        // Another file was being uploaded, none of its chunks can be kept
+        logger.info(String.format("Restarting interrupted upload of Project ID: %d version: %d "
+            + "as the file differs", projectId, version));
+        deleteChunks(projectId, version);
+        updateChunksInProjectVersions(projectId, version, 0, md5);
+        committedChunks = Collections.emptySet();
+      }
+    } else {
+      throw new ProjectManagerException(String.format(
+          "Version %d of project id %d has already been uploaded", version, projectId));
+    }
+
+    /* Step 2: Upload File in chunks to DB */
+    final MessageDigest digest = Md5Hasher.getMd5Digest();
+    final int chunks = uploadFileInChunks(projectId, version, localFile, committedChunks, digest);
+
+    /* Step 3: Update number of chunks in DB, which completes the upload */
+    if (!Arrays.equals(md5, digest.digest())) {
+      throw new ProjectManagerException(String.format(
+          "File %s changed while being uploaded", localFile.getName()));
+    }
+    updateChunksInProjectVersions(projectId, version, chunks, md5);
+
     final long duration = (System.currentTimeMillis() - startMs) / 1000;
     logger.info(String.format("Uploaded Project ID: %d file: %s [%d bytes] in %d sec", projectId,
         localFile.getName(),
         localFile.length(), duration));
   }
 
+  /**
+   * A version whose number of chunks was never set is an upload which didn't complete.
+   */
+  private static boolean isInterruptedUpload(final ProjectFileHandler projectVersion,
+      final File localFile) {
+    return projectVersion.getNumChunks() == 0 && projectVersion.getResourceId() == null
+        && localFile.getName().equals(projectVersion.getFileName());
+  }
 
-  private byte[] computeHash(final File localFile) {
-    logger.info("Creating message digest for upload " + localFile.getName());
-    final byte[] md5;
+  /**
+   * Returns the chunks of an interrupted upload which can be kept. Chunks whose size doesn't match
+   * the file being uploaded are deleted.
+   */
+  private Set<Integer> fetchCommittedChunks(final int projectId, final int version,
+      final long fileSize) throws ProjectManagerException {
+    final String DELETE_PROJECT_FILE_CHUNK =
+        "DELETE FROM project_files WHERE project_id=? AND version=? AND chunk=?";
     try {
-      md5 = Md5Hasher.md5Hash(localFile);
-    } catch (final IOException e) {
-      throw new ProjectManagerException("Error getting md5 hash.", e);
+      final Map<Integer, Integer> chunkSizes = this.dbOperator.query(
+          ProjectFileChunkSizeResultHandler.SELECT_PROJECT_CHUNK_SIZES,
+          new ProjectFileChunkSizeResultHandler(), projectId, version);
+      final Set<Integer> committedChunks = new HashSet<>();
+      for (final Map.Entry<Integer, Integer> chunkSize : chunkSizes.entrySet()) {
+        final long expectedSize =
+            Math.min(this.chunkSize, fileSize - (long) chunkSize.getKey() * this.chunkSize);
+        if (chunkSize.getValue() == expectedSize) {
+          committedChunks.add(chunkSize.getKey());
+        } else {
+          this.dbOperator.update(DELETE_PROJECT_FILE_CHUNK, projectId, version,
+              chunkSize.getKey());
+        }
+      }
+      return committedChunks;
+    } catch (final SQLException e) {
+      throw new ProjectManagerException(String.format(
+          "Error fetching uploaded chunks of project id: %d version: %d", projectId, version), e);
     }
+  }
 
-    logger.info("Md5 hash created");
-    return md5;
+  private void deleteChunks(final int projectId, final int version)
+      throws ProjectManagerException {
+    final String DELETE_PROJECT_FILES =
+        "DELETE FROM project_files WHERE project_id=? AND version=?";
+    try {
+      this.dbOperator.update(DELETE_PROJECT_FILES, projectId, version);
+    } catch (final SQLException e) {
+      throw new ProjectManagerException(String.format(
+          "Error deleting uploaded chunks of project id: %d version: %d", projectId, version), e);
+    }
   }
 
   @Override
@@ -369,69 +450,87 @@ public class JdbcProjectImpl implements ProjectLoader {
     }
   }
 
-  private int uploadFileInChunks(final DatabaseTransOperator transOperator, final int projectId,
-      final int version, final File localFile)
+  /**
+   * Reads the file chunk by chunk, updating the digest, and writes the chunks which are not
+   * committed yet to the DB, at most {@link #maxChunksInFlight} at a time.
+   *
+   * @return the number of chunks of the file
+   */
+  private int uploadFileInChunks(final int projectId, final int version, final File localFile,
+      final Set<Integer> committedChunks, final MessageDigest digest)
       throws ProjectManagerException {
-
-    // Really... I doubt we'll get a > 2gig file. So int casting it is!
-    final byte[] buffer = new byte[CHUCK_SIZE];
     final String INSERT_PROJECT_FILES =
         "INSERT INTO project_files (project_id, version, chunk, size, file) values (?,?,?,?,?)";
 
-    BufferedInputStream bufferedStream = null;
+    final Deque<Future<?>> pendingChunks = new ArrayDeque<>();
     int chunk = 0;
-    try {
-      bufferedStream = new BufferedInputStream(new FileInputStream(localFile));
-      int size = bufferedStream.read(buffer);
-      while (size >= 0) {
-        logger.info("Read bytes for " + localFile.getName() + " size:" + size);
-        byte[] buf = buffer;
-        if (size < buffer.length) {
-          buf = Arrays.copyOfRange(buffer, 0, size);
-        }
-        try {
-          logger.info("Running update for " + localFile.getName() + " chunk " + chunk);
-          transOperator.update(INSERT_PROJECT_FILES, projectId, version, chunk, size, buf);
-
-          /*
-           * We enforce az committing to db when uploading every single chunk,
-           * in order to reduce the transaction duration and conserve sql server resources.
-           *
-           * If the files to be uploaded is very large and we don't commit every single chunk,
-           * the remote mysql server will run into memory troubles.
-           */
-          transOperator.getConnection().commit();
-          logger.info("Finished update for " + localFile.getName() + " chunk " + chunk);
-        } catch (final SQLException e) {
-          throw new ProjectManagerException("Error Chunking during uploading files to db...");
+    try (InputStream inputStream = new DigestInputStream(
+        new BufferedInputStream(new FileInputStream(localFile)), digest)) {
+      byte[] buffer = new byte[this.chunkSize];
+      int size = IOUtils.read(inputStream, buffer);
+      while (size > 0) {
+        if (!committedChunks.contains(chunk)) {
+          final int chunkNum = chunk;
+          final int chunkLength = size;
+          final byte[] data = size < buffer.length ? Arrays.copyOfRange(buffer, 0, size) : buffer;
+          if (pendingChunks.size() >= this.maxChunksInFlight) {
+            awaitChunk(pendingChunks.poll());
+          }
+          pendingChunks.add(this.chunkIoExecutor.submit(() -> {
+            logger.info("Running update for " + localFile.getName() + " chunk " + chunkNum);
+            this.dbOperator
+                .update(INSERT_PROJECT_FILES, projectId, version, chunkNum, chunkLength, data);
+            logger.info("Finished update for " + localFile.getName() + " chunk " + chunkNum);
+            return null;
+          }));
+          // the buffer is owned by the pending chunk now
+          buffer = new byte[this.chunkSize];
         }
         ++chunk;
-        size = bufferedStream.read(buffer);
+        size = IOUtils.read(inputStream, buffer);
+      }
+
+      while (!pendingChunks.isEmpty()) {
+        awaitChunk(pendingChunks.poll());
       }
     } catch (final IOException e) {
       throw new ProjectManagerException(
           String.format(
               "Error chunking file. projectId: %d, version: %d, file:%s[%d bytes], chunk: %d",
               projectId,
-              version, localFile.getName(), localFile.length(), chunk));
+              version, localFile.getName(), localFile.length(), chunk), e);
     } finally {
-      IOUtils.closeQuietly(bufferedStream);
+      for (final Future<?> pendingChunk : pendingChunks) {
+        pendingChunk.cancel(true);
+      }
     }
     return chunk;
   }
 
+  private static <T> T awaitChunk(final Future<T> chunk) throws ProjectManagerException {
+    try {
+      return chunk.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ProjectManagerException("Interrupted while transferring project file chunks", e);
+    } catch (final ExecutionException e) {
+      throw new ProjectManagerException("Error transferring project file chunk to/from db",
+          e.getCause());
+    }
+  }
+
   /**
-   * we update num_chunks's actual number to db here.
+   * we update num_chunks's actual number and the md5 to db here, which completes the upload
+   * unless the number is 0.
    */
-  private void updateChunksInProjectVersions(final DatabaseTransOperator transOperator,
-      final int projectId, final int version, final int chunk)
+  private void updateChunksInProjectVersions(final int projectId, final int version,
+      final int chunk, final byte[] md5)
       throws ProjectManagerException {
 
     final String UPDATE_PROJECT_NUM_CHUNKS =
-        "UPDATE project_versions SET num_chunks=? WHERE project_id=? AND version=?";
+        "UPDATE project_versions SET num_chunks=?, md5=? WHERE project_id=? AND version=?";
     try {
-      transOperator.update(UPDATE_PROJECT_NUM_CHUNKS, chunk, projectId, version);
-      transOperator.getConnection().commit();
+      this.dbOperator.update(UPDATE_PROJECT_NUM_CHUNKS, chunk, md5, projectId, version);
     } catch (final SQLException e) {
       logger.error("Error updating project " + projectId + " : chunk_num " + chunk, e);
       throw new ProjectManagerException(
@@ -473,58 +572,46 @@ public class JdbcProjectImpl implements ProjectLoader {
               + "%s", numChunks, version, projectId,
           ConfigurationKeys.PROJECT_VERSION_RETENTION));
     }
-    BufferedOutputStream bStream = null;
-    File file;
+    final File file;
     try {
-      try {
-        file = File
-            .createTempFile(projHandler.getFileName(), String.valueOf(version), this.tempDir);
-        bStream = new BufferedOutputStream(new FileOutputStream(file));
-      } catch (final IOException e) {
-        throw new ProjectManagerException("Error creating temp file for stream.");
-      }
+      file = File
+          .createTempFile(projHandler.getFileName(), String.valueOf(version), this.tempDir);
+    } catch (final IOException e) {
+      throw new ProjectManagerException("Error creating temp file for stream.");
+    }
 
-      final int collect = 5;
-      int fromChunk = 0;
-      int toChunk = collect;
-      do {
-        final ProjectFileChunkResultHandler chunkHandler = new ProjectFileChunkResultHandler();
-        List<byte[]> data = null;
-        try {
-          data = this.dbOperator
-              .query(ProjectFileChunkResultHandler.SELECT_PROJECT_CHUNKS_FILE, chunkHandler,
-                  projectId,
-                  version, fromChunk, toChunk);
-        } catch (final SQLException e) {
-          logger.error(e);
-          throw new ProjectManagerException("Query for uploaded file for " + projectId + " failed.",
-              e);
+    // Chunks are fetched in parallel, and written in order while computing the md5.
+    final MessageDigest digest = Md5Hasher.getMd5Digest();
+    final Deque<Future<List<byte[]>>> pendingChunks = new ArrayDeque<>();
+    try (OutputStream outputStream = new DigestOutputStream(
+        new BufferedOutputStream(new FileOutputStream(file)), digest)) {
+      int nextChunk = 0;
+      int chunk = 0;
+      while (chunk < numChunks) {
+        while (nextChunk < numChunks && pendingChunks.size() < this.maxChunksInFlight) {
+          pendingChunks.add(fetchChunk(projectId, version, nextChunk++));
         }
 
-        try {
-          for (final byte[] d : data) {
-            bStream.write(d);
-          }
-        } catch (final IOException e) {
-          throw new ProjectManagerException("Error writing file", e);
+        final List<byte[]> data = awaitChunk(pendingChunks.poll());
+        if (data.isEmpty()) {
+          throw new ProjectManagerException(String.format(
+              "Chunk %d of project %s version %s is missing", chunk, projectId, version));
         }
-
-        // Add all the bytes to the stream.
-        fromChunk += collect;
-        toChunk += collect;
-      } while (fromChunk <= numChunks);
+        for (final byte[] d : data) {
+          outputStream.write(d);
+        }
+        chunk++;
+      }
+    } catch (final IOException e) {
+      throw new ProjectManagerException("Error writing file", e);
     } finally {
-      IOUtils.closeQuietly(bStream);
+      for (final Future<?> pendingChunk : pendingChunks) {
+        pendingChunk.cancel(true);
+      }
     }
 
     // Check md5.
-    final byte[] md5;
-    try {
-      md5 = Md5Hasher.md5Hash(file);
-    } catch (final IOException e) {
-      throw new ProjectManagerException("Error getting md5 hash.", e);
-    }
-
+    final byte[] md5 = digest.digest();
     if (Arrays.equals(projHandler.getMd5Hash(), md5)) {
       logger.info("Md5 Hash is valid");
     } else {
@@ -539,6 +626,21 @@ public class JdbcProjectImpl implements ProjectLoader {
     return projHandler;
   }
 
+  private Future<List<byte[]>> fetchChunk(final int projectId, final int version,
+      final int chunk) {
+    return this.chunkIoExecutor.submit(() -> {
+      try {
+        return this.dbOperator
+            .query(ProjectFileChunkResultHandler.SELECT_PROJECT_CHUNKS_FILE,
+                new ProjectFileChunkResultHandler(), projectId, version, chunk, chunk + 1);
+      } catch (final SQLException e) {
+        logger.error(e);
+        throw new ProjectManagerException("Query for uploaded file for " + projectId + " failed.",
+            e);
+      }
+    });
+  }
+
   @Override
   public void changeProjectVersion(final Project project, final int version, final String user)
       throws ProjectManagerException {
@@ -55,6 +55,7 @@ public class ProjectManager {
   private static final Logger logger = LoggerFactory.getLogger(ProjectManager.class);
   private final AzkabanProjectLoader azkabanProjectLoader;
   private final ProjectLoader projectLoader;
+  private final StorageManager storageManager;
   private final Props props;
   private final boolean creatorDefaultPermissions;
   // Both projectsById and projectsByName cache need to be thread safe since they are accessed
@@ -71,6 +72,7 @@ public class ProjectManager {
       final StorageManager storageManager,
       final Props props) {
     this.projectLoader = requireNonNull(loader);
+    this.storageManager = requireNonNull(storageManager);
     this.props = requireNonNull(props);
     this.azkabanProjectLoader = requireNonNull(azkabanProjectLoader);
 
@@ -335,6 +337,9 @@ public class ProjectManager {
     this.projectsByName.remove(project.getName());
     this.projectsById.remove(project.getId());
 
+    // Clean up storage
+    this.storageManager.cleanupAllProjectArtifacts(project.getId());
+
     return project;
   }
 
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.storage;
+
+import static java.util.Objects.requireNonNull;
+
+import azkaban.utils.JSONUtils;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lists the files of a project version stored in content-addressed mode. Every file is stored
+ * once per project as a blob keyed by its md5 hash, so versions share the blobs of the files they
+ * have in common.
+ */
+public class ProjectManifest {
+
+  // File type of project versions stored as a manifest
+  public static final String FILE_TYPE = "manifest";
+
+  private static final String FILES = "files";
+  private static final String PATH = "path";
+  private static final String MD5 = "md5";
+  private static final String SIZE = "size";
+  private static final String KEY = "key";
+
+  // Entries by path
+  private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+  public static ProjectManifest fromJson(final InputStream inputStream) throws IOException {
+    final Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+    final Map<String, Object> json = (Map<String, Object>) JSONUtils.parseJSONFromReader(reader);
+    final ProjectManifest manifest = new ProjectManifest();
+    for (final Object file : (List<Object>) json.get(FILES)) {
+      final Map<String, Object> entry = (Map<String, Object>) file;
+      manifest.addEntry(new Entry((String) entry.get(PATH), (String) entry.get(MD5),
+          JSONUtils.getLongFromObject(entry.get(SIZE)), (String) entry.get(KEY)));
+    }
+    return manifest;
+  }
+
+  public void addEntry(final Entry entry) {
+    this.entries.put(entry.getPath(), entry);
+  }
+
+  public Collection<Entry> getEntries() {
+    return Collections.unmodifiableCollection(this.entries.values());
+  }
+
+  /**
+   * @return the storage keys of the blobs by md5 hash
+   */
+  public Map<String, String> getKeysByMd5() {
+    final Map<String, String> keys = new HashMap<>();
+    for (final Entry entry : this.entries.values()) {
+      keys.put(entry.getMd5(), entry.getKey());
+    }
+    return keys;
+  }
+
+  public void toJson(final File file) throws IOException {
+    final List<Object> files = new ArrayList<>();
+    for (final Entry entry : this.entries.values()) {
+      final Map<String, Object> json = new HashMap<>();
+      json.put(PATH, entry.getPath());
+      json.put(MD5, entry.getMd5());
+      json.put(SIZE, entry.getSize());
+      json.put(KEY, entry.getKey());
+      files.add(json);
+    }
+    JSONUtils.toJSON(Collections.singletonMap(FILES, files), file);
+  }
+
+  /**
+   * A file of the project version.
+   */
+  public static class Entry {
+
+    // Path of the file relative to the project dir, separated by '/'
+    private final String path;
+    // Hex encoded md5 hash of the file content
+    private final String md5;
+    private final long size;
+    // Key of the blob in storage
+    private final String key;
+
+    public Entry(final String path, final String md5, final long size, final String key) {
+      this.path = requireNonNull(path, "path is null");
+      this.md5 = requireNonNull(md5, "md5 is null");
+      this.size = size;
+      this.key = requireNonNull(key, "key is null");
+    }
+
+    public String getPath() {
+      return this.path;
+    }
+
+    public String getMd5() {
+      return this.md5;
+    }
+
+    public long getSize() {
+      return this.size;
+    }
+
+    public String getKey() {
+      return this.key;
+    }
+  }
+}
@@ -22,8 +22,11 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 import azkaban.db.DatabaseOperator;
 import azkaban.spi.Storage;
+import azkaban.utils.Pair;
 import azkaban.utils.Props;
 import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -47,7 +50,7 @@ public class StorageCleaner {
    * When using DatabaseStorage, resourceId is always NULL. Hence, those rows will currently be
    * never cleaned up.
    */
-  static final String SQL_FETCH_PVR = "SELECT resource_id FROM project_versions WHERE project_id=? AND resource_id IS NOT NULL ORDER BY version DESC";
+  static final String SQL_FETCH_PVR = "SELECT resource_id, file_type FROM project_versions WHERE project_id=? AND resource_id IS NOT NULL ORDER BY version DESC";
 
   private static final Logger log = Logger.getLogger(StorageCleaner.class);
   private final DatabaseOperator databaseOperator;
@@ -97,26 +100,98 @@ public class StorageCleaner {
     if (!isCleanupPermitted()) {
       return;
     }
-    final Set<String> allResourceIds = findResourceIdsToDelete(projectId);
-    if (allResourceIds.size() == 0) {
+    final List<Pair<String, String>> artifacts = fetchResourceIdOrderedList(projectId);
+    if (artifacts.size() <= this.maxArtifactsPerProject) {
       return;
     }
+    deleteArtifacts(projectId, artifacts, artifacts.subList(0, this.maxArtifactsPerProject));
+  }
 
-    log.warn(String.format("Deleting project artifacts [id: %d]: %s", projectId, allResourceIds));
-    allResourceIds.forEach(this::delete);
+  /**
+   * Remove all artifacts of a deleted project, including the blobs of its manifests. Like {@link
+   * #cleanupProjectArtifacts(int)}, this only happens if AZKABAN_STORAGE_ARTIFACT_MAX_RETENTION
+   * permits cleanups.
+   *
+   * @param projectId project ID
+   */
+  public void cleanupAllProjectArtifacts(final int projectId) {
+    if (!isCleanupPermitted()) {
+      return;
+    }
+    deleteArtifacts(projectId, fetchResourceIdOrderedList(projectId), Collections.emptyList());
   }
 
-  private Set<String> findResourceIdsToDelete(final int projectId) {
-    final List<String> resourceIdOrderedList = fetchResourceIdOrderedList(projectId);
-    if (resourceIdOrderedList.size() <= this.maxArtifactsPerProject) {
-      return Collections.emptySet();
+  /**
+   * Deletes the artifacts which aren't kept, mark and sweep style for the blobs of manifests: the
+   * blobs listed by the manifests being deleted are deleted, except for the ones which a kept
+   * manifest lists too. Blobs are only ever shared by the versions of the same project.
+   *
+   * The blobs of a manifest are deleted before the manifest, so that a failed cleanup leaves the
+   * manifest to find them again on the next attempt.
+   */
+  private void deleteArtifacts(final int projectId, final List<Pair<String, String>> artifacts,
+      final List<Pair<String, String>> keptArtifacts) {
+    final Set<String> keptKeys = new HashSet<>();
+    for (final Pair<String, String> artifact : keptArtifacts) {
+      keptKeys.add(artifact.getFirst());
+      if (isManifest(artifact)) {
+        final Set<String> blobKeys = fetchBlobKeys(artifact.getFirst());
+        if (blobKeys == null) {
+          // Without all blobs still in use, none can be deleted safely
+          log.error(String.format("Skipping cleanup of project artifacts [id: %d]", projectId));
+          return;
+        }
+        keptKeys.addAll(blobKeys);
+      }
+    }
+
+    final Set<String> resourceIds = new HashSet<>();
+    final Set<String> blobKeys = new HashSet<>();
+    for (final Pair<String, String> artifact : artifacts) {
+      if (keptKeys.contains(artifact.getFirst())) {
+        continue;
+      }
+      if (isManifest(artifact)) {
+        final Set<String> manifestBlobKeys = fetchBlobKeys(artifact.getFirst());
+        if (manifestBlobKeys == null) {
+          // Kept until its blobs can be found, so they don't leak
+          continue;
+        }
+        blobKeys.addAll(manifestBlobKeys);
+      }
+      resourceIds.add(artifact.getFirst());
+    }
+    blobKeys.removeAll(keptKeys);
+    blobKeys.removeAll(resourceIds);
+    if (resourceIds.isEmpty()) {
+      return;
     }
 
-    final Set<String> allResourceIds = new HashSet<>(resourceIdOrderedList);
-    final Set<String> doNotDeleteSet = new HashSet<>(
-        resourceIdOrderedList.subList(0, this.maxArtifactsPerProject));
-    allResourceIds.removeAll(doNotDeleteSet);
-    return allResourceIds;
+    log.warn(String.format("Deleting project artifacts [id: %d]: %s, blobs: %s", projectId,
+        resourceIds, blobKeys));
+    // A blob which is gone already reports a failed delete, which is only logged.
+    blobKeys.forEach(this.storage::delete);
+    resourceIds.forEach(this::delete);
+  }
+
+  private static boolean isManifest(final Pair<String, String> artifact) {
+    return ProjectManifest.FILE_TYPE.equals(artifact.getSecond());
+  }
+
+  /**
+   * @return the storage keys of the blobs listed by a manifest, null if it can't be read
+   */
+  private Set<String> fetchBlobKeys(final String manifestResourceId) {
+    try (InputStream is = this.storage.get(manifestResourceId)) {
+      final Set<String> keys = new HashSet<>();
+      for (final ProjectManifest.Entry entry : ProjectManifest.fromJson(is).getEntries()) {
+        keys.add(entry.getKey());
+      }
+      return keys;
+    } catch (final IOException | RuntimeException e) {
+      log.error("Error reading project manifest resource ID: " + manifestResourceId, e);
+      return null;
+    }
   }
 
   /**
@@ -146,13 +221,16 @@ public class StorageCleaner {
     return false;
   }
 
-  private List<String> fetchResourceIdOrderedList(final int projectId) {
+  /**
+   * @return the resource IDs and file types of the project versions, latest first
+   */
+  private List<Pair<String, String>> fetchResourceIdOrderedList(final int projectId) {
     try {
       return this.databaseOperator.query(SQL_FETCH_PVR,
           rs -> {
-            final List<String> results = new ArrayList<>();
+            final List<Pair<String, String>> results = new ArrayList<>();
             while (rs.next()) {
-              results.add(rs.getString(1));
+              results.add(new Pair<>(rs.getString(1), rs.getString(2)));
             }
             return results;
           }, projectId);
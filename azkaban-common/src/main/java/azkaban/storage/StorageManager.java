@@ -21,6 +21,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
 
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.project.Project;
 import azkaban.project.ProjectFileHandler;
 import azkaban.project.ProjectLoader;
@@ -28,16 +29,30 @@ import azkaban.spi.Storage;
 import azkaban.spi.StorageException;
 import azkaban.spi.StorageMetadata;
 import azkaban.user.User;
+import azkaban.utils.FileIOUtils;
 import azkaban.utils.Md5Hasher;
 import azkaban.utils.Props;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 
@@ -55,6 +70,8 @@ public class StorageManager {
   private final Storage storage;
   private final ProjectLoader projectLoader;
   private final File tempDir;
+  // If true, project versions are stored as a manifest of content-addressed blobs
+  private final boolean contentAddressed;
 
   @Inject
   public StorageManager(final Props props, final Storage storage,
@@ -64,6 +81,8 @@ public class StorageManager {
     this.storage = requireNonNull(storage, "storage is null");
     this.projectLoader = requireNonNull(projectLoader, "projectLoader is null");
     this.storageCleaner = requireNonNull(storageCleaner, "storageCleanUp is null");
+    this.contentAddressed = props
+        .getBoolean(ConfigurationKeys.AZKABAN_STORAGE_CONTENT_ADDRESSED, false);
 
     prepareTempDir();
   }
@@ -90,6 +109,12 @@ public class StorageManager {
       final int version,
       final File localFile,
       final User uploader) {
+    // Database storage only keeps whole project files
+    if (this.contentAddressed && !(this.storage instanceof DatabaseStorage)) {
+      uploadProjectManifest(project, version, localFile, uploader);
+      return;
+    }
+
     byte[] md5 = null;
     if (!(this.storage instanceof DatabaseStorage)) {
       md5 = computeHash(localFile);
@@ -121,6 +146,133 @@ public class StorageManager {
     }
   }
 
+  /**
+   * Stores the files of the project zip as content-addressed blobs, and the list of them as the
+   * manifest of the version. The files which the previous version of the project has too aren't
+   * uploaded again. Older versions aren't read, as storages key blobs by their hash: uploading a
+   * file which an older version has stores it under the key it already has.
+   */
+  private void uploadProjectManifest(
+      final Project project,
+      final int version,
+      final File localFile,
+      final User uploader) {
+    final Map<String, String> knownKeys = fetchKnownBlobKeys(project.getId(), version - 1);
+    final ProjectManifest manifest = new ProjectManifest();
+    int uploadedBlobs = 0;
+    File manifestDir = null;
+    try (ZipFile zip = new ZipFile(localFile)) {
+      final Enumeration<? extends ZipEntry> entries = zip.entries();
+      while (entries.hasMoreElements()) {
+        final ZipEntry entry = entries.nextElement();
+        if (entry.isDirectory()) {
+          continue;
+        }
+        final File blobFile = File.createTempFile("blob", null, this.tempDir);
+        try {
+          final MessageDigest digest = Md5Hasher.getMd5Digest();
+          try (InputStream is = zip.getInputStream(entry);
+              OutputStream os = new DigestOutputStream(
+                  new BufferedOutputStream(new FileOutputStream(blobFile)), digest)) {
+            IOUtils.copy(is, os);
+          }
+          final byte[] md5 = digest.digest();
+          final String md5Hex = Hex.encodeHexString(md5);
+          String key = knownKeys.get(md5Hex);
+          if (key == null) {
+            key = this.storage.put(
+                new StorageMetadata(project.getId(), version, uploader.getUserId(), md5),
+                blobFile);
+            knownKeys.put(md5Hex, key);
+            uploadedBlobs++;
+          }
+          manifest.addEntry(
+              new ProjectManifest.Entry(entry.getName(), md5Hex, blobFile.length(), key));
+        } finally {
+          blobFile.delete();
+        }
+      }
+
+      // The manifest is named after the project file, so it needs a dir of its own.
+      manifestDir = Files.createTempDirectory(this.tempDir.toPath(), "manifest").toFile();
+      final File manifestFile = new File(manifestDir,
+          localFile.getName() + "." + ProjectManifest.FILE_TYPE);
+      manifest.toJson(manifestFile);
+      final byte[] md5 = computeHash(manifestFile);
+      final StorageMetadata metadata = new StorageMetadata(
+          project.getId(),
+          version,
+          uploader.getUserId(),
+          md5);
+      final String resourceId = this.storage.put(metadata, manifestFile);
+      this.projectLoader.addProjectVersion(
+          project.getId(),
+          version,
+          manifestFile,
+          uploader.getUserId(),
+          md5,
+          requireNonNull(resourceId)
+      );
+      log.info(String.format("Added project manifest. Meta:%s File: %s[%d files, %d uploaded] "
+              + "URI: %s", metadata, localFile.getName(), manifest.getEntries().size(),
+          uploadedBlobs, resourceId));
+    } catch (final IOException e) {
+      throw new StorageException(e);
+    } finally {
+      FileIOUtils.deleteDirectorySilently(manifestDir);
+    }
+  }
+
+  /**
+   * @return the keys of the blobs of the given version by md5 hash, empty if the version isn't
+   * stored as a manifest
+   */
+  private Map<String, String> fetchKnownBlobKeys(final int projectId, final int version) {
+    if (version <= 0) {
+      return new HashMap<>();
+    }
+    try {
+      final ProjectManifest manifest = getProjectManifest(projectId, version);
+      return manifest == null ? new HashMap<>() : manifest.getKeysByMd5();
+    } catch (final StorageException e) {
+      log.warn(String.format("Error fetching manifest of project ID: %d version: %d. "
+          + "Uploading all files.", projectId, version), e);
+      return new HashMap<>();
+    }
+  }
+
+  /**
+   * Fetch the manifest of a project version stored in content-addressed mode.
+   *
+   * @param projectId required project ID
+   * @param version version to be fetched
+   * @return the manifest, null if the version isn't stored as a manifest
+   */
+  public ProjectManifest getProjectManifest(final int projectId, final int version) {
+    if (this.storage instanceof DatabaseStorage) {
+      return null;
+    }
+    final ProjectFileHandler pfh = this.projectLoader.fetchProjectMetaData(projectId, version);
+    if (pfh == null || !ProjectManifest.FILE_TYPE.equals(pfh.getFileType())) {
+      return null;
+    }
+    try (InputStream is = this.storage.get(requireNonNull(pfh.getResourceId()))) {
+      return ProjectManifest.fromJson(is);
+    } catch (final IOException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  /**
+   * Fetch a blob listed by a project manifest.
+   *
+   * @param entry manifest entry of the blob
+   * @return stream of the blob content, to be closed by the caller
+   */
+  public InputStream getBlob(final ProjectManifest.Entry entry) throws IOException {
+    return this.storage.get(entry.getKey());
+  }
+
   /**
    * Clean up project artifacts based on project ID. See {@link StorageCleaner#cleanupProjectArtifacts(int)}
    */
@@ -132,6 +284,17 @@ public class StorageManager {
     }
   }
 
+  /**
+   * Clean up all artifacts of a deleted project. See {@link StorageCleaner#cleanupAllProjectArtifacts(int)}
+   */
+  public void cleanupAllProjectArtifacts(final int projectId) {
+    try {
+      this.storageCleaner.cleanupAllProjectArtifacts(projectId);
+    } catch (final Exception e) {
+      log.error("Error occured during cleanup. Ignoring and continuing...", e);
+    }
+  }
+
   private byte[] computeHash(final File localFile) {
     final byte[] md5;
     try {
@@ -159,6 +322,9 @@ public class StorageManager {
 
     /* Fetch meta data from db */
     final ProjectFileHandler pfh = this.projectLoader.fetchProjectMetaData(projectId, version);
+    if (ProjectManifest.FILE_TYPE.equals(pfh.getFileType())) {
+      return getProjectFileFromManifest(pfh);
+    }
 
     /* Fetch project file from storage and copy to local file */
     final String resourceId = requireNonNull(pfh.getResourceId(),
@@ -184,6 +350,45 @@ public class StorageManager {
     }
   }
 
+  /**
+   * Zips the blobs listed by the manifest of a project version into a project file.
+   */
+  private ProjectFileHandler getProjectFileFromManifest(final ProjectFileHandler manifestHandler) {
+    final ProjectManifest manifest;
+    try (InputStream is = this.storage.get(requireNonNull(manifestHandler.getResourceId()))) {
+      manifest = ProjectManifest.fromJson(is);
+    } catch (final IOException e) {
+      throw new StorageException(e);
+    }
+
+    // The project file is served under the name it was uploaded with.
+    final String fileName = manifestHandler.getFileName().substring(0,
+        manifestHandler.getFileName().length() - ProjectManifest.FILE_TYPE.length() - 1);
+    final ProjectFileHandler pfh = new ProjectFileHandler(manifestHandler.getProjectId(),
+        manifestHandler.getVersion(), manifestHandler.getUploadTime(),
+        manifestHandler.getUploader(), "zip", fileName, manifestHandler.getNumChunks(),
+        manifestHandler.getMd5Hash(), manifestHandler.getResourceId());
+    try {
+      final File file = createTempOutputFile(pfh);
+      try (ZipOutputStream zos = new ZipOutputStream(
+          new BufferedOutputStream(new FileOutputStream(file)))) {
+        for (final ProjectManifest.Entry entry : manifest.getEntries()) {
+          zos.putNextEntry(new ZipEntry(entry.getPath()));
+          final MessageDigest digest = Md5Hasher.getMd5Digest();
+          try (InputStream is = new DigestInputStream(getBlob(entry), digest)) {
+            IOUtils.copy(is, zos);
+          }
+          validateBlobChecksum(pfh, entry, digest.digest());
+          zos.closeEntry();
+        }
+      }
+      pfh.setLocalFile(file);
+      return pfh;
+    } catch (final IOException e) {
+      throw new StorageException(e);
+    }
+  }
+
   private void validateChecksum(final File file, final ProjectFileHandler pfh) throws IOException {
     final byte[] hash = Md5Hasher.md5Hash(file);
     checkState(Arrays.equals(pfh.getMd5Hash(), hash),
@@ -194,6 +399,14 @@ public class StorageManager {
     );
   }
 
+  private static void validateBlobChecksum(final ProjectFileHandler pfh,
+      final ProjectManifest.Entry entry, final byte[] hash) {
+    checkState(entry.getMd5().equals(Hex.encodeHexString(hash)),
+        String.format("MD5 HASH Failed. project ID: %d version: %d file: %s Expected: %s "
+                + "Actual: %s", pfh.getProjectId(), pfh.getVersion(), entry.getPath(),
+            entry.getMd5(), Hex.encodeHexString(hash)));
+  }
+
   private File createTempOutputFile(final ProjectFileHandler projectFileHandler)
       throws IOException {
     return File.createTempFile(
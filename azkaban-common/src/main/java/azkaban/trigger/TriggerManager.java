@@ -21,6 +21,7 @@ import static java.util.Objects.requireNonNull;
 import azkaban.event.EventHandler;
 import azkaban.executor.ExecutorManagerAdapter;
 import azkaban.executor.ExecutorManagerException;
+import azkaban.metrics.CommonMetrics;
 import azkaban.utils.Props;
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -28,13 +29,13 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.PriorityBlockingQueue;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import org.apache.log4j.Logger;
+import org.joda.time.DateTimeUtils;
 
 @Singleton
 public class TriggerManager extends EventHandler implements
@@ -50,6 +51,7 @@ public class TriggerManager extends EventHandler implements
   private final CheckerTypeLoader checkerTypeLoader;
   private final ActionTypeLoader actionTypeLoader;
   private final TriggerLoader triggerLoader;
+  private final CommonMetrics commonMetrics;
   private final LocalTriggerJMX jmxStats = new LocalTriggerJMX();
   private long lastRunnerThreadCheckTime = -1;
   private long runnerThreadIdleTime = -1;
@@ -57,11 +59,13 @@ public class TriggerManager extends EventHandler implements
 
   @Inject
   public TriggerManager(final Props props, final TriggerLoader triggerLoader,
-      final ExecutorManagerAdapter executorManagerAdapter) throws TriggerManagerException {
+      final ExecutorManagerAdapter executorManagerAdapter, final CommonMetrics commonMetrics)
+      throws TriggerManagerException {
 
     requireNonNull(props);
     requireNonNull(executorManagerAdapter);
     this.triggerLoader = requireNonNull(triggerLoader);
+    this.commonMetrics = requireNonNull(commonMetrics);
 
     final long scannerInterval =
         props.getLong("trigger.scan.interval", DEFAULT_SCANNER_INTERVAL_MS);
@@ -254,14 +258,24 @@ public class TriggerManager extends EventHandler implements
     this.actionTypeLoader.registerActionType(name, action);
   }
 
+  /**
+   * Checks the triggers which are due, in the order of their next check time.
+   *
+   * <p>Triggers are kept in a min-heap keyed by the next check time they had when they were
+   * scheduled, so each scan only evaluates the triggers whose check time has passed instead of
+   * every registered trigger. Heap entries are not updated in place: rescheduling or deleting a
+   * trigger replaces its current entry, and the stale ones are skipped when they reach the top.
+   */
   private class TriggerScannerThread extends Thread {
 
     private final long scannerInterval;
-    private final BlockingQueue<Trigger> triggers;
+    private final PriorityQueue<TriggerCheck> checkQueue =
+        new PriorityQueue<>(Comparator.comparingLong(TriggerCheck::getCheckTime));
+    // current entry of each scheduled trigger in the check queue
+    private final Map<Trigger, TriggerCheck> scheduledChecks = new HashMap<>();
     private boolean shutdown = false;
 
     public TriggerScannerThread(final long scannerInterval) {
-      this.triggers = new PriorityBlockingQueue<>(1, new TriggerComparator());
       this.setName("TriggerRunnerManager-Trigger-Scanner-Thread");
       this.scannerInterval = scannerInterval;
     }
@@ -275,12 +289,22 @@ public class TriggerManager extends EventHandler implements
     public void addTrigger(final Trigger t) {
       synchronized (TriggerManager.this.syncObj) {
         t.updateNextCheckTime();
-        this.triggers.add(t);
+        scheduleCheck(t);
+        // the new trigger may be due before the scanner would wake up
+        TriggerManager.this.syncObj.notifyAll();
       }
     }
 
     public void deleteTrigger(final Trigger t) {
-      this.triggers.remove(t);
+      synchronized (TriggerManager.this.syncObj) {
+        this.scheduledChecks.remove(t);
+      }
+    }
+
+    private void scheduleCheck(final Trigger t) {
+      final TriggerCheck check = new TriggerCheck(t, t.getNextCheckTime());
+      this.scheduledChecks.put(t, check);
+      this.checkQueue.add(check);
     }
 
     @Override
@@ -295,7 +319,7 @@ public class TriggerManager extends EventHandler implements
                     + TriggerManager.this.lastRunnerThreadCheckTime;
 
             try {
-              checkAllTriggers();
+              checkDueTriggers();
             } catch (final Exception e) {
               e.printStackTrace();
               logger.error(e.getMessage());
@@ -314,7 +338,7 @@ public class TriggerManager extends EventHandler implements
               logger.error("Trigger manager thread " + this.getName()
                   + " is too busy!");
             } else {
-              TriggerManager.this.syncObj.wait(TriggerManager.this.runnerThreadIdleTime);
+              TriggerManager.this.syncObj.wait(getWaitTime());
             }
           } catch (final InterruptedException e) {
             logger.info("Interrupted. Probably to shut down.");
@@ -323,37 +347,79 @@ public class TriggerManager extends EventHandler implements
       }
     }
 
-    private void checkAllTriggers() throws TriggerManagerException {
-      // sweep through the rest of them
-      for (final Trigger t : this.triggers) {
+    /**
+     * Waits for the scanner interval, or less if the earliest scheduled trigger is due sooner.
+     */
+    private long getWaitTime() {
+      long waitTime = TriggerManager.this.runnerThreadIdleTime;
+      final TriggerCheck head = this.checkQueue.peek();
+      if (head != null) {
+        // time checkers are met once their check time is in the past
+        final long untilDue = head.getCheckTime() + 1 - DateTimeUtils.currentTimeMillis();
+        if (untilDue > 0) {
+          waitTime = Math.min(waitTime, untilDue);
+        }
+      }
+      // wait(0) would wait forever
+      return Math.max(waitTime, 1);
+    }
+
+    private void checkDueTriggers() {
+      final long now = DateTimeUtils.currentTimeMillis();
+      final List<Trigger> dueTriggers = new ArrayList<>();
+      TriggerCheck head;
+      while ((head = this.checkQueue.peek()) != null && head.getCheckTime() <= now) {
+        this.checkQueue.poll();
+        if (this.scheduledChecks.get(head.getTrigger()) == head) {
+          dueTriggers.add(head.getTrigger());
+        }
+      }
+
+      for (final Trigger t : dueTriggers) {
         try {
-          TriggerManager.this.scannerStage = "Checking for trigger " + t.getTriggerId();
-
-          if (t.getStatus().equals(TriggerStatus.READY)) {
-
-            /**
-             * Prior to this change, expiration condition should never be called though
-             * we have some related code here. ExpireCondition used the same BasicTimeChecker
-             * as triggerCondition do. As a consequence, we need to figure out a way to distinguish
-             * the previous ExpireCondition and this commit's ExpireCondition.
-             */
-            if (t.getExpireCondition().getExpression().contains("EndTimeChecker") && t
-                .expireConditionMet()) {
-              onTriggerPause(t);
-            } else if (t.triggerConditionMet()) {
-              onTriggerTrigger(t);
-            }
-          }
-          if (t.getStatus().equals(TriggerStatus.EXPIRED) && t.getSource().equals("azkaban")) {
-            removeTrigger(t);
-          } else {
-            t.updateNextCheckTime();
-          }
+          checkTrigger(t);
         } catch (final Throwable th) {
           //skip this trigger, moving on to the next one
           logger.error("Failed to process trigger with id : " + t, th);
+        } finally {
+          // reschedule unless the trigger was removed while being checked
+          if (this.scheduledChecks.containsKey(t)) {
+            t.updateNextCheckTime();
+            scheduleCheck(t);
+          }
+        }
+      }
+    }
+
+    private void checkTrigger(final Trigger t) throws TriggerManagerException {
+      TriggerManager.this.scannerStage = "Checking for trigger " + t.getTriggerId();
+
+      if (t.getStatus().equals(TriggerStatus.READY)) {
+
+        /**
+         * Prior to this change, expiration condition should never be called though
+         * we have some related code here. ExpireCondition used the same BasicTimeChecker
+         * as triggerCondition do. As a consequence, we need to figure out a way to distinguish
+         * the previous ExpireCondition and this commit's ExpireCondition.
+         */
+        if (t.getExpireCondition().getExpression().contains("EndTimeChecker") && t
+            .expireConditionMet()) {
+          onTriggerPause(t);
+        } else {
+          final long checkTime = t.getNextCheckTime();
+          if (t.triggerConditionMet()) {
+            // checkers without a check time are polled on every scan, so have no lag
+            if (checkTime > 0) {
+              TriggerManager.this.commonMetrics.addTriggerFiringLag(
+                  Math.max(0, DateTimeUtils.currentTimeMillis() - checkTime));
+            }
+            onTriggerTrigger(t);
+          }
         }
       }
+      if (t.getStatus().equals(TriggerStatus.EXPIRED) && t.getSource().equals("azkaban")) {
+        removeTrigger(t);
+      }
     }
 
     private void onTriggerTrigger(final Trigger t) throws TriggerManagerException {
@@ -409,21 +475,27 @@ public class TriggerManager extends EventHandler implements
         throw new TriggerManagerException(e);
       }
     }
+  }
 
-    private class TriggerComparator implements Comparator<Trigger> {
+  /**
+   * Entry of a trigger in the scanner's check queue.
+   */
+  private static class TriggerCheck {
 
-      @Override
-      public int compare(final Trigger arg0, final Trigger arg1) {
-        final long first = arg1.getNextCheckTime();
-        final long second = arg0.getNextCheckTime();
+    private final Trigger trigger;
+    private final long checkTime;
 
-        if (first == second) {
-          return 0;
-        } else if (first < second) {
-          return 1;
-        }
-        return -1;
-      }
+    TriggerCheck(final Trigger trigger, final long checkTime) {
+      this.trigger = trigger;
+      this.checkTime = checkTime;
+    }
+
+    Trigger getTrigger() {
+      return this.trigger;
+    }
+
+    long getCheckTime() {
+      return this.checkTime;
     }
   }
 
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fixed size ring of the most recent bytes written to it, kept in a direct buffer outside of the
+ * heap. Once full, each write overwrites the oldest bytes.
+ *
+ * <p>Used to keep the tail of process output without holding a string per line.
+ */
+public class ByteRing {
+
+  private final ByteBuffer ring;
+  private final int capacity;
+  // Position of the next write
+  private int head;
+  private boolean wrapped;
+
+  public ByteRing(final int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+    this.ring = ByteBuffer.allocateDirect(capacity);
+  }
+
+  public synchronized void write(final byte[] bytes, int offset, int length) {
+    if (length >= this.capacity) {
+      // Only the last bytes fit
+      offset += length - this.capacity;
+      length = this.capacity;
+    }
+    final int first = Math.min(length, this.capacity - this.head);
+    this.ring.position(this.head);
+    this.ring.put(bytes, offset, first);
+    if (first < length) {
+      this.ring.position(0);
+      this.ring.put(bytes, offset + first, length - first);
+    }
+    final int end = this.head + length;
+    if (end >= this.capacity) {
+      this.wrapped = true;
+    }
+    this.head = end % this.capacity;
+  }
+
+  /**
+   * @return number of bytes held, at most the capacity
+   */
+  public synchronized int size() {
+    return this.wrapped ? this.capacity : this.head;
+  }
+
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  /**
+   * @return the bytes held, oldest first
+   */
+  public synchronized byte[] toByteArray() {
+    final byte[] bytes = new byte[size()];
+    if (this.wrapped) {
+      this.ring.position(this.head);
+      this.ring.get(bytes, 0, this.capacity - this.head);
+      this.ring.position(0);
+      this.ring.get(bytes, this.capacity - this.head, this.head);
+    } else {
+      this.ring.position(0);
+      this.ring.get(bytes, 0, this.head);
+    }
+    return bytes;
+  }
+
+  /**
+   * Decodes the last lines held as UTF-8. Once the ring has wrapped, the oldest line is usually
+   * cut, so it is left out.
+   *
+   * @param maxLines maximum number of lines to return
+   * @return the lines, oldest first, without line terminators
+   */
+  public List<String> lastLines(final int maxLines) {
+    final byte[] bytes;
+    final boolean cut;
+    synchronized (this) {
+      bytes = toByteArray();
+      cut = this.wrapped;
+    }
+
+    int end = bytes.length;
+    if (end > 0 && bytes[end - 1] == '\n') {
+      end--;
+    }
+    final List<String> lines = new ArrayList<>();
+    while (lines.size() < maxLines && end > 0) {
+      int start = end;
+      while (start > 0 && bytes[start - 1] != '\n') {
+        start--;
+      }
+      if (start == 0 && cut) {
+        break;
+      }
+      int lineEnd = end;
+      if (lineEnd > start && bytes[lineEnd - 1] == '\r') {
+        lineEnd--;
+      }
+      lines.add(new String(bytes, start, lineEnd - start, StandardCharsets.UTF_8));
+      end = start - 1;
+    }
+    Collections.reverse(lines);
+    return lines;
+  }
+}
@@ -70,6 +70,8 @@ public class GZIPUtils {
     if (encType == EncodingType.GZIP) {
       final String jsonString = GZIPUtils.unGzipString(data, "UTF-8");
       return JSONUtils.parseJSONFromString(jsonString);
+    } else if (encType == EncodingType.SMILE) {
+      return JSONUtils.parseSmile(data);
     } else {
       final String jsonString = new String(data, "UTF-8");
       return JSONUtils.parseJSONFromString(jsonString);
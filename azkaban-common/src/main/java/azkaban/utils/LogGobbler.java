@@ -17,48 +17,163 @@
 package azkaban.utils;
 
 import com.google.common.base.Joiner;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.Reader;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
+/**
+ * Drains the output of a process as bytes.
+ *
+ * <p>Without a channel, each line is logged to the logger. Lines longer than {@link
+ * #MAX_LINE_BYTES} are logged in pieces, so a process writing without line breaks can't make the
+ * gobbler buffer without bound. With a channel, the output is copied to it as is, e.g. straight
+ * to the job log file, and no string is created for it. Only whole lines are written, while
+ * holding the lock on the channel, so gobblers sharing a channel don't interleave within a line.
+ * The last partial line is kept until the rest of it is read.
+ *
+ * <p>The last bytes of output are kept in an off-heap {@link ByteRing} for {@link
+ * #getRecentLog()}.
+ */
 public class LogGobbler extends Thread {
 
-  private final BufferedReader inputReader;
+  public static final int MAX_LINE_BYTES = 64 * 1024;
+  // Ring bytes kept for each line of the recent log
+  private static final int RING_BYTES_PER_LINE = 1024;
+  private static final int READ_BUFFER_BYTES = 8192;
+
+  private final InputStream input;
+  private final WritableByteChannel channel;
   private final Logger logger;
   private final Level loggingLevel;
-  private final CircularBuffer<String> buffer;
+  private final int bufferLines;
+  private final ByteRing ring;
 
-  public LogGobbler(final Reader inputReader, final Logger logger,
+  private final byte[] lineBuffer = new byte[MAX_LINE_BYTES];
+  private int lineLength = 0;
+  private boolean skipLineFeed = false;
+
+  public LogGobbler(final InputStream input, final Logger logger,
       final Level level, final int bufferLines) {
-    this.inputReader = new BufferedReader(inputReader);
+    this(input, null, logger, level, bufferLines);
+  }
+
+  /**
+   * @param channel channel the output is copied to instead of the logger, or null to log it. It is
+   * left open.
+   * @param logger logger of the output when there is no channel, and of read errors
+   */
+  public LogGobbler(final InputStream input, final WritableByteChannel channel,
+      final Logger logger, final Level level, final int bufferLines) {
+    this.input = input;
+    this.channel = channel;
     this.logger = logger;
     this.loggingLevel = level;
-    this.buffer = new CircularBuffer<>(bufferLines);
+    this.bufferLines = bufferLines;
+    this.ring = new ByteRing(Math.max(1, bufferLines) * RING_BYTES_PER_LINE);
   }
 
   @Override
   public void run() {
+    final byte[] buffer = new byte[READ_BUFFER_BYTES];
     try {
       while (!Thread.currentThread().isInterrupted()) {
-        final String line = this.inputReader.readLine();
-        if (line == null) {
-          return;
+        final int read = this.input.read(buffer);
+        if (read < 0) {
+          break;
         }
 
-        this.buffer.append(line);
-        log(line);
+        this.ring.write(buffer, 0, read);
+        if (this.channel != null) {
+          writeLines(buffer, read);
+        } else {
+          logLines(buffer, read);
+        }
+      }
+      if (this.lineLength > 0) {
+        if (this.channel != null) {
+          writeLine(null, 0);
+        } else {
+          logLine();
+        }
       }
     } catch (final IOException e) {
       error("Error reading from logging stream:", e);
     }
   }
 
-  private void log(final String message) {
-    if (this.logger != null) {
-      this.logger.log(this.loggingLevel, message);
+  private void writeLines(final byte[] bytes, final int length) throws IOException {
+    int end = length;
+    while (end > 0 && bytes[end - 1] != '\n' && bytes[end - 1] != '\r') {
+      end--;
+    }
+    if (end > 0) {
+      writeLine(bytes, end);
+    }
+    // Keep the partial line, writing it in pieces if it gets longer than the line buffer
+    int offset = end;
+    while (offset < length) {
+      if (this.lineLength == this.lineBuffer.length) {
+        writeLine(null, 0);
+      }
+      final int copied = Math.min(length - offset, this.lineBuffer.length - this.lineLength);
+      System.arraycopy(bytes, offset, this.lineBuffer, this.lineLength, copied);
+      this.lineLength += copied;
+      offset += copied;
+    }
+  }
+
+  /**
+   * Writes the kept partial line followed by the given bytes, without letting other writers of
+   * the channel in between.
+   */
+  private void writeLine(final byte[] bytes, final int length) throws IOException {
+    synchronized (this.channel) {
+      writeFully(ByteBuffer.wrap(this.lineBuffer, 0, this.lineLength));
+      if (bytes != null) {
+        writeFully(ByteBuffer.wrap(bytes, 0, length));
+      }
+    }
+    this.lineLength = 0;
+  }
+
+  private void writeFully(final ByteBuffer bytes) throws IOException {
+    while (bytes.hasRemaining()) {
+      this.channel.write(bytes);
+    }
+  }
+
+  private void logLines(final byte[] bytes, final int length) {
+    for (int i = 0; i < length; i++) {
+      final byte b = bytes[i];
+      if (this.skipLineFeed) {
+        this.skipLineFeed = false;
+        if (b == '\n') {
+          continue;
+        }
+      }
+      if (b == '\n' || b == '\r') {
+        // Like BufferedReader.readLine(), \n, \r and \r\n end a line
+        this.skipLineFeed = b == '\r';
+        logLine();
+      } else {
+        if (this.lineLength == this.lineBuffer.length) {
+          logLine();
+        }
+        this.lineBuffer[this.lineLength++] = b;
+      }
+    }
+  }
+
+  private void logLine() {
+    if (this.logger != null && this.logger.isEnabledFor(this.loggingLevel)) {
+      this.logger.log(this.loggingLevel,
+          new String(this.lineBuffer, 0, this.lineLength, StandardCharsets.UTF_8));
     }
+    this.lineLength = 0;
   }
 
   private void error(final String message, final Exception e) {
@@ -82,7 +197,8 @@ public class LogGobbler extends Thread {
   }
 
   public String getRecentLog() {
-    return Joiner.on(System.getProperty("line.separator")).join(this.buffer);
+    return Joiner.on(System.getProperty("line.separator"))
+        .join(this.ring.lastLines(this.bufferLines));
   }
 
 }
@@ -16,6 +16,7 @@
 
 package azkaban.executor;
 
+import azkaban.db.EncodingType;
 import azkaban.executor.ExecutionOptions.FailureAction;
 import azkaban.flow.Flow;
 import azkaban.project.DirectoryFlowLoader;
@@ -24,6 +25,7 @@ import azkaban.sla.SlaOption;
 import azkaban.sla.SlaOption.SlaOptionBuilder;
 import azkaban.sla.SlaType;
 import azkaban.test.executions.ExecutionsTestUtil;
+import azkaban.utils.GZIPUtils;
 import azkaban.utils.JSONUtils;
 import azkaban.utils.Props;
 import java.io.File;
@@ -33,6 +35,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -291,8 +294,7 @@ public class ExecutableFlowTest {
     testEquals(exFlow, parsedExFlow);
   }
 
-  @Test
-  public void testExecutorFlowJson2() throws Exception {
+  private ExecutableFlow createFlowWithOptions() {
     final Flow flow = this.project.getFlow("jobe");
     Assert.assertNotNull(flow);
 
@@ -331,6 +333,13 @@ public class ExecutableFlowTest {
     options.addAllFlowParameters(flowProps);
     exFlow.setExecutionOptions(options);
 
+    return exFlow;
+  }
+
+  @Test
+  public void testExecutorFlowJson2() throws Exception {
+    final ExecutableFlow exFlow = createFlowWithOptions();
+
     final Object obj = exFlow.toObject();
     final String exFlowJSON = JSONUtils.toJSON(obj);
     final Map<String, Object> flowObjMap =
@@ -350,6 +359,33 @@ public class ExecutableFlowTest {
     testEquals(exFlow, origExFlow);
   }
 
+  @Test
+  public void testExecutorFlowJsonCodec() throws Exception {
+    final ExecutableFlow exFlow = createFlowWithOptions();
+    exFlow.getExecutableNode("joba").setStatus(Status.SUCCEEDED);
+    exFlow.getExecutableNode("joba").setOutputProps(Props.of("output.key", "output.value"));
+
+    for (final EncodingType encType : Arrays
+        .asList(EncodingType.PLAIN, EncodingType.GZIP, EncodingType.SMILE)) {
+      final byte[] data = ExecutableFlowJsonCodec.encode(exFlow, encType);
+      final ExecutableFlow parsedExFlow = ExecutableFlowJsonCodec.decode(data, encType);
+      testEquals(exFlow, parsedExFlow);
+      Assert.assertTrue(parsedExFlow.isLocked());
+      Assert.assertEquals("output.value",
+          parsedExFlow.getExecutableNode("joba").getOutputProps().get("output.key"));
+      // Same JSON as the map based writer
+      Assert.assertEquals(JSONUtils.parseJSONFromString(JSONUtils.toJSON(exFlow.toObject())),
+          GZIPUtils.transformBytesToObject(data, encType));
+    }
+
+    // Fields in any order, as written by the map based writer
+    final byte[] origData = FileUtils.readFileToByteArray(
+        new File("src/test/resources/json/embedded_flow.json"));
+    final ExecutableFlow origExFlow = ExecutableFlowJsonCodec.decode(origData, EncodingType.PLAIN);
+    origExFlow.setUpdateTime(exFlow.getUpdateTime()); // update time changes
+    testEquals(createFlowWithOptions(), origExFlow);
+  }
+
   @Test
   public void testExecutorFlowUpdates() throws Exception {
     final Flow flow = this.project.getFlow("jobe");
@@ -19,7 +19,9 @@ package azkaban.executor;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.db.DatabaseOperator;
+import azkaban.db.EncodingType;
 import azkaban.project.JdbcProjectImpl;
 import azkaban.project.ProjectLoader;
 import azkaban.test.Utils;
@@ -36,6 +38,7 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
@@ -77,7 +80,7 @@ public class ExecutionFlowDaoTest {
 
   @Before
   public void setup() {
-    this.executionFlowDao = new ExecutionFlowDao(dbOperator);
+    this.executionFlowDao = new ExecutionFlowDao(dbOperator, props);
     this.executorDao = new ExecutorDao(dbOperator);
     this.assignExecutor = new AssignExecutorDao(dbOperator, this.executorDao);
     this.fetchActiveFlowDao = new FetchActiveFlowDao(dbOperator);
@@ -89,6 +92,7 @@ public class ExecutionFlowDaoTest {
   public void clearDB() {
     try {
       dbOperator.update("DELETE FROM execution_flows");
+      dbOperator.update("DELETE FROM execution_flow_updates");
       dbOperator.update("DELETE FROM executors");
       dbOperator.update("DELETE FROM projects");
     } catch (final SQLException e) {
@@ -142,6 +146,86 @@ public class ExecutionFlowDaoTest {
     assertTwoFlowSame(fetchFlow, fetchFlow2);
   }
 
+  @Test
+  public void testUpdateExecutableFlowDelta() throws Exception {
+    final ExecutableFlow flow = createTestFlow();
+    this.executionFlowDao.uploadExecutableFlow(flow);
+
+    final long updateTime = System.currentTimeMillis();
+    final ExecutableNode node = flow.getExecutableNodes().get(0);
+    node.setStatus(Status.SUCCEEDED);
+    node.setStartTime(updateTime);
+    node.setEndTime(updateTime);
+    node.setUpdateTime(updateTime);
+    flow.setStatus(Status.RUNNING);
+    flow.setStartTime(updateTime);
+    flow.setUpdateTime(updateTime);
+    this.executionFlowDao.updateExecutableFlowDelta(flow, updateTime - 1);
+    assertThat(countFlowUpdates()).isEqualTo(1);
+
+    // The delta is merged into the flow data it was written against.
+    final ExecutableFlow fetchFlow =
+        this.executionFlowDao.fetchExecutableFlow(flow.getExecutionId());
+    assertTwoFlowSame(flow, fetchFlow);
+    final ExecutableNode fetchNode = fetchFlow.getExecutableNode(node.getId());
+    assertThat(fetchNode.getStatus()).isEqualTo(Status.SUCCEEDED);
+    assertThat(fetchNode.getEndTime()).isEqualTo(updateTime);
+    assertThat(this.executionFlowDao.fetchFlowHistory(0, 1).get(0)
+        .getExecutableNode(node.getId()).getStatus()).isEqualTo(Status.SUCCEEDED);
+
+    // A full update compacts the deltas.
+    flow.setStatus(Status.SUCCEEDED);
+    flow.setEndTime(System.currentTimeMillis());
+    this.executionFlowDao.updateExecutableFlow(flow);
+    assertThat(countFlowUpdates()).isEqualTo(0);
+    final ExecutableFlow finishedFlow =
+        this.executionFlowDao.fetchExecutableFlow(flow.getExecutionId());
+    assertTwoFlowSame(flow, finishedFlow);
+    assertThat(finishedFlow.getExecutableNode(node.getId()).getStatus())
+        .isEqualTo(Status.SUCCEEDED);
+  }
+
+  @Test
+  public void testSmileFlowData() throws Exception {
+    final ExecutableFlow gzipFlow = createTestFlow();
+    this.executionFlowDao.uploadExecutableFlow(gzipFlow);
+
+    final Props smileProps = new Props();
+    smileProps.put(ConfigurationKeys.AZKABAN_EXECUTION_FLOW_DATA_ENCODING_TYPE, "smile");
+    final ExecutionFlowDao smileDao = new ExecutionFlowDao(dbOperator, smileProps);
+    final ExecutableFlow flow = createTestFlow();
+    smileDao.uploadExecutableFlow(flow);
+    assertThat(fetchEncodingType(flow.getExecutionId())).isEqualTo(EncodingType.SMILE);
+
+    final long updateTime = System.currentTimeMillis();
+    final ExecutableNode node = flow.getExecutableNodes().get(0);
+    node.setStatus(Status.SUCCEEDED);
+    node.setUpdateTime(updateTime);
+    flow.setStatus(Status.RUNNING);
+    flow.setUpdateTime(updateTime);
+    smileDao.updateExecutableFlowDelta(flow, updateTime - 1);
+
+    // Rows of both encodings are readable by either DAO
+    assertTwoFlowSame(flow, this.executionFlowDao.fetchExecutableFlow(flow.getExecutionId()));
+    assertThat(this.executionFlowDao.fetchExecutableFlow(flow.getExecutionId())
+        .getExecutableNode(node.getId()).getStatus()).isEqualTo(Status.SUCCEEDED);
+    assertTwoFlowSame(gzipFlow, smileDao.fetchExecutableFlow(gzipFlow.getExecutionId()));
+  }
+
+  private EncodingType fetchEncodingType(final int execId) throws SQLException {
+    return dbOperator.query("SELECT enc_type FROM execution_flows WHERE exec_id=?", rs -> {
+      rs.next();
+      return EncodingType.fromInteger(rs.getInt(1));
+    }, execId);
+  }
+
+  private int countFlowUpdates() throws SQLException {
+    return dbOperator.query("SELECT COUNT(*) FROM execution_flow_updates", rs -> {
+      rs.next();
+      return rs.getInt(1);
+    });
+  }
+
   @Test
   public void fetchFlowHistory() throws Exception {
     final ExecutableFlow flow = createTestFlow();
@@ -215,6 +299,47 @@ public class ExecutionFlowDaoTest {
     assertTwoFlowSame(flowList1.get(0), fetchFlow);
   }
 
+  @Test
+  public void testFetchExecutionSummaries() throws Exception {
+    final ExecutableFlow flow1 = createTestFlow();
+    flow1.setSubmitUser("testUser1");
+    this.executionFlowDao.uploadExecutableFlow(flow1);
+    final ExecutableFlow flow2 = createTestFlow();
+    flow2.setStatus(Status.SUCCEEDED);
+    flow2.setStartTime(1000);
+    flow2.setEndTime(2000);
+    this.executionFlowDao.uploadExecutableFlow(flow2);
+
+    final List<ExecutionSummary> all = this.executionFlowDao.fetchExecutionSummaries(0, 10);
+    assertThat(all).extracting(ExecutionSummary::getExecutionId)
+        .containsExactly(flow2.getExecutionId(), flow1.getExecutionId());
+    assertSummary(all.get(0), flow2);
+    assertSummary(all.get(1), flow1);
+
+    assertThat(this.executionFlowDao
+        .fetchExecutionSummaries(flow1.getProjectId(), flow1.getFlowId(), 1, 10))
+        .extracting(ExecutionSummary::getExecutionId).containsExactly(flow1.getExecutionId());
+    assertThat(this.executionFlowDao.fetchExecutionSummaries(flow1.getProjectId(),
+        flow1.getFlowId(), 0, 10, Status.SUCCEEDED))
+        .extracting(ExecutionSummary::getExecutionId).containsExactly(flow2.getExecutionId());
+    assertThat(this.executionFlowDao
+        .fetchExecutionSummaries(null, "exec", "testUser1", 0, -1, -1, 0, 16))
+        .extracting(ExecutionSummary::getExecutionId).containsExactly(flow1.getExecutionId());
+  }
+
+  private static void assertSummary(final ExecutionSummary summary, final ExecutableFlow flow) {
+    assertThat(summary.getExecutionId()).isEqualTo(flow.getExecutionId());
+    assertThat(summary.getProjectId()).isEqualTo(flow.getProjectId());
+    assertThat(summary.getVersion()).isEqualTo(flow.getVersion());
+    assertThat(summary.getFlowId()).isEqualTo(flow.getFlowId());
+    assertThat(summary.getStatus()).isEqualTo(flow.getStatus());
+    assertThat(summary.getSubmitUser()).isEqualTo(flow.getSubmitUser());
+    assertThat(summary.getSubmitTime()).isEqualTo(flow.getSubmitTime());
+    assertThat(summary.getStartTime()).isEqualTo(flow.getStartTime());
+    assertThat(summary.getEndTime()).isEqualTo(flow.getEndTime());
+    assertThat(summary.getUpdateTime()).isEqualTo(flow.getUpdateTime());
+  }
+
   @Test
   public void testFetchRecentlyFinishedFlows() throws Exception {
     final ExecutableFlow flow1 = createTestFlow();
@@ -340,6 +465,33 @@ public class ExecutionFlowDaoTest {
     assertTwoFlowSame(unfinishedFlows.get(flows.get(0).getExecutionId()).getSecond(), flows.get(0));
   }
 
+  @Test
+  public void testFetchActiveFlowsMergesFlowDeltas() throws Exception {
+    final List<ExecutableFlow> flows = createExecutions();
+    final long updateTime = System.currentTimeMillis();
+    for (final ExecutableFlow flow : Arrays.asList(flows.get(0), flows.get(2))) {
+      final ExecutableNode node = flow.getExecutableNodes().get(0);
+      node.setStatus(Status.SUCCEEDED);
+      node.setUpdateTime(updateTime);
+      flow.setUpdateTime(updateTime);
+      this.executionFlowDao.updateExecutableFlowDelta(flow, updateTime - 1);
+    }
+
+    final Map<Integer, Pair<ExecutionReference, ExecutableFlow>> activeFlows =
+        this.fetchActiveFlowDao.fetchActiveFlows();
+    final Map<Integer, Pair<ExecutionReference, ExecutableFlow>> unfinishedFlows =
+        this.fetchActiveFlowDao.fetchUnfinishedFlows();
+    for (final ExecutableFlow flow : Arrays.asList(flows.get(0), flows.get(2))) {
+      final String nodeId = flow.getExecutableNodes().get(0).getId();
+      assertThat(activeFlows.get(flow.getExecutionId()).getSecond().getExecutableNode(nodeId)
+          .getStatus()).isEqualTo(Status.SUCCEEDED);
+      assertThat(unfinishedFlows.get(flow.getExecutionId()).getSecond()
+          .getExecutableNode(nodeId).getStatus()).isEqualTo(Status.SUCCEEDED);
+      assertThat(this.fetchActiveFlowDao.fetchActiveFlowByExecId(flow.getExecutionId())
+          .getSecond().getExecutableNode(nodeId).getStatus()).isEqualTo(Status.SUCCEEDED);
+    }
+  }
+
   @Test
   public void testFetchUnfinishedFlowsMetadata() throws Exception {
     final List<ExecutableFlow> flows = createExecutions();
@@ -18,11 +18,15 @@ package azkaban.executor;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.db.DatabaseOperator;
+import azkaban.db.EncodingType;
 import azkaban.test.Utils;
 import azkaban.test.executions.ExecutionsTestUtil;
 import azkaban.utils.FileIOUtils.LogData;
+import azkaban.utils.Props;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -53,7 +57,7 @@ public class ExecutionLogsDaoTest {
 
   @Before
   public void setup() {
-    this.executionLogsDao = new ExecutionLogsDao(dbOperator);
+    this.executionLogsDao = new ExecutionLogsDao(dbOperator, new Props());
   }
 
   @After
@@ -109,4 +113,96 @@ public class ExecutionLogsDaoTest {
     assertThat(logsResult3).isNotNull();
     assertThat(logsResult3.getLength()).isEqualTo(185493);
   }
+
+  @Test
+  public void testFetchLogsBoundsLength() throws ExecutorManagerException {
+    final File logDir = ExecutionsTestUtil.getFlowDir(LOG_TEST_DIR_NAME);
+    final File[] largelog =
+        {new File(logDir, "largeLog1.log"), new File(logDir, "largeLog2.log"),
+            new File(logDir, "largeLog3.log")};
+
+    this.executionLogsDao.uploadLogFile(1, "largeFiles", 0, largelog);
+
+    assertThat(this.executionLogsDao.fetchLogs(1, "largeFiles", 0, 0, -1)).isNull();
+    assertThat(this.executionLogsDao.fetchLogs(1, "largeFiles", 0, 335493, 1000)).isNull();
+    assertThat(this.executionLogsDao.fetchLogs(1, "missing", 0, 0, 1000)).isNull();
+    // The buffer is sized by the rest of the log, not by the requested length.
+    final LogData rest = this.executionLogsDao.fetchLogs(1, "largeFiles", 0, 300000,
+        Integer.MAX_VALUE);
+    assertThat(rest).isNotNull();
+    assertThat(rest.getLength()).isEqualTo(35493);
+  }
+
+  @Test
+  public void testFetchLogsTail() throws ExecutorManagerException {
+    final File logDir = ExecutionsTestUtil.getFlowDir(LOG_TEST_DIR_NAME);
+    final File[] largelog =
+        {new File(logDir, "largeLog1.log"), new File(logDir, "largeLog2.log"),
+            new File(logDir, "largeLog3.log")};
+
+    this.executionLogsDao.uploadLogFile(1, "largeFiles", 0, largelog);
+
+    final LogData tail = this.executionLogsDao.fetchLogsTail(1, "largeFiles", 0, 60000);
+    assertThat(tail).isNotNull();
+    assertThat(tail.getOffset()).isEqualTo(335493 - 60000);
+    assertThat(tail.getLength()).isEqualTo(60000);
+    assertThat(tail.getData())
+        .isEqualTo(this.executionLogsDao.fetchLogs(1, "largeFiles", 0, 335493 - 60000, 60000)
+            .getData());
+
+    // Asking for more than the whole log returns the whole log.
+    final LogData wholeLog = this.executionLogsDao.fetchLogsTail(1, "largeFiles", 0, 500000);
+    assertThat(wholeLog.getOffset()).isEqualTo(0);
+    assertThat(wholeLog.getLength()).isEqualTo(335493);
+
+    assertThat(this.executionLogsDao.fetchLogsTail(1, "noSuchLog", 0, 60000)).isNull();
+    assertThat(this.executionLogsDao.fetchLogsTail(1, "largeFiles", 0, 0)).isNull();
+    assertThat(this.executionLogsDao.fetchLogsTail(1, "largeFiles", 0, -1)).isNull();
+  }
+
+  @Test
+  public void testReadLogsIntoBuffer() throws ExecutorManagerException {
+    final File logDir = ExecutionsTestUtil.getFlowDir(LOG_TEST_DIR_NAME);
+    final File[] largelog =
+        {new File(logDir, "largeLog1.log"), new File(logDir, "largeLog2.log"),
+            new File(logDir, "largeLog3.log")};
+
+    this.executionLogsDao.uploadLogFile(1, "largeFiles", 0, largelog);
+
+    // The range spans two chunks, and is read after a prefix of the buffer.
+    final byte[] buffer = new byte[10 + 64000];
+    final int read = this.executionLogsDao.readLogs(1, "largeFiles", 0, 1000, buffer, 10, 64000);
+    assertThat(read).isEqualTo(64000);
+    assertThat(new String(buffer, 10, read, StandardCharsets.UTF_8))
+        .isEqualTo(this.executionLogsDao.fetchLogs(1, "largeFiles", 0, 1000, 64000).getData());
+
+    assertThat(this.executionLogsDao.readLogs(1, "largeFiles", 0, 335493, buffer, 0, 100))
+        .isEqualTo(-1);
+  }
+
+  @Test
+  public void testBatchedLz4UploadLog() throws Exception {
+    final Props props = new Props();
+    props.put(ConfigurationKeys.AZKABAN_EXECUTION_LOGS_CHUNK_SIZE, 10000);
+    props.put(ConfigurationKeys.AZKABAN_EXECUTION_LOGS_UPLOAD_BATCH_SIZE, 3);
+    props.put(ConfigurationKeys.AZKABAN_EXECUTION_LOGS_ENCODING_TYPE, "lz4");
+    final ExecutionLogsDao lz4LogsDao = new ExecutionLogsDao(dbOperator, props);
+
+    final File logDir = ExecutionsTestUtil.getFlowDir(LOG_TEST_DIR_NAME);
+    final File[] largelog =
+        {new File(logDir, "largeLog1.log"), new File(logDir, "largeLog2.log"),
+            new File(logDir, "largeLog3.log")};
+
+    lz4LogsDao.uploadLogFile(1, "lz4Files", 0, largelog);
+    this.executionLogsDao.uploadLogFile(1, "gzipFiles", 0, largelog);
+
+    assertThat(dbOperator.query(
+        "SELECT COUNT(*) FROM execution_logs WHERE name='lz4Files' AND enc_type=?",
+        rs -> rs.next() ? rs.getInt(1) : 0, EncodingType.LZ4.getNumVal())).isEqualTo(34);
+
+    final LogData lz4Log = this.executionLogsDao.fetchLogs(1, "lz4Files", 0, 0, 400000);
+    final LogData gzipLog = this.executionLogsDao.fetchLogs(1, "gzipFiles", 0, 0, 400000);
+    assertThat(lz4Log.getLength()).isEqualTo(335493);
+    assertThat(lz4Log.getData()).isEqualTo(gzipLog.getData());
+  }
 }
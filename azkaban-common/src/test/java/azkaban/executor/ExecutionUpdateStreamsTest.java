@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.test.TestUtils;
+import azkaban.utils.Pair;
+import azkaban.utils.Props;
+import com.google.common.collect.ImmutableMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExecutionUpdateStreamsTest {
+
+  private static final int EXECUTION_ID = 77;
+
+  private ExecutorApiGateway apiGateway;
+  private RunningExecutions runningExecutions;
+  private Executor executor;
+  private ExecutionUpdateStreams updateStreams;
+
+  @Before
+  public void setUp() throws Exception {
+    this.apiGateway = mock(ExecutorApiGateway.class);
+    this.runningExecutions = new RunningExecutions();
+    this.executor = new Executor(1, "executor-1", 9999, true);
+    final ExecutableFlow flow = new ExecutableFlow();
+    flow.setExecutionId(EXECUTION_ID);
+    this.runningExecutions.get().put(EXECUTION_ID,
+        new Pair<>(new ExecutionReference(EXECUTION_ID, this.executor), flow));
+
+    final Props props = new Props();
+    props.put(ConfigurationKeys.EXECUTION_UPDATE_STREAM_ENABLED, "true");
+    props.put(ConfigurationKeys.EXECUTION_UPDATE_STREAM_RECONCILE_INTERVAL_MS, "3600000");
+    this.updateStreams = new ExecutionUpdateStreams(props, this.apiGateway,
+        this.runningExecutions);
+  }
+
+  @After
+  public void tearDown() {
+    this.updateStreams.shutdown();
+  }
+
+  @Test
+  public void testStreamedUpdatesAreQueued() throws Exception {
+    final Map<String, Object> update = new HashMap<>(ImmutableMap.of(
+        ConnectorParams.UPDATE_MAP_EXEC_ID, EXECUTION_ID));
+    // The first poll only subscribes to the stream
+    when(this.apiGateway.pollUpdateStream(eq(this.executor), isNull(), eq(0L), anyLong()))
+        .thenReturn(createResponse(3, true, Collections.emptyList()));
+    when(this.apiGateway.pollUpdateStream(eq(this.executor), eq("epoch"), eq(3L), anyLong()))
+        .thenReturn(createResponse(4, false, Collections.singletonList(update)));
+    when(this.apiGateway.pollUpdateStream(eq(this.executor), eq("epoch"), eq(4L), anyLong()))
+        .thenAnswer(invocation -> {
+          // No more running executions closes the stream
+          this.runningExecutions.get().clear();
+          return createResponse(4, false, Collections.emptyList());
+        });
+
+    // Reconciles initially
+    assertThat(this.updateStreams.isReconciliationDue()).isTrue();
+    assertThat(this.updateStreams.isReconciliationDue()).isFalse();
+
+    this.updateStreams.openStreams();
+    TestUtils.await().untilAsserted(() ->
+        assertThat(this.updateStreams.drainUpdates()).containsExactly(update));
+    // The gap of the first poll asks for reconciliation
+    assertThat(this.updateStreams.isReconciliationDue()).isTrue();
+  }
+
+  @Test
+  public void testFailedStreamFallsBackToReconciliation() throws Exception {
+    when(this.apiGateway.pollUpdateStream(any(), any(), anyLong(), anyLong()))
+        .thenThrow(new ExecutorManagerException("Mocked stream failure"));
+    assertThat(this.updateStreams.isReconciliationDue()).isTrue();
+
+    this.updateStreams.openStreams();
+    TestUtils.await().untilAsserted(() ->
+        assertThat(this.updateStreams.isReconciliationDue()).isTrue());
+    assertThat(this.updateStreams.drainUpdates()).isEmpty();
+  }
+
+  private static Map<String, Object> createResponse(final long sequence, final boolean gap,
+      final List<Map<String, Object>> updates) {
+    final Map<String, Object> response = new HashMap<>();
+    response.put(ConnectorParams.UPDATE_STREAM_EPOCH_PARAM, "epoch");
+    response.put(ConnectorParams.UPDATE_STREAM_SEQUENCE_PARAM, sequence);
+    response.put(ConnectorParams.RESPONSE_UPDATE_STREAM_GAP, gap);
+    response.put(ConnectorParams.RESPONSE_UPDATED_FLOWS, updates);
+    return response;
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import azkaban.utils.JSONUtils;
+import com.google.common.collect.ImmutableMap;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+public class ExecutorApiClientTest {
+
+  private static final Map<String, Object> RESPONSE = ImmutableMap.of(
+      ConnectorParams.STATUS_PARAM, ConnectorParams.RESPONSE_ALIVE, "count", 3);
+
+  private final ExecutorApiClient client = new ExecutorApiClient();
+
+  @Test
+  public void testParseSmileResponse() throws Exception {
+    assertThat(this.client.parseObjectResponse(createResponse(200,
+        JSONUtils.toSmile(RESPONSE), ConnectorParams.SMILE_MIME_TYPE))).isEqualTo(RESPONSE);
+  }
+
+  @Test
+  public void testParseJsonResponse() throws Exception {
+    // Executors which don't support Smile
+    assertThat(this.client.parseObjectResponse(createResponse(200,
+        JSONUtils.toJSON(RESPONSE).getBytes(StandardCharsets.UTF_8), "application/json")))
+        .isEqualTo(RESPONSE);
+  }
+
+  @Test
+  public void testParseErrorResponse() {
+    assertThatThrownBy(() -> this.client.parseObjectResponse(createResponse(500,
+        "error".getBytes(StandardCharsets.UTF_8), "text/plain")))
+        .isInstanceOf(HttpResponseException.class);
+  }
+
+  @Test
+  public void testHungExecutorTimesOut() throws Exception {
+    // Accepts the connection but never responds
+    try (ServerSocket server = new ServerSocket(0)) {
+      final ExecutorApiClient timingOutClient = new ExecutorApiClient(200);
+      final long start = System.currentTimeMillis();
+      assertThatThrownBy(() -> timingOutClient.httpPostForObjectWithTimeout(
+          new URI("http://localhost:" + server.getLocalPort() + "/executor"),
+          Collections.emptyList()))
+          .isInstanceOf(SocketTimeoutException.class);
+      assertThat(System.currentTimeMillis() - start).isLessThan(10000L);
+    }
+  }
+
+  private static HttpResponse createResponse(final int status, final byte[] body,
+      final String contentType) {
+    final HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, null);
+    response.setEntity(new ByteArrayEntity(body, ContentType.create(contentType)));
+    return response;
+  }
+}
@@ -26,6 +26,7 @@ import azkaban.utils.Pair;
 import com.google.common.collect.ImmutableMap;
 import java.net.URI;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.junit.Assert;
@@ -65,8 +66,9 @@ public class ExecutorApiGatewayTest {
   public void updateExecutions() throws Exception {
     final ImmutableMap<String, String> map = ImmutableMap.of("test", "response");
     when(this.client
-        .httpPost(eq(new URI("http://executor-2:1234/executor")), this.params.capture()))
-        .thenReturn(JSONUtils.toJSON(map));
+        .httpPostForObjectWithTimeout(eq(new URI("http://executor-2:1234/executor")),
+            this.params.capture()))
+        .thenReturn(new HashMap<>(map));
     final Map<String, Object> response = this.gateway
         .updateExecutions(new Executor(2, "executor-2", 1234, true),
             Collections.singletonList(new ExecutableFlow()));
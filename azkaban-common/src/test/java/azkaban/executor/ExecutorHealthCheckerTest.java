@@ -78,8 +78,8 @@ public class ExecutorHealthCheckerTest {
   public void checkExecutorHealthAlive() throws Exception {
     this.activeFlows.put(EXECUTION_ID_11, new Pair<>(
         new ExecutionReference(EXECUTION_ID_11, this.executor1), this.flow1));
-    when(this.apiGateway.callWithExecutionId(this.executor1.getHost(), this.executor1.getPort(),
-        ConnectorParams.PING_ACTION, null, null)).thenReturn(ImmutableMap.of(ConnectorParams
+    when(this.apiGateway.callWithTimeout(this.executor1.getHost(), this.executor1.getPort(),
+        ConnectorParams.PING_ACTION)).thenReturn(ImmutableMap.of(ConnectorParams
         .STATUS_PARAM, ConnectorParams.RESPONSE_ALIVE));
     this.executorHealthChecker.checkExecutorHealth();
     assertThat(this.flow1.getStatus()).isEqualTo(Status.RUNNING);
@@ -108,20 +108,20 @@ public class ExecutorHealthCheckerTest {
         new ExecutionReference(EXECUTION_ID_11, this.executor1), this.flow1));
     // Failed to ping executor. Failure count (=1) < MAX_FAILURE_COUNT (=2). Do not alert.
     this.executorHealthChecker.checkExecutorHealth();
-    verify(this.apiGateway).callWithExecutionId(this.executor1.getHost(), this.executor1.getPort(),
-        ConnectorParams.PING_ACTION, null, null);
+    verify(this.apiGateway).callWithTimeout(this.executor1.getHost(), this.executor1.getPort(),
+        ConnectorParams.PING_ACTION);
     verifyZeroInteractions(this.alerterHolder);
 
     // Pinged executor successfully. Failure count (=0) < MAX_FAILURE_COUNT (=2). Do not alert.
-    when(this.apiGateway.callWithExecutionId(this.executor1.getHost(), this.executor1.getPort(),
-        ConnectorParams.PING_ACTION, null, null)).thenReturn(ImmutableMap.of(ConnectorParams
+    when(this.apiGateway.callWithTimeout(this.executor1.getHost(), this.executor1.getPort(),
+        ConnectorParams.PING_ACTION)).thenReturn(ImmutableMap.of(ConnectorParams
         .STATUS_PARAM, ConnectorParams.RESPONSE_ALIVE));
     this.executorHealthChecker.checkExecutorHealth();
     verifyZeroInteractions(this.alerterHolder);
 
     // Failed to ping executor. Failure count (=1) < MAX_FAILURE_COUNT (=2). Do not alert.
-    when(this.apiGateway.callWithExecutionId(this.executor1.getHost(), this.executor1.getPort(),
-        ConnectorParams.PING_ACTION, null, null)).thenReturn(null);
+    when(this.apiGateway.callWithTimeout(this.executor1.getHost(), this.executor1.getPort(),
+        ConnectorParams.PING_ACTION)).thenReturn(null);
     this.executorHealthChecker.checkExecutorHealth();
     verifyZeroInteractions(this.alerterHolder);
 
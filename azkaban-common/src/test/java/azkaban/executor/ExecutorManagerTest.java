@@ -48,6 +48,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.junit.After;
 import org.junit.Assert;
@@ -153,9 +156,10 @@ public class ExecutorManagerTest {
     final ExecutionFinalizer executionFinalizer = new ExecutionFinalizer(this.loader,
         this.updaterStage, this.alertHolder, this.runningExecutions);
     final RunningExecutionsUpdaterThread updaterThread = new RunningExecutionsUpdaterThread(
-        new RunningExecutionsUpdater(
+        new RunningExecutionsUpdater(this.props,
             this.updaterStage, this.alertHolder, this.commonMetrics, this.apiGateway,
-            this.runningExecutions, executionFinalizer, this.loader), this.runningExecutions);
+            this.runningExecutions, executionFinalizer, this.loader), this.runningExecutions,
+        new ExecutionUpdateStreams(this.props, this.apiGateway, this.runningExecutions));
     updaterThread.waitTimeIdleMs = 0;
     updaterThread.waitTimeMs = 0;
     final ExecutorManager executorManager = new ExecutorManager(this.props, this.loader,
@@ -518,6 +522,46 @@ public class ExecutorManagerTest {
     verify(this.loader, Mockito.times(2)).unassignExecutor(-1);
   }
 
+  /**
+   * A slow executor should not hold up dispatching the next queued flow to another executor.
+   */
+  @Test
+  public void testSlowDispatchDoesNotBlockQueue() throws Exception {
+    this.props.put(Constants.ConfigurationKeys.MAX_IN_FLIGHT_DISPATCHES_PER_EXECUTOR, 1);
+    testSetUpForRunningFlows();
+    final ExecutableFlow slowFlow = TestUtils.createTestExecutableFlow("exectest1", "exec1");
+    slowFlow.setExecutionId(101);
+    final ExecutableFlow fastFlow = TestUtils.createTestExecutableFlow("exectest1", "exec1");
+    fastFlow.setExecutionId(102);
+
+    final CountDownLatch slowDispatchStarted = new CountDownLatch(1);
+    final CountDownLatch slowDispatchReleased = new CountDownLatch(1);
+    final Map<Integer, Executor> dispatchedTo = new ConcurrentHashMap<>();
+    when(this.apiGateway.callWithExecutable(any(), any(), eq(ConnectorParams.EXECUTE_ACTION)))
+        .then(invocation -> {
+          final ExecutableFlow flow = invocation.getArgument(0);
+          dispatchedTo.put(flow.getExecutionId(), invocation.getArgument(1));
+          if (flow == slowFlow) {
+            slowDispatchStarted.countDown();
+            slowDispatchReleased.await();
+          }
+          return null;
+        });
+
+    this.manager.start();
+    try {
+      this.manager.submitExecutableFlow(slowFlow, this.user.getUserId());
+      assertThat(slowDispatchStarted.await(10, TimeUnit.SECONDS)).isTrue();
+      this.manager.submitExecutableFlow(fastFlow, this.user.getUserId());
+
+      azkaban.test.TestUtils.await().untilAsserted(() -> assertThat(dispatchedTo).containsKey(102));
+      // the slow executor has no free dispatch slot, so the other one must have been chosen
+      assertThat(dispatchedTo.get(102)).isNotEqualTo(dispatchedTo.get(101));
+    } finally {
+      slowDispatchReleased.countDown();
+    }
+  }
+
   @Test
   public void testSetFlowLock() throws Exception {
     testSetUpForRunningFlows();
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.executor.selector.ExecutorScoreIndex;
+import azkaban.executor.selector.FlowFootprint;
+import azkaban.executor.selector.FlowFootprintEstimator;
+import azkaban.utils.TestUtils;
+import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class ExecutorScoreIndexTest {
+
+  private static Executor executor(final int id, final ExecutorInfo info) {
+    final Executor executor = new Executor(id, "host" + id, 12345, true);
+    executor.setExecutorInfo(info);
+    return executor;
+  }
+
+  private static ExecutorInfo info(final double remainingMemoryPercent,
+      final long remainingMemoryInMB, final double cpuUsage) {
+    return new ExecutorInfo(remainingMemoryPercent, remainingMemoryInMB, 10,
+        System.currentTimeMillis(), cpuUsage, 0);
+  }
+
+  @Test
+  public void testScoresUpdateOnDispatchAndFinish() {
+    final ExecutorScoreIndex index = new ExecutorScoreIndex(null,
+        ImmutableMap.of("Memory", 1, "CpuUsage", 1));
+    final Executor first = executor(1, info(50, 16 * 1024, 20));
+    final Executor second = executor(2, info(50, 16 * 1024, 20));
+    index.update(first);
+    index.update(second);
+    final List<Executor> candidates = Arrays.asList(first, second);
+    final FlowFootprint footprint = new FlowFootprint(4 * 1024, 10);
+
+    // same score, the lower id goes first
+    assertThat(index.select(candidates, footprint)).isEqualTo(first);
+    index.onDispatch(100, first, footprint);
+    assertThat(index.getScore(first)).isLessThan(index.getScore(second));
+    assertThat(index.select(candidates, footprint)).isEqualTo(second);
+
+    index.onFinish(100);
+    assertThat(index.getScore(first)).isEqualTo(index.getScore(second));
+    assertThat(index.select(candidates, footprint)).isEqualTo(first);
+
+    // only candidates are selected
+    assertThat(index.select(Collections.singletonList(second), footprint)).isEqualTo(second);
+  }
+
+  @Test
+  public void testFiltersAccountForFootprint() {
+    final ExecutorScoreIndex index = new ExecutorScoreIndex(
+        Arrays.asList("MinimumFreeMemory", "CpuStatus", "StaticRemainingFlowSize"),
+        ImmutableMap.of("Memory", 1));
+    final Executor executor = executor(1, info(50, 8 * 1024, 50));
+    index.update(executor);
+    final List<Executor> candidates = Collections.singletonList(executor);
+
+    assertThat(index.select(candidates, FlowFootprint.NONE)).isEqualTo(executor);
+    // footprints larger than the room of any executor are capped to it
+    assertThat(index.select(candidates, new FlowFootprint(4 * 1024, 0))).isEqualTo(executor);
+    assertThat(index.select(candidates, new FlowFootprint(0, 50))).isEqualTo(executor);
+
+    // the refreshed statistics replace the reservations
+    index.onDispatch(100, executor, new FlowFootprint(1024, 0));
+    assertThat(index.select(candidates, new FlowFootprint(1024, 0))).isNull();
+    assertThat(index.select(candidates, new FlowFootprint(0, 40))).isEqualTo(executor);
+    index.update(executor);
+    assertThat(index.select(candidates, new FlowFootprint(1024, 0))).isEqualTo(executor);
+  }
+
+  @Test
+  public void testFinishAfterRefreshReleasesNothing() {
+    final ExecutorScoreIndex index = new ExecutorScoreIndex(
+        Collections.singletonList("MinimumFreeMemory"), ImmutableMap.of("Memory", 1));
+    final Executor executor = executor(1, info(50, 8 * 1024, 50));
+    index.update(executor);
+    final List<Executor> candidates = Collections.singletonList(executor);
+    final double refreshedScore = index.getScore(executor);
+
+    index.onDispatch(100, executor, new FlowFootprint(1024, 0));
+    // the refreshed statistics already count the flow
+    index.update(executor);
+    index.onFinish(100);
+
+    assertThat(index.getScore(executor)).isEqualTo(refreshedScore);
+    index.onDispatch(101, executor, new FlowFootprint(1024, 0));
+    assertThat(index.select(candidates, new FlowFootprint(1024, 0))).isNull();
+  }
+
+  @Test
+  public void testExecutorsWithoutStatistics() {
+    final Executor executor = executor(1, null);
+    final List<Executor> candidates = Collections.singletonList(executor);
+
+    final ExecutorScoreIndex withoutFilters = new ExecutorScoreIndex(null, null);
+    withoutFilters.update(executor);
+    assertThat(withoutFilters.select(candidates, FlowFootprint.NONE)).isEqualTo(executor);
+
+    final ExecutorScoreIndex withFilters =
+        new ExecutorScoreIndex(Collections.singletonList("CpuStatus"), null);
+    withFilters.update(executor);
+    assertThat(withFilters.select(candidates, FlowFootprint.NONE)).isNull();
+
+    withFilters.retainAll(Collections.emptyList());
+    assertThat(withFilters.select(candidates, FlowFootprint.NONE)).isNull();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownComparator() {
+    new ExecutorScoreIndex(null, ImmutableMap.of("Unknown", 1));
+  }
+
+  @Test
+  public void testFootprintEstimator() throws Exception {
+    final FlowFootprintEstimator estimator = new FlowFootprintEstimator();
+    final ExecutableFlow flow1 = TestUtils.createTestExecutableFlow("exectest1", "exec1");
+    flow1.setProjectId(1);
+    final ExecutableFlow flow2 = TestUtils.createTestExecutableFlow("exectest1", "exec2");
+    flow2.setProjectId(1);
+    assertThat(estimator.estimate(flow1).getMemoryInMB()).isEqualTo(0);
+
+    // 16 GB in total, of which 2 GB are used when idle
+    estimator.observe(1, info(87.5, 14 * 1024, 10), Collections.emptyList());
+    // and 12 GB with the two flows running
+    estimator.observe(1, info(25, 4 * 1024, 40), Arrays.asList(flow1, flow2));
+    assertThat(estimator.estimate(flow1).getMemoryInMB()).isEqualTo(5 * 1024);
+    assertThat(estimator.estimate(flow1).getCpuUsage()).isEqualTo(15.0);
+
+    // a lighter run decays the peak
+    estimator.observe(1, info(75, 12 * 1024, 10), Collections.singletonList(flow1));
+    assertThat(estimator.estimate(flow1).getMemoryInMB()).isEqualTo((long) (5 * 1024 * 0.95));
+    assertThat(estimator.estimate(flow2).getMemoryInMB()).isEqualTo(5 * 1024);
+
+    // a flow running alone on an almost full executor of 16000 MB is estimated at most half of it
+    final ExecutableFlow flow3 = TestUtils.createTestExecutableFlow("exectest1", "exec3");
+    flow3.setProjectId(1);
+    estimator.observe(2, info(1, 160, 100), Collections.singletonList(flow3));
+    assertThat(estimator.estimate(flow3).getMemoryInMB()).isEqualTo(8000);
+    assertThat(estimator.estimate(flow3).getCpuUsage()).isEqualTo(50.0);
+  }
+}
@@ -157,6 +157,15 @@ public class MockExecutorLoader implements ExecutorLoader {
     this.flowUpdateCount++;
   }
 
+  @Override
+  public void updateExecutableFlowDelta(final ExecutableFlow flow, final long lastUpdateTime)
+      throws ExecutorManagerException {
+    final ExecutableFlow toUpdate = this.flows.get(flow.getExecutionId());
+
+    toUpdate.applyUpdateObject(flow.toUpdateObject(lastUpdateTime));
+    this.flowUpdateCount++;
+  }
+
   @Override
   public void uploadExecutableNode(final ExecutableNode node, final Props inputParams)
       throws ExecutorManagerException {
@@ -228,6 +237,12 @@ public class MockExecutorLoader implements ExecutorLoader {
     return null;
   }
 
+  @Override
+  public LogData fetchLogsTail(final int execId, final String name, final int attempt,
+      final int length) throws ExecutorManagerException {
+    return null;
+  }
+
   @Override
   public List<ExecutableFlow> fetchFlowHistory(final int skip, final int num)
       throws ExecutorManagerException {
@@ -250,6 +265,32 @@ public class MockExecutorLoader implements ExecutorLoader {
     return new ArrayList<>();
   }
 
+  @Override
+  public List<ExecutionSummary> fetchExecutionSummaries(final int skip, final int num)
+      throws ExecutorManagerException {
+    return new ArrayList<>();
+  }
+
+  @Override
+  public List<ExecutionSummary> fetchExecutionSummaries(final int projectId, final String flowId,
+      final int skip, final int num) throws ExecutorManagerException {
+    return new ArrayList<>();
+  }
+
+  @Override
+  public List<ExecutionSummary> fetchExecutionSummaries(final int projectId, final String flowId,
+      final int skip, final int num, final Status status) throws ExecutorManagerException {
+    return new ArrayList<>();
+  }
+
+  @Override
+  public List<ExecutionSummary> fetchExecutionSummaries(final String projContain,
+      final String flowContains, final String userNameContains, final int status,
+      final long startTime, final long endTime, final int skip, final int num)
+      throws ExecutorManagerException {
+    return new ArrayList<>();
+  }
+
   @Override
   public List<ExecutableJobInfo> fetchJobHistory(final int projectId, final String jobId,
       final int skip, final int size) throws ExecutorManagerException {
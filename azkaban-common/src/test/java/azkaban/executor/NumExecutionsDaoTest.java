@@ -20,6 +20,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import azkaban.db.DatabaseOperator;
 import azkaban.test.Utils;
+import azkaban.utils.Props;
 import azkaban.utils.TestUtils;
 import java.sql.SQLException;
 import org.junit.After;
@@ -51,7 +52,7 @@ public class NumExecutionsDaoTest {
 
   @Before
   public void setup() {
-    this.executionFlowDao = new ExecutionFlowDao(dbOperator);
+    this.executionFlowDao = new ExecutionFlowDao(dbOperator, new Props());
     this.numExecutionsDao = new NumExecutionsDao(dbOperator);
   }
 
@@ -16,11 +16,15 @@
 
 package azkaban.executor;
 
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.utils.Pair;
+import azkaban.utils.Props;
 import azkaban.utils.TestUtils;
+import com.google.common.collect.ImmutableMap;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -198,4 +202,121 @@ public class QueuedExecutionsTest {
           queue.getReference(pair.getFirst().getExecId()));
     }
   }
+
+  private Pair<ExecutionReference, ExecutableFlow> createExecutablePair(final int execId,
+      final String user, final int priority) throws IOException {
+    final Pair<ExecutionReference, ExecutableFlow> pair = createExecutablePair("exec1", execId);
+    final ExecutableFlow exflow = pair.getSecond();
+    exflow.setSubmitUser(user);
+    exflow.setSubmitTime(System.currentTimeMillis());
+    final ExecutionOptions options = new ExecutionOptions();
+    options.addAllFlowParameters(
+        ImmutableMap.of(ExecutionOptions.FLOW_PRIORITY, String.valueOf(priority)));
+    exflow.setExecutionOptions(options);
+    return pair;
+  }
+
+  private static Props userTenantProps() {
+    final Props props = new Props();
+    props.put(ConfigurationKeys.QUEUE_FAIR_SHARE_TENANT, QueuedExecutions.TENANT_USER);
+    return props;
+  }
+
+  private static int fetchHeadId(final QueuedExecutions queue) throws InterruptedException {
+    return queue.fetchHead().getFirst().getExecId();
+  }
+
+  /* Test that tenants share the queue by weight, after priority */
+  @Test
+  public void testFairShare() throws Exception {
+    final Props props = userTenantProps();
+    props.put(ConfigurationKeys.QUEUE_FAIR_SHARE_WEIGHTS, "heavy,2");
+    final QueuedExecutions queue = new QueuedExecutions(100, props, project -> 0, null);
+    // a backfill of "bulk" queued before the flows of the other users
+    for (int i = 1; i <= 6; i++) {
+      final Pair<ExecutionReference, ExecutableFlow> pair = createExecutablePair(i, "bulk", 5);
+      queue.enqueue(pair.getSecond(), pair.getFirst());
+    }
+    for (int i = 11; i <= 14; i++) {
+      final Pair<ExecutionReference, ExecutableFlow> pair = createExecutablePair(i, "heavy", 5);
+      queue.enqueue(pair.getSecond(), pair.getFirst());
+    }
+    final Pair<ExecutionReference, ExecutableFlow> urgent = createExecutablePair(20, "bulk", 9);
+    queue.enqueue(urgent.getSecond(), urgent.getFirst());
+
+    // the flow of higher priority goes first and counts toward the share of "bulk"
+    Assert.assertEquals(20, fetchHeadId(queue));
+    Assert.assertEquals(11, fetchHeadId(queue));
+    Assert.assertEquals(12, fetchHeadId(queue));
+    Assert.assertEquals(1, fetchHeadId(queue));
+    Assert.assertEquals(13, fetchHeadId(queue));
+    Assert.assertEquals(14, fetchHeadId(queue));
+    Assert.assertEquals(2, fetchHeadId(queue));
+    Assert.assertEquals(3, fetchHeadId(queue));
+  }
+
+  /* Test that a requeued flow doesn't count toward the share of its tenant */
+  @Test
+  public void testRequeue() throws Exception {
+    final QueuedExecutions queue = new QueuedExecutions(100, userTenantProps(), project -> 0,
+        null);
+    final List<Pair<ExecutionReference, ExecutableFlow>> pairs = new ArrayList<>();
+    pairs.add(createExecutablePair(1, "a", 5));
+    pairs.add(createExecutablePair(2, "a", 5));
+    pairs.add(createExecutablePair(3, "b", 5));
+    queue.enqueueAll(pairs);
+
+    final Pair<ExecutionReference, ExecutableFlow> head = queue.fetchHead();
+    Assert.assertEquals(1, head.getFirst().getExecId());
+    queue.requeue(head.getSecond(), head.getFirst());
+    Assert.assertEquals(1, fetchHeadId(queue));
+    Assert.assertEquals(3, fetchHeadId(queue));
+    Assert.assertEquals(2, fetchHeadId(queue));
+  }
+
+  /* Test that flows of a project with its max number of running flows are skipped */
+  @Test
+  public void testMaxRunningPerProject() throws Exception {
+    final Props props = userTenantProps();
+    // the flows of the test project are all of project "flow"
+    props.put(ConfigurationKeys.QUEUE_MAX_RUNNING_PER_PROJECT, "flow,2");
+    final AtomicInteger running = new AtomicInteger(2);
+    final QueuedExecutions queue = new QueuedExecutions(100, props, project -> running.get(),
+        null);
+    final Pair<ExecutionReference, ExecutableFlow> pair = createExecutablePair(1, "a", 5);
+    queue.enqueue(pair.getSecond(), pair.getFirst());
+
+    final Thread finisher = new Thread(() -> {
+      try {
+        Thread.sleep(200);
+      } catch (final InterruptedException e) {
+        return;
+      }
+      running.set(1);
+    });
+    final long start = System.currentTimeMillis();
+    finisher.start();
+    Assert.assertEquals(1, fetchHeadId(queue));
+    Assert.assertTrue(System.currentTimeMillis() - start >= 200);
+    finisher.join();
+  }
+
+  /* Test that a flow waiting longer than the aging threshold goes ahead of higher priority */
+  @Test
+  public void testAging() throws Exception {
+    final Props props = userTenantProps();
+    props.put(ConfigurationKeys.QUEUE_AGING_THRESHOLD_MS, 60 * 1000);
+    final QueuedExecutions queue = new QueuedExecutions(100, props, project -> 0, null);
+    final Pair<ExecutionReference, ExecutableFlow> old = createExecutablePair(1, "a", 1);
+    old.getSecond().setSubmitTime(System.currentTimeMillis() - 120 * 1000);
+    final Pair<ExecutionReference, ExecutableFlow> recentLow = createExecutablePair(2, "a", 1);
+    final Pair<ExecutionReference, ExecutableFlow> recentHigh = createExecutablePair(3, "b", 9);
+    queue.enqueue(recentLow.getSecond(), recentLow.getFirst());
+    queue.enqueue(recentHigh.getSecond(), recentHigh.getFirst());
+    queue.enqueue(old.getSecond(), old.getFirst());
+
+    Assert.assertEquals(1, fetchHeadId(queue));
+    Assert.assertEquals(3, fetchHeadId(queue));
+    Assert.assertEquals(2, fetchHeadId(queue));
+  }
 }
@@ -1,17 +1,25 @@
 package azkaban.executor;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.alert.Alerter;
 import azkaban.metrics.CommonMetrics;
 import azkaban.utils.Pair;
+import azkaban.utils.Props;
 import com.google.common.collect.ImmutableMap;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -59,9 +67,9 @@ public class RunningExecutionsUpdaterTest {
     this.runningExecutions = new RunningExecutions();
     this.runningExecutions.get().put(EXECUTION_ID_77, new Pair<>(
         new ExecutionReference(EXECUTION_ID_77, this.activeExecutor), this.execution));
-    this.updater = new RunningExecutionsUpdater(this.updaterStage, this.alerterHolder,
-        this.commonMetrics, this.apiGateway, this.runningExecutions, this.executionFinalizer,
-        this.executorLoader);
+    this.updater = new RunningExecutionsUpdater(new Props(), this.updaterStage,
+        this.alerterHolder, this.commonMetrics, this.apiGateway, this.runningExecutions,
+        this.executionFinalizer, this.executorLoader);
     when(this.alerterHolder.get("email")).thenReturn(this.mailAlerter);
   }
 
@@ -142,6 +150,51 @@ public class RunningExecutionsUpdaterTest {
     verifyZeroInteractions(this.executionFinalizer);
   }
 
+  /**
+   * An executor which doesn't respond shouldn't hold back the updates from the other executors.
+   */
+  @Test
+  public void updateExecutionsHungExecutorTimesOut() throws Exception {
+    final Props props = new Props();
+    props.put(ConfigurationKeys.AZKABAN_EXECUTOR_POLL_TIMEOUT_MS, "100");
+    this.updater = new RunningExecutionsUpdater(props, this.updaterStage, this.alerterHolder,
+        this.commonMetrics, this.apiGateway, this.runningExecutions, this.executionFinalizer,
+        this.executorLoader);
+    final Executor hungExecutor = new Executor(2, "hungExecutor-2", 9999, true);
+    final ExecutableFlow hungExecution = new ExecutableFlow();
+    hungExecution.setExecutionId(78);
+    this.runningExecutions.get().put(78, new Pair<>(
+        new ExecutionReference(78, hungExecutor), hungExecution));
+    mockFlowSucceeded();
+    doAnswer(invocation -> {
+      Thread.sleep(60000);
+      return null;
+    }).when(this.apiGateway).updateExecutions(eq(hungExecutor), any());
+    when(this.executorLoader.fetchExecutor(2)).thenReturn(hungExecutor);
+
+    final long start = System.currentTimeMillis();
+    this.updater.updateExecutions();
+    assertThat(System.currentTimeMillis() - start).isLessThan(10000L);
+    verifyFinalizeFlow();
+    // The hung executor still exists, so its execution isn't finalized.
+    verify(this.executionFinalizer, never()).finalizeFlow(eq(hungExecution), any(), any());
+    verify(this.commonMetrics).addExecutionUpdateCycleTime(anyLong());
+  }
+
+  @Test
+  public void applyStreamedUpdates() throws Exception {
+    final Map<String, Object> succeeded = new HashMap<>(ImmutableMap.of(
+        ConnectorParams.UPDATE_MAP_EXEC_ID, EXECUTION_ID_77,
+        ExecutableNode.STATUS_PARAM, Status.SUCCEEDED.getNumVal()));
+    // Updates of executions which aren't running any more are ignored
+    final Map<String, Object> unknown = new HashMap<>(ImmutableMap.of(
+        ConnectorParams.UPDATE_MAP_EXEC_ID, 78,
+        ExecutableNode.STATUS_PARAM, Status.SUCCEEDED.getNumVal()));
+    this.updater.applyStreamedUpdates(Arrays.asList(unknown, succeeded));
+    verifyFinalizeFlow();
+    verifyZeroInteractions(this.apiGateway);
+  }
+
   private void mockFlowStillRunning() throws Exception {
     mockUpdateResponse();
   }
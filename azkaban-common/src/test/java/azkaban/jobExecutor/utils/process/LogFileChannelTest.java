@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.jobExecutor.utils.process;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LogFileChannelTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private static ByteBuffer bytes(final String text) {
+    return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testReopensRolledOverFile() throws Exception {
+    final File logFile = new File(this.temp.getRoot(), "job.log");
+    final File backup = new File(this.temp.getRoot(), "job.log.1");
+    try (LogFileChannel channel = new LogFileChannel(logFile)) {
+      channel.write(bytes("before\n"));
+
+      // What the rolling appender does
+      assertThat(logFile.renameTo(backup)).isTrue();
+      channel.write(bytes("after\n"));
+    }
+
+    assertThat(FileUtils.readFileToString(backup, StandardCharsets.UTF_8)).isEqualTo("before\n");
+    assertThat(FileUtils.readFileToString(logFile, StandardCharsets.UTF_8)).isEqualTo("after\n");
+  }
+
+  @Test
+  public void testAppendsToExistingFile() throws Exception {
+    final File logFile = new File(this.temp.getRoot(), "job.log");
+    FileUtils.writeStringToFile(logFile, "logged\n", StandardCharsets.UTF_8);
+    try (LogFileChannel channel = new LogFileChannel(logFile)) {
+      channel.write(bytes("raw\n"));
+    }
+
+    assertThat(FileUtils.readFileToString(logFile, StandardCharsets.UTF_8))
+        .isEqualTo("logged\nraw\n");
+  }
+}
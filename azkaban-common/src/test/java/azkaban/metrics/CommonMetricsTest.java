@@ -78,4 +78,21 @@ public class CommonMetricsTest {
     assertThat(snapshot.getMin()).isEqualTo(500);
     assertThat( snapshot.getMax()).isEqualTo(1000);
   }
+
+  @Test
+  public void testDispatchMetrics() {
+    final String metricName = CommonMetrics.DISPATCH_IN_FLIGHT_COUNT_NAME;
+
+    this.metrics.incrementInFlightDispatchCount();
+    assertThat(this.testUtil.getCounterValue(metricName)).isEqualTo(1);
+    this.metrics.decrementInFlightDispatchCount();
+    assertThat(this.testUtil.getCounterValue(metricName)).isEqualTo(0);
+
+    this.metrics.addDispatchLatency(20L);
+    this.metrics.addDispatchLatency(40L);
+    final Snapshot snapshot = this.testUtil
+        .getHistogramSnapshot(CommonMetrics.DISPATCH_LATENCY_HISTOGRAM_NAME);
+    assertThat(snapshot.getMin()).isEqualTo(20);
+    assertThat(snapshot.getMax()).isEqualTo(40);
+  }
 }
@@ -19,6 +19,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.catchThrowable;
 
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.db.DatabaseOperator;
 import azkaban.flow.Flow;
 import azkaban.test.Utils;
@@ -168,6 +169,80 @@ public class JdbcProjectImplTest {
     this.loader.uploadProjectFile(project.getId(), newVersion, testFile, "uploadUser1");
   }
 
+  @Test
+  public void testUploadProjectFileInChunks() throws Exception {
+    final ProjectLoader chunkLoader = createChunkLoader();
+    createThreeProjects();
+    final Project project = chunkLoader.fetchProjectByName("mytestProject");
+    final File testFile = new File(getClass().getClassLoader().getResource(SAMPLE_FILE).getFile());
+    final int newVersion = chunkLoader.getLatestProjectVersion(project) + 1;
+    chunkLoader.uploadProjectFile(project.getId(), newVersion, testFile, "uploadUser1");
+
+    final ProjectFileHandler fileHandler = chunkLoader.getUploadedFile(project.getId(), newVersion);
+    assertThat(fileHandler.getNumChunks()).isEqualTo(13);
+    assertThat(fileHandler.getMd5Hash()).isEqualTo(computeHash(testFile));
+    assertThat(FileUtils.contentEquals(testFile, fileHandler.getLocalFile())).isTrue();
+  }
+
+  @Test
+  public void testResumeInterruptedUploadProjectFile() throws Exception {
+    final ProjectLoader chunkLoader = createChunkLoader();
+    createThreeProjects();
+    final Project project = chunkLoader.fetchProjectByName("mytestProject");
+    final File testFile = new File(getClass().getClassLoader().getResource(SAMPLE_FILE).getFile());
+    final int newVersion = chunkLoader.getLatestProjectVersion(project) + 1;
+
+    // An upload which was interrupted after committing chunk 1 and a truncated chunk 2
+    final byte[] content = Files.toByteArray(testFile);
+    final String insertChunk =
+        "INSERT INTO project_files (project_id, version, chunk, size, file) values (?,?,?,?,?)";
+    chunkLoader.addProjectVersion(project.getId(), newVersion, testFile, "uploadUser1",
+        computeHash(testFile), null);
+    dbOperator.update(insertChunk, project.getId(), newVersion, 1, 100,
+        Arrays.copyOfRange(content, 100, 200));
+    dbOperator.update(insertChunk, project.getId(), newVersion, 2, 10,
+        Arrays.copyOfRange(content, 200, 210));
+
+    chunkLoader.uploadProjectFile(project.getId(), newVersion, testFile, "uploadUser1");
+
+    final ProjectFileHandler fileHandler = chunkLoader.getUploadedFile(project.getId(), newVersion);
+    assertThat(fileHandler.getNumChunks()).isEqualTo(13);
+    assertThat(FileUtils.contentEquals(testFile, fileHandler.getLocalFile())).isTrue();
+  }
+
+  @Test
+  public void testRestartInterruptedUploadOfOtherFile() throws Exception {
+    final ProjectLoader chunkLoader = createChunkLoader();
+    createThreeProjects();
+    final Project project = chunkLoader.fetchProjectByName("mytestProject");
+    final File testFile = new File(getClass().getClassLoader().getResource(SAMPLE_FILE).getFile());
+    final int newVersion = chunkLoader.getLatestProjectVersion(project) + 1;
+
+    // An interrupted upload of another file with the same name and size
+    final byte[] otherContent = new byte[(int) testFile.length()];
+    Arrays.fill(otherContent, (byte) 'x');
+    final String insertChunk =
+        "INSERT INTO project_files (project_id, version, chunk, size, file) values (?,?,?,?,?)";
+    chunkLoader.addProjectVersion(project.getId(), newVersion, testFile, "uploadUser1",
+        Md5Hasher.getMd5Digest().digest(otherContent), null);
+    dbOperator.update(insertChunk, project.getId(), newVersion, 1, 100,
+        Arrays.copyOfRange(otherContent, 100, 200));
+
+    chunkLoader.uploadProjectFile(project.getId(), newVersion, testFile, "uploadUser1");
+
+    final ProjectFileHandler fileHandler = chunkLoader.getUploadedFile(project.getId(), newVersion);
+    assertThat(fileHandler.getMd5Hash()).isEqualTo(computeHash(testFile));
+    assertThat(FileUtils.contentEquals(testFile, fileHandler.getLocalFile())).isTrue();
+  }
+
+  private ProjectLoader createChunkLoader() {
+    // sample file is 1274 bytes, so it is stored in 13 chunks
+    final Props chunkProps = new Props();
+    chunkProps.put(ConfigurationKeys.PROJECT_FILE_CHUNK_SIZE, 100);
+    chunkProps.put(ConfigurationKeys.PROJECT_FILE_CHUNK_IO_THREADS, 3);
+    return new JdbcProjectImpl(chunkProps, dbOperator);
+  }
+
   private byte[] computeHash(final File localFile) {
     final byte[] md5;
     try {
@@ -34,8 +34,17 @@ import static org.mockito.Mockito.when;
 
 import azkaban.db.DatabaseOperator;
 import azkaban.spi.Storage;
+import azkaban.utils.JSONUtils;
+import azkaban.utils.Pair;
 import azkaban.utils.Props;
+import com.google.common.collect.ImmutableMap;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -53,7 +62,8 @@ public class StorageCleanerTest {
 
     when(this.databaseOperator.query(
         eq(StorageCleaner.SQL_FETCH_PVR), anyObject(), eq(TEST_PROJECT_ID)))
-        .thenReturn(Arrays.asList("14/14-9.zip", "14/14-8.zip", "14/14-7.zip"));
+        .thenReturn(Arrays.asList(new Pair<>("14/14-9.zip", "zip"),
+            new Pair<>("14/14-8.zip", "zip"), new Pair<>("14/14-7.zip", "zip")));
 
     when(this.storage.delete("14/14-8.zip")).thenReturn(true);
     when(this.storage.delete("14/14-7.zip")).thenReturn(false);
@@ -102,4 +112,80 @@ public class StorageCleanerTest {
     verify(this.databaseOperator, times(1)).update(SQL_DELETE_RESOURCE_ID, "14/14-8.zip");
     verify(this.databaseOperator, never()).update(SQL_DELETE_RESOURCE_ID, "14/14-7.zip");
   }
+
+  @Test
+  public void testCleanupDeletesBlobsOfNoKeptManifest() throws Exception {
+    when(this.databaseOperator.query(
+        eq(StorageCleaner.SQL_FETCH_PVR), anyObject(), eq(TEST_PROJECT_ID)))
+        .thenReturn(Arrays.asList(new Pair<>("14/14-m3.zip", "manifest"),
+            new Pair<>("14/14-m2.zip", "manifest"), new Pair<>("14/14-m1.zip", "manifest")));
+    when(this.storage.get("14/14-m3.zip")).thenReturn(manifest("14/14-a.zip", "14/14-c.zip"));
+    when(this.storage.get("14/14-m2.zip")).thenReturn(manifest("14/14-a.zip", "14/14-b.zip"));
+    when(this.storage.get("14/14-m1.zip")).thenReturn(manifest("14/14-b.zip", "14/14-d.zip"));
+    when(this.storage.delete(anyString())).thenReturn(true);
+
+    final Props props = new Props();
+    props.put(AZKABAN_STORAGE_ARTIFACT_MAX_RETENTION, 1);
+    final StorageCleaner storageCleaner = new StorageCleaner(props, this.storage,
+        this.databaseOperator);
+    storageCleaner.cleanupProjectArtifacts(TEST_PROJECT_ID);
+
+    // Blob a is still listed by the kept manifest
+    verify(this.storage, never()).delete("14/14-a.zip");
+    verify(this.storage, never()).delete("14/14-c.zip");
+    verify(this.storage, never()).delete("14/14-m3.zip");
+    verify(this.storage, times(1)).delete("14/14-b.zip");
+    verify(this.storage, times(1)).delete("14/14-d.zip");
+    verify(this.storage, times(1)).delete("14/14-m2.zip");
+    verify(this.storage, times(1)).delete("14/14-m1.zip");
+    verify(this.databaseOperator, never()).update(SQL_DELETE_RESOURCE_ID, "14/14-b.zip");
+    verify(this.databaseOperator, times(1)).update(SQL_DELETE_RESOURCE_ID, "14/14-m2.zip");
+  }
+
+  @Test
+  public void testCleanupAllDeletesEveryBlob() throws Exception {
+    when(this.databaseOperator.query(
+        eq(StorageCleaner.SQL_FETCH_PVR), anyObject(), eq(TEST_PROJECT_ID)))
+        .thenReturn(Arrays.asList(new Pair<>("14/14-m2.zip", "manifest"),
+            new Pair<>("14/14-1.zip", "zip")));
+    when(this.storage.get("14/14-m2.zip")).thenReturn(manifest("14/14-a.zip"));
+    when(this.storage.delete(anyString())).thenReturn(true);
+
+    final Props props = new Props();
+    props.put(AZKABAN_STORAGE_ARTIFACT_MAX_RETENTION, 5);
+    final StorageCleaner storageCleaner = new StorageCleaner(props, this.storage,
+        this.databaseOperator);
+    storageCleaner.cleanupAllProjectArtifacts(TEST_PROJECT_ID);
+
+    verify(this.storage, times(1)).delete("14/14-a.zip");
+    verify(this.storage, times(1)).delete("14/14-m2.zip");
+    verify(this.storage, times(1)).delete("14/14-1.zip");
+  }
+
+  @Test
+  public void testCleanupKeepsBlobsIfKeptManifestIsUnreadable() throws Exception {
+    when(this.databaseOperator.query(
+        eq(StorageCleaner.SQL_FETCH_PVR), anyObject(), eq(TEST_PROJECT_ID)))
+        .thenReturn(Arrays.asList(new Pair<>("14/14-m2.zip", "manifest"),
+            new Pair<>("14/14-m1.zip", "manifest")));
+    when(this.storage.get("14/14-m2.zip")).thenThrow(new IOException("unavailable"));
+    when(this.storage.get("14/14-m1.zip")).thenReturn(manifest("14/14-a.zip"));
+
+    final Props props = new Props();
+    props.put(AZKABAN_STORAGE_ARTIFACT_MAX_RETENTION, 1);
+    final StorageCleaner storageCleaner = new StorageCleaner(props, this.storage,
+        this.databaseOperator);
+    storageCleaner.cleanupProjectArtifacts(TEST_PROJECT_ID);
+
+    verify(this.storage, never()).delete(anyString());
+  }
+
+  private static InputStream manifest(final String... blobKeys) {
+    final List<Object> files = new ArrayList<>();
+    for (final String key : blobKeys) {
+      files.add(ImmutableMap.of("path", key, "md5", key, "size", 1, "key", key));
+    }
+    return new ByteArrayInputStream(JSONUtils.toJSON(ImmutableMap.of("files", files))
+        .getBytes(StandardCharsets.UTF_8));
+  }
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import azkaban.AzkabanCommonModuleConfig;
+import azkaban.Constants.ConfigurationKeys;
+import azkaban.project.Project;
+import azkaban.project.ProjectFileHandler;
+import azkaban.project.ProjectLoader;
+import azkaban.spi.Storage;
+import azkaban.user.User;
+import azkaban.utils.Pair;
+import azkaban.utils.Props;
+import com.google.common.io.Files;
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StorageManagerTest {
+
+  private static final String SAMPLE_FILE = "sample_flow_01.zip";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  private Storage storage;
+  private StorageManager storageManager;
+  // Project versions added to the mocked DB
+  private final Map<Pair<Integer, Integer>, ProjectFileHandler> projectVersions =
+      new HashMap<>();
+
+  @Before
+  public void setUp() throws Exception {
+    final AzkabanCommonModuleConfig config = mock(AzkabanCommonModuleConfig.class);
+    when(config.getLocalStorageBaseDirPath())
+        .thenReturn(this.temporaryFolder.newFolder("storage").getPath());
+    this.storage = spy(new LocalStorage(config));
+
+    final ProjectLoader projectLoader = mock(ProjectLoader.class);
+    doAnswer(invocation -> {
+      final File file = invocation.getArgument(2);
+      final ProjectFileHandler pfh = new ProjectFileHandler(invocation.getArgument(0),
+          invocation.getArgument(1), System.currentTimeMillis(), invocation.getArgument(3),
+          Files.getFileExtension(file.getName()), file.getName(), 0, invocation.getArgument(4),
+          invocation.getArgument(5));
+      this.projectVersions.put(new Pair<>(pfh.getProjectId(), pfh.getVersion()), pfh);
+      return null;
+    }).when(projectLoader).addProjectVersion(anyInt(), anyInt(), any(), anyString(), any(),
+        anyString());
+    when(projectLoader.fetchProjectMetaData(anyInt(), anyInt())).thenAnswer(invocation ->
+        this.projectVersions.get(
+            new Pair<>(invocation.getArgument(0), invocation.getArgument(1))));
+
+    final Props props = new Props();
+    props.put("project.temp.dir", this.temporaryFolder.newFolder("temp").getPath());
+    props.put(ConfigurationKeys.AZKABAN_STORAGE_CONTENT_ADDRESSED, "true");
+    this.storageManager = new StorageManager(props, this.storage, projectLoader,
+        mock(StorageCleaner.class));
+  }
+
+  @Test
+  public void testContentAddressedUploadOnlyStoresNewBlobs() throws Exception {
+    final File projectFile =
+        new File(getClass().getClassLoader().getResource(SAMPLE_FILE).getFile());
+    final Project project = new Project(11, "myTestProject");
+    final User uploader = new User("testUser");
+
+    this.storageManager.uploadProject(project, 1, projectFile, uploader);
+    final ProjectManifest manifest = this.storageManager.getProjectManifest(11, 1);
+    assertThat(manifest.getEntries()).isNotEmpty();
+    // One put per distinct file content, and one for the manifest
+    final int blobs = manifest.getKeysByMd5().size();
+    verify(this.storage, times(blobs + 1)).put(any(), any());
+
+    // The second version has the same files, so only its manifest is stored
+    this.storageManager.uploadProject(project, 2, projectFile, uploader);
+    verify(this.storage, times(blobs + 2)).put(any(), any());
+
+    final ProjectFileHandler pfh = this.storageManager.getProjectFile(11, 2);
+    try {
+      assertThat(pfh.getFileType()).isEqualTo("zip");
+      assertThat(pfh.getFileName()).isEqualTo(SAMPLE_FILE);
+      assertThat(zipEntryNames(pfh.getLocalFile())).isEqualTo(zipEntryNames(projectFile));
+    } finally {
+      pfh.deleteLocalFile();
+    }
+  }
+
+  private static Set<String> zipEntryNames(final File file) throws Exception {
+    final Set<String> names = new HashSet<>();
+    try (ZipFile zip = new ZipFile(file)) {
+      zip.stream().filter(entry -> !entry.isDirectory()).map(ZipEntry::getName)
+          .forEach(names::add);
+    }
+    return names;
+  }
+}
@@ -22,6 +22,7 @@ import azkaban.Constants.ConfigurationKeys;
 import azkaban.executor.ActiveExecutors;
 import azkaban.executor.AlerterHolder;
 import azkaban.executor.ExecutionFinalizer;
+import azkaban.executor.ExecutionUpdateStreams;
 import azkaban.executor.ExecutorApiGateway;
 import azkaban.executor.ExecutorLoader;
 import azkaban.executor.ExecutorManager;
@@ -72,7 +73,8 @@ public class TriggerManagerDeadlockTest {
         this.updaterStage, this.alertHolder, this.runningExecutions);
     this.commonMetrics = new CommonMetrics(new MetricsManager(new MetricRegistry()));
     final ExecutorManager executorManager = getExecutorManager(props);
-    this.triggerManager = new TriggerManager(props, this.loader, executorManager);
+    this.triggerManager = new TriggerManager(props, this.loader, executorManager,
+        this.commonMetrics);
   }
 
   private ExecutorManager getExecutorManager(final Props props) throws ExecutorManagerException {
@@ -84,9 +86,10 @@ public class TriggerManagerDeadlockTest {
   }
 
   private RunningExecutionsUpdaterThread getRunningExecutionsUpdaterThread() {
-    return new RunningExecutionsUpdaterThread(new RunningExecutionsUpdater(
+    return new RunningExecutionsUpdaterThread(new RunningExecutionsUpdater(new Props(),
         this.updaterStage, this.alertHolder, this.commonMetrics, this.apiGateway,
-        this.runningExecutions, this.executionFinalizer, this.execLoader), this.runningExecutions);
+        this.runningExecutions, this.executionFinalizer, this.execLoader), this.runningExecutions,
+        new ExecutionUpdateStreams(new Props(), this.apiGateway, this.runningExecutions));
   }
 
   @After
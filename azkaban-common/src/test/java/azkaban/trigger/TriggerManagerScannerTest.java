@@ -0,0 +1,159 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.trigger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import azkaban.executor.ExecutorManagerAdapter;
+import azkaban.metrics.CommonMetrics;
+import azkaban.metrics.MetricsManager;
+import azkaban.test.TestUtils;
+import azkaban.utils.Props;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the trigger scanner only evaluates the triggers which are due.
+ */
+public class TriggerManagerScannerTest {
+
+  private MetricRegistry metricRegistry;
+  private TriggerManager triggerManager;
+
+  @Before
+  public void setUp() throws Exception {
+    final Props props = new Props();
+    props.put("trigger.scan.interval", 50);
+    this.metricRegistry = new MetricRegistry();
+    this.triggerManager = new TriggerManager(props, new MockTriggerLoader(),
+        mock(ExecutorManagerAdapter.class),
+        new CommonMetrics(new MetricsManager(this.metricRegistry)));
+    this.triggerManager.start();
+  }
+
+  @After
+  public void tearDown() {
+    this.triggerManager.shutdown();
+  }
+
+  @Test
+  public void testOnlyDueTriggersAreChecked() throws Exception {
+    final long now = System.currentTimeMillis();
+    final CountingChecker notDueChecker = new CountingChecker("NotDueChecker", now + 3600000L);
+    final CountingChecker dueChecker = new CountingChecker("DueChecker", now - 1000L);
+    final Trigger notDueTrigger = createTrigger(notDueChecker);
+    final Trigger dueTrigger = createTrigger(dueChecker);
+
+    this.triggerManager.insertTrigger(notDueTrigger);
+    this.triggerManager.insertTrigger(dueTrigger);
+
+    // the due trigger fires once and expires
+    TestUtils.await().untilAsserted(() ->
+        assertThat(this.triggerManager.getTrigger(dueTrigger.getTriggerId())).isNull());
+    Thread.sleep(200);
+
+    assertThat(dueChecker.evalCount.get()).isEqualTo(1);
+    assertThat(notDueChecker.evalCount.get()).isEqualTo(0);
+    assertThat(this.metricRegistry.histogram(CommonMetrics.TRIGGER_FIRING_LAG_HISTOGRAM_NAME)
+        .getCount()).isEqualTo(1);
+  }
+
+  private static Trigger createTrigger(final ConditionChecker triggerChecker) {
+    final ConditionChecker expireChecker =
+        new CountingChecker(triggerChecker.getId() + "_expire", Long.MAX_VALUE);
+    final Map<String, ConditionChecker> triggerCheckers =
+        ImmutableMap.of(triggerChecker.getId(), triggerChecker);
+    final Map<String, ConditionChecker> expireCheckers =
+        ImmutableMap.of(expireChecker.getId(), expireChecker);
+    final Trigger trigger = new Trigger.TriggerBuilder("scannerTest", "azkaban",
+        new Condition(triggerCheckers, triggerChecker.getId() + ".eval()"),
+        new Condition(expireCheckers, expireChecker.getId() + ".eval()"),
+        Collections.singletonList(new DummyTriggerAction("fired"))).build();
+    trigger.setResetOnTrigger(false);
+    return trigger;
+  }
+
+  /**
+   * Checker which is met from its check time on, and counts how often it was evaluated.
+   */
+  public static class CountingChecker implements ConditionChecker {
+
+    private final String id;
+    private final long checkTime;
+    private final AtomicInteger evalCount = new AtomicInteger();
+
+    public CountingChecker(final String id, final long checkTime) {
+      this.id = id;
+      this.checkTime = checkTime;
+    }
+
+    @Override
+    public Object eval() {
+      this.evalCount.incrementAndGet();
+      return this.checkTime < System.currentTimeMillis();
+    }
+
+    @Override
+    public Object getNum() {
+      return null;
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    @Override
+    public String getId() {
+      return this.id;
+    }
+
+    @Override
+    public String getType() {
+      return "CountingChecker";
+    }
+
+    @Override
+    public ConditionChecker fromJson(final Object obj) {
+      return null;
+    }
+
+    @Override
+    public Object toJson() {
+      return null;
+    }
+
+    @Override
+    public void stopChecker() {
+    }
+
+    @Override
+    public void setContext(final Map<String, Object> context) {
+    }
+
+    @Override
+    public long getNextCheckTime() {
+      return this.checkTime;
+    }
+  }
+}
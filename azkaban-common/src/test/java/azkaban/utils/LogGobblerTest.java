@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.Test;
+
+public class LogGobblerTest {
+
+  private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+  private static ByteArrayInputStream input(final String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Returns at most 3 bytes per read, so lines are split across reads.
+   */
+  private static InputStream trickle(final String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)) {
+      @Override
+      public synchronized int read(final byte[] b, final int off, final int len) {
+        return super.read(b, off, Math.min(3, len));
+      }
+    };
+  }
+
+  private static Logger enabledLogger() {
+    final Logger logger = mock(Logger.class);
+    when(logger.isEnabledFor(Level.INFO)).thenReturn(true);
+    return logger;
+  }
+
+  @Test
+  public void testLogsEachLine() throws Exception {
+    final Logger logger = enabledLogger();
+    final LogGobbler gobbler = new LogGobbler(input("first\r\nsecond\nthird"), logger,
+        Level.INFO, 2);
+    gobbler.run();
+
+    verify(logger).log(Level.INFO, "first");
+    verify(logger).log(Level.INFO, "second");
+    verify(logger).log(Level.INFO, "third");
+    assertThat(gobbler.getRecentLog()).isEqualTo("second" + LINE_SEPARATOR + "third");
+  }
+
+  @Test
+  public void testSplitsLongLines() throws Exception {
+    final Logger logger = enabledLogger();
+    final char[] line = new char[LogGobbler.MAX_LINE_BYTES * 2 + 10];
+    Arrays.fill(line, 'x');
+    final LogGobbler gobbler = new LogGobbler(input(new String(line) + "\n"), logger,
+        Level.INFO, 1);
+    gobbler.run();
+
+    verify(logger, times(3)).log(eq(Level.INFO), anyString());
+  }
+
+  @Test
+  public void testCopiesOutputToChannel() throws Exception {
+    final Logger logger = enabledLogger();
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final LogGobbler gobbler = new LogGobbler(input("a\nb\nc\n"), Channels.newChannel(out),
+        logger, Level.INFO, 30);
+    gobbler.run();
+
+    assertThat(out.toString("UTF-8")).isEqualTo("a\nb\nc\n");
+    verify(logger, times(0)).log(eq(Level.INFO), anyString());
+    assertThat(gobbler.getRecentLog())
+        .isEqualTo("a" + LINE_SEPARATOR + "b" + LINE_SEPARATOR + "c");
+  }
+
+  @Test
+  public void testSharedChannelGetsWholeLines() throws Exception {
+    final Logger logger = enabledLogger();
+    final StringBuilder out = new StringBuilder();
+    final StringBuilder err = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      out.append("output line ").append(i).append('\n');
+      err.append("error line ").append(i).append('\n');
+    }
+    final ByteArrayOutputStream log = new ByteArrayOutputStream();
+    final WritableByteChannel channel = Channels.newChannel(log);
+    final LogGobbler outGobbler = new LogGobbler(trickle(out.toString()), channel, logger,
+        Level.INFO, 30);
+    final LogGobbler errGobbler = new LogGobbler(trickle(err.toString()), channel, logger,
+        Level.ERROR, 30);
+    outGobbler.start();
+    errGobbler.start();
+    outGobbler.join();
+    errGobbler.join();
+
+    final String[] lines = log.toString("UTF-8").split("\n", -1);
+    assertThat(lines).hasSize(2001);
+    assertThat(lines).filteredOn(line -> line.startsWith("output")).hasSize(1000);
+    assertThat(lines).filteredOn(line -> line.startsWith("error")).hasSize(1000);
+    assertThat(lines).filteredOn(line -> line.matches("(output|error) line \\d+")).hasSize(2000);
+  }
+
+  @Test
+  public void testWritesLastPartialLine() throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final LogGobbler gobbler = new LogGobbler(trickle("first\nsecond"), Channels.newChannel(out),
+        enabledLogger(), Level.INFO, 30);
+    gobbler.run();
+
+    assertThat(out.toString("UTF-8")).isEqualTo("first\nsecond");
+  }
+
+  @Test
+  public void testRingKeepsLastBytes() {
+    final ByteRing ring = new ByteRing(8);
+    final byte[] bytes = "one\ntwo\nthree\n".getBytes(StandardCharsets.UTF_8);
+    ring.write(bytes, 0, 4);
+    assertThat(ring.lastLines(5)).containsExactly("one");
+
+    ring.write(bytes, 4, bytes.length - 4);
+    assertThat(ring.size()).isEqualTo(8);
+    assertThat(new String(ring.toByteArray(), StandardCharsets.UTF_8)).isEqualTo("o\nthree\n");
+    // The cut line "o" is left out
+    assertThat(ring.lastLines(5)).containsExactly("three");
+
+    ring.write(bytes, 0, bytes.length);
+    assertThat(new String(ring.toByteArray(), StandardCharsets.UTF_8)).isEqualTo("o\nthree\n");
+  }
+}
@@ -17,7 +17,12 @@
 package azkaban.utils;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -105,6 +110,34 @@ public class PropsUtilsTest {
     Assert.assertEquals("8", resolved.get("expression9"));
   }
 
+  @Test
+  public void testSharedVariablesAndExpressions() throws Exception {
+    final Props parent = Props.of("root", "/data", "days", "$(3 * 7)");
+    final Props props = new Props(parent);
+    for (int i = 0; i < 50; i++) {
+      props.put("path" + i, "${root}/" + i + "/${days}");
+      props.put("retries" + i, "$(1 + 2)");
+    }
+
+    // Resolving from several threads shares the compiled expressions.
+    final ExecutorService service = Executors.newFixedThreadPool(4);
+    try {
+      final List<Future<Props>> futures = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(service.submit(() -> PropsUtils.resolveProps(props)));
+      }
+      for (final Future<Props> future : futures) {
+        final Props resolved = future.get();
+        for (int i = 0; i < 50; i++) {
+          Assert.assertEquals("/data/" + i + "/21", resolved.get("path" + i));
+          Assert.assertEquals("3", resolved.get("retries" + i));
+        }
+      }
+    } finally {
+      service.shutdownNow();
+    }
+  }
+
   @Test
   public void testMalformedExpressionProps() throws IOException {
     // unclosed
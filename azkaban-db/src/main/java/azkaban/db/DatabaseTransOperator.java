@@ -107,6 +107,25 @@ public class DatabaseTransOperator {
     }
   }
 
+  /**
+   * Executes the given INSERT, UPDATE, or DELETE SQL statement once for each row of params, as a
+   * single JDBC batch.
+   *
+   * @param sqlCommand sql statement to execute
+   * @param params one row of PreparedStatement IN parameters per execution
+   * @return The number of rows updated per execution.
+   */
+  public int[] batch(final String sqlCommand, final Object[][] params) throws SQLException {
+    try {
+      return this.queryRunner.batch(this.conn, sqlCommand, params);
+    } catch (final SQLException ex) {
+      //RETRY Logic should be implemented here if needed.
+      throw ex;
+    } finally {
+      // Note: CAN NOT CLOSE CONNECTION HERE.
+    }
+  }
+
   /**
    * @return the JDBC connection associated with this operator.
    */
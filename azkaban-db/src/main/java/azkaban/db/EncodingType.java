@@ -17,12 +17,13 @@
 package azkaban.db;
 
 /**
- * Used for when we store text data. Plain uses UTF8 encoding.
+ * Used for when we store text data. Plain uses UTF8 encoding. SMILE is only used for JSON data,
+ * which it stores in the binary Smile format.
  */
 // TODO kunkun-tang: This class needs to move to azkaban-db module, as database module should be
 // Deprecated soon.
 public enum EncodingType {
-  PLAIN(1), GZIP(2);
+  PLAIN(1), GZIP(2), LZ4(3), SMILE(4);
 
   private final int numVal;
 
@@ -36,6 +37,10 @@ public enum EncodingType {
         return PLAIN;
       case 2:
         return GZIP;
+      case 3:
+        return LZ4;
+      case 4:
+        return SMILE;
       default:
         return PLAIN;
     }
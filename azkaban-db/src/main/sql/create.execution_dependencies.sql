@@ -16,3 +16,12 @@ CREATE TABLE execution_dependencies(
 
 CREATE INDEX ex_end_time
   ON execution_dependencies (endtime);
+
+CREATE INDEX ex_dep_status
+  ON execution_dependencies (dep_status, flow_exec_id, trigger_instance_id);
+
+CREATE INDEX ex_dep_project_flow
+  ON execution_dependencies (project_id, flow_id, trigger_instance_id, starttime);
+
+CREATE INDEX ex_dep_flow_exec_id
+  ON execution_dependencies (flow_exec_id);
@@ -0,0 +1,28 @@
+-- DB Migration from release 3.77.0 to 3.78.0
+-- Adds execution_flow_updates, an append log of node state changes for running executions.
+-- When delta updates are enabled, executors append only the changed nodes here instead of
+-- rewriting execution_flows.flow_data, and compact the log into flow_data when the flow finishes.
+--
+CREATE TABLE execution_flow_updates (
+  update_id   BIGINT       NOT NULL AUTO_INCREMENT,
+  exec_id     INT          NOT NULL,
+  update_time BIGINT,
+  enc_type    TINYINT,
+  update_data LONGBLOB,
+  PRIMARY KEY (update_id)
+);
+
+CREATE INDEX ex_flow_updates_exec_id
+  ON execution_flow_updates (exec_id);
+
+-- Adds indexes on execution_dependencies for the running, pending and per flow views of flow
+-- trigger instances and the lookup by flow execution id.
+--
+CREATE INDEX ex_dep_status
+  ON execution_dependencies (dep_status, flow_exec_id, trigger_instance_id);
+
+CREATE INDEX ex_dep_project_flow
+  ON execution_dependencies (project_id, flow_id, trigger_instance_id, starttime);
+
+CREATE INDEX ex_dep_flow_exec_id
+  ON execution_dependencies (flow_exec_id);
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import azkaban.execapp.jmx.JmxJobMBeanManager;
+import azkaban.executor.AlerterHolder;
+import azkaban.executor.ExecutableFlow;
+import azkaban.executor.MockExecutorLoader;
+import azkaban.executor.Status;
+import azkaban.flow.Flow;
+import azkaban.jobtype.JobTypeManager;
+import azkaban.project.Project;
+import azkaban.project.ProjectLoader;
+import azkaban.test.Utils;
+import azkaban.utils.Props;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long the flow runner takes to hand off from a finished job to the jobs depending
+ * on it, by running flows of no-op jobs.
+ *
+ * <p>A "deep" flow is a chain of jobs, so the time per flow divided by the number of jobs is the
+ * job-to-job handoff latency. A "wide" flow fans out from one job to all the others and back in
+ * to a last job, which measures how fast ready jobs are started and joined.
+ *
+ * <p>Run with {@code ./gradlew :azkaban-exec-server:jmh}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FlowRunnerHandoffBenchmark {
+
+  private static final String END_JOB = "end";
+
+  @Param({"deep", "wide"})
+  public String shape;
+
+  @Param({"100", "1000"})
+  public int jobs;
+
+  private File workingDir;
+  private File execDir;
+  private Project project;
+  private Flow flow;
+  private JobTypeManager jobtypeManager;
+  private MockExecutorLoader executorLoader;
+  private ProjectLoader projectLoader;
+  private int nextExecId = 1;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    Utils.initServiceProvider();
+    JmxJobMBeanManager.getInstance().initialize(new Props());
+
+    this.workingDir = Files.createTempDir();
+    final File projectDir = new File(this.workingDir, "project");
+    this.execDir = new File(this.workingDir, "exec");
+    if ("deep".equals(this.shape)) {
+      writeDeepFlow(projectDir);
+    } else {
+      writeWideFlow(projectDir);
+    }
+
+    this.project = new Project(1, "handoffBenchmark");
+    this.flow = FlowRunnerTestUtil.prepareProject(this.project, projectDir, this.execDir)
+        .get(END_JOB);
+    this.jobtypeManager = new JobTypeManager(null, null, getClass().getClassLoader());
+    this.executorLoader = new MockExecutorLoader();
+    this.projectLoader = mock(ProjectLoader.class, withSettings().stubOnly());
+  }
+
+  @TearDown(Level.Iteration)
+  public void deleteLogs() {
+    final File[] logs = this.execDir.listFiles((dir, name) -> name.endsWith(".log"));
+    if (logs != null) {
+      for (final File log : logs) {
+        FileUtils.deleteQuietly(log);
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    FileUtils.deleteQuietly(this.workingDir);
+  }
+
+  @Benchmark
+  public Status runFlow() throws Exception {
+    final ExecutableFlow exFlow = new ExecutableFlow(this.project, this.flow);
+    exFlow.setExecutionId(this.nextExecId++);
+    exFlow.setExecutionPath(this.execDir.getPath());
+    this.executorLoader.uploadExecutableFlow(exFlow);
+
+    final FlowRunner runner = new FlowRunner(exFlow, this.executorLoader, this.projectLoader,
+        this.jobtypeManager, new Props(), null, mock(AlerterHolder.class));
+    final Thread thread = new Thread(runner);
+    thread.start();
+    thread.join();
+    return exFlow.getStatus();
+  }
+
+  private void writeDeepFlow(final File projectDir) throws IOException {
+    String previous = null;
+    for (int i = 0; i < this.jobs - 1; i++) {
+      final String job = "job" + i;
+      writeJob(projectDir, job, previous);
+      previous = job;
+    }
+    writeJob(projectDir, END_JOB, previous);
+  }
+
+  private void writeWideFlow(final File projectDir) throws IOException {
+    writeJob(projectDir, "start", null);
+    final StringBuilder dependencies = new StringBuilder();
+    for (int i = 0; i < this.jobs - 2; i++) {
+      final String job = "job" + i;
+      writeJob(projectDir, job, "start");
+      if (dependencies.length() > 0) {
+        dependencies.append(',');
+      }
+      dependencies.append(job);
+    }
+    writeJob(projectDir, END_JOB, dependencies.toString());
+  }
+
+  private static void writeJob(final File projectDir, final String name,
+      final String dependencies) throws IOException {
+    final StringBuilder job = new StringBuilder("type=noop\n");
+    if (dependencies != null) {
+      job.append("dependencies=").append(dependencies).append('\n');
+    }
+    FileUtils.writeStringToFile(new File(projectDir, name + ".job"), job.toString(),
+        StandardCharsets.UTF_8);
+  }
+}
@@ -26,6 +26,7 @@ import static java.util.Objects.requireNonNull;
 import azkaban.AzkabanCommonModule;
 import azkaban.Constants;
 import azkaban.execapp.event.JobCallbackManager;
+import azkaban.execapp.event.JobCallbackRequestMaker;
 import azkaban.execapp.jmx.JmxFlowRunnerManager;
 import azkaban.execapp.jmx.JmxJobMBeanManager;
 import azkaban.execapp.metric.NumFailedFlowMetric;
@@ -475,6 +476,9 @@ public class AzkabanExecutorServer implements IMBeanRegistrable {
     this.server.stop();
     this.server.destroy();
     getFlowRunnerManager().shutdownNow();
+    if (JobCallbackRequestMaker.isInitialized()) {
+      JobCallbackRequestMaker.getInstance().shutdown();
+    }
     this.mbeanRegistrationManager.closeMBeans();
   }
 
@@ -31,9 +31,14 @@ public class ExecMetrics {
   public static final String NUM_QUEUED_FLOWS_NAME = "EXEC-NumQueuedFlows";
   public static final String PROJECT_DIR_CACHE_HIT_RATIO_NAME = "EXEC-ProjectDirCacheHitRatio";
   public static final String FLOW_SETUP_TIMER_NAME = "EXEC-flow-setup-timer";
+  public static final String PROJECT_LOCK_WAIT_TIMER_NAME = "EXEC-project-lock-wait-timer";
+  public static final String PROJECT_CACHE_LOCK_WAIT_TIMER_NAME =
+      "EXEC-project-cache-lock-wait-timer";
 
   private final MetricsManager metricsManager;
   private Timer flowSetupTimer;
+  private final Timer projectLockWaitTimer;
+  private final Timer projectCacheLockWaitTimer;
   private final ProjectCacheHitRatio projectCacheHitRatio;
 
   @Inject
@@ -44,12 +49,29 @@ public class ExecMetrics {
     metricsManager.addGauge("EXEC-ProjectDirCacheHitRatio",
         this.projectCacheHitRatio::getRatio);
     this.flowSetupTimer = this.metricsManager.addTimer(FLOW_SETUP_TIMER_NAME);
+    this.projectLockWaitTimer = this.metricsManager.addTimer(PROJECT_LOCK_WAIT_TIMER_NAME);
+    this.projectCacheLockWaitTimer =
+        this.metricsManager.addTimer(PROJECT_CACHE_LOCK_WAIT_TIMER_NAME);
   }
 
   ProjectCacheHitRatio getProjectCacheHitRatio() {
     return this.projectCacheHitRatio;
   }
 
+  /**
+   * @return the timer of the time spent waiting for a project's lock when preparing a flow.
+   */
+  Timer getProjectLockWaitTimer() {
+    return this.projectLockWaitTimer;
+  }
+
+  /**
+   * @return the timer of the time spent waiting to clean up the project cache.
+   */
+  Timer getProjectCacheLockWaitTimer() {
+    return this.projectCacheLockWaitTimer;
+  }
+
   public void addFlowRunnerManagerMetrics(final FlowRunnerManager flowRunnerManager) {
     this.metricsManager
         .addGauge(NUM_RUNNING_FLOWS_NAME, flowRunnerManager::getNumRunningFlows);
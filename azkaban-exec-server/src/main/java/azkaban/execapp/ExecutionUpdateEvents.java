@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import azkaban.utils.Pair;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Numbered log of the status changes of the flows running on this executor, which the web server
+ * streams by long polling. Each poll asks for the events after the last sequence number it has
+ * seen and waits until there are some.
+ *
+ * <p>Only the most recent events are kept. A poller which fell behind, or which polled a previous
+ * run of the executor, is told about the gap and has to reconcile by a full update.
+ */
+class ExecutionUpdateEvents {
+
+  static final int DEFAULT_CAPACITY = 10000;
+
+  // Identifies this run of the executor, as sequence numbers start over on restart.
+  private final String epoch = UUID.randomUUID().toString();
+  private final int capacity;
+  private final Deque<Event> events = new ArrayDeque<>();
+  // Time of the latest event by execution id
+  private final Map<Integer, Long> lastEventTimes = new HashMap<>();
+  private long sequence = 0;
+
+  ExecutionUpdateEvents() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  ExecutionUpdateEvents(final int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Records that a flow was updated.
+   *
+   * @param execId execution id of the flow
+   * @param updateTime the new update time of the flow
+   * @param finished true if the flow won't be updated any more
+   */
+  synchronized void flowUpdated(final int execId, final long updateTime,
+      final boolean finished) {
+    // Nodes updated in the same millisecond as the previous event are sent again.
+    final Long lastEventTime = finished ? this.lastEventTimes.remove(execId)
+        : this.lastEventTimes.put(execId, updateTime);
+    final long since = lastEventTime == null ? 0 : lastEventTime - 1;
+    this.events.addLast(new Event(++this.sequence, execId, since));
+    if (this.events.size() > this.capacity) {
+      this.events.removeFirst();
+    }
+    notifyAll();
+  }
+
+  String getEpoch() {
+    return this.epoch;
+  }
+
+  synchronized long getSequence() {
+    return this.sequence;
+  }
+
+  /**
+   * Waits for events after the given sequence number.
+   *
+   * @param epoch the epoch the sequence number belongs to, null if the caller has none yet
+   * @param afterSequence the last sequence number the caller has seen
+   * @param timeoutMs max time to wait for events
+   * @return the sequence number of the latest event, and the time since which each updated flow
+   * changed by execution id. Null if the caller missed events and has to reconcile.
+   */
+  synchronized Pair<Long, Map<Integer, Long>> await(final String epoch, final long afterSequence,
+      final long timeoutMs) throws InterruptedException {
+    if (!this.epoch.equals(epoch) || afterSequence > this.sequence
+        || (!this.events.isEmpty() && this.events.getFirst().sequence > afterSequence + 1)) {
+      return null;
+    }
+
+    final long deadline = System.currentTimeMillis() + timeoutMs;
+    long remainingMs = timeoutMs;
+    while (this.sequence == afterSequence && remainingMs > 0) {
+      wait(remainingMs);
+      remainingMs = deadline - System.currentTimeMillis();
+    }
+    if (!this.events.isEmpty() && this.events.getFirst().sequence > afterSequence + 1) {
+      // Events were dropped while waiting
+      return null;
+    }
+
+    final Map<Integer, Long> updates = new HashMap<>();
+    final Iterator<Event> it = this.events.descendingIterator();
+    while (it.hasNext()) {
+      final Event event = it.next();
+      if (event.sequence <= afterSequence) {
+        break;
+      }
+      updates.merge(event.execId, event.since, Math::min);
+    }
+    return new Pair<>(this.sequence, updates);
+  }
+
+  private static class Event {
+
+    private final long sequence;
+    private final int execId;
+    // The flow was up to date before this time
+    private final long since;
+
+    private Event(final long sequence, final int execId, final long since) {
+      this.sequence = sequence;
+      this.execId = execId;
+      this.since = since;
+    }
+  }
+}
@@ -27,6 +27,7 @@ import azkaban.executor.ExecutorManagerException;
 import azkaban.utils.FileIOUtils.JobMetaData;
 import azkaban.utils.FileIOUtils.LogData;
 import azkaban.utils.JSONUtils;
+import azkaban.utils.Pair;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
@@ -48,6 +49,8 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
   private static final Logger logger = Logger.getLogger(ExecutorServlet.class
       .getName());
   private static final long serialVersionUID = -3528600004096666451L;
+  // Longest time an update stream poll is held open
+  private static final long MAX_UPDATE_STREAM_TIMEOUT_MS = 60000;
   private AzkabanExecutorServer application;
   private FlowRunnerManager flowRunnerManager;
 
@@ -77,6 +80,20 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
     mapper.writeValue(stream, obj);
   }
 
+  /**
+   * Writes the response in Smile if the caller asks for it, or else in JSON.
+   */
+  private void writeResponse(final HttpServletRequest req, final HttpServletResponse resp,
+      final Object obj) throws IOException {
+    final String accept = req.getHeader("Accept");
+    if (accept != null && accept.contains(SMILE_MIME_TYPE)) {
+      resp.setContentType(SMILE_MIME_TYPE);
+      resp.getOutputStream().write(JSONUtils.toSmile(obj));
+    } else {
+      writeJSON(resp, obj);
+    }
+  }
+
   /**
    * @deprecated GET available for seamless upgrade. azkaban-web now uses POST.
    */
@@ -104,6 +121,8 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
         final String action = getParam(req, ConnectorParams.ACTION_PARAM);
         if (action.equals(ConnectorParams.UPDATE_ACTION)) {
           handleAjaxUpdateRequest(req, respMap);
+        } else if (action.equals(ConnectorParams.UPDATE_STREAM_ACTION)) {
+          handleUpdateStreamRequest(req, respMap);
         } else if (action.equals(ConnectorParams.PING_ACTION)) {
           respMap.put(ConnectorParams.STATUS_PARAM, ConnectorParams.RESPONSE_ALIVE);
         } else if (action.equals(ConnectorParams.RELOAD_JOBTYPE_PLUGINS_ACTION)) {
@@ -158,7 +177,7 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
       logger.error(e.getMessage(), e);
       respMap.put(ConnectorParams.RESPONSE_ERROR, e.getMessage());
     }
-    writeJSON(resp, respMap);
+    writeResponse(req, resp, respMap);
     resp.flushBuffer();
   }
 
@@ -282,6 +301,47 @@ public class ExecutorServlet extends HttpServlet implements ConnectorParams {
     respMap.put(ConnectorParams.RESPONSE_UPDATED_FLOWS, updateList);
   }
 
+  /**
+   * Long poll for the status changes of flows after the given sequence number of the update
+   * stream. Responds with the update objects of the changed flows, or with a gap flag if the
+   * caller missed events and has to reconcile by a full update.
+   */
+  private void handleUpdateStreamRequest(final HttpServletRequest req,
+      final Map<String, Object> respMap) throws ServletException {
+    final String epoch = getParam(req, ConnectorParams.UPDATE_STREAM_EPOCH_PARAM, null);
+    final long afterSequence =
+        Long.parseLong(getParam(req, ConnectorParams.UPDATE_STREAM_SEQUENCE_PARAM, "0"));
+    final long timeoutMs = Math.min(MAX_UPDATE_STREAM_TIMEOUT_MS,
+        Long.parseLong(getParam(req, ConnectorParams.UPDATE_STREAM_TIMEOUT_PARAM, "0")));
+
+    final ExecutionUpdateEvents updateEvents = this.flowRunnerManager.getUpdateEvents();
+    final Pair<Long, Map<Integer, Long>> events;
+    try {
+      events = updateEvents.await(epoch, afterSequence, timeoutMs);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ServletException("Interrupted while waiting for updates", e);
+    }
+
+    final ArrayList<Object> updateList = new ArrayList<>();
+    respMap.put(ConnectorParams.UPDATE_STREAM_EPOCH_PARAM, updateEvents.getEpoch());
+    if (events == null) {
+      respMap.put(ConnectorParams.RESPONSE_UPDATE_STREAM_GAP, true);
+      respMap.put(ConnectorParams.UPDATE_STREAM_SEQUENCE_PARAM, updateEvents.getSequence());
+      respMap.put(ConnectorParams.RESPONSE_UPDATED_FLOWS, updateList);
+      return;
+    }
+
+    for (final Map.Entry<Integer, Long> event : events.getSecond().entrySet()) {
+      final ExecutableFlowBase flow = this.flowRunnerManager.getExecutableFlow(event.getKey());
+      if (flow != null) {
+        updateList.add(flow.toUpdateObject(event.getValue()));
+      }
+    }
+    respMap.put(ConnectorParams.UPDATE_STREAM_SEQUENCE_PARAM, events.getFirst());
+    respMap.put(ConnectorParams.RESPONSE_UPDATED_FLOWS, updateList);
+  }
+
   private void handleAjaxExecute(final HttpServletRequest req,
       final Map<String, Object> respMap, final int execId) {
     try {
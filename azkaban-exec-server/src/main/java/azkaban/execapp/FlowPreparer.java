@@ -17,26 +17,27 @@
 
 package azkaban.execapp;
 
-import static com.google.common.base.Preconditions.checkState;
-import static java.util.Objects.requireNonNull;
-
 import azkaban.execapp.metric.ProjectCacheHitRatio;
 import azkaban.executor.ExecutableFlow;
 import azkaban.executor.ExecutorManagerException;
-import azkaban.project.ProjectFileHandler;
-import azkaban.storage.StorageManager;
 import azkaban.utils.FileIOUtils;
-import azkaban.utils.Utils;
+import azkaban.utils.Pair;
 import com.google.common.annotations.VisibleForTesting;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Striped;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
-import java.util.zip.ZipFile;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,31 +50,45 @@ class FlowPreparer {
 
   private static final Logger log = LoggerFactory.getLogger(FlowPreparer.class);
 
+  private static final int PROJECT_LOCK_STRIPES = 256;
+
   // TODO spyne: move to config class
   private final File executionsDir;
   // TODO spyne: move to config class
   private final File projectCacheDir;
-  private final StorageManager storageManager;
+  private final ProjectDownloadService projectDownloadService;
   // Null if cache clean-up is disabled
   private final Optional<ProjectCacheCleaner> projectCacheCleaner;
   private final ProjectCacheHitRatio projectCacheHitRatio;
-
-  FlowPreparer(final StorageManager storageManager, final File executionsDir,
-      final File projectsDir, final ProjectCacheCleaner cleaner,
-      final ProjectCacheHitRatio projectCacheHitRatio) {
-    Preconditions.checkNotNull(storageManager);
+  private final Timer projectLockWaitTimer;
+  private final Timer projectCacheLockWaitTimer;
+
+  // Serializes the installation of a downloaded project version, keyed by project dir name.
+  // Different projects are prepared in parallel.
+  private final Striped<Lock> projectLocks = Striped.lazyWeakLock(PROJECT_LOCK_STRIPES);
+  // Only one thread cleans up the project cache at a time.
+  private final Lock projectCacheLock = new ReentrantLock();
+  // Number of executions being set up from each project dir. The cache clean-up never evicts a
+  // project dir in use. Guarded by itself.
+  private final Map<File, Integer> projectDirRefCounts = new HashMap<>();
+
+  FlowPreparer(final ProjectDownloadService projectDownloadService, final File executionsDir,
+      final File projectsDir, final ProjectCacheCleaner cleaner, final ExecMetrics execMetrics) {
+    Preconditions.checkNotNull(projectDownloadService);
     Preconditions.checkNotNull(executionsDir);
     Preconditions.checkNotNull(projectsDir);
-    Preconditions.checkNotNull(projectCacheHitRatio);
+    Preconditions.checkNotNull(execMetrics);
 
     Preconditions.checkArgument(projectsDir.exists());
     Preconditions.checkArgument(executionsDir.exists());
 
-    this.storageManager = storageManager;
+    this.projectDownloadService = projectDownloadService;
     this.executionsDir = executionsDir;
     this.projectCacheDir = projectsDir;
     this.projectCacheCleaner = Optional.ofNullable(cleaner);
-    this.projectCacheHitRatio = projectCacheHitRatio;
+    this.projectCacheHitRatio = execMetrics.getProjectCacheHitRatio();
+    this.projectLockWaitTimer = execMetrics.getProjectLockWaitTimer();
+    this.projectCacheLockWaitTimer = execMetrics.getProjectCacheLockWaitTimer();
   }
 
   /**
@@ -100,8 +115,7 @@ class FlowPreparer {
    * @param flow Executable Flow instance.
    */
   void setup(final ExecutableFlow flow) throws ExecutorManagerException {
-    final ProjectFileHandler projectFileHandler = null;
-    File tempDir = null;
+    File installedDir = null;
     try {
       final ProjectDirectoryMetadata project = new ProjectDirectoryMetadata(
           flow.getProjectId(),
@@ -109,50 +123,117 @@ class FlowPreparer {
 
       final long flowPrepStartTime = System.currentTimeMillis();
 
-
-      tempDir = downloadProjectIfNotExists(project, flow.getExecutionId());
-
-
-      // With synchronization, only one thread is allowed to proceed to avoid complicated race
-      // conditions which could arise when multiple threads are downloading/deleting/hard-linking
-      // the same project. But it doesn't prevent multiple executor processes interfering with each
-      // other triggering race conditions. So it's important to operationally make sure that only
-      // one executor process is setting up flow execution against the shared project directory.
-      long criticalSectionStartTime = -1;
-      File execDir = null;
-
-      synchronized (this) {
-        criticalSectionStartTime = System.currentTimeMillis();
-        if (!project.getInstalledDir().exists() && tempDir != null) {
-          // If new project is downloaded and project dir cache clean-up feature is enabled, then
-          // perform clean-up if size of all project dirs exceeds the cache size.
-          if (this.projectCacheCleaner.isPresent()) {
-            this.projectCacheCleaner.get()
-                .deleteProjectDirsIfNecessary(project.getDirSizeInByte());
+      // The reference keeps the project dir from being evicted until the execution dir is linked.
+      installedDir = new File(this.projectCacheDir, generateProjectDirName(project));
+      project.setInstalledDir(installedDir);
+      retainProjectDir(installedDir);
+
+      // Executions of the same project version share the download, and only one of them
+      // installs it under the project lock. Hard-linking happens outside of the lock. It doesn't
+      // prevent multiple executor processes interfering with each other triggering race
+      // conditions. So it's important to operationally make sure that only one executor process
+      // is setting up flow execution against the shared project directory.
+      final File tempDir = downloadProjectIfNotExists(project, flow.getExecutionId());
+      long projectLockWaitMs = 0;
+      if (tempDir != null) {
+        final Lock projectLock = this.projectLocks.get(installedDir.getName());
+        try {
+          projectLockWaitMs = lock(projectLock, this.projectLockWaitTimer);
+          try {
+            // Otherwise installed meanwhile by another execution
+            if (!installedDir.exists()) {
+              // If new project is downloaded and project dir cache clean-up feature is enabled,
+              // then perform clean-up if size of all project dirs exceeds the cache size.
+              if (this.projectCacheCleaner.isPresent()) {
+                lock(this.projectCacheLock, this.projectCacheLockWaitTimer);
+                try {
+                  this.projectCacheCleaner.get()
+                      .deleteProjectDirsIfNecessary(project.getDirSizeInByte(),
+                          this::evictProjectDir);
+                } finally {
+                  this.projectCacheLock.unlock();
+                }
+              }
+              // Rename temp dir to a proper project directory name.
+              Files.move(tempDir.toPath(), installedDir.toPath());
+            }
+          } finally {
+            projectLock.unlock();
           }
-          // Rename temp dir to a proper project directory name.
-          Files.move(tempDir.toPath(), project.getInstalledDir().toPath());
+        } finally {
+          // The temp dir may be shared with other executions, so the download service deletes
+          // it once none of them needs it, unless it was moved into place.
+          this.projectDownloadService.release(tempDir);
         }
-
-        final long start = System.currentTimeMillis();
-        execDir = setupExecutionDir(project.getInstalledDir(), flow);
-        final long end = System.currentTimeMillis();
-        log.info("Setting up execution dir {} took {} sec(s)", execDir, (end - start) / 1000);
       }
 
-      final long flowPrepCompletionTime = System.currentTimeMillis();
-      log.info("Flow preparation completed in {} sec(s), out ot which {} sec(s) was spent inside "
-              + "critical section. [execid: {}, path: {}]",
-          (flowPrepCompletionTime - flowPrepStartTime) / 1000,
-          (flowPrepCompletionTime - criticalSectionStartTime) / 1000,
+      final long start = System.currentTimeMillis();
+      final File execDir = setupExecutionDir(installedDir, flow);
+      final long end = System.currentTimeMillis();
+      log.info("Setting up execution dir {} took {} sec(s)", execDir, (end - start) / 1000);
+
+      log.info("Flow preparation completed in {} sec(s), out of which {} ms was spent waiting "
+              + "for the project lock. [execid: {}, path: {}]",
+          (end - flowPrepStartTime) / 1000, projectLockWaitMs,
           flow.getExecutionId(), execDir.getPath());
     } catch (final Exception ex) {
-      FileIOUtils.deleteDirectorySilently(tempDir);
       log.error("Error in preparing flow execution {}", flow.getExecutionId(), ex);
       throw new ExecutorManagerException(ex);
     } finally {
-      if (projectFileHandler != null) {
-        projectFileHandler.deleteLocalFile();
+      if (installedDir != null) {
+        releaseProjectDir(installedDir);
+      }
+    }
+  }
+
+  /**
+   * Acquires the lock and records the time spent waiting for it.
+   *
+   * @return the wait time in milliseconds
+   */
+  private static long lock(final Lock lock, final Timer waitTimer) {
+    final long start = System.nanoTime();
+    lock.lock();
+    final long waitNanos = System.nanoTime() - start;
+    waitTimer.update(waitNanos, TimeUnit.NANOSECONDS);
+    return TimeUnit.NANOSECONDS.toMillis(waitNanos);
+  }
+
+  private void retainProjectDir(final File projectDir) {
+    synchronized (this.projectDirRefCounts) {
+      this.projectDirRefCounts.merge(projectDir, 1, Integer::sum);
+    }
+  }
+
+  private void releaseProjectDir(final File projectDir) {
+    synchronized (this.projectDirRefCounts) {
+      this.projectDirRefCounts.computeIfPresent(projectDir,
+          (dir, count) -> count > 1 ? count - 1 : null);
+    }
+  }
+
+  /**
+   * Takes a project dir out of the cache, unless an execution is being set up from it. The dir is
+   * renamed while holding the reference counts, so no execution can start using it while it is
+   * deleted.
+   *
+   * @return the renamed dir to delete, or null if the project dir must be kept
+   */
+  @VisibleForTesting
+  File evictProjectDir(final File projectDir) {
+    synchronized (this.projectDirRefCounts) {
+      if (this.projectDirRefCounts.containsKey(projectDir)) {
+        log.info("Not evicting project dir {} which is in use", projectDir);
+        return null;
+      }
+      final File evictedDir = new File(this.projectCacheDir,
+          "_evicted." + projectDir.getName() + "." + System.currentTimeMillis());
+      try {
+        Files.move(projectDir.toPath(), evictedDir.toPath());
+        return evictedDir;
+      } catch (final IOException ex) {
+        log.warn("Error when evicting project dir {}", projectDir, ex);
+        return null;
       }
     }
   }
@@ -192,29 +273,6 @@ class FlowPreparer {
     return String.valueOf(proj.getProjectId()) + "." + String.valueOf(proj.getVersion());
   }
 
-  private File createTempDir(final ProjectDirectoryMetadata proj) {
-    final String projectDir = generateProjectDirName(proj);
-    final File tempDir = new File(this.projectCacheDir,
-        "_temp." + projectDir + "." + System.currentTimeMillis());
-    tempDir.mkdirs();
-    return tempDir;
-  }
-
-  private void downloadAndUnzipProject(final ProjectDirectoryMetadata proj, final File dest)
-      throws IOException {
-    final ProjectFileHandler projectFileHandler = requireNonNull(this.storageManager
-        .getProjectFile(proj.getProjectId(), proj.getVersion()));
-    try {
-      checkState("zip".equals(projectFileHandler.getFileType()));
-      final File zipFile = requireNonNull(projectFileHandler.getLocalFile());
-      final ZipFile zip = new ZipFile(zipFile);
-      Utils.unzip(zip, dest);
-      proj.setDirSizeInByte(calculateDirSizeAndSave(dest));
-    } finally {
-      projectFileHandler.deleteLocalFile();
-    }
-  }
-
   /**
    * Download project zip and unzip it if not exists locally.
    *
@@ -248,8 +306,9 @@ class FlowPreparer {
     final long start = System.currentTimeMillis();
 
     // Download project to a temp dir if not exists in local cache.
-    final File tempDir = createTempDir(proj);
-    downloadAndUnzipProject(proj, tempDir);
+    final Pair<File, Long> download = this.projectDownloadService.download(proj);
+    final File tempDir = download.getFirst();
+    proj.setDirSizeInByte(download.getSecond());
 
     log.info("Downloading zip file for project {} when preparing execution [execid {}] "
             + "completed in {} second(s)", proj, execId,
@@ -61,7 +61,6 @@ import azkaban.sla.SlaOption;
 import azkaban.spi.AzkabanEventReporter;
 import azkaban.spi.EventType;
 import azkaban.utils.Props;
-import azkaban.utils.SwapQueue;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
@@ -77,15 +76,17 @@ import java.security.ProtectionDomain;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
@@ -123,14 +124,22 @@ public class FlowRunner extends EventHandler implements Runnable {
   // Properties map
   private final Props azkabanProps;
   private final Map<String, Props> sharedProps = new HashMap<>();
+  // Immutable snapshots of the shared properties, which are the base of the props of each job
+  private final Map<String, Props> sharedPropsSnapshots = new ConcurrentHashMap<>();
   private final JobRunnerEventListener listener = new JobRunnerEventListener();
   private final FlowRunnerEventListener flowListener = new FlowRunnerEventListener();
   private final Set<JobRunner> activeJobRunners = Collections
       .newSetFromMap(new ConcurrentHashMap<>());
-  // Thread safe swap queue for finishedExecutions.
-  private final SwapQueue<ExecutableNode> finishedNodes;
+  // Nodes that have finished but whose out nodes haven't been processed yet. The runner thread
+  // blocks on it while nothing is ready.
+  private final BlockingDeque<ExecutableNode> finishedNodes = new LinkedBlockingDeque<>();
+  // Number of parents of each node whose completion hasn't been processed yet. A node is only
+  // checked for readiness once this drops to zero. Only used by the runner thread.
+  private final Map<ExecutableNode, Integer> pendingParentCounts = new HashMap<>();
   private final AzkabanEventReporter azkabanEventReporter;
   private final AlerterHolder alerterHolder;
+  // Persist only changed nodes while the flow is running, see updateFlow
+  private final boolean deltaUpdatesEnabled;
   private Logger logger;
   private Appender flowAppender;
   private File logFile;
@@ -142,6 +151,8 @@ public class FlowRunner extends EventHandler implements Runnable {
   private Integer pipelineExecId = null;
   // Watches external flows for execution.
   private FlowWatcher watcher = null;
+  // Status changes are published to the web server through this, if set.
+  private ExecutionUpdateEvents updateEvents = null;
   private Set<String> proxyUsers = null;
   private boolean validateUserProxy;
   private String jobLogFileSize = "5MB";
@@ -150,6 +161,8 @@ public class FlowRunner extends EventHandler implements Runnable {
   private volatile boolean flowFailed = false;
   private volatile boolean flowFinished = false;
   private volatile boolean flowKilled = false;
+  // Nodes updated after this time haven't been persisted yet
+  private long lastPersistedUpdateTime = -1;
 
   // The following is state that will trigger a retry of all failed jobs
   private volatile boolean retryFailedJobs = false;
@@ -187,9 +200,10 @@ public class FlowRunner extends EventHandler implements Runnable {
     this.failureAction = options.getFailureAction();
     this.proxyUsers = flow.getProxyUsers();
     this.executorService = executorService;
-    this.finishedNodes = new SwapQueue<>();
     this.azkabanProps = azkabanProps;
     this.alerterHolder = alerterHolder;
+    this.deltaUpdatesEnabled = azkabanProps
+        .getBoolean(ConfigurationKeys.AZKABAN_EXECUTION_DELTA_UPDATE_ENABLED, false);
 
     // Add the flow listener only if a non-null eventReporter is available.
     if (azkabanEventReporter != null) {
@@ -207,6 +221,11 @@ public class FlowRunner extends EventHandler implements Runnable {
     return this;
   }
 
+  public FlowRunner setUpdateEvents(final ExecutionUpdateEvents updateEvents) {
+    this.updateEvents = updateEvents;
+    return this;
+  }
+
   public FlowRunner setNumJobThreads(final int jobs) {
     this.numJobThreads = jobs;
     return this;
@@ -344,13 +363,48 @@ public class FlowRunner extends EventHandler implements Runnable {
     updateFlow(System.currentTimeMillis());
   }
 
+  /**
+   * Persists the flow. With delta updates enabled, only the nodes changed since the last
+   * successful update are written while the flow is running. The first update and the update of
+   * a finished flow always write the full flow, which also compacts the deltas.
+   */
   private synchronized void updateFlow(final long time) {
     try {
       this.flow.setUpdateTime(time);
-      this.executorLoader.updateExecutableFlow(this.flow);
+      // Node update times only grow, so every node updated up to now is in what is written next.
+      // The watermark is taken from these update times rather than from the wall clock, which
+      // may be ahead of a node update time that is set after this.
+      final long writtenUpdateTime = getLatestNodeUpdateTime(this.flow);
+      if (this.deltaUpdatesEnabled && this.lastPersistedUpdateTime >= 0
+          && !Status.isStatusFinished(this.flow.getStatus())) {
+        this.executorLoader.updateExecutableFlowDelta(this.flow, this.lastPersistedUpdateTime);
+      } else {
+        this.executorLoader.updateExecutableFlow(this.flow);
+      }
+      // Nodes updated in the same millisecond after the snapshot are picked up next time.
+      this.lastPersistedUpdateTime = Math.max(this.lastPersistedUpdateTime,
+          Math.max(0, writtenUpdateTime - 1));
     } catch (final ExecutorManagerException e) {
       this.logger.error("Error updating flow.", e);
     }
+    if (this.updateEvents != null) {
+      this.updateEvents.flowUpdated(this.execId, time,
+          Status.isStatusFinished(this.flow.getStatus()));
+    }
+  }
+
+  /**
+   * @return the latest update time of the nodes of the flow, including the nodes of its subflows
+   */
+  private static long getLatestNodeUpdateTime(final ExecutableFlowBase flow) {
+    long latest = -1;
+    for (final ExecutableNode node : flow.getExecutableNodes()) {
+      latest = Math.max(latest, node.getUpdateTime());
+      if (node instanceof ExecutableFlowBase) {
+        latest = Math.max(latest, getLatestNodeUpdateTime((ExecutableFlowBase) node));
+      }
+    }
+    return latest;
   }
 
   /**
@@ -420,23 +474,19 @@ public class FlowRunner extends EventHandler implements Runnable {
     updateFlow();
 
     while (!this.flowFinished) {
+      final ExecutableNode finishedNode = waitForFinishedNode();
       synchronized (this.mainSyncObj) {
         if (this.flowPaused) {
+          requeueFinishedNode(finishedNode);
           try {
             this.mainSyncObj.wait(CHECK_WAIT_MS);
           } catch (final InterruptedException e) {
           }
-
-          continue;
-        } else {
-          if (this.retryFailedJobs) {
-            retryAllFailures();
-          } else if (!progressGraph()) {
-            try {
-              this.mainSyncObj.wait(CHECK_WAIT_MS);
-            } catch (final InterruptedException e) {
-            }
-          }
+        } else if (this.retryFailedJobs) {
+          requeueFinishedNode(finishedNode);
+          retryAllFailures();
+        } else if (finishedNode != null) {
+          progressGraph(finishedNode);
         }
       }
     }
@@ -448,6 +498,27 @@ public class FlowRunner extends EventHandler implements Runnable {
     this.logger.info("Finished Flow");
   }
 
+  /**
+   * Blocks until a node finishes. Returns null right away if the flow is paused or failures are
+   * to be retried, and when the wait is interrupted by pause, resume, kill or retry.
+   */
+  private ExecutableNode waitForFinishedNode() {
+    if (this.flowPaused || this.retryFailedJobs) {
+      return null;
+    }
+    try {
+      return this.finishedNodes.poll(CHECK_WAIT_MS, TimeUnit.MILLISECONDS);
+    } catch (final InterruptedException e) {
+      return null;
+    }
+  }
+
+  private void requeueFinishedNode(final ExecutableNode node) {
+    if (node != null) {
+      this.finishedNodes.addFirst(node);
+    }
+  }
+
   private void retryAllFailures() throws IOException {
     this.logger.info("Restarting all failed jobs");
 
@@ -458,6 +529,7 @@ public class FlowRunner extends EventHandler implements Runnable {
 
     final ArrayList<ExecutableNode> retryJobs = new ArrayList<>();
     resetFailedState(this.flow, retryJobs);
+    resetPendingParentCounts(this.flow);
 
     for (final ExecutableNode node : retryJobs) {
       if (node.getStatus() == Status.READY
@@ -476,72 +548,101 @@ public class FlowRunner extends EventHandler implements Runnable {
     updateFlow();
   }
 
-  private boolean progressGraph() throws IOException {
-    this.finishedNodes.swap();
-
-    // The following nodes are finished, so we'll collect a list of outnodes
-    // that are candidates for running next.
-    final HashSet<ExecutableNode> nodesToCheck = new HashSet<>();
-    for (final ExecutableNode node : this.finishedNodes) {
-      Set<String> outNodeIds = node.getOutNodes();
-      ExecutableFlowBase parentFlow = node.getParentFlow();
-
-      // If a job is seen as failed or killed due to failing SLA, then we set the parent flow to
-      // FAILED_FINISHING
-      if (node.getStatus() == Status.FAILED || (node.getStatus() == Status.KILLED && node
-          .isKilledBySLA())) {
-        // The job cannot be retried or has run out of retry attempts. We will
-        // fail the job and its flow now.
-        if (!retryJobIfPossible(node)) {
-          setFlowFailed(node);
-        } else {
-          nodesToCheck.add(node);
+  /**
+   * Processes the given finished node, and every other node that finishes meanwhile, starting
+   * each out node as soon as its last parent is processed. The flow is persisted once at the end.
+   */
+  private void progressGraph(final ExecutableNode finishedNode) throws IOException {
+    ExecutableNode node = finishedNode;
+    do {
+      for (final ExecutableNode readyNode : processFinishedNode(node)) {
+        if (notReadyToRun(readyNode.getStatus())) {
+          // Really shouldn't get in here.
           continue;
         }
+
+        runReadyJob(readyNode);
       }
+      // Cancelled and skipped nodes are finished right away by runReadyJob, so they are picked
+      // up here too.
+      node = this.finishedNodes.poll();
+    } while (node != null);
 
-      if (outNodeIds.isEmpty() && isFlowReadytoFinalize(parentFlow)) {
-        // Todo jamiesjc: For conditional workflows, if conditionOnJobStatus is ONE_SUCCESS or
-        // ONE_FAILED, some jobs might still be running when the end nodes have finished. In this
-        // case, we need to kill all running jobs before finalizing the flow.
-        finalizeFlow(parentFlow);
-        finishExecutableNode(parentFlow);
-
-        // If the parent has a parent, then we process
-        if (!(parentFlow instanceof ExecutableFlow)) {
-          outNodeIds = parentFlow.getOutNodes();
-          parentFlow = parentFlow.getParentFlow();
-        }
+    updateFlow();
+  }
+
+  /**
+   * Returns the nodes that may run now that the given node has finished.
+   */
+  private List<ExecutableNode> processFinishedNode(final ExecutableNode node) {
+    final ExecutableFlowBase parentFlow = node.getParentFlow();
+    if (parentFlow == null) {
+      // The top level flow itself, which has been finalized already.
+      return Collections.emptyList();
+    }
+
+    // If a job is seen as failed or killed due to failing SLA, then we set the parent flow to
+    // FAILED_FINISHING
+    if (node.getStatus() == Status.FAILED || (node.getStatus() == Status.KILLED && node
+        .isKilledBySLA())) {
+      // The job cannot be retried or has run out of retry attempts. We will
+      // fail the job and its flow now.
+      if (!retryJobIfPossible(node)) {
+        setFlowFailed(node);
+      } else {
+        return Collections.singletonList(node);
       }
+    }
+
+    final Set<String> outNodeIds = node.getOutNodes();
+    if (outNodeIds.isEmpty() && isFlowReadytoFinalize(parentFlow)) {
+      // Todo jamiesjc: For conditional workflows, if conditionOnJobStatus is ONE_SUCCESS or
+      // ONE_FAILED, some jobs might still be running when the end nodes have finished. In this
+      // case, we need to kill all running jobs before finalizing the flow.
+      finalizeFlow(parentFlow);
+      // The out nodes of an embedded flow are processed once it is taken off the queue.
+      finishExecutableNode(parentFlow);
+      return Collections.emptyList();
+    }
 
-      // Add all out nodes from the finished job. We'll check against this set
-      // to
-      // see if any are candidates for running.
-      for (final String nodeId : outNodeIds) {
-        final ExecutableNode outNode = parentFlow.getExecutableNode(nodeId);
-        nodesToCheck.add(outNode);
+    final List<ExecutableNode> readyNodes = new ArrayList<>();
+    for (final String nodeId : outNodeIds) {
+      final ExecutableNode outNode = parentFlow.getExecutableNode(nodeId);
+      if (decrementPendingParents(outNode) <= 0) {
+        readyNodes.add(outNode);
       }
     }
+    return readyNodes;
+  }
 
-    // Runs candidate jobs. The code will check to see if they are ready to run
-    // before
-    // Instant kill or skip if necessary.
-    boolean jobsRun = false;
-    for (final ExecutableNode node : nodesToCheck) {
-      if (notReadyToRun(node.getStatus())) {
-        // Really shouldn't get in here.
-        continue;
+  /**
+   * Counts, for every node of the flow and of its embedded flows, the parents that haven't
+   * finished yet.
+   */
+  private void resetPendingParentCounts(final ExecutableFlowBase flow) {
+    for (final ExecutableNode node : flow.getExecutableNodes()) {
+      int pendingParents = 0;
+      for (final String inNodeId : node.getInNodes()) {
+        if (!Status.isStatusFinished(flow.getExecutableNode(inNodeId).getStatus())) {
+          pendingParents++;
+        }
       }
+      this.pendingParentCounts.put(node, pendingParents);
 
-      jobsRun |= runReadyJob(node);
+      if (node instanceof ExecutableFlowBase) {
+        resetPendingParentCounts((ExecutableFlowBase) node);
+      }
     }
+  }
 
-    if (jobsRun || this.finishedNodes.getSize() > 0) {
-      updateFlow();
-      return true;
+  private int decrementPendingParents(final ExecutableNode node) {
+    final Integer pendingParents = this.pendingParentCounts.get(node);
+    if (pendingParents == null) {
+      // Not counted, so check it on every parent completion.
+      return 0;
     }
-
-    return false;
+    this.pendingParentCounts.put(node, pendingParents - 1);
+    return pendingParents - 1;
   }
 
   private void setFlowFailed(final ExecutableNode node) {
@@ -602,6 +703,7 @@ public class FlowRunner extends EventHandler implements Runnable {
         flow.setStatus(Status.RUNNING);
         flow.setStartTime(System.currentTimeMillis());
         prepareJobProperties(flow);
+        resetPendingParentCounts(flow);
 
         for (final String startNodeId : ((ExecutableFlowBase) node).getStartNodes()) {
           final ExecutableNode startNode = flow.getExecutableNode(startNodeId);
@@ -758,7 +860,7 @@ public class FlowRunner extends EventHandler implements Runnable {
       if (!(node instanceof ExecutableFlowBase)) {
         final String sharedProps = node.getPropsSource();
         if (sharedProps != null) {
-          props = this.sharedProps.get(sharedProps);
+          props = getSharedPropsSnapshot(sharedProps);
         }
       }
     }
@@ -789,6 +891,17 @@ public class FlowRunner extends EventHandler implements Runnable {
     node.setInputProps(props);
   }
 
+  /**
+   * The shared properties don't change once the flow is set up, so all jobs share a snapshot of
+   * them, which is faster to look up than the chain.
+   */
+  private Props getSharedPropsSnapshot(final String source) {
+    return this.sharedPropsSnapshots.computeIfAbsent(source, key -> {
+      final Props props = this.sharedProps.get(key);
+      return props == null ? null : props.snapshot();
+    });
+  }
+
   /**
    * @param props This method is to put in any job properties customization before feeding to the
    * job.
@@ -1488,12 +1601,13 @@ public class FlowRunner extends EventHandler implements Runnable {
           if (FlowRunner.this.flowPaused && eventData.getStatus() == Status.FAILED
               && FlowRunner.this.failureAction == FailureAction.CANCEL_ALL) {
             FlowRunner.this.flowPaused = false;
+            interrupt();
           }
 
+          // Wakes up the runner thread if it is waiting for a node to finish.
           FlowRunner.this.finishedNodes.add(node);
           FlowRunner.this.activeJobRunners.remove(jobRunner);
           node.getParentFlow().setUpdateTime(System.currentTimeMillis());
-          interrupt();
           fireEventListeners(event);
         }
       } else if (event.getType() == EventType.JOB_STARTED) {
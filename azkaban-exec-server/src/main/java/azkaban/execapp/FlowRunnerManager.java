@@ -118,6 +118,8 @@ public class FlowRunnerManager implements EventListener,
 
   private static final int DEFAULT_NUM_EXECUTING_FLOWS = 30;
   private static final int DEFAULT_FLOW_NUM_JOB_TREADS = 10;
+  private static final int DEFAULT_PROJECT_DOWNLOAD_MAX_CONCURRENCY = 4;
+  private static final int DEFAULT_PROJECT_UNZIP_THREADS = 4;
 
   // this map is used to store the flows that have been submitted to
   // the executor service. Once a flow has been submitted, it is either
@@ -133,6 +135,7 @@ public class FlowRunnerManager implements EventListener,
   private final ProjectLoader projectLoader;
   private final JobTypeManager jobtypeManager;
   private final FlowPreparer flowPreparer;
+  private final ExecutionUpdateEvents updateEvents = new ExecutionUpdateEvents();
   private final TriggerManager triggerManager;
   private final AlerterHolder alerterHolder;
   private final AzkabanEventReporter azkabanEventReporter;
@@ -219,9 +222,15 @@ public class FlowRunnerManager implements EventListener,
     } catch (final UndefinedPropertyException ex) {
     }
 
+    final ProjectDownloadService projectDownloadService = new ProjectDownloadService(
+        storageManager, this.projectDirectory,
+        props.getInt(ConfigurationKeys.PROJECT_DOWNLOAD_MAX_CONCURRENCY,
+            DEFAULT_PROJECT_DOWNLOAD_MAX_CONCURRENCY),
+        props.getInt(ConfigurationKeys.PROJECT_UNZIP_THREADS, DEFAULT_PROJECT_UNZIP_THREADS));
+
     // Create a flow preparer
-    this.flowPreparer = new FlowPreparer(storageManager, this.executionDirectory,
-        this.projectDirectory, cleaner, this.execMetrics.getProjectCacheHitRatio());
+    this.flowPreparer = new FlowPreparer(projectDownloadService, this.executionDirectory,
+        this.projectDirectory, cleaner, this.execMetrics);
 
     this.execMetrics.addFlowRunnerManagerMetrics(this);
 
@@ -443,6 +452,7 @@ public class FlowRunnerManager implements EventListener,
     runner.setFlowWatcher(watcher)
         .setJobLogSettings(this.jobLogChunkSize, this.jobLogNumFiles)
         .setValidateProxyUser(this.validateProxyUser)
+        .setUpdateEvents(this.updateEvents)
         .setNumJobThreads(numJobThreads).addListener(this);
 
     configureFlowLevelMetrics(runner);
@@ -553,6 +563,10 @@ public class FlowRunnerManager implements EventListener,
     runner.retryFailures(user);
   }
 
+  ExecutionUpdateEvents getUpdateEvents() {
+    return this.updateEvents;
+  }
+
   public ExecutableFlow getExecutableFlow(final int execId) {
     final FlowRunner runner = this.runningFlows.get(execId);
     if (runner == null) {
@@ -33,6 +33,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.UnaryOperator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -149,7 +150,8 @@ class ProjectCacheCleaner {
    * @param projectDirMetadataList a list of candidate files to delete
    */
   private void deleteLeastRecentlyUsedProjects(long sizeToFreeInBytes,
-      final List<ProjectDirectoryMetadata> projectDirMetadataList) {
+      final List<ProjectDirectoryMetadata> projectDirMetadataList,
+      final UnaryOperator<File> evictor) {
     // Sort projects by last reference time in ascending order
     projectDirMetadataList.sort(Comparator.comparing(ProjectDirectoryMetadata::getLastAccessTime));
     final Set<File> projectDirsToDelete = new HashSet<>();
@@ -159,10 +161,13 @@ class ProjectCacheCleaner {
         // Delete the project directory even if flow within is running. It's OK to
         // delete the directory since execution dir is HARD linked to project dir. Note that even
         // if project is deleted, disk space will be freed up only when all associated execution
-        // dirs are deleted.
+        // dirs are deleted. The evictor keeps the directories still being linked from.
         if (proj.getInstalledDir() != null) {
-          projectDirsToDelete.add(proj.getInstalledDir());
-          sizeToFreeInBytes -= proj.getDirSizeInByte();
+          final File toDelete = evictor.apply(proj.getInstalledDir());
+          if (toDelete != null) {
+            projectDirsToDelete.add(toDelete);
+            sizeToFreeInBytes -= proj.getDirSizeInByte();
+          }
         }
       } else {
         break;
@@ -184,6 +189,18 @@ class ProjectCacheCleaner {
    * Deleting least recently accessed project dirs when there's no room to accommodate new project
    */
   void deleteProjectDirsIfNecessary(final long newProjectSizeInBytes) {
+    deleteProjectDirsIfNecessary(newProjectSizeInBytes, UnaryOperator.identity());
+  }
+
+  /**
+   * Deleting least recently accessed project dirs when there's no room to accommodate new
+   * project
+   *
+   * @param evictor takes a project dir out of the cache and returns the directory to delete, or
+   * null if the project dir is in use and must be kept
+   */
+  void deleteProjectDirsIfNecessary(final long newProjectSizeInBytes,
+      final UnaryOperator<File> evictor) {
     final long projectCacheMaxSizeInByte =
         (long) (this.projectCacheDir.getTotalSpace() * this.percentageOfDisk);
 
@@ -201,7 +218,8 @@ class ProjectCacheCleaner {
           bytesToMB(projectCacheMaxSizeInByte));
 
       final long freeCacheSpaceInBytes = projectCacheMaxSizeInByte - currentSpaceInBytes;
-      deleteLeastRecentlyUsedProjects(newProjectSizeInBytes - freeCacheSpaceInBytes, allProjects);
+      deleteLeastRecentlyUsedProjects(newProjectSizeInBytes - freeCacheSpaceInBytes, allProjects,
+          evictor);
     } else {
       log.info(
           "Project cache usage[{} MB] < cache limit[{} MB], no need to delete any project dir",
@@ -0,0 +1,398 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+import azkaban.project.ProjectFileHandler;
+import azkaban.storage.ProjectManifest;
+import azkaban.storage.StorageManager;
+import azkaban.utils.FileIOUtils;
+import azkaban.utils.Md5Hasher;
+import azkaban.utils.Pair;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads project zips from storage and unzips them into temp dirs of the project cache.
+ *
+ * <p>Concurrent requests for the same project version share a single download. At most a fixed
+ * number of projects are downloaded at the same time, and the entries of each zip are unzipped
+ * in parallel by a shared pool.
+ *
+ * <p>Project versions stored as a manifest of content-addressed blobs are assembled file by file
+ * instead. Files which a cached version of the project already has are hard-linked from it, and
+ * only the other ones are downloaded.
+ */
+class ProjectDownloadService {
+
+  // Name of the file which keeps the manifest of a project dir assembled from blobs
+  static final String PROJECT_MANIFEST_FILE_NAME = "___azkaban_project_manifest___";
+
+  private static final Logger log = LoggerFactory.getLogger(ProjectDownloadService.class);
+
+  private final StorageManager storageManager;
+  private final File projectCacheDir;
+  private final ExecutorService downloadExecutor;
+  private final ExecutorService unzipExecutor;
+  // In-flight downloads by project dir name, guarded by itself
+  private final Map<String, Download> downloads = new HashMap<>();
+  // Number of callers which haven't released each downloaded temp dir yet, guarded by downloads
+  private final Map<File, Integer> tempDirUsers = new HashMap<>();
+
+  ProjectDownloadService(final StorageManager storageManager, final File projectCacheDir,
+      final int maxConcurrentDownloads, final int unzipThreads) {
+    Preconditions.checkNotNull(storageManager);
+    Preconditions.checkNotNull(projectCacheDir);
+    Preconditions.checkArgument(maxConcurrentDownloads > 0);
+    Preconditions.checkArgument(unzipThreads > 0);
+
+    this.storageManager = storageManager;
+    this.projectCacheDir = projectCacheDir;
+    this.downloadExecutor = Executors.newFixedThreadPool(maxConcurrentDownloads,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azk-project-download-%d")
+            .build());
+    this.unzipExecutor = Executors.newFixedThreadPool(unzipThreads,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azk-project-unzip-%d")
+            .build());
+  }
+
+  /**
+   * Downloads and unzips the project into a new temp dir of the project cache, or waits for the
+   * download already in progress for the same project version.
+   *
+   * <p>Callers sharing a download get the same temp dir, which only one of them should move into
+   * place. Each caller must {@link #release(File)} the temp dir once done with it.
+   *
+   * @return the temp dir and its size in bytes
+   */
+  Pair<File, Long> download(final ProjectDirectoryMetadata proj) throws IOException {
+    final String projectDirName = proj.getProjectId() + "." + proj.getVersion();
+    final Download download;
+    final Download inProgress;
+    synchronized (this.downloads) {
+      inProgress = this.downloads.get(projectDirName);
+      if (inProgress != null) {
+        inProgress.users++;
+        download = inProgress;
+      } else {
+        download = new Download();
+        this.downloads.put(projectDirName, download);
+      }
+    }
+    if (inProgress != null) {
+      log.info("Waiting for download of project {} in progress", proj);
+      return await(download.result);
+    }
+
+    try {
+      this.downloadExecutor.execute(() -> {
+        try {
+          final Pair<File, Long> result = downloadAndUnzip(proj, projectDirName);
+          synchronized (this.downloads) {
+            this.downloads.remove(projectDirName);
+            // No caller can join the download from now on
+            this.tempDirUsers.put(result.getFirst(), download.users);
+          }
+          download.result.complete(result);
+        } catch (final Throwable t) {
+          synchronized (this.downloads) {
+            this.downloads.remove(projectDirName);
+          }
+          download.result.completeExceptionally(t);
+        }
+      });
+    } catch (final RuntimeException e) {
+      synchronized (this.downloads) {
+        this.downloads.remove(projectDirName);
+      }
+      download.result.completeExceptionally(e);
+    }
+    return await(download.result);
+  }
+
+  /**
+   * Releases a temp dir returned by {@link #download(ProjectDirectoryMetadata)}. The temp dir is
+   * deleted once all the callers sharing it have released it, unless it was moved into place.
+   */
+  void release(final File tempDir) {
+    synchronized (this.downloads) {
+      final Integer users = this.tempDirUsers.get(tempDir);
+      if (users == null) {
+        return;
+      }
+      if (users > 1) {
+        this.tempDirUsers.put(tempDir, users - 1);
+        return;
+      }
+      this.tempDirUsers.remove(tempDir);
+    }
+    if (tempDir.exists()) {
+      log.info("Deleting project temp dir {} which wasn't moved into place", tempDir);
+      FileIOUtils.deleteDirectorySilently(tempDir);
+    }
+  }
+
+  /**
+   * @return the number of callers waiting for the download of the project in progress, 0 if
+   * there's none
+   */
+  @VisibleForTesting
+  int getDownloadUsers(final ProjectDirectoryMetadata proj) {
+    synchronized (this.downloads) {
+      final Download download =
+          this.downloads.get(proj.getProjectId() + "." + proj.getVersion());
+      return download == null ? 0 : download.users;
+    }
+  }
+
+  private Pair<File, Long> await(final CompletableFuture<Pair<File, Long>> download)
+      throws IOException {
+    try {
+      return download.get();
+    } catch (final InterruptedException e) {
+      // Released once downloaded, as this caller won't get the temp dir
+      download.thenAccept(result -> release(result.getFirst()));
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while downloading project", e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Error downloading project", e.getCause());
+    }
+  }
+
+  private Pair<File, Long> downloadAndUnzip(final ProjectDirectoryMetadata proj,
+      final String projectDirName) throws IOException {
+    final File tempDir = new File(this.projectCacheDir,
+        "_temp." + projectDirName + "." + System.currentTimeMillis());
+    tempDir.mkdirs();
+
+    final ProjectManifest manifest = this.storageManager
+        .getProjectManifest(proj.getProjectId(), proj.getVersion());
+    if (manifest != null) {
+      try {
+        assemble(proj, manifest, tempDir);
+        return new Pair<>(tempDir, FlowPreparer.calculateDirSizeAndSave(tempDir));
+      } catch (final IOException | RuntimeException e) {
+        FileIOUtils.deleteDirectorySilently(tempDir);
+        throw e;
+      }
+    }
+
+    final ProjectFileHandler projectFileHandler = requireNonNull(this.storageManager
+        .getProjectFile(proj.getProjectId(), proj.getVersion()));
+    try {
+      checkState("zip".equals(projectFileHandler.getFileType()));
+      final File zipFile = requireNonNull(projectFileHandler.getLocalFile());
+      try (ZipFile zip = new ZipFile(zipFile)) {
+        unzip(zip, tempDir);
+      }
+      return new Pair<>(tempDir, FlowPreparer.calculateDirSizeAndSave(tempDir));
+    } catch (final IOException | RuntimeException e) {
+      FileIOUtils.deleteDirectorySilently(tempDir);
+      throw e;
+    } finally {
+      projectFileHandler.deleteLocalFile();
+    }
+  }
+
+  /**
+   * Unzips the entries of the zip in parallel. Directories are created up front, so entries
+   * can be written in any order.
+   */
+  private void unzip(final ZipFile source, final File dest) throws IOException {
+    final String destPath = dest.getCanonicalPath();
+    final List<Future<?>> extractions = new ArrayList<>();
+    try {
+      final Enumeration<? extends ZipEntry> entries = source.entries();
+      while (entries.hasMoreElements()) {
+        final ZipEntry entry = entries.nextElement();
+        final File newFile = new File(dest, entry.getName());
+        if (!newFile.getCanonicalPath().startsWith(destPath)) {
+          throw new IOException(
+              "Extracting zip entry would have resulted in a file outside the specified "
+                  + "destination directory.");
+        }
+
+        if (entry.isDirectory()) {
+          newFile.mkdirs();
+        } else {
+          newFile.getParentFile().mkdirs();
+          extractions.add(this.unzipExecutor.submit(() -> {
+            try (InputStream src = source.getInputStream(entry);
+                OutputStream output = new BufferedOutputStream(new FileOutputStream(newFile))) {
+              IOUtils.copy(src, output);
+            }
+            return null;
+          }));
+        }
+      }
+
+      for (final Future<?> extraction : extractions) {
+        awaitTask(extraction, "unzipping project");
+      }
+    } finally {
+      // Stop the remaining extractions if one of them failed
+      for (final Future<?> extraction : extractions) {
+        extraction.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Assembles the files listed by the manifest in parallel. Files which a cached version of the
+   * project has are hard-linked from it, the other ones are downloaded. The manifest is saved into
+   * the dir, so later versions can link files from it.
+   */
+  private void assemble(final ProjectDirectoryMetadata proj, final ProjectManifest manifest,
+      final File dest) throws IOException {
+    final Map<String, File> cachedFiles = findCachedFiles(proj.getProjectId());
+    final String destPath = dest.getCanonicalPath();
+    final List<Future<Boolean>> assemblies = new ArrayList<>();
+    try {
+      for (final ProjectManifest.Entry entry : manifest.getEntries()) {
+        final File newFile = new File(dest, entry.getPath());
+        if (!newFile.getCanonicalPath().startsWith(destPath)) {
+          throw new IOException(
+              "Assembling manifest entry would have resulted in a file outside the specified "
+                  + "destination directory.");
+        }
+        newFile.getParentFile().mkdirs();
+        final File cachedFile = cachedFiles.get(entry.getMd5());
+        assemblies.add(this.unzipExecutor.submit(() -> {
+          if (cachedFile != null && cachedFile.length() == entry.getSize()) {
+            try {
+              Files.createLink(newFile.toPath(), cachedFile.toPath());
+              return true;
+            } catch (final IOException e) {
+              // The cached version may have been evicted meanwhile
+              log.info("Could not link {} from {}, downloading it", newFile, cachedFile, e);
+            }
+          }
+          final MessageDigest digest = Md5Hasher.getMd5Digest();
+          try (InputStream src = new DigestInputStream(this.storageManager.getBlob(entry),
+              digest);
+              OutputStream output = new BufferedOutputStream(new FileOutputStream(newFile))) {
+            IOUtils.copy(src, output);
+          }
+          final String md5 = Hex.encodeHexString(digest.digest());
+          if (!entry.getMd5().equals(md5)) {
+            throw new IOException(String.format("MD5 HASH Failed. project: %s file: %s "
+                + "Expected: %s Actual: %s", proj, entry.getPath(), entry.getMd5(), md5));
+          }
+          return false;
+        }));
+      }
+
+      int linked = 0;
+      for (final Future<Boolean> assembly : assemblies) {
+        if (awaitTask(assembly, "assembling project")) {
+          linked++;
+        }
+      }
+      manifest.toJson(new File(dest, PROJECT_MANIFEST_FILE_NAME));
+      log.info("Assembled project {} from {} cached and {} downloaded files", proj, linked,
+          assemblies.size() - linked);
+    } finally {
+      // Stop the remaining assemblies if one of them failed
+      for (final Future<Boolean> assembly : assemblies) {
+        assembly.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * @return the files of the cached versions of the project which were assembled from a manifest,
+   * by md5 hash
+   */
+  private Map<String, File> findCachedFiles(final int projectId) {
+    final Map<String, File> cachedFiles = new HashMap<>();
+    final File[] projectDirs = this.projectCacheDir
+        .listFiles(dir -> dir.getName().startsWith(projectId + "."));
+    if (projectDirs == null) {
+      return cachedFiles;
+    }
+    for (final File projectDir : projectDirs) {
+      final File manifestFile = new File(projectDir, PROJECT_MANIFEST_FILE_NAME);
+      if (!manifestFile.isFile()) {
+        continue;
+      }
+      try (InputStream is = new FileInputStream(manifestFile)) {
+        for (final ProjectManifest.Entry entry : ProjectManifest.fromJson(is).getEntries()) {
+          cachedFiles.putIfAbsent(entry.getMd5(), new File(projectDir, entry.getPath()));
+        }
+      } catch (final IOException e) {
+        log.warn("Error reading manifest of cached project dir {}", projectDir, e);
+      }
+    }
+    return cachedFiles;
+  }
+
+  /**
+   * Download of a project version, shared by the callers requesting it while in progress.
+   */
+  private static final class Download {
+
+    private final CompletableFuture<Pair<File, Long>> result = new CompletableFuture<>();
+    // Callers waiting for the download, guarded by downloads
+    private int users = 1;
+  }
+
+  private static <T> T awaitTask(final Future<T> task, final String action) throws IOException {
+    try {
+      return task.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while " + action, e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Error " + action, e.getCause());
+    }
+  }
+}
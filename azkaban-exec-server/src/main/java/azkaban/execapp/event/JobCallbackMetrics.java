@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp.event;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Counts of the job callbacks and their delivery latency, from the job event to the last attempt
+ * of the callback, in ms. The latency is biased towards the last five minutes.
+ */
+public class JobCallbackMetrics {
+
+  private final AtomicLong attempts = new AtomicLong();
+  private final AtomicLong successful = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  private final AtomicLong retried = new AtomicLong();
+  private final AtomicLong spilled = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final AtomicInteger active = new AtomicInteger();
+  private final Histogram deliveryLatency = new Histogram(new ExponentiallyDecayingReservoir());
+
+  void onQueued() {
+    this.queued.incrementAndGet();
+  }
+
+  void onRejected() {
+    this.queued.decrementAndGet();
+  }
+
+  void onAttemptStarted() {
+    this.queued.decrementAndGet();
+    this.active.incrementAndGet();
+    this.attempts.incrementAndGet();
+  }
+
+  void onAttemptFinished() {
+    this.active.decrementAndGet();
+  }
+
+  void onDelivered(final boolean success, final long latencyMs) {
+    if (success) {
+      this.successful.incrementAndGet();
+    } else {
+      this.failed.incrementAndGet();
+    }
+    this.deliveryLatency.update(latencyMs);
+  }
+
+  void onRetry() {
+    this.retried.incrementAndGet();
+  }
+
+  void onSpilled() {
+    this.spilled.incrementAndGet();
+  }
+
+  void onDropped() {
+    this.dropped.incrementAndGet();
+  }
+
+  /**
+   * @return number of attempts, retries included
+   */
+  public long getAttempts() {
+    return this.attempts.get();
+  }
+
+  /**
+   * @return number of callbacks which got a response below 400
+   */
+  public long getSuccessful() {
+    return this.successful.get();
+  }
+
+  /**
+   * @return number of callbacks which got a 4xx response or ran out of attempts
+   */
+  public long getFailed() {
+    return this.failed.get();
+  }
+
+  public long getRetried() {
+    return this.retried.get();
+  }
+
+  public long getSpilled() {
+    return this.spilled.get();
+  }
+
+  /**
+   * @return number of callbacks dropped because both the queue and the spill directory were full
+   */
+  public long getDropped() {
+    return this.dropped.get();
+  }
+
+  public int getQueued() {
+    return this.queued.get();
+  }
+
+  public int getActive() {
+    return this.active.get();
+  }
+
+  public double getDeliveryLatencyMeanMs() {
+    return this.deliveryLatency.getSnapshot().getMean();
+  }
+
+  public double getDeliveryLatency99thPercentileMs() {
+    return this.deliveryLatency.getSnapshot().get99thPercentile();
+  }
+}
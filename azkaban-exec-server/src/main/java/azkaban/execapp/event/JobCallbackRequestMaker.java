@@ -2,42 +2,72 @@ package azkaban.execapp.event;
 
 import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_CONNECTION_REQUEST_TIMEOUT;
 import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_CONNECTION_TIMEOUT;
-import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_RESPONSE_WAIT_TIMEOUT;
+import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_MAX_ATTEMPTS;
+import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_MAX_CONNECTIONS;
+import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_MAX_CONNECTIONS_PER_HOST;
+import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_QUEUE_CAPACITY;
+import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_RETRY_BACKOFF;
 import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_SOCKET_TIMEOUT;
+import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_SPILL_DIR;
+import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_SPILL_MAX_FILES;
 import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_THREAD_POOL_SIZE;
 
+import azkaban.execapp.event.JobCallbackSpillQueue.SpilledCallback;
 import azkaban.utils.Props;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.net.SocketTimeoutException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.client.protocol.HttpClientContext;
-import org.apache.http.impl.client.FutureRequestExecutionMetrics;
-import org.apache.http.impl.client.FutureRequestExecutionService;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.impl.client.HttpRequestFutureTask;
 import org.apache.log4j.Logger;
 
 /**
  * Responsible for making the job callback HTTP requests.
  *
- * One of the requirements is to log out the request information and response using the given
- * logger, which should be the job logger.
+ * Requests are delivered in the background, so the job event thread only logs the request
+ * information using the given logger, which should be the job logger, and queues the request. The
+ * response is logged to this class' logger, as the job log may be closed by then.
+ *
+ * The requests of a job are delivered in order: each job has a queue of its requests, and only
+ * the request at the head of it is handed to the delivery threads. The next request follows once
+ * the head is delivered. Requests which get a 5xx or 429 response or fail to connect are retried
+ * with exponential backoff. GET requests are also retried on other I/O errors, but POST requests
+ * aren't, as they may have been processed already, e.g. when the response timed out. A request
+ * waiting for a retry is scheduled again after the backoff, so it holds no delivery thread and
+ * only the requests of its own job wait for it.
+ *
+ * Requests which don't fit in the bounded queue are spilled to a local directory and queued again
+ * once there's room, also after a restart of the executor. The later requests of a job with
+ * spilled requests are spilled too, so they stay behind them.
  *
  * @author hluu
  */
@@ -47,18 +77,44 @@ public class JobCallbackRequestMaker {
       .getLogger(JobCallbackRequestMaker.class);
 
   private static final int DEFAULT_TIME_OUT_MS = 3000;
-  private static final int DEFAULT_RESPONSE_WAIT_TIME_OUT_MS = 5000;
   private static final int MAX_RESPONSE_LINE_TO_PRINT = 50;
 
   private static final int DEFAULT_THREAD_POOL_SIZE = 10;
+  private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+  private static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 5;
+  private static final int DEFAULT_MAX_CONNECTIONS = 100;
+  private static final int DEFAULT_MAX_ATTEMPTS = 3;
+  private static final long DEFAULT_RETRY_BACKOFF_MS = 1000;
+  private static final long MAX_RETRY_BACKOFF_MS = 60000;
+  private static final String DEFAULT_SPILL_DIR = "jobcallback_spill";
+  private static final int DEFAULT_SPILL_MAX_FILES = 10000;
+  private static final long SPILL_DRAIN_INTERVAL_MS = 5000;
 
   private static JobCallbackRequestMaker instance;
   private static boolean isInitialized = false;
 
-  private final FutureRequestExecutionService futureRequestExecutionService;
-  private int responseWaitTimeoutMS = -1;
-
-  private JobCallbackRequestMaker(final Props props) {
+  private final CloseableHttpClient httpClient;
+  private final ExecutorService deliveryExecutor;
+  // schedules the retries and the draining of the spill queue
+  private final ScheduledExecutorService scheduler;
+  private final JobCallbackSpillQueue spillQueue;
+  private final JobCallbackMetrics metrics = new JobCallbackMetrics();
+  // number of spilled requests by job id, of the jobs with requests spilled since the start
+  private final Map<String, Integer> spilledJobs = new ConcurrentHashMap<>();
+  // queued requests by job id, the head of each being delivered or waiting for a retry
+  private final Map<String, Deque<Delivery>> jobQueues = new HashMap<>();
+  // orders the deliveries created at the same time, in the spill queue
+  private final AtomicLong deliverySequence = new AtomicLong();
+  private final int queueCapacity;
+  private final int maxAttempts;
+  private final long retryBackoffMs;
+  // guarded by jobQueues
+  private int queuedCount = 0;
+  private boolean isShutdown = false;
+
+  @SuppressWarnings("FutureReturnValueIgnored")
+  @VisibleForTesting
+  JobCallbackRequestMaker(final Props props) {
 
     final int connectionRequestTimeout =
         props.getInt(JOBCALLBACK_CONNECTION_REQUEST_TIMEOUT, DEFAULT_TIME_OUT_MS);
@@ -67,11 +123,6 @@ public class JobCallbackRequestMaker {
 
     final int socketTimeout = props.getInt(JOBCALLBACK_SOCKET_TIMEOUT, DEFAULT_TIME_OUT_MS);
 
-    this.responseWaitTimeoutMS =
-        props.getInt(JOBCALLBACK_RESPONSE_WAIT_TIMEOUT, DEFAULT_RESPONSE_WAIT_TIME_OUT_MS);
-
-    logger.info("responseWaitTimeoutMS: " + this.responseWaitTimeoutMS);
-
     final RequestConfig requestConfig =
         RequestConfig.custom()
             .setConnectionRequestTimeout(connectionRequestTimeout)
@@ -80,18 +131,38 @@ public class JobCallbackRequestMaker {
 
     logger.info("Global request configuration " + requestConfig.toString());
 
-    final HttpClient httpClient =
+    final int maxConnectionsPerHost =
+        props.getInt(JOBCALLBACK_MAX_CONNECTIONS_PER_HOST, DEFAULT_MAX_CONNECTIONS_PER_HOST);
+    final int maxConnections = props.getInt(JOBCALLBACK_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS);
+    logger.info("Jobcall max connections per host: " + maxConnectionsPerHost + ", in total: "
+        + maxConnections);
+
+    this.httpClient =
         HttpClientBuilder.create().setDefaultRequestConfig(requestConfig)
+            .setMaxConnPerRoute(maxConnectionsPerHost)
+            .setMaxConnTotal(maxConnections)
             .build();
 
     final int jobCallbackThreadPoolSize =
         props.getInt(JOBCALLBACK_THREAD_POOL_SIZE, DEFAULT_THREAD_POOL_SIZE);
-    logger.info("Jobcall thread pool size: " + jobCallbackThreadPoolSize);
-
-    final ExecutorService executorService =
-        Executors.newFixedThreadPool(jobCallbackThreadPoolSize);
-    this.futureRequestExecutionService =
-        new FutureRequestExecutionService(httpClient, executorService);
+    this.queueCapacity = props.getInt(JOBCALLBACK_QUEUE_CAPACITY, DEFAULT_QUEUE_CAPACITY);
+    logger.info("Jobcall thread pool size: " + jobCallbackThreadPoolSize + ", queue capacity: "
+        + this.queueCapacity);
+
+    this.deliveryExecutor = Executors.newFixedThreadPool(jobCallbackThreadPoolSize,
+        new ThreadFactoryBuilder().setNameFormat("azk-job-callback-%d").setDaemon(true).build());
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("azk-job-callback-scheduler").setDaemon(true)
+            .build());
+
+    this.maxAttempts = props.getInt(JOBCALLBACK_MAX_ATTEMPTS, DEFAULT_MAX_ATTEMPTS);
+    this.retryBackoffMs = props.getLong(JOBCALLBACK_RETRY_BACKOFF, DEFAULT_RETRY_BACKOFF_MS);
+
+    this.spillQueue = new JobCallbackSpillQueue(
+        new File(props.getString(JOBCALLBACK_SPILL_DIR, DEFAULT_SPILL_DIR)),
+        props.getInt(JOBCALLBACK_SPILL_MAX_FILES, DEFAULT_SPILL_MAX_FILES));
+    this.scheduler.scheduleWithFixedDelay(this::drainSpillQueue, 0,
+        SPILL_DRAIN_INTERVAL_MS, TimeUnit.MILLISECONDS);
   }
 
   public static void initialize(final Props props) {
@@ -121,10 +192,13 @@ public class JobCallbackRequestMaker {
     return instance;
   }
 
-  public FutureRequestExecutionMetrics getJobcallbackMetrics() {
-    return this.futureRequestExecutionService.metrics();
+  public JobCallbackMetrics getJobcallbackMetrics() {
+    return this.metrics;
   }
 
+  /**
+   * Queues the requests for delivery and returns without waiting for their responses.
+   */
   public void makeHttpRequest(final String jobId, final Logger logger,
       final List<HttpRequestBase> httpRequestList) {
 
@@ -143,39 +217,256 @@ public class JobCallbackRequestMaker {
       }
       logger.info("]");
 
-      final HttpRequestFutureTask<Integer> task =
-          this.futureRequestExecutionService.execute(httpRequest,
-              HttpClientContext.create(), new LoggingResponseHandler(logger));
+      submit(new Delivery(jobId, httpRequest, System.currentTimeMillis(),
+          this.deliverySequence.incrementAndGet()));
+    }
+  }
 
-      try {
-        // get with timeout
-        final Integer statusCode =
-            task.get(this.responseWaitTimeoutMS, TimeUnit.MILLISECONDS);
-
-        logger.info("http callback status code: " + statusCode);
-      } catch (final TimeoutException timeOutEx) {
-        logger
-            .warn("Job callback target took longer "
-                    + (this.responseWaitTimeoutMS / 1000) + " seconds to respond",
-                timeOutEx);
-      } catch (final ExecutionException ee) {
-        if (ee.getCause() instanceof SocketTimeoutException) {
-          logger.warn("Job callback target took longer "
-              + (this.responseWaitTimeoutMS / 1000) + " seconds to respond", ee);
-        } else {
-          logger.warn(
-              "Encountered error while waiting for job callback to complete",
-              ee);
+  private void submit(final Delivery delivery) {
+    if (this.spilledJobs.containsKey(delivery.jobId)) {
+      // stays behind the spilled requests of the job
+      spill(delivery);
+      return;
+    }
+    if (!queue(delivery)) {
+      spill(delivery);
+    }
+  }
+
+  /**
+   * Appends the delivery to the queue of its job, and starts it if it is the only one.
+   *
+   * @return false if the queue is full or shut down
+   */
+  private boolean queue(final Delivery delivery) {
+    synchronized (this.jobQueues) {
+      if (this.isShutdown || this.queuedCount >= this.queueCapacity) {
+        return false;
+      }
+      this.metrics.onQueued();
+      this.queuedCount++;
+      final Deque<Delivery> jobQueue = this.jobQueues
+          .computeIfAbsent(delivery.jobId, jobId -> new ArrayDeque<>());
+      jobQueue.add(delivery);
+      if (jobQueue.size() > 1) {
+        // started once the ones before it are delivered
+        return true;
+      }
+    }
+    execute(delivery);
+    return true;
+  }
+
+  private void execute(final Delivery delivery) {
+    try {
+      this.deliveryExecutor.execute(delivery);
+    } catch (final RejectedExecutionException ex) {
+      // shutting down, the delivery is spilled with the rest of its job queue
+    }
+  }
+
+  /**
+   * Removes the delivered head of its job queue, and starts the next delivery of the job.
+   */
+  private void onDeliveryDone(final Delivery delivery) {
+    final Delivery next;
+    synchronized (this.jobQueues) {
+      final Deque<Delivery> jobQueue = this.jobQueues.get(delivery.jobId);
+      jobQueue.remove();
+      this.queuedCount--;
+      if (jobQueue.isEmpty()) {
+        this.jobQueues.remove(delivery.jobId);
+        return;
+      }
+      next = jobQueue.peek();
+    }
+    execute(next);
+  }
+
+  @SuppressWarnings("FutureReturnValueIgnored")
+  private void scheduleRetry(final Delivery delivery, final long delayMs) {
+    try {
+      this.scheduler.schedule(() -> execute(delivery), delayMs, TimeUnit.MILLISECONDS);
+    } catch (final RejectedExecutionException ex) {
+      // shutting down, the delivery is spilled with the rest of its job queue
+    }
+  }
+
+  private void spill(final Delivery delivery) {
+    if (this.spillQueue.offer(delivery.jobId, delivery.request, delivery.createTime,
+        delivery.sequence)) {
+      this.spilledJobs.merge(delivery.jobId, 1, Integer::sum);
+      this.metrics.onSpilled();
+    } else {
+      this.metrics.onDropped();
+      logger.warn("Dropped job callback of job " + delivery.jobId + ": " + delivery.request);
+    }
+  }
+
+  /**
+   * Queues spilled requests while there's room. A request which can't be queued is spilled again
+   * under the same name, so it keeps its place, and the later spilled requests of its job stay
+   * behind it.
+   */
+  @VisibleForTesting
+  synchronized void drainSpillQueue() {
+    try {
+      final int room;
+      synchronized (this.jobQueues) {
+        room = this.queueCapacity - this.queuedCount;
+      }
+      if (room > 0) {
+        // jobs one of whose requests stays spilled, so their next requests must as well
+        final Set<String> blockedJobs = new HashSet<>();
+        for (final SpilledCallback spilled : this.spillQueue.peek(room)) {
+          final String jobId = spilled.getJobId();
+          if (blockedJobs.contains(jobId)) {
+            continue;
+          }
+          // removed first, so a shutdown meanwhile can't spill it twice
+          this.spillQueue.remove(spilled);
+          final Delivery delivery = new Delivery(jobId, spilled.getRequest(),
+              spilled.getCreateTime(), spilled.getSequence());
+          if (queue(delivery)) {
+            // only once queued, so new requests of the job can't get ahead of it; not counted
+            // if spilled before a restart
+            this.spilledJobs.computeIfPresent(jobId,
+                (id, count) -> count > 1 ? count - 1 : null);
+          } else {
+            blockedJobs.add(jobId);
+            if (!this.spillQueue.offer(jobId, delivery.request, delivery.createTime,
+                delivery.sequence)) {
+              this.metrics.onDropped();
+              logger.warn("Dropped job callback of job " + jobId + ": " + delivery.request);
+            }
+          }
+        }
+      }
+    } catch (final RuntimeException ex) {
+      logger.error("Encountered error while delivering spilled job callbacks", ex);
+    }
+  }
+
+  /**
+   * Whether a request should be tried again.
+   *
+   * @param statusCode status code of the response, or null if there was none
+   * @param failure error of the attempt if there was no response
+   */
+  static boolean isRetryable(final HttpRequestBase request, final Integer statusCode,
+      final Exception failure) {
+    if (statusCode != null) {
+      return statusCode >= 500 || statusCode == 429;
+    }
+    if (HttpPost.METHOD_NAME.equals(request.getMethod())) {
+      // only if the request can't have been sent
+      return failure instanceof ConnectException || failure instanceof ConnectTimeoutException
+          || failure instanceof UnknownHostException;
+    }
+    return true;
+  }
+
+  /**
+   * Stops delivering and spills the queued requests and the requests waiting for a retry, so they
+   * are delivered after the executor restarts. The attempts in progress are finished first.
+   */
+  public void shutdown() {
+    synchronized (this.jobQueues) {
+      this.isShutdown = true;
+    }
+    this.scheduler.shutdownNow();
+    this.deliveryExecutor.shutdown();
+    try {
+      this.deliveryExecutor.awaitTermination(DEFAULT_TIME_OUT_MS, TimeUnit.MILLISECONDS);
+    } catch (final InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (this.jobQueues) {
+      for (final Deque<Delivery> jobQueue : this.jobQueues.values()) {
+        for (final Delivery delivery : jobQueue) {
+          this.metrics.onRejected();
+          spill(delivery);
+        }
+      }
+      this.jobQueues.clear();
+      this.queuedCount = 0;
+    }
+    try {
+      this.httpClient.close();
+    } catch (final IOException ex) {
+      logger.warn("Encountered error while closing job callback http client", ex);
+    }
+  }
+
+  /**
+   * Delivery of a request. Each run makes one attempt, and schedules the next one after a backoff
+   * while the request is retryable.
+   */
+  private final class Delivery implements Runnable {
+
+    private final String jobId;
+    private final HttpRequestBase request;
+    private final long createTime;
+    private final long sequence;
+    // attempts made so far, only accessed by the attempts, which run one after the other
+    private int attempts = 0;
+
+    private Delivery(final String jobId, final HttpRequestBase request, final long createTime,
+        final long sequence) {
+      this.jobId = jobId;
+      this.request = request;
+      this.createTime = createTime;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public void run() {
+      synchronized (JobCallbackRequestMaker.this.jobQueues) {
+        if (JobCallbackRequestMaker.this.isShutdown) {
+          // spilled by the shutdown
+          return;
         }
-      } catch (final Throwable e) {
-        logger.warn(
-            "Encountered error while waiting for job callback to complete", e);
       }
+
+      final JobCallbackMetrics metrics = JobCallbackRequestMaker.this.metrics;
+      final int attempt = ++this.attempts;
+      metrics.onAttemptStarted();
+      Integer statusCode = null;
+      Exception failure = null;
+      try {
+        statusCode = JobCallbackRequestMaker.this.httpClient
+            .execute(this.request, new LoggingResponseHandler(logger, this.jobId));
+        logger.info("Job " + this.jobId + " http callback status code: " + statusCode);
+      } catch (final IOException | RuntimeException ex) {
+        failure = ex;
+        logger.warn("Encountered error while making job callback of job " + this.jobId
+            + ", attempt " + attempt + ": " + this.request, ex);
+      } finally {
+        // allows the request to be executed again
+        this.request.releaseConnection();
+        metrics.onAttemptFinished();
+      }
+
+      if (attempt >= JobCallbackRequestMaker.this.maxAttempts
+          || !isRetryable(this.request, statusCode, failure)) {
+        metrics.onDelivered(statusCode != null && statusCode < 400,
+            System.currentTimeMillis() - this.createTime);
+        onDeliveryDone(this);
+        return;
+      }
+
+      // the next requests of the job stay in its queue meanwhile
+      metrics.onRetry();
+      metrics.onQueued();
+      scheduleRetry(this, Math.min(JobCallbackRequestMaker.this.retryBackoffMs
+          << Math.min(attempt - 1, 30), MAX_RETRY_BACKOFF_MS));
     }
   }
 
   /**
-   * Response handler for logging job callback response using the given logger instance
+   * Response handler for logging job callback response using the given logger instance. The
+   * response is logged as a single message, so the responses of concurrent callbacks don't
+   * interleave.
    *
    * @author hluu
    */
@@ -183,12 +474,14 @@ public class JobCallbackRequestMaker {
       ResponseHandler<Integer> {
 
     private final Logger logger;
+    private final String jobId;
 
-    public LoggingResponseHandler(final Logger logger) {
+    public LoggingResponseHandler(final Logger logger, final String jobId) {
       if (logger == null) {
         throw new NullPointerException("Argument logger can't be null");
       }
       this.logger = logger;
+      this.jobId = jobId;
     }
 
     @Override
@@ -207,17 +500,18 @@ public class JobCallbackRequestMaker {
 
           String line = "";
           int lineCount = 0;
-          this.logger.info("HTTP response [");
+          final StringBuilder message = new StringBuilder("Job ").append(this.jobId)
+              .append(" HTTP response [\n");
           while ((line = bufferedReader.readLine()) != null) {
-            this.logger.info(line);
+            message.append(line).append('\n');
             lineCount++;
             if (lineCount > MAX_RESPONSE_LINE_TO_PRINT) {
               break;
             }
           }
-          this.logger.info("]");
+          this.logger.info(message.append(']'));
         } else {
-          this.logger.info("No response");
+          this.logger.info("Job " + this.jobId + " no response");
         }
 
       } catch (final Throwable t) {
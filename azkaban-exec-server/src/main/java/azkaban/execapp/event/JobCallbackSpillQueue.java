@@ -0,0 +1,224 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp.event;
+
+import azkaban.utils.JSONUtils;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.apache.log4j.Logger;
+
+
+/**
+ * Job callbacks which didn't fit in the delivery queue, kept one file per callback in a local
+ * directory so they survive a restart of the executor. Files are named after the time the
+ * callback was created and its sequence number, so callbacks are read back in the order they
+ * were created, however late they were spilled. A callback spilled again, e.g. at shutdown,
+ * keeps its place among the callbacks of its job.
+ */
+class JobCallbackSpillQueue {
+
+  private static final Logger logger = Logger.getLogger(JobCallbackSpillQueue.class);
+  private static final String SUFFIX = ".json";
+  // create time and sequence number of the callback
+  private static final String NAME_FORMAT = "%013d-%019d";
+
+  private final File dir;
+  private final int maxFiles;
+
+  JobCallbackSpillQueue(final File dir, final int maxFiles) {
+    this.dir = dir;
+    this.maxFiles = maxFiles;
+  }
+
+  /**
+   * @param createTime time the callback was created at
+   * @param sequence number of the callback among the callbacks created at the same time, to order
+   * them
+   * @return false if the callback couldn't be spilled because the directory is full or can't be
+   * written to
+   */
+  synchronized boolean offer(final String jobId, final HttpRequestBase request,
+      final long createTime, final long sequence) {
+    if (!this.dir.isDirectory() && !this.dir.mkdirs()) {
+      logger.error("Unable to create job callback spill directory " + this.dir);
+      return false;
+    }
+    if (size() >= this.maxFiles) {
+      return false;
+    }
+
+    final Map<String, Object> record = new HashMap<>();
+    record.put("jobId", jobId);
+    record.put("method", request.getMethod());
+    record.put("uri", request.getURI().toString());
+    final List<List<String>> headers = new ArrayList<>();
+    for (final Header header : request.getAllHeaders()) {
+      headers.add(Arrays.asList(header.getName(), header.getValue()));
+    }
+    record.put("headers", headers);
+    if (request instanceof HttpEntityEnclosingRequest) {
+      final HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+      if (entity != null) {
+        try {
+          record.put("body", EntityUtils.toString(entity));
+        } catch (final IOException ex) {
+          logger.error("Unable to read the body of job callback " + request, ex);
+          return false;
+        }
+        if (entity.getContentType() != null) {
+          record.put("contentType", entity.getContentType().getValue());
+        }
+      }
+    }
+
+    final String name = String.format(NAME_FORMAT, createTime, sequence);
+    final File tmp = new File(this.dir, name + ".tmp");
+    try {
+      JSONUtils.toJSON(record, tmp);
+      // a file only shows up under its final name once fully written
+      Files.move(tmp.toPath(), new File(this.dir, name + SUFFIX).toPath(),
+          StandardCopyOption.ATOMIC_MOVE);
+      return true;
+    } catch (final IOException ex) {
+      logger.error("Unable to spill job callback " + request, ex);
+      tmp.delete();
+      return false;
+    }
+  }
+
+  /**
+   * Returns up to max of the oldest spilled callbacks, without removing them. Unreadable files are
+   * dropped.
+   */
+  @SuppressWarnings("unchecked")
+  synchronized List<SpilledCallback> peek(final int max) {
+    final File[] files = this.dir.listFiles((dir, name) -> name.endsWith(SUFFIX));
+    if (files == null || files.length == 0) {
+      return new ArrayList<>();
+    }
+    Arrays.sort(files);
+    final List<SpilledCallback> res = new ArrayList<>();
+    for (int i = 0; i < files.length && res.size() < max; i++) {
+      try {
+        final Map<String, Object> record = (Map<String, Object>) JSONUtils
+            .parseJSONFromFile(files[i]);
+        final String[] name = files[i].getName()
+            .substring(0, files[i].getName().length() - SUFFIX.length()).split("-");
+        res.add(new SpilledCallback(files[i], (String) record.get("jobId"), toRequest(record),
+            Long.parseLong(name[0]), Long.parseLong(name[1])));
+      } catch (final IOException | RuntimeException ex) {
+        logger.error("Dropping unreadable spilled job callback " + files[i], ex);
+        delete(files[i]);
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Removes a callback returned by {@link #peek(int)}.
+   */
+  synchronized void remove(final SpilledCallback callback) {
+    delete(callback.file);
+  }
+
+  private static void delete(final File file) {
+    if (!file.delete()) {
+      logger.error("Unable to delete spilled job callback " + file);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static HttpRequestBase toRequest(final Map<String, Object> record) {
+    final URI uri = URI.create((String) record.get("uri"));
+    final HttpRequestBase request;
+    if (HttpPost.METHOD_NAME.equals(record.get("method"))) {
+      final HttpPost post = new HttpPost(uri);
+      final String body = (String) record.get("body");
+      if (body != null) {
+        final String contentType = (String) record.get("contentType");
+        post.setEntity(new StringEntity(body, contentType == null ? ContentType.DEFAULT_TEXT
+            : ContentType.parse(contentType)));
+      }
+      request = post;
+    } else {
+      request = new HttpGet(uri);
+    }
+    for (final List<String> header : (List<List<String>>) record.get("headers")) {
+      request.addHeader(header.get(0), header.get(1));
+    }
+    return request;
+  }
+
+  int size() {
+    final String[] names = this.dir.list((dir, name) -> name.endsWith(SUFFIX));
+    return names == null ? 0 : names.length;
+  }
+
+  /**
+   * A spilled callback, as read back from its file.
+   */
+  static final class SpilledCallback {
+
+    private final File file;
+    private final String jobId;
+    private final HttpRequestBase request;
+    private final long createTime;
+    private final long sequence;
+
+    private SpilledCallback(final File file, final String jobId, final HttpRequestBase request,
+        final long createTime, final long sequence) {
+      this.file = file;
+      this.jobId = jobId;
+      this.request = request;
+      this.createTime = createTime;
+      this.sequence = sequence;
+    }
+
+    String getJobId() {
+      return this.jobId;
+    }
+
+    HttpRequestBase getRequest() {
+      return this.request;
+    }
+
+    long getCreateTime() {
+      return this.createTime;
+    }
+
+    long getSequence() {
+      return this.sequence;
+    }
+  }
+}
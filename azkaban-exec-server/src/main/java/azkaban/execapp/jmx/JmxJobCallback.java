@@ -1,33 +1,63 @@
 package azkaban.execapp.jmx;
 
-import org.apache.http.impl.client.FutureRequestExecutionMetrics;
+import azkaban.execapp.event.JobCallbackMetrics;
 
 public class JmxJobCallback implements JmxJobCallbackMBean {
 
-  private final FutureRequestExecutionMetrics jobCallbackMetrics;
+  private final JobCallbackMetrics jobCallbackMetrics;
 
-  public JmxJobCallback(final FutureRequestExecutionMetrics jobCallbackMetrics) {
+  public JmxJobCallback(final JobCallbackMetrics jobCallbackMetrics) {
     this.jobCallbackMetrics = jobCallbackMetrics;
   }
 
   @Override
   public long getNumJobCallbacks() {
-    return this.jobCallbackMetrics.getRequestCount();
+    return this.jobCallbackMetrics.getAttempts();
   }
 
   @Override
   public long getNumSuccessfulJobCallbacks() {
-    return this.jobCallbackMetrics.getSuccessfulConnectionCount();
+    return this.jobCallbackMetrics.getSuccessful();
   }
 
   @Override
   public long getNumFailedJobCallbacks() {
-    return this.jobCallbackMetrics.getFailedConnectionCount();
+    return this.jobCallbackMetrics.getFailed();
   }
 
   @Override
   public long getNumActiveJobCallbacks() {
-    return this.jobCallbackMetrics.getActiveConnectionCount();
+    return this.jobCallbackMetrics.getActive();
+  }
+
+  @Override
+  public long getNumQueuedJobCallbacks() {
+    return this.jobCallbackMetrics.getQueued();
+  }
+
+  @Override
+  public long getNumRetriedJobCallbacks() {
+    return this.jobCallbackMetrics.getRetried();
+  }
+
+  @Override
+  public long getNumSpilledJobCallbacks() {
+    return this.jobCallbackMetrics.getSpilled();
+  }
+
+  @Override
+  public long getNumDroppedJobCallbacks() {
+    return this.jobCallbackMetrics.getDropped();
+  }
+
+  @Override
+  public double getJobCallbackDeliveryLatencyMeanMs() {
+    return this.jobCallbackMetrics.getDeliveryLatencyMeanMs();
+  }
+
+  @Override
+  public double getJobCallbackDeliveryLatency99thPercentileMs() {
+    return this.jobCallbackMetrics.getDeliveryLatency99thPercentileMs();
   }
 
 }
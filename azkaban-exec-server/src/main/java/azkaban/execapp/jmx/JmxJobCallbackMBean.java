@@ -16,4 +16,22 @@ public interface JmxJobCallbackMBean {
   @DisplayName("OPERATION: getNumActiveJobCallbacks")
   public long getNumActiveJobCallbacks();
 
+  @DisplayName("OPERATION: getNumQueuedJobCallbacks")
+  public long getNumQueuedJobCallbacks();
+
+  @DisplayName("OPERATION: getNumRetriedJobCallbacks")
+  public long getNumRetriedJobCallbacks();
+
+  @DisplayName("OPERATION: getNumSpilledJobCallbacks")
+  public long getNumSpilledJobCallbacks();
+
+  @DisplayName("OPERATION: getNumDroppedJobCallbacks")
+  public long getNumDroppedJobCallbacks();
+
+  @DisplayName("OPERATION: getJobCallbackDeliveryLatencyMeanMs")
+  public double getJobCallbackDeliveryLatencyMeanMs();
+
+  @DisplayName("OPERATION: getJobCallbackDeliveryLatency99thPercentileMs")
+  public double getJobCallbackDeliveryLatency99thPercentileMs();
+
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.utils.Pair;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Test;
+
+public class ExecutionUpdateEventsTest {
+
+  @Test
+  public void testEventsAfterSequence() throws Exception {
+    final ExecutionUpdateEvents events = new ExecutionUpdateEvents();
+    final String epoch = events.getEpoch();
+    events.flowUpdated(1, 1000L, false);
+    events.flowUpdated(2, 1500L, false);
+    events.flowUpdated(1, 2000L, false);
+
+    final Pair<Long, Map<Integer, Long>> all = events.await(epoch, 0, 0);
+    assertThat(all.getFirst()).isEqualTo(3L);
+    // The first event of a flow asks for the full flow
+    assertThat(all.getSecond()).containsOnlyKeys(1, 2).containsEntry(1, 0L)
+        .containsEntry(2, 0L);
+
+    final Pair<Long, Map<Integer, Long>> latest = events.await(epoch, 2, 0);
+    assertThat(latest.getFirst()).isEqualTo(3L);
+    assertThat(latest.getSecond()).containsOnlyKeys(1).containsEntry(1, 999L);
+  }
+
+  @Test
+  public void testAwaitBlocksUntilEvent() throws Exception {
+    final ExecutionUpdateEvents events = new ExecutionUpdateEvents();
+    final CompletableFuture<Pair<Long, Map<Integer, Long>>> poll = CompletableFuture
+        .supplyAsync(() -> {
+          try {
+            return events.await(events.getEpoch(), 0, 10000);
+          } catch (final InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+        });
+    Thread.sleep(100);
+    assertThat(poll.isDone()).isFalse();
+
+    events.flowUpdated(7, 1000L, false);
+    assertThat(poll.get().getSecond()).containsOnlyKeys(7);
+  }
+
+  @Test
+  public void testAwaitTimesOutWithoutEvents() throws Exception {
+    final ExecutionUpdateEvents events = new ExecutionUpdateEvents();
+    final Pair<Long, Map<Integer, Long>> poll = events.await(events.getEpoch(), 0, 50);
+    assertThat(poll.getFirst()).isEqualTo(0L);
+    assertThat(poll.getSecond()).isEmpty();
+  }
+
+  @Test
+  public void testGaps() throws Exception {
+    final ExecutionUpdateEvents events = new ExecutionUpdateEvents(2);
+    final String epoch = events.getEpoch();
+    events.flowUpdated(1, 1000L, false);
+    events.flowUpdated(2, 1000L, false);
+    events.flowUpdated(3, 1000L, false);
+
+    // The first event was dropped
+    assertThat(events.await(epoch, 0, 0)).isNull();
+    assertThat(events.await(epoch, 1, 0).getSecond()).containsOnlyKeys(2, 3);
+    // Unknown epoch, e.g. after a restart of the executor
+    assertThat(events.await(null, 1, 0)).isNull();
+    assertThat(events.await("previous", 1, 0)).isNull();
+    // Sequence from the future
+    assertThat(events.await(epoch, 4, 0)).isNull();
+  }
+}
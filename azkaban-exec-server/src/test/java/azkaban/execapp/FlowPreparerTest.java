@@ -29,12 +29,13 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import azkaban.execapp.metric.ProjectCacheHitRatio;
 import azkaban.executor.ExecutableFlow;
 import azkaban.executor.ExecutorManagerException;
+import azkaban.metrics.MetricsManager;
 import azkaban.project.ProjectFileHandler;
 import azkaban.storage.StorageManager;
 import azkaban.utils.FileIOUtils;
+import com.codahale.metrics.MetricRegistry;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -88,8 +89,10 @@ public class FlowPreparerTest {
     this.projectsDir = this.temporaryFolder.newFolder("projects");
 
     this.instance = spy(
-        new FlowPreparer(createMockStorageManager(), this.executionsDir, this.projectsDir, null,
-            new ProjectCacheHitRatio()));
+        new FlowPreparer(
+            new ProjectDownloadService(createMockStorageManager(), this.projectsDir, 2, 2),
+            this.executionsDir, this.projectsDir, null,
+            new ExecMetrics(new MetricsManager(new MetricRegistry()))));
     doNothing().when(this.instance).updateLastModifiedTime(any());
   }
 
@@ -186,4 +189,27 @@ public class FlowPreparerTest {
     assertTrue(new File(execDir, SAMPLE_FLOW_01).exists());
   }
 
+  @Test
+  public void testEvictProjectDir() throws Exception {
+    final File projectDir = new File(this.projectsDir, "12.34");
+    assertTrue(projectDir.mkdirs());
+
+    final File evictedDir = this.instance.evictProjectDir(projectDir);
+    assertThat(evictedDir).isNotNull();
+    assertThat(evictedDir.getParentFile()).isEqualTo(this.projectsDir);
+    assertThat(evictedDir.exists()).isTrue();
+    assertThat(projectDir.exists()).isFalse();
+  }
+
+  @Test
+  public void testSetupFlowsOfDifferentProjects() throws Exception {
+    this.instance.setup(mockExecutableFlow(1, 12, 34));
+    this.instance.setup(mockExecutableFlow(2, 13, 34));
+
+    assertThat(new File(this.projectsDir, "12.34").exists()).isTrue();
+    assertThat(new File(this.projectsDir, "13.34").exists()).isTrue();
+    // Nothing is in use anymore, so both project dirs can be evicted.
+    assertThat(this.instance.evictProjectDir(new File(this.projectsDir, "12.34"))).isNotNull();
+    assertThat(this.instance.evictProjectDir(new File(this.projectsDir, "13.34"))).isNotNull();
+  }
 }
@@ -141,6 +141,38 @@ public class FlowRunnerConditionalFlowTest extends FlowRunnerTestBase {
     assertFlowStatus(flow, Status.SUCCEEDED);
   }
 
+  @Test
+  public void runFlowOnJobStatusOneFailedWaitsForAllParents() throws Exception {
+    final HashMap<String, String> flowProps = new HashMap<>();
+    setUp(CONDITIONAL_FLOW_3, flowProps);
+    final ExecutableFlow flow = this.runner.getExecutableFlow();
+    InteractiveTestJob.getTestJob("jobA").failJob();
+    assertStatus(flow, "jobA", Status.FAILED);
+    // The condition is met already, but jobC only runs once all its parents have finished
+    assertStatus(flow, "jobB", Status.RUNNING);
+    assertStatus(flow, "jobC", Status.READY);
+    InteractiveTestJob.getTestJob("jobB").succeedJob();
+    assertStatus(flow, "jobB", Status.SUCCEEDED);
+    assertStatus(flow, "jobC", Status.SUCCEEDED);
+    assertFlowStatus(flow, Status.SUCCEEDED);
+  }
+
+  @Test
+  public void runFlowWithCancelledConditionalParent() throws Exception {
+    final HashMap<String, String> flowProps = new HashMap<>();
+    setUp(CONDITIONAL_FLOW_6, flowProps);
+    final ExecutableFlow flow = this.runner.getExecutableFlow();
+    final Props generatedProperties = new Props();
+    generatedProperties.put("props", "bar");
+    InteractiveTestJob.getTestJob("jobA").succeedJob(generatedProperties);
+    assertStatus(flow, "jobA", Status.SUCCEEDED);
+    // The cancelled parent counts as finished for jobD, whose condition isn't met
+    assertStatus(flow, "jobB", Status.CANCELLED);
+    assertStatus(flow, "jobC", Status.SUCCEEDED);
+    assertStatus(flow, "jobD", Status.CANCELLED);
+    assertFlowStatus(flow, Status.KILLED);
+  }
+
   @Test
   public void runFlowOnJobStatusConditionNull() throws Exception {
     final HashMap<String, String> flowProps = new HashMap<>();
@@ -1069,4 +1069,175 @@ public class FlowRunnerTest2 extends FlowRunnerTestBase {
     assertThreadShutDown();
   }
 
+  /**
+   * Tests that a job with several parents starts only once the completion of the last one is
+   * processed, whatever order they finish in.
+   */
+  @Test
+  public void testFanInStartsAfterLastParent() throws Exception {
+    this.runner = this.testUtil.createFromFlowMap("jobf", FailureAction.FINISH_CURRENTLY_RUNNING);
+    final EventCollectorListener eventCollector = new EventCollectorListener();
+    this.runner.addListener(eventCollector);
+
+    FlowRunnerTestUtil.startThread(this.runner);
+    InteractiveTestJob.getTestJob("joba").succeedJob();
+    assertStatus("jobb", Status.RUNNING);
+    assertStatus("jobc", Status.RUNNING);
+    assertStatus("jobd", Status.RUNNING);
+
+    // 1. jobc finishes first. Finished jobs are processed in order, so jobc is processed by the
+    // time the out nodes of jobb:innerJobA are started.
+    InteractiveTestJob.getTestJob("jobc").succeedJob();
+    FlowRunnerTestUtil.waitEventFired(eventCollector, "jobc", Status.SUCCEEDED);
+    InteractiveTestJob.getTestJob("jobb:innerJobA").succeedJob();
+    assertStatus("jobb:innerJobB", Status.RUNNING);
+    assertStatus("jobe", Status.READY);
+
+    // 2. jobb finishes
+    InteractiveTestJob.getTestJob("jobb:innerJobB").succeedJob();
+    InteractiveTestJob.getTestJob("jobb:innerJobC").succeedJob();
+    assertStatus("jobb:innerFlow", Status.RUNNING);
+    InteractiveTestJob.getTestJob("jobb:innerFlow").succeedJob();
+    assertStatus("jobb", Status.SUCCEEDED);
+    FlowRunnerTestUtil.waitEventFired(eventCollector, "jobb", Status.SUCCEEDED);
+    InteractiveTestJob.getTestJob("jobd:innerJobA").succeedJob();
+    assertStatus("jobd:innerFlow2", Status.RUNNING);
+    assertStatus("jobe", Status.READY);
+
+    // 3. jobd, the last parent of jobe, finishes
+    InteractiveTestJob.getTestJob("jobd:innerFlow2").succeedJob();
+    assertStatus("jobd", Status.SUCCEEDED);
+    assertStatus("jobe", Status.RUNNING);
+
+    // 4. jobf waits for joba1 too
+    InteractiveTestJob.getTestJob("jobe").succeedJob();
+    assertStatus("jobe", Status.SUCCEEDED);
+    FlowRunnerTestUtil.waitEventFired(eventCollector, "jobe", Status.SUCCEEDED);
+    assertStatus("jobf", Status.READY);
+    InteractiveTestJob.getTestJob("joba1").succeedJob();
+    assertStatus("jobf", Status.RUNNING);
+
+    InteractiveTestJob.getTestJob("jobf").succeedJob();
+    waitForAndAssertFlowStatus(Status.SUCCEEDED);
+    assertThreadShutDown();
+  }
+
+  /**
+   * Tests that after retrying a failed job, its children wait for it again before starting.
+   */
+  @Test
+  public void testRetryRecountsPendingParents() throws Exception {
+    this.runner = this.testUtil.createFromFlowMap("jobf", FailureAction.FINISH_ALL_POSSIBLE);
+
+    FlowRunnerTestUtil.startThread(this.runner);
+    InteractiveTestJob.getTestJob("joba").succeedJob();
+    assertStatus("jobc", Status.RUNNING);
+
+    // 1. jobc fails, the other parents of jobe finish
+    InteractiveTestJob.getTestJob("jobc").failJob();
+    assertStatus("jobc", Status.FAILED);
+    succeedJobs("jobb:innerJobA");
+    succeedJobs("jobb:innerJobB", "jobb:innerJobC");
+    succeedJobs("jobb:innerFlow");
+    succeedJobs("jobd:innerJobA");
+    succeedJobs("jobd:innerFlow2");
+    assertStatus("jobb", Status.SUCCEEDED);
+    assertStatus("jobd", Status.SUCCEEDED);
+    assertStatus("jobe", Status.CANCELLED);
+    waitForAndAssertFlowStatus(Status.FAILED_FINISHING);
+
+    // 2. jobc is retried, and jobe waits for it
+    InteractiveTestJob.clearTestJobs("jobc");
+    this.runner.retryFailures("me");
+    assertStatus("jobc", Status.RUNNING);
+    waitForAndAssertFlowStatus(Status.RUNNING);
+    assertStatus("jobe", Status.READY);
+
+    InteractiveTestJob.getTestJob("jobc").succeedJob();
+    assertStatus("jobc", Status.SUCCEEDED);
+    assertStatus("jobe", Status.RUNNING);
+
+    succeedJobs("jobe", "joba1");
+    assertStatus("jobf", Status.RUNNING);
+    InteractiveTestJob.getTestJob("jobf").succeedJob();
+    waitForAndAssertFlowStatus(Status.SUCCEEDED);
+    assertThreadShutDown();
+  }
+
+  /**
+   * Tests that jobs finishing while the flow is paused stay queued, and their out nodes all start
+   * on resume.
+   */
+  @Test
+  public void testPauseKeepsFinishedJobsQueued() throws Exception {
+    this.runner = this.testUtil.createFromFlowMap("jobf", FailureAction.FINISH_CURRENTLY_RUNNING);
+    final EventCollectorListener eventCollector = new EventCollectorListener();
+    this.runner.addListener(eventCollector);
+
+    FlowRunnerTestUtil.startThread(this.runner);
+    InteractiveTestJob.getTestJob("joba").succeedJob();
+    assertStatus("jobb:innerJobA", Status.RUNNING);
+    assertStatus("jobd:innerJobA", Status.RUNNING);
+
+    this.runner.pause("me");
+    waitForAndAssertFlowStatus(Status.PAUSED);
+    InteractiveTestJob.getTestJob("jobb:innerJobA").succeedJob();
+    InteractiveTestJob.getTestJob("jobd:innerJobA").succeedJob();
+    InteractiveTestJob.getTestJob("jobc").succeedJob();
+    FlowRunnerTestUtil.waitEventFired(eventCollector, "jobb:innerJobA", Status.SUCCEEDED);
+    FlowRunnerTestUtil.waitEventFired(eventCollector, "jobd:innerJobA", Status.SUCCEEDED);
+    FlowRunnerTestUtil.waitEventFired(eventCollector, "jobc", Status.SUCCEEDED);
+    waitForAndAssertFlowStatus(Status.PAUSED);
+    assertStatus("jobb:innerJobB", Status.READY);
+    assertStatus("jobb:innerJobC", Status.READY);
+    assertStatus("jobd:innerFlow2", Status.READY);
+
+    this.runner.resume("me");
+    assertStatus("jobb:innerJobB", Status.RUNNING);
+    assertStatus("jobb:innerJobC", Status.RUNNING);
+    assertStatus("jobd:innerFlow2", Status.RUNNING);
+    waitForAndAssertFlowStatus(Status.RUNNING);
+
+    succeedJobs("jobb:innerJobB", "jobb:innerJobC");
+    succeedJobs("jobb:innerFlow");
+    succeedJobs("jobd:innerFlow2");
+    assertStatus("jobe", Status.RUNNING);
+    succeedJobs("jobe", "joba1");
+    succeedJobs("jobf");
+    waitForAndAssertFlowStatus(Status.SUCCEEDED);
+    assertThreadShutDown();
+  }
+
+  /**
+   * Tests that killing a paused flow cancels the out nodes of the jobs which finished while it
+   * was paused, instead of starting them.
+   */
+  @Test
+  public void testKillCancelsOutNodesOfQueuedJobs() throws Exception {
+    this.runner = this.testUtil.createFromFlowMap("jobf", FailureAction.FINISH_CURRENTLY_RUNNING);
+    final EventCollectorListener eventCollector = new EventCollectorListener();
+    this.runner.addListener(eventCollector);
+
+    FlowRunnerTestUtil.startThread(this.runner);
+    assertStatus("joba", Status.RUNNING);
+    assertStatus("joba1", Status.RUNNING);
+
+    this.runner.pause("me");
+    waitForAndAssertFlowStatus(Status.PAUSED);
+    InteractiveTestJob.getTestJob("joba").succeedJob();
+    FlowRunnerTestUtil.waitEventFired(eventCollector, "joba", Status.SUCCEEDED);
+    assertStatus("jobb", Status.READY);
+
+    this.runner.kill("me");
+    assertStatus("joba", Status.SUCCEEDED);
+    assertStatus("joba1", Status.KILLED);
+    assertStatus("jobb", Status.CANCELLED);
+    assertStatus("jobc", Status.CANCELLED);
+    assertStatus("jobd", Status.CANCELLED);
+    assertStatus("jobe", Status.CANCELLED);
+    assertStatus("jobf", Status.CANCELLED);
+
+    waitForAndAssertFlowStatus(Status.KILLED);
+    assertThreadShutDown();
+  }
 }
@@ -117,4 +117,17 @@ public class ProjectCacheCleanerTest {
     assertThat(this.cacheDir.list()).contains("3.1");
     assertThat(this.cacheDir.list()).contains("2.1");
   }
+
+  @Test
+  /**
+   * Project dirs the evictor keeps are skipped, and the next least recently used one is deleted.
+   */
+  public void testNotDeletingItemsInUse() {
+    final ProjectCacheCleaner cleaner = new ProjectCacheCleaner(this.cacheDir, 0.7);
+    cleaner.deleteProjectDirsIfNecessary(2000000,
+        dir -> "1.1".equals(dir.getName()) ? null : dir);
+    assertThat(this.cacheDir.list()).hasSize(2);
+    assertThat(this.cacheDir.list()).contains("1.1");
+    assertThat(this.cacheDir.list()).contains("3.1");
+  }
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import azkaban.project.ProjectFileHandler;
+import azkaban.storage.ProjectManifest;
+import azkaban.storage.StorageManager;
+import azkaban.test.TestUtils;
+import azkaban.utils.Pair;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProjectDownloadServiceTest {
+
+  private static final String SAMPLE_FLOW_01 = "sample_flow_01";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  private File projectsDir;
+  private StorageManager storageManager;
+  private CountDownLatch downloadStarted;
+  private CountDownLatch downloadReleased;
+
+  @Before
+  public void setUp() throws Exception {
+    this.projectsDir = this.temporaryFolder.newFolder("projects");
+
+    final File file = new File(
+        getClass().getClassLoader().getResource(SAMPLE_FLOW_01 + ".zip").getFile());
+    final ProjectFileHandler projectFileHandler = mock(ProjectFileHandler.class);
+    when(projectFileHandler.getFileType()).thenReturn("zip");
+    when(projectFileHandler.getLocalFile()).thenReturn(file);
+
+    this.downloadStarted = new CountDownLatch(1);
+    this.downloadReleased = new CountDownLatch(1);
+    this.storageManager = mock(StorageManager.class);
+    when(this.storageManager.getProjectFile(anyInt(), anyInt())).thenAnswer(invocation -> {
+      this.downloadStarted.countDown();
+      this.downloadReleased.await();
+      return projectFileHandler;
+    });
+  }
+
+  @Test
+  public void testDownloadAndUnzip() throws Exception {
+    final ProjectDownloadService service =
+        new ProjectDownloadService(this.storageManager, this.projectsDir, 1, 4);
+    this.downloadReleased.countDown();
+
+    final Pair<File, Long> download = service.download(new ProjectDirectoryMetadata(12, 34));
+
+    final File tempDir = download.getFirst();
+    assertThat(tempDir.getParentFile()).isEqualTo(this.projectsDir);
+    assertThat(tempDir.list()).contains(SAMPLE_FLOW_01,
+        FlowPreparer.PROJECT_DIR_SIZE_FILE_NAME);
+    assertThat(download.getSecond()).isEqualTo(1048835L);
+  }
+
+  @Test
+  public void testConcurrentDownloadsOfSameProjectAreShared() throws Exception {
+    final ProjectDownloadService service =
+        new ProjectDownloadService(this.storageManager, this.projectsDir, 2, 2);
+    final ExecutorService callers = Executors.newFixedThreadPool(2);
+    try {
+      final ProjectDirectoryMetadata proj = new ProjectDirectoryMetadata(12, 34);
+      final Future<Pair<File, Long>> first = callers.submit(() -> service.download(proj));
+      this.downloadStarted.await();
+      final Future<Pair<File, Long>> second = callers.submit(() -> service.download(proj));
+
+      TestUtils.await().until(() -> service.getDownloadUsers(proj) == 2);
+      this.downloadReleased.countDown();
+
+      final File tempDir = first.get().getFirst();
+      assertThat(second.get().getFirst()).isEqualTo(tempDir);
+      verify(this.storageManager, times(1)).getProjectFile(12, 34);
+
+      // Kept until both callers are done with it
+      service.release(tempDir);
+      assertThat(tempDir).exists();
+      service.release(tempDir);
+      assertThat(tempDir).doesNotExist();
+    } finally {
+      callers.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testReleaseKeepsTempDirMovedIntoPlace() throws Exception {
+    final ProjectDownloadService service =
+        new ProjectDownloadService(this.storageManager, this.projectsDir, 1, 4);
+    this.downloadReleased.countDown();
+
+    final File tempDir = service.download(new ProjectDirectoryMetadata(12, 34)).getFirst();
+    final File installedDir = new File(this.projectsDir, "12.34");
+    Files.move(tempDir.toPath(), installedDir.toPath());
+    service.release(tempDir);
+
+    assertThat(installedDir.list()).contains(SAMPLE_FLOW_01);
+  }
+
+  @Test
+  public void testAssembleFromManifestLinksCachedFiles() throws Exception {
+    final String unchanged = "type=command\ncommand=echo unchanged\n";
+    final String changed = "type=command\ncommand=echo changed\n";
+
+    // Version 33 is cached, and shares one of its files with version 34
+    final File cachedDir = new File(this.projectsDir, "12.33");
+    final File cachedFile = new File(cachedDir, "flow/unchanged.job");
+    FileUtils.writeStringToFile(cachedFile, unchanged, StandardCharsets.UTF_8);
+    final ProjectManifest cachedManifest = new ProjectManifest();
+    cachedManifest.addEntry(createEntry("flow/unchanged.job", "md5-unchanged", unchanged));
+    cachedManifest.toJson(new File(cachedDir, ProjectDownloadService.PROJECT_MANIFEST_FILE_NAME));
+
+    final ProjectManifest manifest = new ProjectManifest();
+    final ProjectManifest.Entry unchangedEntry =
+        createEntry("flow/unchanged.job", "md5-unchanged", unchanged);
+    final ProjectManifest.Entry changedEntry =
+        createEntry("flow/changed.job", "md5-changed", changed);
+    manifest.addEntry(unchangedEntry);
+    manifest.addEntry(changedEntry);
+    when(this.storageManager.getProjectManifest(12, 34)).thenReturn(manifest);
+    when(this.storageManager.getBlob(changedEntry)).thenReturn(
+        new ByteArrayInputStream(changed.getBytes(StandardCharsets.UTF_8)));
+
+    final ProjectDownloadService service =
+        new ProjectDownloadService(this.storageManager, this.projectsDir, 1, 4);
+    final File tempDir = service.download(new ProjectDirectoryMetadata(12, 34)).getFirst();
+
+    final File linkedFile = new File(tempDir, "flow/unchanged.job");
+    assertThat(Files.isSameFile(linkedFile.toPath(), cachedFile.toPath())).isTrue();
+    assertThat(FileUtils.readFileToString(new File(tempDir, "flow/changed.job"),
+        StandardCharsets.UTF_8)).isEqualTo(changed);
+    assertThat(tempDir.list()).contains(ProjectDownloadService.PROJECT_MANIFEST_FILE_NAME,
+        FlowPreparer.PROJECT_DIR_SIZE_FILE_NAME);
+    verify(this.storageManager, never()).getBlob(unchangedEntry);
+    verify(this.storageManager, never()).getProjectFile(anyInt(), anyInt());
+    verify(this.storageManager, times(1)).getBlob(any());
+  }
+
+  @Test
+  public void testAssembleFromManifestChecksBlobMd5() throws Exception {
+    final ProjectManifest manifest = new ProjectManifest();
+    final ProjectManifest.Entry entry =
+        createEntry("flow/a.job", "a", "type=command\ncommand=echo a\n");
+    manifest.addEntry(entry);
+    when(this.storageManager.getProjectManifest(12, 35)).thenReturn(manifest);
+    when(this.storageManager.getBlob(entry)).thenReturn(
+        new ByteArrayInputStream("corrupted".getBytes(StandardCharsets.UTF_8)));
+
+    final ProjectDownloadService service =
+        new ProjectDownloadService(this.storageManager, this.projectsDir, 1, 4);
+    assertThatThrownBy(() -> service.download(new ProjectDirectoryMetadata(12, 35)))
+        .isInstanceOf(IOException.class).hasMessageContaining("MD5 HASH Failed");
+    // The partly assembled dir is removed
+    assertThat(this.projectsDir.list()).isEmpty();
+  }
+
+  private static ProjectManifest.Entry createEntry(final String path, final String blobName,
+      final String content) {
+    final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+    return new ProjectManifest.Entry(path, DigestUtils.md5Hex(bytes), bytes.length,
+        "12/" + blobName);
+  }
+}
@@ -2,20 +2,34 @@ package azkaban.execapp.event;
 
 import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_CONNECTION_REQUEST_TIMEOUT;
 import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_CONNECTION_TIMEOUT;
+import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_MAX_ATTEMPTS;
+import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_QUEUE_CAPACITY;
+import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_RETRY_BACKOFF;
 import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_SOCKET_TIMEOUT;
+import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_SPILL_DIR;
+import static azkaban.Constants.JobCallbackProperties.JOBCALLBACK_THREAD_POOL_SIZE;
 import static azkaban.jobcallback.JobCallbackConstants.CONTEXT_EXECUTION_ID_TOKEN;
 import static azkaban.jobcallback.JobCallbackConstants.CONTEXT_FLOW_TOKEN;
 import static azkaban.jobcallback.JobCallbackConstants.CONTEXT_JOB_STATUS_TOKEN;
 import static azkaban.jobcallback.JobCallbackConstants.CONTEXT_JOB_TOKEN;
 import static azkaban.jobcallback.JobCallbackConstants.CONTEXT_PROJECT_TOKEN;
 import static azkaban.jobcallback.JobCallbackConstants.CONTEXT_SERVER_TOKEN;
+import static org.assertj.core.api.Assertions.assertThat;
 
+import azkaban.execapp.event.JobCallbackSpillQueue.SpilledCallback;
 import azkaban.jobcallback.JobCallbackConstants;
 import azkaban.jobcallback.JobCallbackStatusEnum;
+import azkaban.test.TestUtils;
 import azkaban.utils.Props;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,11 +38,16 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.log4j.Logger;
 import org.junit.AfterClass;
+import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mortbay.jetty.Server;
 import org.mortbay.jetty.servlet.Context;
 import org.mortbay.jetty.servlet.ServletHolder;
@@ -40,6 +59,8 @@ public class JobCallbackRequestMakerTest {
 
   private static final String SLEEP_DURATION_PARAM = "sleepDuration";
   private static final String STATUS_CODE_PARAM = "returnedStatusCode";
+  private static final String ID_PARAM = "id";
+  private static final String FAILURES_PARAM = "failures";
 
   private static final String SERVER_NAME = "localhost:9999";
   private static final String PROJECT_NANE = "PROJECTX";
@@ -55,6 +76,9 @@ public class JobCallbackRequestMakerTest {
 
   private static Server embeddedJettyServer;
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @BeforeClass
   public static void setup() throws Exception {
     final Props props = new Props();
@@ -77,6 +101,7 @@ public class JobCallbackRequestMakerTest {
 
     final Context context = new Context(embeddedJettyServer, "/", Context.SESSIONS);
     context.addServlet(new ServletHolder(new DelayServlet()), "/delay");
+    context.addServlet(new ServletHolder(new RecordingServlet()), "/record");
 
     System.out.println("Start server");
     embeddedJettyServer.start();
@@ -91,6 +116,11 @@ public class JobCallbackRequestMakerTest {
     }
   }
 
+  @Before
+  public void clearRecorded() {
+    RecordingServlet.clear();
+  }
+
   private String buildUrlForDelay(final int delay) {
     return "http://localhost:" + PORT_NUMBER + "/delay?" + SLEEP_DURATION_PARAM
         + "=" + delay;
@@ -164,6 +194,143 @@ public class JobCallbackRequestMakerTest {
     jobCBMaker.makeHttpRequest(JOB_NANE, logger, httpRequestList);
   }
 
+  @Test
+  public void retryableTest() {
+    final HttpRequestBase get = new HttpGet(buildUrlForDelay(1));
+    final HttpRequestBase post = new HttpPost(buildUrlForDelay(1));
+    for (final HttpRequestBase request : new HttpRequestBase[]{get, post}) {
+      assertThat(JobCallbackRequestMaker.isRetryable(request, 503, null)).isTrue();
+      assertThat(JobCallbackRequestMaker.isRetryable(request, 429, null)).isTrue();
+      assertThat(JobCallbackRequestMaker.isRetryable(request, 404, null)).isFalse();
+      assertThat(JobCallbackRequestMaker.isRetryable(request, 200, null)).isFalse();
+      assertThat(JobCallbackRequestMaker.isRetryable(request, null, new ConnectException()))
+          .isTrue();
+    }
+    // The POST may have been processed when the response timed out
+    assertThat(JobCallbackRequestMaker.isRetryable(get, null, new SocketTimeoutException()))
+        .isTrue();
+    assertThat(JobCallbackRequestMaker.isRetryable(post, null, new SocketTimeoutException()))
+        .isFalse();
+  }
+
+  @Test(timeout = 10000)
+  public void retryDoesNotHoldUpOtherJobs() throws Exception {
+    final JobCallbackRequestMaker maker = createOrderingMaker(1, 10, 300);
+    try {
+      maker.makeHttpRequest("jobA", logger,
+          Arrays.asList(new HttpGet(buildUrlForRecord("a1", 1)),
+              new HttpGet(buildUrlForRecord("a2", 0))));
+      maker.makeHttpRequest("jobB", logger,
+          Collections.singletonList(new HttpGet(buildUrlForRecord("b1", 0))));
+
+      // a2 waits for the retry of a1, b1 doesn't
+      TestUtils.await().untilAsserted(
+          () -> assertThat(RecordingServlet.getRecorded()).containsExactly("a1", "b1", "a1",
+              "a2"));
+    } finally {
+      maker.shutdown();
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void spilledRequestsAreDeliveredInOrder() throws Exception {
+    final JobCallbackRequestMaker maker = createOrderingMaker(1, 1, 100);
+    try {
+      // a1 is queued, the others spilled as the queue is full
+      maker.makeHttpRequest("jobA", logger,
+          Arrays.asList(new HttpGet(buildUrlForRecord("a1", 1)),
+              new HttpGet(buildUrlForRecord("a2", 1)),
+              new HttpGet(buildUrlForRecord("a3", 0))));
+      maker.makeHttpRequest("jobB", logger,
+          Collections.singletonList(new HttpGet(buildUrlForRecord("b1", 0))));
+
+      // requests which can't be queued yet are spilled again while draining
+      TestUtils.await().untilAsserted(() -> {
+        maker.drainSpillQueue();
+        assertThat(RecordingServlet.getRecorded())
+            .containsExactly("a1", "a1", "a2", "a2", "a3", "b1");
+      });
+    } finally {
+      maker.shutdown();
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void shutdownSpillsRequestsInOrder() throws Exception {
+    final File spillDir = this.temporaryFolder.newFolder("spill");
+    final JobCallbackRequestMaker maker = createOrderingMaker(spillDir, 1, 1, 60000);
+    maker.makeHttpRequest("jobA", logger,
+        Arrays.asList(new HttpGet(buildUrlForRecord("a1", 1)),
+            new HttpGet(buildUrlForRecord("a2", 0))));
+    // a1 waits for its retry, a2 is spilled
+    TestUtils.await().untilAsserted(
+        () -> assertThat(RecordingServlet.getRecorded()).containsExactly("a1"));
+    maker.shutdown();
+
+    final List<SpilledCallback> spilled = new JobCallbackSpillQueue(spillDir, 10).peek(10);
+    assertThat(spilled).extracting(callback -> callback.getRequest().getURI().getQuery())
+        .containsExactly(ID_PARAM + "=a1&" + FAILURES_PARAM + "=1",
+            ID_PARAM + "=a2&" + FAILURES_PARAM + "=0");
+  }
+
+  private JobCallbackRequestMaker createOrderingMaker(final int threadPoolSize,
+      final int queueCapacity, final long retryBackoffMs) throws IOException {
+    return createOrderingMaker(this.temporaryFolder.newFolder("spill"), threadPoolSize,
+        queueCapacity, retryBackoffMs);
+  }
+
+  private JobCallbackRequestMaker createOrderingMaker(final File spillDir,
+      final int threadPoolSize, final int queueCapacity, final long retryBackoffMs) {
+    final Props props = new Props();
+    props.put(JOBCALLBACK_THREAD_POOL_SIZE, threadPoolSize);
+    props.put(JOBCALLBACK_QUEUE_CAPACITY, queueCapacity);
+    props.put(JOBCALLBACK_RETRY_BACKOFF, retryBackoffMs);
+    props.put(JOBCALLBACK_MAX_ATTEMPTS, 3);
+    props.put(JOBCALLBACK_SPILL_DIR, spillDir.getAbsolutePath());
+    return new JobCallbackRequestMaker(props);
+  }
+
+  private String buildUrlForRecord(final String id, final int failures) {
+    return "http://localhost:" + PORT_NUMBER + "/record?" + ID_PARAM + "=" + id + "&"
+        + FAILURES_PARAM + "=" + failures;
+  }
+
+  /**
+   * Records the ids of the requests in their order of arrival, and fails the first requests of
+   * each id with a 503.
+   */
+  private static class RecordingServlet extends HttpServlet {
+
+    private static final List<String> recorded = new ArrayList<>();
+    private static final Map<String, Integer> hits = new HashMap<>();
+
+    private static synchronized void clear() {
+      recorded.clear();
+      hits.clear();
+    }
+
+    private static synchronized List<String> getRecorded() {
+      return new ArrayList<>(recorded);
+    }
+
+    private static synchronized int record(final String id) {
+      recorded.add(id);
+      return hits.merge(id, 1, Integer::sum);
+    }
+
+    @Override
+    public void doGet(final HttpServletRequest req, final HttpServletResponse resp)
+        throws ServletException, IOException {
+      final int hit = record(req.getParameter(ID_PARAM));
+      if (hit <= Integer.parseInt(req.getParameter(FAILURES_PARAM))) {
+        resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      }
+      final Writer writer = resp.getWriter();
+      writer.write("Recorded");
+      writer.close();
+    }
+  }
+
   private static class DelayServlet extends HttpServlet {
 
     @Override
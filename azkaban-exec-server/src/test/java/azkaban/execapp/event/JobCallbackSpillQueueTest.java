@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.execapp.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import azkaban.execapp.event.JobCallbackSpillQueue.SpilledCallback;
+import java.util.List;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JobCallbackSpillQueueTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private JobCallbackSpillQueue spillQueue;
+
+  @Before
+  public void setUp() throws Exception {
+    this.spillQueue = new JobCallbackSpillQueue(this.temporaryFolder.newFolder("spill"), 2);
+  }
+
+  @Test
+  public void testSpillAndPeekInOrder() throws Exception {
+    final HttpGet get = new HttpGet("http://localhost:8080/callback?status=started");
+    get.addHeader("Date", "Mon, 01 Jan 2018 00:00:00 GMT");
+    final HttpPost post = new HttpPost("http://localhost:8080/callback");
+    post.setEntity(new StringEntity("{\"status\":\"success\"}", ContentType.APPLICATION_JSON));
+
+    assertThat(this.spillQueue.offer("job1", get, 1000, 1)).isTrue();
+    assertThat(this.spillQueue.offer("job2", post, 1000, 2)).isTrue();
+    assertThat(this.spillQueue.size()).isEqualTo(2);
+
+    final List<SpilledCallback> spilled = this.spillQueue.peek(10);
+    assertThat(spilled).hasSize(2);
+    // Peeking leaves them in place
+    assertThat(this.spillQueue.size()).isEqualTo(2);
+
+    assertThat(spilled.get(0).getJobId()).isEqualTo("job1");
+    assertThat(spilled.get(0).getCreateTime()).isEqualTo(1000);
+    assertThat(spilled.get(0).getSequence()).isEqualTo(1);
+    final HttpRequestBase restoredGet = spilled.get(0).getRequest();
+    assertThat(restoredGet.getMethod()).isEqualTo(HttpGet.METHOD_NAME);
+    assertThat(restoredGet.getURI()).isEqualTo(get.getURI());
+    assertThat(restoredGet.getFirstHeader("Date").getValue())
+        .isEqualTo("Mon, 01 Jan 2018 00:00:00 GMT");
+
+    assertThat(spilled.get(1).getJobId()).isEqualTo("job2");
+    final HttpPost restoredPost = (HttpPost) spilled.get(1).getRequest();
+    assertThat(restoredPost.getURI()).isEqualTo(post.getURI());
+    assertThat(EntityUtils.toString(restoredPost.getEntity()))
+        .isEqualTo("{\"status\":\"success\"}");
+    assertThat(restoredPost.getEntity().getContentType().getValue())
+        .isEqualTo(ContentType.APPLICATION_JSON.toString());
+  }
+
+  @Test
+  public void testOfferFailsWhenFull() {
+    for (int i = 0; i < 2; i++) {
+      assertThat(this.spillQueue.offer("job", new HttpGet("http://localhost:8080/" + i), 1000, i))
+          .isTrue();
+    }
+    assertThat(this.spillQueue.offer("job", new HttpGet("http://localhost:8080/2"), 1000, 2))
+        .isFalse();
+
+    final List<SpilledCallback> spilled = this.spillQueue.peek(1);
+    assertThat(spilled).hasSize(1);
+    this.spillQueue.remove(spilled.get(0));
+    assertThat(this.spillQueue.size()).isEqualTo(1);
+    assertThat(this.spillQueue.offer("job", new HttpGet("http://localhost:8080/2"), 1000, 2))
+        .isTrue();
+  }
+
+  @Test
+  public void testCallbacksSpilledAgainKeepTheirPlace() {
+    assertThat(this.spillQueue.offer("job", new HttpGet("http://localhost:8080/1"), 1000, 1))
+        .isTrue();
+    assertThat(this.spillQueue.offer("job", new HttpGet("http://localhost:8080/2"), 1000, 2))
+        .isTrue();
+
+    // Taken out, and spilled again after the callbacks created after it
+    final SpilledCallback first = this.spillQueue.peek(1).get(0);
+    this.spillQueue.remove(first);
+    assertThat(this.spillQueue.offer(first.getJobId(), first.getRequest(), first.getCreateTime(),
+        first.getSequence())).isTrue();
+
+    final List<SpilledCallback> spilled = this.spillQueue.peek(10);
+    assertThat(spilled).extracting(callback -> callback.getRequest().getURI().getPath())
+        .containsExactly("/1", "/2");
+  }
+
+  @Test
+  public void testCallbacksAreOrderedByCreateTime() {
+    assertThat(this.spillQueue.offer("job", new HttpGet("http://localhost:8080/2"), 2000, 1))
+        .isTrue();
+    assertThat(this.spillQueue.offer("job", new HttpGet("http://localhost:8080/1"), 1000, 2))
+        .isTrue();
+
+    assertThat(this.spillQueue.peek(10))
+        .extracting(callback -> callback.getRequest().getURI().getPath())
+        .containsExactly("/1", "/2");
+  }
+}
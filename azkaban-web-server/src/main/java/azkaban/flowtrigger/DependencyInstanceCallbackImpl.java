@@ -18,23 +18,32 @@ package azkaban.flowtrigger;
 
 import com.google.common.base.Preconditions;
 
+/**
+ * Passes the events of the dependency instances of a trigger instance on to the service. The
+ * callback knows the id of the trigger instance from the start, so events which the dependency
+ * check sends before the service has registered the dependency instance aren't lost.
+ */
 public class DependencyInstanceCallbackImpl implements DependencyInstanceCallback {
 
   private final FlowTriggerService service;
+  private final String triggerInstId;
 
-  public DependencyInstanceCallbackImpl(final FlowTriggerService service) {
+  public DependencyInstanceCallbackImpl(final FlowTriggerService service,
+      final String triggerInstId) {
     Preconditions.checkNotNull(service);
+    Preconditions.checkNotNull(triggerInstId);
     this.service = service;
+    this.triggerInstId = triggerInstId;
   }
 
   @Override
   public void onSuccess(final DependencyInstanceContext depContext) {
-    this.service.markDependencySuccess(depContext);
+    this.service.markDependencySuccess(this.triggerInstId, depContext);
   }
 
   @Override
   public void onCancel(final DependencyInstanceContext depContext) {
-    this.service.markDependencyCancelled(depContext);
+    this.service.markDependencyCancelled(this.triggerInstId, depContext);
   }
 
 }
@@ -24,6 +24,7 @@ import azkaban.flowtrigger.plugin.FlowTriggerDependencyPluginManager;
 import azkaban.project.FlowTrigger;
 import azkaban.project.FlowTriggerDependency;
 import azkaban.project.Project;
+import azkaban.webapp.WebMetrics;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.time.Duration;
@@ -34,9 +35,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -61,6 +62,11 @@ import org.slf4j.LoggerFactory;
  * 2. updates status, starttime/endtime of trigger instance.
  * 3. persists trigger instance to DB.
  *
+ * The events of a trigger instance are processed one at a time in order, on the stripe of the
+ * trigger instance, while the events of different trigger instances are processed in parallel.
+ * The running trigger instances and their dependency instances are indexed in concurrent maps,
+ * so lookups don't wait for the events to be processed.
+ *
  * FlowTriggerService will be leveraged by Quartz scheduler, our new AZ scheduler to schedule
  * triggers.
  *
@@ -77,11 +83,15 @@ public class FlowTriggerService {
   private static final int RECENTLY_FINISHED_TRIGGER_LIMIT = 50;
   private static final int CANCEL_EXECUTOR_POOL_SIZE = 32;
   private static final int TIMEOUT_EXECUTOR_POOL_SIZE = 8;
+  private static final int EVENT_EXECUTOR_STRIPE_COUNT = 16;
 
-  private final ExecutorService flowTriggerExecutorService;
+  private final StripedExecutor flowTriggerExecutorService;
   private final ExecutorService cancelExecutorService;
   private final ScheduledExecutorService timeoutService;
-  private final List<TriggerInstance> runningTriggers;
+  // running trigger instances by id
+  private final Map<String, TriggerInstance> runningTriggers;
+  // dependency instances of the trigger instances being started, recovered or running, by context
+  private final Map<DependencyInstanceContext, DependencyInstance> depInstancesByContext;
   private final FlowTriggerDependencyPluginManager triggerPluginManager;
   private final TriggerInstanceProcessor triggerProcessor;
   private final FlowTriggerInstanceLoader flowTriggerInstanceLoader;
@@ -92,17 +102,17 @@ public class FlowTriggerService {
   public FlowTriggerService(final FlowTriggerDependencyPluginManager pluginManager,
       final TriggerInstanceProcessor triggerProcessor, final DependencyInstanceProcessor
       dependencyProcessor, final FlowTriggerInstanceLoader flowTriggerInstanceLoader,
-      final FlowTriggerExecutionCleaner cleaner) {
+      final FlowTriggerExecutionCleaner cleaner, final WebMetrics webMetrics) {
     // Give the thread a name to make debugging easier.
-    ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
-        .setNameFormat("FlowTrigger-service").build();
-    this.flowTriggerExecutorService = Executors.newSingleThreadExecutor(namedThreadFactory);
-    namedThreadFactory = new ThreadFactoryBuilder()
+    this.flowTriggerExecutorService = new StripedExecutor("FlowTrigger-service",
+        EVENT_EXECUTOR_STRIPE_COUNT, webMetrics);
+    final ThreadFactory namedThreadFactory = new ThreadFactoryBuilder()
         .setNameFormat("FlowTrigger-cancel").build();
     this.cancelExecutorService = Executors
         .newFixedThreadPool(CANCEL_EXECUTOR_POOL_SIZE, namedThreadFactory);
     this.timeoutService = Executors.newScheduledThreadPool(TIMEOUT_EXECUTOR_POOL_SIZE);
-    this.runningTriggers = new ArrayList<>();
+    this.runningTriggers = new ConcurrentHashMap<>();
+    this.depInstancesByContext = new ConcurrentHashMap<>();
     this.triggerPluginManager = pluginManager;
     this.triggerProcessor = triggerProcessor;
     this.dependencyProcessor = dependencyProcessor;
@@ -120,7 +130,8 @@ public class FlowTriggerService {
       startTimeInMills, final String triggerInstId) throws Exception {
     final DependencyCheck dependencyCheck = this.triggerPluginManager
         .getDependencyCheck(dep.getType());
-    final DependencyInstanceCallback callback = new DependencyInstanceCallbackImpl(this);
+    final DependencyInstanceCallback callback = new DependencyInstanceCallbackImpl(this,
+        triggerInstId);
 
     final Map<String, String> depInstConfig = new HashMap<>();
     depInstConfig.putAll(dep.getProps());
@@ -134,9 +145,9 @@ public class FlowTriggerService {
     return dependencyCheck.run(config, runtimeProps, callback);
   }
 
-  private TriggerInstance createTriggerInstance(final FlowTrigger flowTrigger, final String flowId,
-      final int flowVersion, final String submitUser, final Project project) {
-    final String triggerInstId = generateId();
+  private TriggerInstance createTriggerInstance(final String triggerInstId,
+      final FlowTrigger flowTrigger, final String flowId, final int flowVersion,
+      final String submitUser, final Project project) {
     final long startTime = System.currentTimeMillis();
     // create a list of dependency instances
     final List<DependencyInstance> depInstList = new ArrayList<>();
@@ -228,6 +239,8 @@ public class FlowTriggerService {
         if (context == null) {
           depInst.setStatus(Status.CANCELLED);
           depInst.setCancellationCause(CancellationCause.FAILURE);
+        } else {
+          this.depInstancesByContext.put(context, depInst);
         }
       }
     }
@@ -238,11 +251,14 @@ public class FlowTriggerService {
       final long remainingTime = remainingTimeBeforeTimeout(triggerInstance);
       addToRunningListAndScheduleKill(triggerInstance, Duration.ofMillis(remainingTime).plus
           (CANCELLING_GRACE_PERIOD_AFTER_RESTART), CancellationCause.TIMEOUT);
+    } else {
+      removeDependencyInstances(triggerInstance);
     }
   }
 
   private void recoverTriggerInstance(final TriggerInstance triggerInstance) {
-    this.flowTriggerExecutorService.submit(() -> recover(triggerInstance));
+    this.flowTriggerExecutorService.execute(triggerInstance.getId(),
+        () -> recover(triggerInstance));
   }
 
   private void recover(final TriggerInstance triggerInstance) {
@@ -298,11 +314,34 @@ public class FlowTriggerService {
   Duration durationBeforeKill, final CancellationCause cause) {
     // if trigger instance is already done
     if (!Status.isDone(triggerInst.getStatus())) {
-      this.runningTriggers.add(triggerInst);
+      this.runningTriggers.put(triggerInst.getId(), triggerInst);
       scheduleKill(triggerInst, durationBeforeKill, cause);
+    } else {
+      removeDependencyInstances(triggerInst);
+    }
+  }
+
+  private void addDependencyInstances(final TriggerInstance triggerInst) {
+    for (final DependencyInstance depInst : triggerInst.getDepInstances()) {
+      if (depInst.getContext() != null) {
+        this.depInstancesByContext.put(depInst.getContext(), depInst);
+      }
+    }
+  }
+
+  private void removeDependencyInstances(final TriggerInstance triggerInst) {
+    for (final DependencyInstance depInst : triggerInst.getDepInstances()) {
+      if (depInst.getContext() != null) {
+        this.depInstancesByContext.remove(depInst.getContext(), depInst);
+      }
     }
   }
 
+  private void removeFromRunningList(final TriggerInstance triggerInst) {
+    this.runningTriggers.remove(triggerInst.getId());
+    removeDependencyInstances(triggerInst);
+  }
+
   private CancellationCause getCancelleationCause(final TriggerInstance triggerInst) {
     final Set<CancellationCause> causes = triggerInst.getDepInstances().stream()
         .map(DependencyInstance::getCancellationCause).collect(Collectors.toSet());
@@ -336,7 +375,7 @@ public class FlowTriggerService {
   }
 
   private void addToRunningListAndCancel(final TriggerInstance triggerInst) {
-    this.runningTriggers.add(triggerInst);
+    this.runningTriggers.put(triggerInst.getId(), triggerInst);
     cancelTriggerInstance(triggerInst);
   }
 
@@ -374,11 +413,14 @@ public class FlowTriggerService {
    */
   public void startTrigger(final FlowTrigger flowTrigger, final String flowId,
       final int flowVersion, final String submitUser, final Project project) {
-    final TriggerInstance triggerInst = createTriggerInstance(flowTrigger, flowId, flowVersion,
-        submitUser, project);
-    this.flowTriggerExecutorService.submit(() -> {
+    final String triggerInstId = generateId();
+    // The dependency instances are created on the stripe too, so their events queue behind start
+    this.flowTriggerExecutorService.execute(triggerInstId, () -> {
       logger.info("Starting the flow trigger [trigger instance id: {}] by {}",
-          triggerInst.getId(), submitUser);
+          triggerInstId, submitUser);
+      final TriggerInstance triggerInst = createTriggerInstance(triggerInstId, flowTrigger,
+          flowId, flowVersion, submitUser, project);
+      addDependencyInstances(triggerInst);
       start(triggerInst);
     });
   }
@@ -390,6 +432,7 @@ public class FlowTriggerService {
       logger.info(
           "Trigger instance[id: {}] is cancelled since all dependency instances fail to be created",
           triggerInst.getId());
+      removeDependencyInstances(triggerInst);
       this.triggerProcessor.processTermination(triggerInst);
     } else if (triggerInst.getStatus() == Status.CANCELLING) {
       // some of the dependency instances failed
@@ -398,6 +441,7 @@ public class FlowTriggerService {
           triggerInst.getId());
       addToRunningListAndCancel(triggerInst);
     } else if (triggerInst.getStatus() == Status.SUCCEEDED) {
+      removeDependencyInstances(triggerInst);
       this.triggerProcessor.processSucceed(triggerInst);
     } else {
       // todo chengren311: it's possible web server restarts before the db update, then
@@ -408,21 +452,7 @@ public class FlowTriggerService {
   }
 
   public TriggerInstance findRunningTriggerInstById(final String triggerInstId) {
-    final Future<TriggerInstance> future = this.flowTriggerExecutorService.submit(
-        () -> getTriggerInstanceById(triggerInstId)
-    );
-    try {
-      return future.get();
-    } catch (final Exception e) {
-      logger.error("exception when finding trigger instance by id" + triggerInstId, e);
-      return null;
-    }
-  }
-
-  private TriggerInstance getTriggerInstanceById(final String triggerInstId) {
-    return this.runningTriggers.stream()
-        .filter(triggerInst -> triggerInst.getId().equals(triggerInstId)).findFirst()
-        .orElse(null);
+    return this.runningTriggers.get(triggerInstId);
   }
 
   private void cancelContextAsync(final DependencyInstanceContext context) {
@@ -438,7 +468,8 @@ public class FlowTriggerService {
   public void cancelTriggerInstance(final TriggerInstance triggerInst,
       final CancellationCause cause) {
     if (triggerInst.getStatus() == Status.RUNNING) {
-      this.flowTriggerExecutorService.submit(() -> cancel(triggerInst, cause));
+      this.flowTriggerExecutorService.execute(triggerInst.getId(),
+          () -> cancel(triggerInst, cause));
     }
   }
 
@@ -461,17 +492,22 @@ public class FlowTriggerService {
 
   private DependencyInstance findDependencyInstanceByContext(
       final DependencyInstanceContext context) {
-    return this.runningTriggers.stream()
-        .flatMap(triggerInst -> triggerInst.getDepInstances().stream()).filter(
-            depInst -> depInst.getContext() != null && depInst.getContext() == context)
-        .findFirst().orElse(null);
+    final DependencyInstance depInst = this.depInstancesByContext.get(context);
+    if (depInst != null && depInst.getContext() == context && this.runningTriggers
+        .containsKey(depInst.getTriggerInstance().getId())) {
+      return depInst;
+    }
+    return null;
   }
 
   /**
-   * Mark the dependency instance context as success
+   * Mark the dependency instance context of the trigger instance as success. This is processed
+   * after the events of the trigger instance submitted before, which include the start or
+   * recovery of the trigger instance that created the context.
    */
-  public void markDependencySuccess(final DependencyInstanceContext context) {
-    this.flowTriggerExecutorService.submit(() -> markSuccess(context));
+  public void markDependencySuccess(final String triggerInstId,
+      final DependencyInstanceContext context) {
+    this.flowTriggerExecutorService.execute(triggerInstId, () -> markSuccess(context));
   }
 
   private void markSuccess(final DependencyInstanceContext context) {
@@ -490,7 +526,7 @@ public class FlowTriggerService {
       if (depInst.getTriggerInstance().getStatus() == Status.SUCCEEDED) {
         logger.info("trigger instance[id: {}] succeeded", depInst.getTriggerInstance().getId());
         this.triggerProcessor.processSucceed(depInst.getTriggerInstance());
-        this.runningTriggers.remove(depInst.getTriggerInstance());
+        removeFromRunningList(depInst.getTriggerInstance());
       }
     } else {
       logger.debug("unable to find trigger instance with context {} when marking it success",
@@ -509,10 +545,13 @@ public class FlowTriggerService {
     return depInst.getStatus() == Status.RUNNING;
   }
 
-  public void markDependencyCancelled(final DependencyInstanceContext context) {
-    this.flowTriggerExecutorService.submit(() -> {
-      markCancelled(context);
-    });
+  /**
+   * Mark the dependency instance context of the trigger instance as cancelled, in order with the
+   * other events of the trigger instance like {@link #markDependencySuccess}.
+   */
+  public void markDependencyCancelled(final String triggerInstId,
+      final DependencyInstanceContext context) {
+    this.flowTriggerExecutorService.execute(triggerInstId, () -> markCancelled(context));
   }
 
   private void markCancelled(final DependencyInstanceContext context) {
@@ -533,7 +572,7 @@ public class FlowTriggerService {
         logger.info("trigger instance with execId {} is cancelled",
             depInst.getTriggerInstance().getId());
         this.triggerProcessor.processTermination(depInst.getTriggerInstance());
-        this.runningTriggers.remove(depInst.getTriggerInstance());
+        removeFromRunningList(depInst.getTriggerInstance());
       }
     } else {
       logger.warn("unable to find trigger instance with context {} when marking "
@@ -556,6 +595,7 @@ public class FlowTriggerService {
     this.triggerProcessor.shutdown();
     this.triggerPluginManager.shutdown();
     this.cleaner.shutdown();
+    this.flowTriggerInstanceLoader.shutdown();
   }
 
   public Collection<TriggerInstance> getTriggerInstances(final int projectId, final String flowId,
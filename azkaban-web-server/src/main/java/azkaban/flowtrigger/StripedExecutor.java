@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.flowtrigger;
+
+import azkaban.webapp.WebMetrics;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Runs tasks on a fixed set of single threaded stripes. Tasks with the same key always run on the
+ * same stripe, so they run one at a time in the order they were submitted, while tasks with
+ * different keys can run in parallel.
+ *
+ * The number of queued and running tasks and the time from submitting a task to its completion
+ * are reported to {@link WebMetrics}.
+ */
+class StripedExecutor {
+
+  private static final Logger logger = LoggerFactory.getLogger(StripedExecutor.class);
+
+  private final ExecutorService[] stripes;
+  private final WebMetrics webMetrics;
+
+  StripedExecutor(final String name, final int stripeCount, final WebMetrics webMetrics) {
+    this.stripes = new ExecutorService[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      this.stripes[i] = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+          .setNameFormat(name + "-" + i).build());
+    }
+    this.webMetrics = webMetrics;
+  }
+
+  /**
+   * Runs the task after the tasks submitted before it with the same key.
+   */
+  void execute(final String key, final Runnable task) {
+    final long submitTime = System.currentTimeMillis();
+    this.webMetrics.incrementFlowTriggerQueueDepth();
+    this.stripes[Math.floorMod(key.hashCode(), this.stripes.length)].execute(() -> {
+      try {
+        task.run();
+      } catch (final RuntimeException ex) {
+        logger.error("exception when processing flow trigger event for key {}", key, ex);
+      } finally {
+        this.webMetrics.decrementFlowTriggerQueueDepth();
+        this.webMetrics.addFlowTriggerEventLatency(System.currentTimeMillis() - submitTime);
+      }
+    });
+  }
+
+  void shutdown() {
+    for (final ExecutorService stripe : this.stripes) {
+      stripe.shutdown();
+    }
+  }
+
+  void shutdownNow() {
+    for (final ExecutorService stripe : this.stripes) {
+      stripe.shutdownNow();
+    }
+  }
+}
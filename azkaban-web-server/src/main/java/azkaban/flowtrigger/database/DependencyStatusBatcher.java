@@ -0,0 +1,197 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.flowtrigger.database;
+
+import azkaban.db.DatabaseOperator;
+import azkaban.utils.Pair;
+import azkaban.webapp.WebMetrics;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Writes behind the status changes of dependency instances. Changes are kept by trigger instance
+ * id and dependency name, so only the last change of a dependency is written, and are written in
+ * a single JDBC batch once the oldest pending change has waited for the batch delay or enough
+ * changes are pending.
+ *
+ * A batch which fails to be written is kept pending, unless newer changes of the same
+ * dependencies came in meanwhile, and retried after at least a second. A change which failed to
+ * be written {@value #MAX_WRITE_ATTEMPTS} times is dropped. Failures and dropped changes are
+ * reported to {@link WebMetrics}.
+ */
+class DependencyStatusBatcher {
+
+  private static final Logger logger = LoggerFactory.getLogger(DependencyStatusBatcher.class);
+  private static final long RETRY_DELAY_MS = 1000;
+  @VisibleForTesting
+  static final int MAX_WRITE_ATTEMPTS = 10;
+
+  private final DatabaseOperator dbOperator;
+  private final String updateQuery;
+  private final long delayMs;
+  private final int batchSize;
+  private final WebMetrics webMetrics;
+  private final ScheduledExecutorService scheduler;
+  // only one batch is written at a time, so that an older batch never overwrites a newer one
+  private final Object flushLock = new Object();
+  // guarded by this
+  private final Map<Pair<String, String>, PendingChange> pending = new LinkedHashMap<>();
+  // guarded by this
+  private boolean flushScheduled = false;
+
+  /**
+   * @param updateQuery update statement whose last two parameters are the trigger instance id
+   * and the dependency name
+   */
+  DependencyStatusBatcher(final DatabaseOperator dbOperator, final String updateQuery,
+      final long delayMs, final int batchSize, final WebMetrics webMetrics) {
+    this.dbOperator = dbOperator;
+    this.updateQuery = updateQuery;
+    this.delayMs = delayMs;
+    this.batchSize = batchSize;
+    this.webMetrics = webMetrics;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("azk-flow-trigger-status-batcher").setDaemon(true).build());
+  }
+
+  /**
+   * Queues a change of a dependency, replacing its pending change if there's one.
+   *
+   * @param params parameters of the update statement
+   */
+  void add(final Object... params) {
+    final Pair<String, String> key = new Pair<>((String) params[params.length - 2],
+        (String) params[params.length - 1]);
+    final boolean flushNow;
+    synchronized (this) {
+      this.pending.remove(key);
+      this.pending.put(key, new PendingChange(params));
+      flushNow = this.delayMs <= 0 || this.pending.size() >= this.batchSize;
+      if (!flushNow) {
+        scheduleFlush(this.delayMs);
+      }
+    }
+    if (flushNow) {
+      flushInBackground();
+    }
+  }
+
+  // must hold the lock on this
+  @SuppressWarnings("FutureReturnValueIgnored")
+  private void scheduleFlush(final long delay) {
+    if (!this.flushScheduled && !this.scheduler.isShutdown()) {
+      this.flushScheduled = true;
+      this.scheduler.schedule(this::flushInBackground, delay, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Flushes on behalf of the writers of the changes, who don't wait for them to be stored. A
+   * failed batch is retried by then.
+   */
+  private void flushInBackground() {
+    try {
+      flush();
+    } catch (final SQLException ex) {
+      // logged and retried by flush
+    }
+  }
+
+  /**
+   * Writes all pending changes, after the batch being written by another thread if any.
+   *
+   * @throws SQLException if the pending changes couldn't be written. They're kept pending and
+   * retried later.
+   */
+  void flush() throws SQLException {
+    synchronized (this.flushLock) {
+      final Map<Pair<String, String>, PendingChange> batch;
+      synchronized (this) {
+        this.flushScheduled = false;
+        if (this.pending.isEmpty()) {
+          return;
+        }
+        batch = new LinkedHashMap<>(this.pending);
+        this.pending.clear();
+      }
+      final Object[][] rows = batch.values().stream().map(change -> change.params)
+          .toArray(Object[][]::new);
+      try {
+        this.dbOperator.transaction(transOperator -> transOperator.batch(this.updateQuery, rows));
+      } catch (final SQLException ex) {
+        this.webMetrics.markFlowTriggerStatusWriteFailure();
+        int dropped = 0;
+        synchronized (this) {
+          for (final Map.Entry<Pair<String, String>, PendingChange> entry : batch.entrySet()) {
+            final PendingChange change = entry.getValue();
+            if (++change.failedAttempts >= MAX_WRITE_ATTEMPTS) {
+              if (!this.pending.containsKey(entry.getKey())) {
+                dropped++;
+                logger.error("dropped status change {} of dependency {} which failed to be "
+                    + "written {} times", Arrays.toString(change.params), entry.getKey(),
+                    change.failedAttempts);
+              }
+            } else {
+              this.pending.putIfAbsent(entry.getKey(), change);
+            }
+          }
+          if (!this.pending.isEmpty()) {
+            scheduleFlush(Math.max(this.delayMs, RETRY_DELAY_MS));
+          }
+        }
+        if (dropped > 0) {
+          this.webMetrics.markFlowTriggerStatusChangesDropped(dropped);
+        }
+        logger.error("failed to write {} dependency status change(s), {} dropped, the others "
+            + "will be retried", rows.length, dropped, ex);
+        throw ex;
+      }
+    }
+  }
+
+  /**
+   * Stops scheduling flushes and writes the pending changes.
+   */
+  void shutdown() {
+    this.scheduler.shutdown();
+    flushInBackground();
+  }
+
+  /**
+   * Change of a dependency waiting to be written.
+   */
+  private static final class PendingChange {
+
+    private final Object[] params;
+    // guarded by the flush lock
+    private int failedAttempts = 0;
+
+    private PendingChange(final Object[] params) {
+      this.params = params;
+    }
+  }
+}
@@ -70,4 +70,9 @@ public interface FlowTriggerInstanceLoader {
    * @return number of deleted rows(dependency instances) ;
    */
   int deleteTriggerExecutionsFinishingOlderThan(long timestamp);
+
+  /**
+   * Write any pending updates and release resources.
+   */
+  void shutdown();
 }
@@ -17,6 +17,7 @@
 package azkaban.flowtrigger.database;
 
 import azkaban.Constants;
+import azkaban.Constants.ConfigurationKeys;
 import azkaban.db.DatabaseOperator;
 import azkaban.db.SQLTransaction;
 import azkaban.flowtrigger.CancellationCause;
@@ -29,11 +30,14 @@ import azkaban.project.FlowTrigger;
 import azkaban.project.Project;
 import azkaban.project.ProjectLoader;
 import azkaban.project.ProjectManager;
+import azkaban.utils.Props;
+import azkaban.webapp.WebMetrics;
 import com.google.common.io.Files;
 import java.io.File;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -84,57 +88,44 @@ public class JdbcFlowTriggerInstanceLoaderImpl implements FlowTriggerInstanceLoa
           StringUtils.join(DEPENDENCY_EXECUTIONS_COLUMNS, ","),
           DEPENDENCY_EXECUTION_TABLE);
 
-  private static final String SELECT_ALL_PENDING_EXECUTIONS =
-      String.format(
-          "SELECT %s FROM %s WHERE trigger_instance_id in (SELECT trigger_instance_id FROM %s "
-              + "WHERE "
-              + "dep_status = %s or dep_status = %s or (dep_status = %s and "
-              + "flow_exec_id = %s))",
-          StringUtils.join(DEPENDENCY_EXECUTIONS_COLUMNS, ","),
-          DEPENDENCY_EXECUTION_TABLE,
-          DEPENDENCY_EXECUTION_TABLE,
-          Status.RUNNING.ordinal(), Status.CANCELLING.ordinal(),
-          Status.SUCCEEDED.ordinal(),
-          Constants.UNASSIGNED_EXEC_ID);
-
-  private static final String SELECT_ALL_RUNNING_EXECUTIONS =
-      String.format(
-          "SELECT %s FROM %s WHERE trigger_instance_id in (SELECT trigger_instance_id FROM %s "
-              + "WHERE dep_status = %s or dep_status = %s)",
-          StringUtils.join(DEPENDENCY_EXECUTIONS_COLUMNS, ","),
-          DEPENDENCY_EXECUTION_TABLE,
-          DEPENDENCY_EXECUTION_TABLE,
-          Status.RUNNING.ordinal(), Status.CANCELLING.ordinal());
+  // The queries below select the ids of the matching trigger instances from a covering index
+  // in a derived table and join back to fetch all dependencies of those instances, instead of
+  // an IN subquery which MySQL may evaluate once per row of the table.
+  private static final String SELECT_INSTANCES_JOINED = String.format("SELECT %s FROM %s JOIN "
+          + "(%%s) ids ON %s.trigger_instance_id = ids.trigger_instance_id",
+      Arrays.stream(DEPENDENCY_EXECUTIONS_COLUMNS)
+          .map(column -> DEPENDENCY_EXECUTION_TABLE + "." + column)
+          .collect(Collectors.joining(",")),
+      DEPENDENCY_EXECUTION_TABLE, DEPENDENCY_EXECUTION_TABLE);
 
+  private static final String SELECT_ALL_PENDING_EXECUTIONS = String.format(
+      SELECT_INSTANCES_JOINED, String.format("SELECT DISTINCT trigger_instance_id FROM %s "
+              + "WHERE dep_status IN (%s, %s) OR (dep_status = %s AND flow_exec_id = %s)",
+          DEPENDENCY_EXECUTION_TABLE, Status.RUNNING.ordinal(), Status.CANCELLING.ordinal(),
+          Status.SUCCEEDED.ordinal(), Constants.UNASSIGNED_EXEC_ID));
+
+  private static final String SELECT_ALL_RUNNING_EXECUTIONS = String.format(
+      SELECT_INSTANCES_JOINED, String.format("SELECT DISTINCT trigger_instance_id FROM %s "
+              + "WHERE dep_status IN (%s, %s)", DEPENDENCY_EXECUTION_TABLE,
+          Status.RUNNING.ordinal(), Status.CANCELLING.ordinal()));
+
+  // finished instances are the ones none of whose dependencies is running or cancelling, found
+  // in a single pass grouped by instance rather than with a NOT IN anti-join
   private static final String SELECT_RECENTLY_FINISHED = String.format(
-      "SELECT execution_dependencies.trigger_instance_id,dep_name,starttime,endtime,dep_status,"
-          + "cancelleation_cause,project_id,"
-          + "project_version,flow_id,flow_version, flow_exec_id \n"
-          + "FROM execution_dependencies JOIN (\n"
-          + "SELECT trigger_instance_id FROM execution_dependencies where "
-          + "trigger_instance_id not in (SELECT distinct(trigger_instance_id) FROM "
-          + "execution_dependencies WHERE dep_status = %s or dep_status = %s)\n"
-          + "GROUP BY trigger_instance_id ORDER BY max(endtime) DESC \n"
-          + " limit %%s ) temp on execution_dependencies"
-          + ".trigger_instance_id in (temp.trigger_instance_id);",
-      Status.RUNNING.ordinal(),
-      Status.CANCELLING.ordinal());
-
-  private static final String SELECT_RECENT_WITH_START_AND_LENGTH = String.format("SELECT %s FROM"
-          + " %s WHERE trigger_instance_id IN (\n"
-          + "SELECT trigger_instance_id FROM (\n"
-          + "SELECT trigger_instance_id, min(starttime) AS trigger_start_time FROM %s"
-          + " WHERE project_id = ? AND flow_id = ? GROUP BY "
-          + "trigger_instance_id ORDER BY trigger_start_time DESC\n"
-          + "LIMIT ? OFFSET ?) AS tmp);", StringUtils.join(DEPENDENCY_EXECUTIONS_COLUMNS, ","),
-      DEPENDENCY_EXECUTION_TABLE, DEPENDENCY_EXECUTION_TABLE);
+      SELECT_INSTANCES_JOINED, String.format("SELECT trigger_instance_id FROM %s "
+              + "GROUP BY trigger_instance_id "
+              + "HAVING SUM(CASE WHEN dep_status IN (%s, %s) THEN 1 ELSE 0 END) = 0 "
+              + "ORDER BY MAX(endtime) DESC LIMIT %%s", DEPENDENCY_EXECUTION_TABLE,
+          Status.RUNNING.ordinal(), Status.CANCELLING.ordinal()));
 
-  private static final String SELECT_EXECUTION_OLDER_THAN =
-      String.format(
-          "SELECT %s FROM %s WHERE trigger_instance_id IN (SELECT "
-              + "DISTINCT(trigger_instance_id) FROM %s WHERE endtime <= ? AND endtime != 0);",
-          StringUtils.join(DEPENDENCY_EXECUTIONS_COLUMNS, ","), DEPENDENCY_EXECUTION_TABLE,
-          DEPENDENCY_EXECUTION_TABLE);
+  private static final String SELECT_RECENT_WITH_START_AND_LENGTH = String.format(
+      SELECT_INSTANCES_JOINED, String.format("SELECT trigger_instance_id FROM %s "
+          + "WHERE project_id = ? AND flow_id = ? GROUP BY trigger_instance_id "
+          + "ORDER BY MIN(starttime) DESC LIMIT ? OFFSET ?", DEPENDENCY_EXECUTION_TABLE));
+
+  private static final String SELECT_EXECUTION_OLDER_THAN = String.format(
+      SELECT_INSTANCES_JOINED, String.format("SELECT DISTINCT trigger_instance_id FROM %s "
+          + "WHERE endtime <= ? AND endtime != 0", DEPENDENCY_EXECUTION_TABLE));
 
   private static final String DELETE_EXECUTIONS =
       String.format("DELETE FROM %s WHERE trigger_instance_id IN (?);", DEPENDENCY_EXECUTION_TABLE);
@@ -146,20 +137,29 @@ public class JdbcFlowTriggerInstanceLoaderImpl implements FlowTriggerInstanceLoa
   private final ProjectLoader projectLoader;
   private final DatabaseOperator dbOperator;
   private final ProjectManager projectManager;
+  private final DependencyStatusBatcher statusBatcher;
 
 
   @Inject
   public JdbcFlowTriggerInstanceLoaderImpl(final DatabaseOperator databaseOperator,
-      final ProjectLoader projectLoader, final ProjectManager projectManager) {
+      final ProjectLoader projectLoader, final ProjectManager projectManager, final Props props,
+      final WebMetrics webMetrics) {
     this.dbOperator = databaseOperator;
     this.projectLoader = projectLoader;
     this.projectManager = projectManager;
+    this.statusBatcher = new DependencyStatusBatcher(databaseOperator,
+        UPDATE_DEPENDENCY_STATUS_ENDTIME_AND_CANCELLEATION_CAUSE,
+        props.getLong(ConfigurationKeys.FLOW_TRIGGER_STATUS_BATCH_DELAY_MS,
+            Constants.DEFAULT_FLOW_TRIGGER_STATUS_BATCH_DELAY_MS),
+        props.getInt(ConfigurationKeys.FLOW_TRIGGER_STATUS_BATCH_SIZE,
+            Constants.DEFAULT_FLOW_TRIGGER_STATUS_BATCH_SIZE), webMetrics);
   }
 
   @Override
   public Collection<TriggerInstance> getIncompleteTriggerInstances() {
     final Collection<TriggerInstance> unfinished = new ArrayList<>();
     try {
+      this.statusBatcher.flush();
       final Collection<TriggerInstance> triggerInsts = this.dbOperator
           .query(SELECT_ALL_PENDING_EXECUTIONS,
               new TriggerInstanceHandler(SORT_MODE.SORT_ON_START_TIME_ASC));
@@ -222,22 +222,31 @@ public class JdbcFlowTriggerInstanceLoaderImpl implements FlowTriggerInstanceLoa
     throw new DependencyException(error, ex);
   }
 
+  /**
+   * Write the pending status changes first, so the statuses the flow was triggered on are stored
+   * by the time the flow exec id is, and recovery doesn't trigger the flow again.
+   */
   @Override
   public void updateAssociatedFlowExecId(final TriggerInstance triggerInst) {
+    flushStatusChanges();
+    final Object[][] params = triggerInst.getDepInstances().stream()
+        .map(depInst -> new Object[]{triggerInst.getFlowExecId(), triggerInst.getId(),
+            depInst.getDepName()})
+        .toArray(Object[][]::new);
     final SQLTransaction<Integer> insertTrigger = transOperator -> {
-      for (final DependencyInstance depInst : triggerInst.getDepInstances()) {
-        transOperator
-            .update(UPDATE_DEPENDENCY_FLOW_EXEC_ID, triggerInst.getFlowExecId(),
-                triggerInst.getId(), depInst.getDepName());
-      }
+      transOperator.batch(UPDATE_DEPENDENCY_FLOW_EXEC_ID, params);
       return null;
     };
     executeTransaction(insertTrigger);
   }
 
-  private void executeUpdate(final String query, final Object... params) {
+  /**
+   * Write the pending status changes, or throw if they couldn't be written, so callers don't go
+   * on with stale statuses.
+   */
+  private void flushStatusChanges() {
     try {
-      this.dbOperator.update(query, params);
+      this.statusBatcher.flush();
     } catch (final SQLException ex) {
       handleSQLException(ex);
     }
@@ -253,30 +262,35 @@ public class JdbcFlowTriggerInstanceLoaderImpl implements FlowTriggerInstanceLoa
 
   @Override
   public void uploadTriggerInstance(final TriggerInstance triggerInst) {
+    flushStatusChanges();
+    final Object[][] params = triggerInst.getDepInstances().stream()
+        .map(depInst -> new Object[]{triggerInst.getId(), depInst.getDepName(),
+            depInst.getStartTime(),
+            depInst.getEndTime(),
+            depInst.getStatus().ordinal(),
+            depInst.getCancellationCause().ordinal(),
+            triggerInst.getProject().getId(),
+            triggerInst.getProject().getVersion(),
+            triggerInst.getFlowId(),
+            triggerInst.getFlowVersion(),
+            triggerInst.getFlowExecId()})
+        .toArray(Object[][]::new);
     final SQLTransaction<Integer> insertTrigger = transOperator -> {
-      for (final DependencyInstance depInst : triggerInst.getDepInstances()) {
-        transOperator
-            .update(INSERT_DEPENDENCY, triggerInst.getId(), depInst.getDepName(),
-                depInst.getStartTime(),
-                depInst.getEndTime(),
-                depInst.getStatus().ordinal(),
-                depInst.getCancellationCause().ordinal(),
-                triggerInst.getProject().getId(),
-                triggerInst.getProject().getVersion(),
-                triggerInst.getFlowId(),
-                triggerInst.getFlowVersion(),
-                triggerInst.getFlowExecId());
-      }
+      transOperator.batch(INSERT_DEPENDENCY, params);
       return null;
     };
 
     executeTransaction(insertTrigger);
   }
 
+  /**
+   * Queue the status change to be written in a batch with other changes. Pending changes are
+   * written before trigger instances are read, except by the page reads {@link #getRunning()},
+   * {@link #getRecentlyFinished(int)} and {@link #getTriggerInstances(int, String, int, int)}.
+   */
   @Override
   public void updateDependencyExecutionStatus(final DependencyInstance depInst) {
-    executeUpdate(UPDATE_DEPENDENCY_STATUS_ENDTIME_AND_CANCELLEATION_CAUSE,
-        depInst.getStatus().ordinal(),
+    this.statusBatcher.add(depInst.getStatus().ordinal(),
         depInst.getEndTime(),
         depInst.getCancellationCause().ordinal(),
         depInst.getTriggerInstance().getId(),
@@ -287,6 +301,9 @@ public class JdbcFlowTriggerInstanceLoaderImpl implements FlowTriggerInstanceLoa
    * Retrieve recently finished trigger instances, but flow trigger properties are not populated
    * into the returned trigger instances for efficiency. Flow trigger properties will be
    * retrieved only on request time.
+   *
+   * Pending status changes aren't written first, so the statuses are stale by at most the batch
+   * delay while the DB accepts writes.
    */
   @Override
   public Collection<TriggerInstance> getRecentlyFinished(final int limit) {
@@ -300,11 +317,13 @@ public class JdbcFlowTriggerInstanceLoaderImpl implements FlowTriggerInstanceLoa
     return Collections.emptyList();
   }
 
+  /**
+   * Pending status changes aren't written first, so the statuses are stale by at most the batch
+   * delay while the DB accepts writes.
+   */
   @Override
   public Collection<TriggerInstance> getRunning() {
     try {
-      //todo chengren311:
-      // 1. add index for the execution_dependencies table to accelerate selection.
       return this.dbOperator.query(SELECT_ALL_RUNNING_EXECUTIONS, new TriggerInstanceHandler
           (SORT_MODE.SORT_ON_START_TIME_ASC));
     } catch (final SQLException ex) {
@@ -352,6 +371,7 @@ public class JdbcFlowTriggerInstanceLoaderImpl implements FlowTriggerInstanceLoa
     }
     TriggerInstance triggerInstance = null;
     try {
+      this.statusBatcher.flush();
       final Collection<TriggerInstance> res = this.dbOperator
           .query(SELECT_EXECUTIONS_BY_EXEC_ID,
               new TriggerInstanceHandler(SORT_MODE.SORT_ON_START_TIME_ASC), flowExecId);
@@ -366,7 +386,8 @@ public class JdbcFlowTriggerInstanceLoaderImpl implements FlowTriggerInstanceLoa
   @Override
   /**
    * Retrieve sorted trigger instances on start time in descending order
-   * given projectId, flowId, start position and length.
+   * given projectId, flowId, start position and length. Pending status changes aren't written
+   * first, so the statuses are stale by at most the batch delay while the DB accepts writes.
    * @param projectId
    * @param flowId
    * @param from starting position of the range of trigger instance to retrieve
@@ -375,7 +396,6 @@ public class JdbcFlowTriggerInstanceLoaderImpl implements FlowTriggerInstanceLoa
   public Collection<TriggerInstance> getTriggerInstances(
       final int projectId, final String flowId, final int from,
       final int length) {
-
     try {
       final Collection<TriggerInstance> res = this.dbOperator
           .query(SELECT_RECENT_WITH_START_AND_LENGTH, new TriggerInstanceHandler(SORT_MODE
@@ -391,6 +411,7 @@ public class JdbcFlowTriggerInstanceLoaderImpl implements FlowTriggerInstanceLoa
   @Override
   public int deleteTriggerExecutionsFinishingOlderThan(final long timestamp) {
     try {
+      this.statusBatcher.flush();
       final Collection<TriggerInstance> res = this.dbOperator
           .query(SELECT_EXECUTION_OLDER_THAN,
               new TriggerInstanceHandler(SORT_MODE.SORT_ON_START_TIME_DESC), timestamp);
@@ -423,6 +444,7 @@ public class JdbcFlowTriggerInstanceLoaderImpl implements FlowTriggerInstanceLoa
   public TriggerInstance getTriggerInstanceById(final String triggerInstanceId) {
     TriggerInstance triggerInstance = null;
     try {
+      this.statusBatcher.flush();
       final Collection<TriggerInstance> res = this.dbOperator
           .query(SELECT_EXECUTIONS_BY_INSTANCE_ID,
               new TriggerInstanceHandler(SORT_MODE.SORT_ON_START_TIME_ASC),
@@ -435,6 +457,14 @@ public class JdbcFlowTriggerInstanceLoaderImpl implements FlowTriggerInstanceLoa
     return triggerInstance;
   }
 
+  /**
+   * Write the pending status changes and stop batching them.
+   */
+  @Override
+  public void shutdown() {
+    this.statusBatcher.shutdown();
+  }
+
   private enum SORT_MODE {
     SORT_ON_START_TIME_DESC,
     SORT_ON_START_TIME_ASC
@@ -17,6 +17,7 @@
 package azkaban.webapp;
 
 import azkaban.metrics.MetricsManager;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.inject.Inject;
@@ -36,12 +37,27 @@ public class WebMetrics {
   // How long does user log fetch take when user call fetch-log api.
   private final AtomicLong logFetchLatency = new AtomicLong(0L);
 
+  // Flow trigger events waiting for or being processed by FlowTriggerService.
+  private final AtomicLong flowTriggerQueueDepth = new AtomicLong(0L);
+  // How long flow trigger events take from being submitted to being processed.
+  private final Histogram flowTriggerEventLatency;
+  // Failed writes of batched flow trigger dependency status changes.
+  private final Meter flowTriggerStatusWriteFailure;
+  // Flow trigger dependency status changes dropped after failing to be written too many times.
+  private final Meter flowTriggerStatusChangesDropped;
+
   @Inject
   WebMetrics(final MetricsManager metricsManager) {
     this.webGetCall = metricsManager.addMeter("Web-Get-Call-Meter");
     this.webPostCall = metricsManager.addMeter("Web-Post-Call-Meter");
 
     metricsManager.addGauge("fetchLogLatency", this.logFetchLatency::get);
+    metricsManager.addGauge("flowTriggerQueueDepth", this.flowTriggerQueueDepth::get);
+    this.flowTriggerEventLatency = metricsManager.addHistogram("flowTriggerEventLatency");
+    this.flowTriggerStatusWriteFailure =
+        metricsManager.addMeter("Flow-Trigger-Status-Write-Failure-Meter");
+    this.flowTriggerStatusChangesDropped =
+        metricsManager.addMeter("Flow-Trigger-Status-Dropped-Meter");
   }
 
   /**
@@ -63,4 +79,23 @@ public class WebMetrics {
     this.logFetchLatency.set(milliseconds);
   }
 
+  public void incrementFlowTriggerQueueDepth() {
+    this.flowTriggerQueueDepth.incrementAndGet();
+  }
+
+  public void decrementFlowTriggerQueueDepth() {
+    this.flowTriggerQueueDepth.decrementAndGet();
+  }
+
+  public void addFlowTriggerEventLatency(final long milliseconds) {
+    this.flowTriggerEventLatency.update(milliseconds);
+  }
+
+  public void markFlowTriggerStatusWriteFailure() {
+    this.flowTriggerStatusWriteFailure.mark();
+  }
+
+  public void markFlowTriggerStatusChangesDropped(final int count) {
+    this.flowTriggerStatusChangesDropped.mark(count);
+  }
 }
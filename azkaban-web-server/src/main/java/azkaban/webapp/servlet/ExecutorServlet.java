@@ -71,6 +71,8 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
 
   private static final Logger logger = LoggerFactory.getLogger(ExecutorServlet.class.getName());
   private static final long serialVersionUID = 1L;
+  // The most bytes a log tail request returns
+  private static final int MAX_LOG_TAIL_LENGTH = 10 * 1024 * 1024;
   private WebMetrics webMetrics;
   private ProjectManager projectManager;
   private FlowTriggerService flowTriggerService;
@@ -144,6 +146,8 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
           ajaxFetchExecFlowLogs(req, resp, ret, session.getUser(), exFlow);
         } else if (ajaxName.equals("fetchExecJobLogs")) {
           ajaxFetchJobLogs(req, resp, ret, session.getUser(), exFlow);
+        } else if (ajaxName.equals("fetchExecJobLogsTail")) {
+          ajaxFetchJobLogsTail(req, resp, ret, session.getUser(), exFlow);
         } else if (ajaxName.equals("fetchExecJobStats")) {
           ajaxFetchJobStats(req, resp, ret, session.getUser(), exFlow);
         } else if (ajaxName.equals("retryFailedJobs")) {
@@ -593,6 +597,51 @@ public class ExecutorServlet extends LoginAbstractAzkabanServlet {
     }
   }
 
+  /**
+   * Gets the last length bytes of the job log of a finished execution. The tail is read without
+   * going through the rest of the log, so it is cheap even for very large logs. The length is
+   * capped at {@link #MAX_LOG_TAIL_LENGTH}.
+   */
+  private void ajaxFetchJobLogsTail(final HttpServletRequest req,
+      final HttpServletResponse resp, final HashMap<String, Object> ret, final User user,
+      final ExecutableFlow exFlow) throws ServletException {
+    final Project project = getProjectAjaxByPermission(ret, exFlow.getProjectId(), user, Type.READ);
+    if (project == null) {
+      return;
+    }
+
+    final int length = this.getIntParam(req, "length");
+    final String jobId = this.getParam(req, "jobId");
+    resp.setCharacterEncoding("utf-8");
+
+    if (length <= 0) {
+      ret.put("error", "Length must be positive, but was " + length);
+      return;
+    }
+
+    if (!Status.isStatusFinished(exFlow.getStatus())) {
+      ret.put("error", "Execution " + exFlow.getExecutionId() + " hasn't finished yet");
+      return;
+    }
+
+    try {
+      final ExecutableNode node = exFlow.getExecutableNodePath(jobId);
+      if (node == null) {
+        ret.put("error", "Job " + jobId + " doesn't exist in " + exFlow.getExecutionId());
+        return;
+      }
+
+      final int attempt = this.getIntParam(req, "attempt", node.getAttempt());
+      final LogData data = this.executorManagerAdapter
+          .getExecutionJobLogTail(exFlow, jobId, Math.min(length, MAX_LOG_TAIL_LENGTH),
+              attempt);
+      ret.putAll(appendLogData(data, 0));
+
+    } catch (final ExecutorManagerException e) {
+      throw new ServletException(e);
+    }
+  }
+
   private Map<String, Object> appendLogData(final LogData data, final int defaultOffset) {
     final Map<String, Object> parameters = new HashMap<>();
 
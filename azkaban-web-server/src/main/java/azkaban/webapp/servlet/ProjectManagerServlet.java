@@ -18,8 +18,8 @@ package azkaban.webapp.servlet;
 
 import azkaban.Constants;
 import azkaban.Constants.ConfigurationKeys;
-import azkaban.executor.ExecutableFlow;
 import azkaban.executor.ExecutableJobInfo;
+import azkaban.executor.ExecutionSummary;
 import azkaban.executor.ExecutorManagerAdapter;
 import azkaban.executor.ExecutorManagerException;
 import azkaban.executor.Status;
@@ -405,10 +405,10 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
       final HashMap<String, Object> ret, final HttpServletRequest req)
       throws ServletException {
     final String flowId = getParam(req, "flow");
-    List<ExecutableFlow> exFlows = null;
+    List<ExecutionSummary> exFlows = null;
     try {
       exFlows =
-          this.executorManagerAdapter.getExecutableFlows(project.getId(), flowId, 0, 1,
+          this.executorManagerAdapter.getExecutionSummaries(project.getId(), flowId, 0, 1,
               Status.SUCCEEDED);
     } catch (final ExecutorManagerException e) {
       ret.put(ERROR_PARAM, "Error retrieving executable flows");
@@ -433,11 +433,11 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
     final int from = Integer.valueOf(getParam(req, "start"));
     final int length = Integer.valueOf(getParam(req, "length"));
 
-    final ArrayList<ExecutableFlow> exFlows = new ArrayList<>();
+    final ArrayList<ExecutionSummary> exFlows = new ArrayList<>();
     int total = 0;
     try {
       total =
-          this.executorManagerAdapter.getExecutableFlows(project.getId(), flowId, from,
+          this.executorManagerAdapter.getExecutionSummaries(project.getId(), flowId, from,
               length, exFlows);
     } catch (final ExecutorManagerException e) {
       ret.put(ERROR_PARAM, "Error retrieving executable flows");
@@ -449,7 +449,7 @@ public class ProjectManagerServlet extends LoginAbstractAzkabanServlet {
     ret.put("length", length);
 
     final ArrayList<Object> history = new ArrayList<>();
-    for (final ExecutableFlow flow : exFlows) {
+    for (final ExecutionSummary flow : exFlows) {
       final HashMap<String, Object> flowInfo = new HashMap<>();
       flowInfo.put("execId", flow.getExecutionId());
       flowInfo.put(FLOW_ID_PARAM, flow.getFlowId());
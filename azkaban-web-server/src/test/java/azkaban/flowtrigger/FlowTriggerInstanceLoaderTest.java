@@ -35,6 +35,7 @@ import azkaban.project.ProjectManager;
 import azkaban.test.Utils;
 import azkaban.test.executions.ExecutionsTestUtil;
 import azkaban.utils.Props;
+import azkaban.webapp.WebMetrics;
 import java.io.File;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -74,6 +75,7 @@ public class FlowTriggerInstanceLoaderTest {
 
   @AfterClass
   public static void destroyDB() {
+    triggerInstLoader.shutdown();
     try {
       dbOperator.update("SHUTDOWN");
       dbOperator.update("DROP ALL OBJECTS");
@@ -88,7 +90,8 @@ public class FlowTriggerInstanceLoaderTest {
     dbOperator = Utils.initTestDB();
     projLoader = new JdbcProjectImpl(props, dbOperator);
     projManager = mock(ProjectManager.class);
-    triggerInstLoader = new JdbcFlowTriggerInstanceLoaderImpl(dbOperator, projLoader, projManager);
+    triggerInstLoader = new JdbcFlowTriggerInstanceLoaderImpl(dbOperator, projLoader, projManager,
+        props, mock(WebMetrics.class));
     project = new Project(project_id, project_name);
 
     final DirectoryYamlFlowLoader yamlFlowLoader = new DirectoryYamlFlowLoader(new Props());
@@ -200,6 +203,28 @@ public class FlowTriggerInstanceLoaderTest {
     assertTriggerInstancesEqual(actualTriggerInst, expectedTriggerInst, false);
   }
 
+  @Test
+  public void testUpdateDependencyExecutionStatusKeepsLastChange() {
+    final TriggerInstance expectedTriggerInst = this.createTriggerInstance(this.flowTrigger, this
+        .flow_id, this.flow_version, this.submitUser, this.project, System.currentTimeMillis());
+
+    this.triggerInstLoader.uploadTriggerInstance(expectedTriggerInst);
+    for (final DependencyInstance depInst : expectedTriggerInst.getDepInstances()) {
+      depInst.setStatus(Status.CANCELLING);
+      depInst.setCancellationCause(CancellationCause.TIMEOUT);
+      this.triggerInstLoader.updateDependencyExecutionStatus(depInst);
+      depInst.setStatus(Status.CANCELLED);
+      depInst.setEndTime(System.currentTimeMillis());
+      this.triggerInstLoader.updateDependencyExecutionStatus(depInst);
+    }
+
+    final TriggerInstance actualTriggerInst = this.triggerInstLoader
+        .getTriggerInstanceById(expectedTriggerInst.getId());
+    assertTriggerInstancesEqual(actualTriggerInst, expectedTriggerInst, false);
+    // the pending changes were written by the read above, page reads don't write them
+    assertThat(this.triggerInstLoader.getRunning()).isEmpty();
+  }
+
   private void finalizeTriggerInstanceWithSuccess(final TriggerInstance triggerInst, final int
       associateFlowExecId) {
     for (final DependencyInstance depInst : triggerInst.getDepInstances()) {
@@ -352,6 +377,26 @@ public class FlowTriggerInstanceLoaderTest {
     assertTriggerInstancesEqual(actualTriggerInst, expectedTriggerInst, false);
   }
 
+  @Test
+  public void testUpdateAssociatedFlowExecIdWritesPendingStatuses() throws Exception {
+    final TriggerInstance triggerInst = this.createTriggerInstance(this.flowTrigger, this
+        .flow_id, this.flow_version, this.submitUser, this.project, System.currentTimeMillis());
+    this.triggerInstLoader.uploadTriggerInstance(triggerInst);
+    finalizeTriggerInstanceWithSuccess(triggerInst, 1000);
+    triggerInst.getDepInstances()
+        .forEach(depInst -> this.triggerInstLoader.updateDependencyExecutionStatus(depInst));
+
+    this.triggerInstLoader.updateAssociatedFlowExecId(triggerInst);
+
+    // read the table directly, as reads through the loader write the pending changes anyway
+    final Integer succeeded = dbOperator.query("SELECT COUNT(*) FROM execution_dependencies "
+            + "WHERE trigger_instance_id = ? AND dep_status = ?", rs -> {
+          rs.next();
+          return rs.getInt(1);
+        }, triggerInst.getId(), Status.SUCCEEDED.ordinal());
+    assertThat(succeeded).isEqualTo(triggerInst.getDepInstances().size());
+  }
+
   @Test
   public void testGetRecentlyFinishedReturnsEmpty() {
     final List<TriggerInstance> all = new ArrayList<>();
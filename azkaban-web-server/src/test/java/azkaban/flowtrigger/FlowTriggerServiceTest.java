@@ -36,6 +36,7 @@ import azkaban.project.FlowTrigger;
 import azkaban.project.FlowTriggerDependency;
 import azkaban.project.Project;
 import azkaban.utils.Emailer;
+import azkaban.webapp.WebMetrics;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -82,7 +83,7 @@ public class FlowTriggerServiceTest {
         flowTriggerInstanceLoader);
 
     flowTriggerService = new FlowTriggerService(pluginManager, triggerInstProcessor,
-        depInstProcessor, flowTriggerInstanceLoader, executionCleaner);
+        depInstProcessor, flowTriggerInstanceLoader, executionCleaner, mock(WebMetrics.class));
     flowTriggerService.start();
   }
 
@@ -190,6 +191,25 @@ public class FlowTriggerServiceTest {
     }
   }
 
+  @Test
+  public void testDependencySucceedingWhileCreatedIsNotLost() throws InterruptedException {
+    // The dependencies call back right away, racing the creation of their instances
+    final List<FlowTriggerDependency> deps = new ArrayList<>();
+    deps.add(TestUtil.createTestDependency("0secs", 0, false));
+    deps.add(TestUtil.createTestDependency("0secs-2", 0, false));
+    final FlowTrigger flowTrigger = TestUtil.createTestFlowTrigger(deps, Duration.ofSeconds(10));
+    for (int i = 0; i < 30; i++) {
+      flowTriggerService.startTrigger(flowTrigger, "testflow", 1, "test", createProject());
+    }
+    Thread.sleep(Duration.ofSeconds(1).toMillis());
+    assertThat(flowTriggerService.getRunningTriggers()).isEmpty();
+    final Collection<TriggerInstance> triggerInstances = flowTriggerService.getRecentlyFinished();
+    assertThat(triggerInstances).hasSize(30);
+    for (final TriggerInstance inst : triggerInstances) {
+      assertThat(inst.getStatus()).isEqualTo(Status.SUCCEEDED);
+    }
+  }
+
   @Ignore("Too slow unit test - ignored until optimized")
   @Test
   public void testStartTriggerSuccess() throws InterruptedException {
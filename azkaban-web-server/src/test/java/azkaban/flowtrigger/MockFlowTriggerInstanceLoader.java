@@ -19,14 +19,13 @@ package azkaban.flowtrigger;
 import azkaban.flowtrigger.database.FlowTriggerInstanceLoader;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class MockFlowTriggerInstanceLoader implements FlowTriggerInstanceLoader {
 
-  private final List<TriggerInstance> triggerInstances = Collections.synchronizedList(new
-      ArrayList<TriggerInstance>());
+  // iterated while FlowTriggerService updates trigger instances from several threads
+  private final List<TriggerInstance> triggerInstances = new CopyOnWriteArrayList<>();
 
   public void clear() {
     this.triggerInstances.clear();
@@ -125,16 +124,18 @@ public class MockFlowTriggerInstanceLoader implements FlowTriggerInstanceLoader
 
   @Override
   public int deleteTriggerExecutionsFinishingOlderThan(final long timestamp) {
-    int deleted = 0;
-    for (final Iterator<TriggerInstance> iterator = this.triggerInstances.iterator();
-        iterator.hasNext(); ) {
-      final TriggerInstance inst = iterator.next();
+    final List<TriggerInstance> deleted = new ArrayList<>();
+    for (final TriggerInstance inst : this.triggerInstances) {
       if ((inst.getEndTime() <= timestamp) && ((inst.getStatus() == Status.CANCELLED) || ((inst
           .getStatus() == Status.SUCCEEDED) && (inst.getFlowExecId() != -1)))) {
-        iterator.remove();
-        deleted++;
+        deleted.add(inst);
       }
     }
-    return deleted;
+    this.triggerInstances.removeAll(deleted);
+    return deleted.size();
+  }
+
+  @Override
+  public void shutdown() {
   }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.flowtrigger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import azkaban.webapp.WebMetrics;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StripedExecutorTest {
+
+  private WebMetrics webMetrics;
+  private StripedExecutor executor;
+
+  @Before
+  public void setUp() {
+    this.webMetrics = mock(WebMetrics.class);
+    this.executor = new StripedExecutor("test-stripe", 4, this.webMetrics);
+  }
+
+  @After
+  public void tearDown() {
+    this.executor.shutdownNow();
+  }
+
+  @Test
+  public void testTasksWithSameKeyRunInOrder() throws Exception {
+    final List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+    final CountDownLatch done = new CountDownLatch(100);
+    for (int i = 0; i < 100; i++) {
+      final int task = i;
+      this.executor.execute("instance", () -> {
+        order.add(task);
+        done.countDown();
+      });
+    }
+    assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    for (int i = 0; i < 100; i++) {
+      assertThat(order.get(i)).isEqualTo(i);
+    }
+  }
+
+  @Test
+  public void testFailingTaskDoesNotStopStripe() throws Exception {
+    final CountDownLatch done = new CountDownLatch(1);
+    this.executor.execute("instance", () -> {
+      throw new RuntimeException("test failure");
+    });
+    this.executor.execute("instance", done::countDown);
+    assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    verify(this.webMetrics, timeout(1000).times(2)).decrementFlowTriggerQueueDepth();
+    verify(this.webMetrics, timeout(1000).times(2)).addFlowTriggerEventLatency(anyLong());
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 LinkedIn Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package azkaban.flowtrigger.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import azkaban.db.DatabaseOperator;
+import azkaban.metrics.MetricsManager;
+import azkaban.metrics.MetricsTestUtility;
+import azkaban.webapp.WebMetrics;
+import com.codahale.metrics.MetricRegistry;
+import java.sql.SQLException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DependencyStatusBatcherTest {
+
+  private static final String UPDATE_QUERY =
+      "UPDATE execution_dependencies SET dep_status = ? WHERE trigger_instance_id = ? AND "
+          + "dep_name = ?";
+  // long enough for the scheduled flushes not to run during the tests
+  private static final long DELAY_MS = 60000;
+
+  private DatabaseOperator dbOperator;
+  private MetricsTestUtility testUtil;
+  private DependencyStatusBatcher batcher;
+
+  @Before
+  public void setUp() throws Exception {
+    this.dbOperator = mock(DatabaseOperator.class);
+    when(this.dbOperator.transaction(any())).thenThrow(new SQLException("DB is down"));
+    final MetricRegistry metricRegistry = new MetricRegistry();
+    this.testUtil = new MetricsTestUtility(metricRegistry);
+    this.batcher = new DependencyStatusBatcher(this.dbOperator, UPDATE_QUERY, DELAY_MS, 100,
+        new WebMetrics(new MetricsManager(metricRegistry)));
+  }
+
+  @Test
+  public void testFailedFlushThrowsAndKeepsChanges() throws Exception {
+    this.batcher.add(1, "trigger-1", "dep-1");
+
+    assertThatThrownBy(() -> this.batcher.flush()).isInstanceOf(SQLException.class);
+    assertThat(this.testUtil.getMeterValue("Flow-Trigger-Status-Write-Failure-Meter"))
+        .isEqualTo(1);
+
+    doReturn(null).when(this.dbOperator).transaction(any());
+    this.batcher.flush();
+    // nothing left to write
+    this.batcher.flush();
+    verify(this.dbOperator, times(2)).transaction(any());
+    assertThat(this.testUtil.getMeterValue("Flow-Trigger-Status-Dropped-Meter")).isEqualTo(0);
+  }
+
+  @Test
+  public void testChangeIsDroppedAfterMaxWriteAttempts() throws Exception {
+    this.batcher.add(1, "trigger-1", "dep-1");
+
+    for (int i = 0; i < DependencyStatusBatcher.MAX_WRITE_ATTEMPTS; i++) {
+      assertThatThrownBy(() -> this.batcher.flush()).isInstanceOf(SQLException.class);
+    }
+    assertThat(this.testUtil.getMeterValue("Flow-Trigger-Status-Write-Failure-Meter"))
+        .isEqualTo(DependencyStatusBatcher.MAX_WRITE_ATTEMPTS);
+    assertThat(this.testUtil.getMeterValue("Flow-Trigger-Status-Dropped-Meter")).isEqualTo(1);
+
+    this.batcher.flush();
+    verify(this.dbOperator, times(DependencyStatusBatcher.MAX_WRITE_ATTEMPTS))
+        .transaction(any());
+  }
+
+  @Test
+  public void testNewerChangeGetsItsOwnWriteAttempts() throws Exception {
+    this.batcher.add(1, "trigger-1", "dep-1");
+    for (int i = 0; i < DependencyStatusBatcher.MAX_WRITE_ATTEMPTS - 1; i++) {
+      assertThatThrownBy(() -> this.batcher.flush()).isInstanceOf(SQLException.class);
+    }
+
+    // replaces the change which was about to be dropped
+    this.batcher.add(2, "trigger-1", "dep-1");
+    assertThatThrownBy(() -> this.batcher.flush()).isInstanceOf(SQLException.class);
+    assertThat(this.testUtil.getMeterValue("Flow-Trigger-Status-Dropped-Meter")).isEqualTo(0);
+
+    doReturn(null).when(this.dbOperator).transaction(any());
+    this.batcher.flush();
+    verify(this.dbOperator, times(DependencyStatusBatcher.MAX_WRITE_ATTEMPTS + 1))
+        .transaction(any());
+  }
+}